@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.fetcher;
+
+import com.ibm.icu.text.CharsetDetector;
+import org.apache.http.entity.ContentType;
+import org.apache.tika.Tika;
+import org.apache.tika.io.TikaInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares detecting the content type of undeclared content with a new
+ * detector over a stream of the whole body each time, against
+ * {@link ContentTypeDetector} with and without a declared mime type.
+ * <p>
+ * Run with {@code mvn -P benchmark test-compile exec:java
+ * -Dexec.args="ContentTypeDetectionBenchmark"}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentTypeDetectionBenchmark {
+
+  /**
+   * The host the content is detected for.
+   */
+  private static final String HOST = "venom.preferred.ai";
+
+  /**
+   * The size of the content in bytes.
+   */
+  @Param({"16384", "262144"})
+  private int size;
+
+  /**
+   * The html content to detect.
+   */
+  private byte[] content;
+
+  /**
+   * The mime type declared by the server.
+   */
+  private ContentType declared;
+
+  /**
+   * The detector under test.
+   */
+  private ContentTypeDetector detector;
+
+  /**
+   * Builds html content of the given size with accented text.
+   */
+  @Setup
+  public void setUp() {
+    final StringBuilder html = new StringBuilder("<!DOCTYPE html><html><head><title>Catalogue</title></head><body>");
+    while (html.length() < size) {
+      html.append("<p class=\"item\">Article numéro ").append(html.length()).append(" à la une</p>");
+    }
+    content = html.append("</body></html>").toString().getBytes(StandardCharsets.UTF_8);
+    declared = ContentType.create("text/html");
+    detector = new ContentTypeDetector();
+  }
+
+  /**
+   * Detects the mime type and charset with new detectors over the whole body.
+   *
+   * @param blackhole the sink for the detected values
+   * @throws IOException if the content cannot be read
+   */
+  @Benchmark
+  public void fullBody(final Blackhole blackhole) throws IOException {
+    try (TikaInputStream stream = TikaInputStream.get(new ByteArrayInputStream(content))) {
+      blackhole.consume(new Tika().detect(stream));
+    }
+    try (TikaInputStream stream = TikaInputStream.get(new ByteArrayInputStream(content))) {
+      blackhole.consume(new CharsetDetector().setText(stream).detect());
+    }
+  }
+
+  /**
+   * Detects the mime type and charset over a window of the body.
+   *
+   * @return the detected content type
+   */
+  @Benchmark
+  public ContentType windowed() {
+    return detector.detect(HOST, null, ByteBuffer.wrap(content));
+  }
+
+  /**
+   * Detects the charset of content declared as html.
+   *
+   * @return the detected content type
+   */
+  @Benchmark
+  public ContentType declaredHtml() {
+    return detector.detect(HOST, declared, ByteBuffer.wrap(content));
+  }
+
+}
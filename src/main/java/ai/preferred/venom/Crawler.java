@@ -16,27 +16,51 @@
 
 package ai.preferred.venom;
 
+import ai.preferred.venom.dedup.SeenFilter;
 import ai.preferred.venom.fetcher.*;
+import ai.preferred.venom.job.BackoffJobAttribute;
 import ai.preferred.venom.job.Job;
+import ai.preferred.venom.job.JobCheckpoint;
+import ai.preferred.venom.job.JobQueue;
 import ai.preferred.venom.job.PriorityJobQueue;
 import ai.preferred.venom.job.Scheduler;
+import ai.preferred.venom.limiter.ConcurrencyLimiter;
+import ai.preferred.venom.limiter.FixedConcurrencyLimiter;
+import ai.preferred.venom.limiter.HostConcurrencyLimiter;
+import ai.preferred.venom.metrics.Counter;
+import ai.preferred.venom.metrics.Histogram;
+import ai.preferred.venom.metrics.MetricsRegistry;
 import ai.preferred.venom.request.CrawlerRequest;
+import ai.preferred.venom.request.HttpFetcherRequest;
 import ai.preferred.venom.request.Request;
 import ai.preferred.venom.response.Response;
 import ai.preferred.venom.response.VResponse;
+import ai.preferred.venom.utils.UrlUtil;
+import ai.preferred.venom.utils.VirtualThreads;
 import ai.preferred.venom.validator.Validator;
+import com.google.common.util.concurrent.ForwardingBlockingQueue;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 /**
  * This class handles the coordination between classes during the pre and
@@ -54,6 +78,14 @@ public final class Crawler implements Interruptible, AutoCloseable {
    */
   private static final Logger LOGGER = LoggerFactory.getLogger(Crawler.class);
 
+  /**
+   * The maximum time in milliseconds to wait for a signal before
+   * checking the job queue again. Jobs added to the job queue directly,
+   * rather than through the scheduler, are not signalled and wait up to
+   * this long, as they did with polling.
+   */
+  private static final long IDLE_TIMEOUT = 100;
+
   /**
    * A new thread where the crawler would run.
    */
@@ -94,6 +126,11 @@ public final class Crawler implements Interruptible, AutoCloseable {
   @NotNull
   private final BlockingQueue<Job> jobQueue;
 
+  /**
+   * Determines whether the sleep time is applied by the job queue.
+   */
+  private final boolean queueSleepScheduled;
+
   /**
    * The scheduler used.
    */
@@ -101,10 +138,40 @@ public final class Crawler implements Interruptible, AutoCloseable {
   private final Scheduler scheduler;
 
   /**
-   * The maximum number of simultaneous connections.
+   * The limiter of simultaneous connections.
    */
   @NotNull
-  private final Semaphore connections;
+  private final ConcurrencyLimiter limiter;
+
+  /**
+   * The limiter of simultaneous connections to each host.
+   */
+  @Nullable
+  private final HostConcurrencyLimiter hostLimiter;
+
+  /**
+   * The jobs deferred until a connection of their host is released, only
+   * holding hosts with connections taken or jobs deferred.
+   */
+  @NotNull
+  private final ConcurrentMap<String, Queue<Job>> deferredJobs;
+
+  /**
+   * The jobs taken from the queue and not yet done or re-queued.
+   */
+  @NotNull
+  private final Set<Job> activeJobs;
+
+  /**
+   * The checkpoint to write the frontier to.
+   */
+  @Nullable
+  private final JobCheckpoint checkpoint;
+
+  /**
+   * The interval in milliseconds between checkpoints while running.
+   */
+  private final long checkpointInterval;
 
   /**
    * The session store used.
@@ -122,7 +189,7 @@ public final class Crawler implements Interruptible, AutoCloseable {
    * The thread pool to fetch requests and execute callbacks.
    */
   @NotNull
-  private final ForkJoinPool threadPool;
+  private final ExecutorService threadPool;
 
   /**
    * The worker manager to use.
@@ -130,17 +197,83 @@ public final class Crawler implements Interruptible, AutoCloseable {
   @NotNull
   private final WorkerManager workerManager;
 
+  /**
+   * The executor to re-queue jobs after their retry delay.
+   */
+  @NotNull
+  private final ScheduledExecutorService retryExecutor;
+
+  /**
+   * The supplier of backoff for jobs without one.
+   */
+  @Nullable
+  private final Supplier<BackoffJobAttribute> retryBackoff;
+
   /**
    * A list of pending futures.
    */
   @NotNull
   private final AtomicInteger jobsPending;
 
+  /**
+   * The number of responses fetched and waiting to be handled.
+   */
+  @NotNull
+  private final AtomicInteger handlersPending;
+
   /**
    * The list of fatal exceptions occurred during response handling.
    */
   private final List<FatalHandlerException> fatalHandlerExceptions;
 
+  /**
+   * The metrics registry used.
+   */
+  @NotNull
+  private final MetricsRegistry metrics;
+
+  /**
+   * The duration of handlers.
+   */
+  @NotNull
+  private final Histogram handlerDuration;
+
+  /**
+   * The number of exceptions thrown by handlers.
+   */
+  @NotNull
+  private final Counter handlerErrors;
+
+  /**
+   * The number of jobs re-queued for retry.
+   */
+  @NotNull
+  private final Counter retries;
+
+  /**
+   * The number of jobs stopped.
+   */
+  @NotNull
+  private final Counter stops;
+
+  /**
+   * The number of jobs that reached max tries.
+   */
+  @NotNull
+  private final Counter failures;
+
+  /**
+   * The number of jobs deferred as their host is saturated.
+   */
+  @NotNull
+  private final Counter deferrals;
+
+  /**
+   * The signal used to wake the crawler thread.
+   */
+  @NotNull
+  private final DispatchSignal dispatchSignal;
+
   /**
    * Constructs a new instance of crawler.
    *
@@ -154,22 +287,69 @@ public final class Crawler implements Interruptible, AutoCloseable {
     propRetainProxy = builder.propRetainProxy;
     router = builder.router;
     jobQueue = builder.jobQueue;
-    scheduler = new Scheduler(jobQueue);
-    connections = new Semaphore(builder.maxConnections);
+    queueSleepScheduled = jobQueue instanceof JobQueue && ((JobQueue) jobQueue).isSleepScheduled();
+    dispatchSignal = new DispatchSignal(crawlerThread);
+    scheduler = new Scheduler(new SignallingJobQueue(jobQueue, dispatchSignal), builder.seenFilter);
+    limiter = fetcher.limit(builder.limiter == null
+        ? new FixedConcurrencyLimiter(builder.maxConnections) : builder.limiter);
+    hostLimiter = builder.hostLimiter;
+    deferredJobs = new ConcurrentHashMap<>();
+    activeJobs = ConcurrentHashMap.newKeySet();
+    checkpoint = builder.checkpoint;
+    checkpointInterval = builder.checkpointInterval;
+    if (checkpoint != null && checkpoint.exists()) {
+      try {
+        final List<Job> jobs = checkpoint.read();
+        if (builder.seenFilter != null) {
+          // The filter is not checkpointed, so at least drop re-seeded requests still queued.
+          for (final Job job : jobs) {
+            builder.seenFilter.put(job.getRequest());
+          }
+        }
+        jobQueue.addAll(jobs);
+        LOGGER.info("Resumed {} jobs from checkpoint {}.", jobs.size(), checkpoint.getFile());
+      } catch (final IOException e) {
+        throw new UncheckedIOException("Unable to read checkpoint " + checkpoint.getFile() + ".", e);
+      }
+    }
     session = builder.session;
     sleepScheduler = builder.sleepScheduler;
-    threadPool = new ForkJoinPool(builder.parallelism,
-        pool -> {
-          final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
-          worker.setName(builder.name + " " + worker.getPoolIndex());
-          return worker;
-        },
-        null,
-        true
-    );
+    if (builder.virtualThreads) {
+      threadPool = VirtualThreads.newExecutor(builder.name);
+    } else {
+      threadPool = new ForkJoinPool(builder.parallelism,
+          pool -> {
+            final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName(builder.name + " " + worker.getPoolIndex());
+            return worker;
+          },
+          null,
+          true
+      );
+    }
     workerManager = builder.workerManager == null ? new ThreadedWorkerManager(threadPool) : builder.workerManager;
+    retryExecutor = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setNameFormat(builder.name + " retry").setDaemon(true).build());
+    retryBackoff = builder.retryBackoff;
     jobsPending = new AtomicInteger();
+    handlersPending = new AtomicInteger();
     fatalHandlerExceptions = Collections.synchronizedList(new ArrayList<>());
+
+    metrics = builder.metricsRegistry == null ? new MetricsRegistry() : builder.metricsRegistry;
+    handlerDuration = metrics.histogram("venom_crawler_handler_duration_seconds", "Time spent in handlers.");
+    handlerErrors = metrics.counter("venom_crawler_handler_errors_total", "Exceptions thrown by handlers.");
+    retries = metrics.counter("venom_crawler_retries_total", "Jobs re-queued for retry.");
+    stops = metrics.counter("venom_crawler_stops_total", "Jobs stopped without retry.");
+    failures = metrics.counter("venom_crawler_failures_total", "Jobs that reached max tries.");
+    deferrals = metrics.counter("venom_crawler_deferrals_total", "Jobs deferred as their host is saturated.");
+    metrics.gauge("venom_crawler_queue_size", "Jobs in the job queue.", jobQueue::size);
+    metrics.gauge("venom_crawler_jobs_pending", "Jobs taken from the queue and not yet done.", jobsPending::get);
+    metrics.gauge("venom_crawler_handlers_pending", "Responses waiting to be handled.", handlersPending::get);
+    metrics.gauge("venom_crawler_connections_in_flight", "Connections in use.", limiter::getInFlight);
+    metrics.gauge("venom_crawler_connections_limit", "Limit of connections in use.", limiter::getLimit);
+    if (builder.seenFilter != null) {
+      metrics.gauge("venom_crawler_seen_requests", "Requests recorded by the seen filter.", builder.seenFilter::size);
+    }
   }
 
   /**
@@ -216,6 +396,15 @@ public final class Crawler implements Interruptible, AutoCloseable {
     }
   }
 
+  /**
+   * Mark a job as done and wake the crawler thread if no jobs are pending.
+   */
+  private void completeJob() {
+    if (jobsPending.decrementAndGet() == 0) {
+      dispatchSignal.signal();
+    }
+  }
+
   /**
    * Check if request is an instance of crawler request and return it
    * if true, otherwise wrap it with crawler request and return that.
@@ -252,6 +441,7 @@ public final class Crawler implements Interruptible, AutoCloseable {
    * @param response Response returned.
    */
   private void handle(final Job job, final Response response) {
+    final long start = System.nanoTime();
     try {
       if (job.getHandler() != null) {
         job.getHandler().handle(job.getRequest(), new VResponse(response), getScheduler(),
@@ -269,89 +459,292 @@ public final class Crawler implements Interruptible, AutoCloseable {
       LOGGER.error("Fatal exception occurred in handler, when parsing response ({}), interrupting execution.",
           job.getRequest().getUrl(), e);
       fatalHandlerExceptions.add(e);
+      handlerErrors.inc();
+      dispatchSignal.signal();
     } catch (final Exception e) {
       LOGGER.error("An exception occurred in handler when parsing response: {}", job.getRequest().getUrl(), e);
+      handlerErrors.inc();
     } finally {
-      jobsPending.decrementAndGet();
+      handlerDuration.observeNanos(System.nanoTime() - start);
+      handlersPending.decrementAndGet();
+      activeJobs.remove(job);
+      completeJob();
+    }
+  }
+
+  /**
+   * Check if an exception indicates that a job should be stopped.
+   *
+   * @param ex Exception returned.
+   * @return true if the job should not be retried.
+   */
+  private boolean isStopped(final Throwable ex) {
+    return (ex instanceof ValidationException && ((ValidationException) ex).getStatus() == Validator.Status.STOP)
+        || ex instanceof StopCodeException
+        || ex instanceof CancellationException;
+  }
+
+  /**
+   * Release a connection to the limiters with the outcome of the fetch.
+   * <p>
+   * A successful fetch is reported to the global limiter as dropped if more
+   * responses are waiting to be handled than the current limit, as handlers
+   * are falling behind.
+   * </p>
+   *
+   * @param host      The host of the job, or null if hosts are not limited.
+   * @param throwable Exception returned, or null if successful.
+   * @param latency   The latency of the fetch in nanoseconds, or negative if unknown.
+   */
+  private void releaseConnection(final String host, final Throwable throwable, final long latency) {
+    final ConcurrencyLimiter.Outcome outcome;
+    if (throwable == null) {
+      outcome = ConcurrencyLimiter.Outcome.SUCCESS;
+    } else if (isStopped(throwable)) {
+      outcome = ConcurrencyLimiter.Outcome.IGNORED;
+    } else {
+      outcome = ConcurrencyLimiter.Outcome.DROPPED;
+    }
+
+    if (throwable == null && handlersPending.incrementAndGet() > limiter.getLimit()) {
+      limiter.release(ConcurrencyLimiter.Outcome.DROPPED, latency);
+    } else {
+      limiter.release(outcome, latency);
+    }
+    if (host != null) {
+      releaseHost(host, outcome, latency);
+    }
+  }
+
+  /**
+   * Take a connection of the host of a job, or defer the job until a
+   * connection of the host is released.
+   * <p>
+   * A deferred job is counted as pending until it is re-queued.
+   * </p>
+   *
+   * @param job  The instance of job being processed.
+   * @param host The host of the job.
+   * @return true if a connection is taken, false if the job is deferred.
+   */
+  private boolean acquireHost(final Job job, final String host) {
+    while (true) {
+      final Queue<Job> deferred = deferredJobs.computeIfAbsent(host, key -> new ArrayDeque<>());
+      synchronized (deferred) {
+        if (deferredJobs.get(host) != deferred) {
+          continue;
+        }
+        if (hostLimiter.tryAcquire(host)) {
+          return true;
+        }
+        jobsPending.incrementAndGet();
+        deferred.add(job);
+        break;
+      }
+    }
+    deferrals.inc();
+    LOGGER.debug("Job {} - {} deferred, host is saturated.", Integer.toHexString(job.hashCode()),
+        job.getRequest().getUrl());
+    return false;
+  }
+
+  /**
+   * Release a connection of a host, and re-queue a job deferred for the host.
+   *
+   * @param host    The host of the job.
+   * @param outcome The outcome of the fetch.
+   * @param latency The latency of the fetch in nanoseconds, or negative if unknown.
+   */
+  private void releaseHost(final String host, final ConcurrencyLimiter.Outcome outcome, final long latency) {
+    hostLimiter.release(host, outcome, latency);
+    final Queue<Job> deferred = deferredJobs.get(host);
+    if (deferred == null) {
+      return;
+    }
+    final Job next;
+    synchronized (deferred) {
+      next = deferred.poll();
+      if (deferred.isEmpty() && hostLimiter.getInFlight(host) == 0) {
+        deferredJobs.remove(host, deferred);
+      }
+    }
+    if (next != null) {
+      jobQueue.add(next);
+      activeJobs.remove(next);
+      dispatchSignal.signal();
+      completeJob();
     }
   }
 
   /**
    * Handle all exception thrown during the fetching process.
+   * <p>
+   * A job to be retried is re-queued before it is marked as done, so that
+   * the crawler thread never sees an empty queue with no jobs pending
+   * while a retry is outstanding.
+   * </p>
    *
    * @param job The instance of job being processed.
    * @param ex  Exception returned.
    */
   private void except(final Job job, final Throwable ex) {
-    if ((ex instanceof ValidationException && ((ValidationException) ex).getStatus() == Validator.Status.STOP)
-        || ex instanceof StopCodeException
-        || ex instanceof CancellationException) {
-      jobsPending.decrementAndGet();
+    if (isStopped(ex)) {
+      stops.inc();
+      activeJobs.remove(job);
+      completeJob();
     } else {
-      synchronized (jobsPending) { // Synchronisation required to prevent crawler stopping incorrectly.
-        jobsPending.decrementAndGet();
-        if (job.getTryCount() < maxTries) {
-          job.prepareRetry();
-          jobQueue.add(job);
-          LOGGER.debug("Job {} - {} re-queued.", Integer.toHexString(job.hashCode()), job.getRequest().getUrl());
-        } else {
-          LOGGER.error("Max retries reached for request: {}", job.getRequest().getUrl());
+      if (job.getTryCount() < maxTries) {
+        retries.inc();
+        if (retryBackoff != null && job.getJobAttribute(BackoffJobAttribute.class) == null) {
+          job.setJobAttribute(retryBackoff.get());
+        }
+        job.prepareRetry();
+        final BackoffJobAttribute backoff = job.getJobAttribute(BackoffJobAttribute.class);
+        final long delay = backoff == null ? 0 : backoff.getDelay();
+        if (delay > 0) {
+          delayRetry(job, delay);
+          return;
         }
+        jobQueue.add(job);
+        dispatchSignal.signal();
+        LOGGER.debug("Job {} - {} re-queued.", Integer.toHexString(job.hashCode()), job.getRequest().getUrl());
+      } else {
+        LOGGER.error("Max retries reached for request: {}", job.getRequest().getUrl());
+        failures.inc();
       }
+      activeJobs.remove(job);
+      completeJob();
     }
   }
 
+  /**
+   * Re-queue a job after a delay, without blocking the caller.
+   * <p>
+   * The job is counted as pending until it is re-queued. If the crawler
+   * is shutting down, the job is dropped but kept in the checkpoint.
+   * </p>
+   *
+   * @param job   The instance of job to retry.
+   * @param delay The delay in milliseconds.
+   */
+  private void delayRetry(final Job job, final long delay) {
+    try {
+      retryExecutor.schedule(() -> {
+        jobQueue.add(job);
+        activeJobs.remove(job);
+        dispatchSignal.signal();
+        LOGGER.debug("Job {} - {} re-queued after {} ms.", Integer.toHexString(job.hashCode()),
+            job.getRequest().getUrl(), delay);
+        completeJob();
+      }, delay, TimeUnit.MILLISECONDS);
+    } catch (final RejectedExecutionException e) {
+      LOGGER.debug("Job {} - {} dropped, crawler is shutting down.", Integer.toHexString(job.hashCode()),
+          job.getRequest().getUrl());
+      completeJob();
+    }
+  }
+
+  /**
+   * Check if the crawler is done and may exit.
+   * <p>
+   * Pending jobs are read before the job queue, as jobs are always
+   * added to the queue before the job that added them is marked as done.
+   * </p>
+   *
+   * @return true if no jobs are pending or queued, and exit is allowed.
+   */
+  private boolean isDone() {
+    return jobsPending.get() == 0 && jobQueue.isEmpty() && exitWhenDone.get();
+  }
+
+  /**
+   * Get the next job to fetch, waiting for a signal while there are no jobs.
+   *
+   * @return the next job or null if none is available yet.
+   * @throws InterruptedException If waiting is interrupted
+   */
+  private Job nextJob() throws InterruptedException {
+    final Job job = jobQueue.poll();
+    if (job != null) {
+      return job;
+    }
+    if (!jobQueue.isEmpty()) {
+      // Jobs are queued but not ready, the queue wakes us when one is.
+      return jobQueue.poll(IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+    dispatchSignal.await(IDLE_TIMEOUT);
+    return null;
+  }
+
   /**
    * Start polling for jobs, and fetch request.
    */
   private void run() {
     fetcher.start();
     long lastRequestTime = 0;
+    long lastCheckpointTime = System.nanoTime();
     while (!Thread.currentThread().isInterrupted() && !threadPool.isShutdown() && fatalHandlerExceptions.isEmpty()) {
       try {
-        final Job job = jobQueue.poll(100, TimeUnit.MILLISECONDS);
+        if (checkpoint != null && checkpointInterval > 0
+            && System.nanoTime() - lastCheckpointTime >= TimeUnit.MILLISECONDS.toNanos(checkpointInterval)) {
+          writeCheckpoint();
+          lastCheckpointTime = System.nanoTime();
+        }
+        if (isDone()) {
+          LOGGER.debug("({}) Exit conditions reached.", crawlerThread.getName());
+          break;
+        }
+        final Job job = nextJob();
         if (job == null) {
-          if (jobsPending.get() > 0) {
-            continue;
-          }
-          // This should only run if pendingJob == 0 && job == null
-          synchronized (jobsPending) {
-            LOGGER.debug("({}) Checking for exit conditions.", crawlerThread.getName());
-            if (jobQueue.peek() == null && jobsPending.get() <= 0 && exitWhenDone.get()) {
-              break;
-            }
-          }
           continue;
         }
+        activeJobs.add(job);
 
-        sleep(job, lastRequestTime);
-        lastRequestTime = System.nanoTime();
+        final String host = hostLimiter == null ? null : UrlUtil.getHost(job.getRequest().getUrl());
+        if (host != null && !acquireHost(job, host)) {
+          continue;
+        }
 
-        connections.acquire();
+        if (!queueSleepScheduled) {
+          sleep(job, lastRequestTime);
+          lastRequestTime = System.nanoTime();
+        }
+
+        limiter.acquire();
         jobsPending.incrementAndGet();
         threadPool.execute(() -> {
           LOGGER.debug("Preparing job {} - {} (try {}/{}).",
               Integer.toHexString(job.hashCode()), job.getRequest().getUrl(), job.getTryCount(), maxTries);
           final CrawlerRequest crawlerRequest = prepareRequest(job.getRequest(), job.getTryCount());
           if (Thread.currentThread().isInterrupted()) {
-            connections.release();
-            jobsPending.decrementAndGet();
+            limiter.release(ConcurrencyLimiter.Outcome.IGNORED, -1);
+            if (host != null) {
+              releaseHost(host, ConcurrencyLimiter.Outcome.IGNORED, -1);
+            }
+            completeJob();
             LOGGER.debug("The thread pool is interrupted");
             return;
           }
 
           final CompletableFuture<Response> completableResponseFuture = new CompletableFuture<>();
+          final CompletableCallback callback = new CompletableCallback(job, completableResponseFuture);
           completableResponseFuture
-              .whenComplete((response, throwable) -> connections.release())
+              .whenComplete((response, throwable) -> releaseConnection(host, throwable,
+                  callback.getLatency()))
               .thenAcceptAsync(response -> handle(job, response), threadPool)
               .whenComplete((blank, throwable) -> {
                 if (throwable != null) {
                   final Throwable cause = throwable.getCause();
+                  if (cause instanceof RejectedExecutionException
+                      && !completableResponseFuture.isCompletedExceptionally()) {
+                    // The response was counted as waiting to be handled, but the handler never ran.
+                    handlersPending.decrementAndGet();
+                  }
                   except(job, cause);
                 }
               });
 
-          fetcher.fetch(crawlerRequest, new CompletableCallback(job, completableResponseFuture));
+          fetcher.fetch(crawlerRequest, callback);
         });
       } catch (final InterruptedException e) {
         LOGGER.debug("({}) producer thread interrupted.", crawlerThread.getName(), e);
@@ -363,9 +756,31 @@ public final class Crawler implements Interruptible, AutoCloseable {
       LOGGER.debug("Handler exception found... Interrupting.");
       interrupt();
     }
+    if (checkpoint != null) {
+      writeCheckpoint();
+    }
     LOGGER.debug("({}) will stop producing requests.", crawlerThread.getName());
   }
 
+  /**
+   * Write the jobs queued and the jobs taken from the queue but not yet
+   * done to the checkpoint, logging any error.
+   * <p>
+   * Jobs taken from the queue are read before the queue, as they are
+   * only forgotten after they are re-queued.
+   * </p>
+   */
+  private void writeCheckpoint() {
+    final Set<Job> jobs = Collections.newSetFromMap(new IdentityHashMap<>());
+    jobs.addAll(activeJobs);
+    jobs.addAll(jobQueue);
+    try {
+      checkpoint.write(jobs);
+    } catch (final IOException e) {
+      LOGGER.error("Unable to write checkpoint {}.", checkpoint.getFile(), e);
+    }
+  }
+
   /**
    * Get the instance of scheduler used.
    *
@@ -375,6 +790,15 @@ public final class Crawler implements Interruptible, AutoCloseable {
     return scheduler;
   }
 
+  /**
+   * Get the metrics registry of this crawler.
+   *
+   * @return the metrics registry used.
+   */
+  public MetricsRegistry getMetricsRegistry() {
+    return metrics;
+  }
+
   /**
    * Starts the crawler by starting a new thread to poll for jobs.
    *
@@ -418,11 +842,18 @@ public final class Crawler implements Interruptible, AutoCloseable {
       crawlerThread.interrupt();
     }
 
+    // A running crawler thread writes the checkpoint as it exits, once it
+    // can no longer take a job from the queue.
+    if (checkpoint != null && !crawlerThread.isAlive()) {
+      writeCheckpoint();
+    }
+
     if (!threadPool.isTerminated()) {
       threadPool.shutdownNow();
     }
 
     workerManager.interrupt();
+    retryExecutor.shutdownNow();
 
     if (fetcher instanceof Interruptible) {
       ((Interruptible) fetcher).interrupt();
@@ -432,6 +863,7 @@ public final class Crawler implements Interruptible, AutoCloseable {
   @Override
   public void close() throws Exception {
     if (exitWhenDone.compareAndSet(false, true)) {
+      dispatchSignal.signal();
       LOGGER.debug("Initialising \"{}\" shutdown, waiting for threads to join...", crawlerThread.getName());
 
       try {
@@ -452,6 +884,10 @@ public final class Crawler implements Interruptible, AutoCloseable {
         interrupt();
         Thread.currentThread().interrupt();
       }
+      retryExecutor.shutdownNow();
+      if (checkpoint != null) {
+        writeCheckpoint();
+      }
 
       Exception cachedException = null;
       for (final AutoCloseable closeable : new AutoCloseable[]{workerManager, fetcher}) {
@@ -494,6 +930,126 @@ public final class Crawler implements Interruptible, AutoCloseable {
     }
   }
 
+  /**
+   * A signal to wake the crawler thread when there may be work to do.
+   */
+  private static final class DispatchSignal {
+
+    /**
+     * The thread waiting on this signal.
+     */
+    private final Thread waiter;
+
+    /**
+     * Whether a signal has been sent since the last wait.
+     */
+    private final AtomicBoolean signalled = new AtomicBoolean();
+
+    /**
+     * Constructs an instance of DispatchSignal.
+     *
+     * @param waiter The thread waiting on this signal.
+     */
+    private DispatchSignal(final Thread waiter) {
+      this.waiter = waiter;
+    }
+
+    /**
+     * Wakes the waiting thread, or the next wait if it is not waiting.
+     */
+    private void signal() {
+      if (!signalled.getAndSet(true)) {
+        LockSupport.unpark(waiter);
+      }
+    }
+
+    /**
+     * Waits until signalled or the timeout has elapsed.
+     *
+     * @param timeout The maximum time to wait in milliseconds.
+     * @throws InterruptedException If the waiting thread is interrupted
+     */
+    private void await(final long timeout) throws InterruptedException {
+      final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+      long remaining = deadline - System.nanoTime();
+      while (!signalled.getAndSet(false) && remaining > 0) {
+        LockSupport.parkNanos(this, remaining);
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        remaining = deadline - System.nanoTime();
+      }
+    }
+
+  }
+
+  /**
+   * A job queue that signals the crawler thread when jobs are added.
+   */
+  private static final class SignallingJobQueue extends ForwardingBlockingQueue<Job> {
+
+    /**
+     * The job queue to delegate to.
+     */
+    private final BlockingQueue<Job> delegate;
+
+    /**
+     * The signal to send when jobs are added.
+     */
+    private final DispatchSignal signal;
+
+    /**
+     * Constructs an instance of SignallingJobQueue.
+     *
+     * @param delegate The job queue to delegate to.
+     * @param signal   The signal to send when jobs are added.
+     */
+    private SignallingJobQueue(final BlockingQueue<Job> delegate, final DispatchSignal signal) {
+      this.delegate = delegate;
+      this.signal = signal;
+    }
+
+    @Override
+    protected BlockingQueue<Job> delegate() {
+      return delegate;
+    }
+
+    @Override
+    public boolean add(final Job job) {
+      final boolean added = delegate.add(job);
+      signal.signal();
+      return added;
+    }
+
+    @Override
+    public boolean addAll(final Collection<? extends Job> collection) {
+      final boolean added = delegate.addAll(collection);
+      signal.signal();
+      return added;
+    }
+
+    @Override
+    public boolean offer(final Job job) {
+      final boolean added = delegate.offer(job);
+      signal.signal();
+      return added;
+    }
+
+    @Override
+    public boolean offer(final Job job, final long timeout, final TimeUnit unit) throws InterruptedException {
+      final boolean added = delegate.offer(job, timeout, unit);
+      signal.signal();
+      return added;
+    }
+
+    @Override
+    public void put(final Job job) throws InterruptedException {
+      delegate.put(job);
+      signal.signal();
+    }
+
+  }
+
   /**
    * A callback that utilises CompletableFuture.
    */
@@ -509,6 +1065,16 @@ public final class Crawler implements Interruptible, AutoCloseable {
      */
     private final CompletableFuture<Response> completableResponseFuture;
 
+    /**
+     * The time this callback was created.
+     */
+    private final long start;
+
+    /**
+     * The latency of the fetch in nanoseconds, or negative if unknown.
+     */
+    private volatile long latency;
+
     /**
      * Constructs an instance of CompletableCallback.
      *
@@ -518,12 +1084,41 @@ public final class Crawler implements Interruptible, AutoCloseable {
     private CompletableCallback(final Job job, final CompletableFuture<Response> completableResponseFuture) {
       this.job = job;
       this.completableResponseFuture = completableResponseFuture;
+      this.start = System.nanoTime();
+      this.latency = -1;
+    }
+
+    /**
+     * Get the latency of the fetch.
+     *
+     * @return the latency in nanoseconds, or negative if unknown.
+     */
+    private long getLatency() {
+      return latency;
+    }
+
+    /**
+     * Measure the latency of the fetch, using the time to the first response
+     * in the diagnostics of the request if available.
+     *
+     * @param request The request fetched.
+     */
+    private void measureLatency(final Request request) {
+      if (request instanceof HttpFetcherRequest) {
+        final HttpFetcherRequest.Diagnostics diagnostics = ((HttpFetcherRequest) request).getDiagnostics();
+        if (diagnostics.getStart() != null && diagnostics.getAcknowledge() != null) {
+          latency = diagnostics.getAcknowledge() - diagnostics.getStart();
+          return;
+        }
+      }
+      latency = System.nanoTime() - start;
     }
 
     @Override
     public void completed(final @NotNull Request request, final @NotNull Response response) {
       LOGGER.debug("Completed received for job {} - {}.", Integer.toHexString(job.hashCode()),
           job.getRequest().getUrl());
+      measureLatency(request);
       completableResponseFuture.complete(response);
     }
 
@@ -531,6 +1126,7 @@ public final class Crawler implements Interruptible, AutoCloseable {
     public void failed(final @NotNull Request request, final @NotNull Exception ex) {
       LOGGER.debug("Failed received for job {} - {}.", Integer.toHexString(job.hashCode()),
           job.getRequest().getUrl());
+      measureLatency(request);
       completableResponseFuture.completeExceptionally(ex);
     }
 
@@ -558,6 +1154,41 @@ public final class Crawler implements Interruptible, AutoCloseable {
      */
     private int maxConnections;
 
+    /**
+     * The limiter of simultaneous connections.
+     */
+    private ConcurrencyLimiter limiter;
+
+    /**
+     * The limiter of simultaneous connections to each host.
+     */
+    private HostConcurrencyLimiter hostLimiter;
+
+    /**
+     * The supplier of backoff for jobs without one.
+     */
+    private Supplier<BackoffJobAttribute> retryBackoff;
+
+    /**
+     * The metrics registry used.
+     */
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * The filter of requests already scheduled.
+     */
+    private SeenFilter seenFilter;
+
+    /**
+     * The checkpoint to write the frontier to.
+     */
+    private JobCheckpoint checkpoint;
+
+    /**
+     * The interval in milliseconds between checkpoints while running.
+     */
+    private long checkpointInterval;
+
     /**
      * The maximum number of tries for a request.
      */
@@ -573,6 +1204,11 @@ public final class Crawler implements Interruptible, AutoCloseable {
      */
     private int parallelism;
 
+    /**
+     * Whether to run tasks on virtual threads.
+     */
+    private boolean virtualThreads;
+
     /**
      * The worker manager to use.
      */
@@ -609,9 +1245,17 @@ public final class Crawler implements Interruptible, AutoCloseable {
     private Builder() {
       fetcher = AsyncFetcher.buildDefault();
       maxConnections = 32;
+      limiter = null;
+      hostLimiter = null;
+      retryBackoff = null;
+      metricsRegistry = null;
+      seenFilter = null;
+      checkpoint = null;
+      checkpointInterval = 60000;
       maxTries = 50;
       name = "Crawler";
       parallelism = Runtime.getRuntime().availableProcessors();
+      virtualThreads = false;
       workerManager = null;
       propRetainProxy = 0.05;
       router = null;
@@ -662,6 +1306,27 @@ public final class Crawler implements Interruptible, AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets whether fetching, response handling and worker tasks run on
+     * virtual threads instead of a fork join pool. Defaults to false.
+     * <p>
+     * With virtual threads, a new thread is started for each task, parallelism
+     * is ignored and blocking calls in {@link Worker#executeBlockingIO(Runnable)}
+     * run inline without spawning compensation threads. This requires Java 21
+     * or above.
+     * </p>
+     *
+     * @param virtualThreads whether to use virtual threads.
+     * @return this
+     */
+    public Builder setVirtualThreads(final boolean virtualThreads) {
+      if (virtualThreads && !VirtualThreads.isSupported()) {
+        throw new IllegalStateException("Attribute 'virtualThreads' requires Java 21 or above.");
+      }
+      this.virtualThreads = virtualThreads;
+      return this;
+    }
+
     /**
      * Sets the WorkerManager to be used, if not set, default will be chosen.
      *
@@ -694,6 +1359,11 @@ public final class Crawler implements Interruptible, AutoCloseable {
 
     /**
      * Sets the JobQueue to be used, if not set, default will be chosen.
+     * <p>
+     * If the job queue returns true for {@link JobQueue#isSleepScheduled()},
+     * such as {@link ai.preferred.venom.job.HostPartitionedJobQueue}, sleep
+     * time is applied by the queue instead of by the crawler.
+     * </p>
      *
      * @param jobQueue scheduler to be used.
      * @return this
@@ -719,6 +1389,7 @@ public final class Crawler implements Interruptible, AutoCloseable {
 
     /**
      * The number of concurrent connections allowed out of the client.
+     * This is ignored if a concurrency limiter is set.
      *
      * @param maxConnections maximum number of concurrent connections.
      * @return this
@@ -731,6 +1402,47 @@ public final class Crawler implements Interruptible, AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets the ConcurrencyLimiter to be used to limit concurrent connections
+     * out of the client, such as {@link ai.preferred.venom.limiter.AimdConcurrencyLimiter}
+     * to adapt the limit to the latency and failures of fetches. If not set,
+     * a fixed limit of max connections is used.
+     * <p>
+     * The limiter is wrapped by {@link Fetcher#limit(ConcurrencyLimiter)},
+     * so that requests are also held back while the fetcher cannot keep up,
+     * such as when its {@link ai.preferred.venom.storage.AsyncFileManager}
+     * is at capacity.
+     * </p>
+     *
+     * @param limiter concurrency limiter to be used.
+     * @return this
+     */
+    public Builder setConcurrencyLimiter(final @NotNull ConcurrencyLimiter limiter) {
+      if (limiter == null) {
+        throw new IllegalStateException("Attribute 'limiter' cannot be null.");
+      }
+      this.limiter = limiter;
+      return this;
+    }
+
+    /**
+     * Sets the HostConcurrencyLimiter to be used to limit concurrent connections
+     * to each host. Defaults to none.
+     * <p>
+     * A job for a host at its limit is deferred before a global connection is
+     * taken, and re-queued when a connection of that host is released. The
+     * maximum route connections of the fetcher should be at least the maximum
+     * limit of a host, so that requests do not wait in the connection pool.
+     * </p>
+     *
+     * @param hostLimiter host concurrency limiter to be used.
+     * @return this
+     */
+    public Builder setHostConcurrencyLimiter(final HostConcurrencyLimiter hostLimiter) {
+      this.hostLimiter = hostLimiter;
+      return this;
+    }
+
     /**
      * Sets number of times to retry for a request. This number excludes the first try.
      * Defaults to 50.
@@ -746,6 +1458,103 @@ public final class Crawler implements Interruptible, AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets the supplier of backoff for jobs retried without a
+     * {@link BackoffJobAttribute}. Defaults to none, where such jobs are
+     * re-queued immediately.
+     * <p>
+     * Jobs with a backoff are held back from the job queue until their
+     * delay has elapsed, without blocking the crawler thread.
+     * </p>
+     *
+     * @param retryBackoff supplier of backoff to be used.
+     * @return this
+     */
+    public Builder setRetryBackoff(final Supplier<BackoffJobAttribute> retryBackoff) {
+      this.retryBackoff = retryBackoff;
+      return this;
+    }
+
+    /**
+     * Sets the MetricsRegistry to record the metrics of this crawler to.
+     * If not set, a new registry is used, which can be retrieved with
+     * {@link Crawler#getMetricsRegistry()}.
+     * <p>
+     * Pass the same registry to the fetcher to record its metrics alongside.
+     * </p>
+     *
+     * @param metricsRegistry metrics registry to be used.
+     * @return this
+     */
+    public Builder setMetricsRegistry(final MetricsRegistry metricsRegistry) {
+      this.metricsRegistry = metricsRegistry;
+      return this;
+    }
+
+    /**
+     * Sets the SeenFilter to drop requests already scheduled, keyed by
+     * their method, url and body. Defaults to null, keeping all requests.
+     * <p>
+     * Use {@link ai.preferred.venom.dedup.BloomSeenFilter} for approximate,
+     * or {@link ai.preferred.venom.dedup.FingerprintSeenFilter} for exact
+     * filtering. Retries are not dropped.
+     * </p>
+     * <p>
+     * The seen filter is not written to a checkpoint. On resume, only the
+     * requests restored from the checkpoint are recorded as seen, so a
+     * resumed crawl must not schedule its seeds again, or seeds already
+     * fetched will be fetched again.
+     * </p>
+     *
+     * @param seenFilter seen filter to be used.
+     * @return this
+     */
+    public Builder setSeenFilter(final SeenFilter seenFilter) {
+      this.seenFilter = seenFilter;
+      return this;
+    }
+
+    /**
+     * Sets the checkpoint to snapshot the frontier to, and resume it from.
+     * <p>
+     * If the checkpoint file exists when the crawler is built, its jobs are
+     * added to the job queue. The jobs queued, fetching, deferred and waiting
+     * to be retried are written to the checkpoint periodically while running,
+     * and on {@link Crawler#interrupt()} and {@link Crawler#close()}. Jobs
+     * fetching when a checkpoint is taken will be fetched again on resume.
+     * </p>
+     * <p>
+     * Requests already fetched are not remembered, see
+     * {@link #setSeenFilter(SeenFilter)} before scheduling seeds on resume.
+     * </p>
+     * <p>
+     * Requests fed from the iterator of a lazy job queue are not checkpointed
+     * until they are taken from it.
+     * </p>
+     *
+     * @param checkpoint checkpoint to be used.
+     * @return this
+     */
+    public Builder setCheckpoint(final JobCheckpoint checkpoint) {
+      this.checkpoint = checkpoint;
+      return this;
+    }
+
+    /**
+     * Sets the interval between checkpoints while running, defaults to
+     * 60000 ms. Set to 0 to write checkpoints only on interrupt and close.
+     *
+     * @param checkpointInterval interval in milliseconds.
+     * @return this
+     */
+    public Builder setCheckpointInterval(final long checkpointInterval) {
+      if (checkpointInterval < 0) {
+        throw new IllegalStateException("Attribute 'checkpointInterval' must be more or equal to 0.");
+      }
+      this.checkpointInterval = checkpointInterval;
+      return this;
+    }
+
     /**
      * Sets the proportion of max tries where a specified proxy, if specified will be used.
      * Number should be between 0 and 1 inclusive, Defaults to 0.05.
@@ -767,6 +1576,10 @@ public final class Crawler implements Interruptible, AutoCloseable {
 
     /**
      * Sets the SleepScheduler to be used, if not set, default will be chosen.
+     * <p>
+     * This is not used if the job queue applies its own sleep time,
+     * see {@link JobQueue#isSleepScheduled()}.
+     * </p>
      *
      * @param sleepScheduler sleepAndGetTime scheduler to be used.
      * @return this
@@ -78,6 +78,24 @@ public class SleepScheduler {
     this.random = random;
   }
 
+  /**
+   * Get the minimum amount of time to wait specified in this class.
+   *
+   * @return minimum interval required
+   */
+  public final long getMin() {
+    return min;
+  }
+
+  /**
+   * Get the maximum amount of time to wait specified in this class.
+   *
+   * @return maximum interval required
+   */
+  public final long getMax() {
+    return max;
+  }
+
   /**
    * Get the amount of time to wait specified in this class.
    *
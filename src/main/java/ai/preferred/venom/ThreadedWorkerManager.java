@@ -53,6 +53,11 @@ public class ThreadedWorkerManager implements WorkerManager {
 
   /**
    * Constructs a threaded worker manager with a specified executor.
+   * <p>
+   * Blocking tasks are run with {@link ForkJoinPool#managedBlock} when
+   * called from a fork join pool, and inline otherwise, such as when the
+   * executor runs each task on its own virtual thread.
+   * </p>
    *
    * @param executor An executor service
    */
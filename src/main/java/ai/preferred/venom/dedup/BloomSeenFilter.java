@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.dedup;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides an approximate seen filter backed by a scalable
+ * Bloom filter.
+ * <p>
+ * When the current Bloom filter reaches its expected insertions, a new
+ * filter is added with twice the capacity and half the false positive
+ * probability, so that the overall false positive probability stays
+ * below twice the initial probability however many fingerprints are put.
+ * A request may be falsely reported as seen, but never falsely reported
+ * as unseen.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class BloomSeenFilter implements SeenFilter {
+
+  /**
+   * The factor to grow the capacity of each new filter by.
+   */
+  private static final int GROWTH = 2;
+
+  /**
+   * The factor to tighten the false positive probability of each new filter by.
+   */
+  private static final double TIGHTENING = 0.5;
+
+  /**
+   * The filters, in order of creation.
+   */
+  private final List<BloomFilter<Long>> filters = new ArrayList<>();
+
+  /**
+   * The expected insertions of the current filter.
+   */
+  private long capacity;
+
+  /**
+   * The false positive probability of the current filter.
+   */
+  private double fpp;
+
+  /**
+   * The number of fingerprints put.
+   */
+  private long size;
+
+  /**
+   * Constructs an instance of BloomSeenFilter.
+   *
+   * @param expectedInsertions the expected insertions of the initial filter.
+   * @param fpp                the false positive probability of the initial filter.
+   */
+  public BloomSeenFilter(final long expectedInsertions, final double fpp) {
+    if (expectedInsertions < 1) {
+      throw new IllegalArgumentException("Expected insertions must be more or equal to 1.");
+    }
+    if (fpp <= 0 || fpp >= 1) {
+      throw new IllegalArgumentException("False positive probability not within range, must be (0,1).");
+    }
+    this.capacity = expectedInsertions;
+    this.fpp = fpp;
+    filters.add(BloomFilter.create(Funnels.longFunnel(), capacity, fpp));
+  }
+
+  /**
+   * Constructs an instance of BloomSeenFilter with an initial capacity of
+   * a million fingerprints and a false positive probability of 0.001.
+   */
+  public BloomSeenFilter() {
+    this(1000000, 0.001);
+  }
+
+  @Override
+  public synchronized boolean put(final long fingerprint) {
+    if (contains(fingerprint)) {
+      return false;
+    }
+    BloomFilter<Long> current = filters.get(filters.size() - 1);
+    if (current.approximateElementCount() >= capacity) {
+      capacity *= GROWTH;
+      fpp *= TIGHTENING;
+      current = BloomFilter.create(Funnels.longFunnel(), capacity, fpp);
+      filters.add(current);
+    }
+    current.put(fingerprint);
+    size++;
+    return true;
+  }
+
+  @Override
+  public synchronized boolean contains(final long fingerprint) {
+    for (final BloomFilter<Long> filter : filters) {
+      if (filter.mightContain(fingerprint)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of Bloom filters in use.
+   *
+   * @return the number of Bloom filters.
+   */
+  synchronized int getStages() {
+    return filters.size();
+  }
+
+}
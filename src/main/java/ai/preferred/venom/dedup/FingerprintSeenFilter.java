@@ -0,0 +1,311 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.dedup;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * This class provides an exact seen filter, that stores fingerprints in
+ * open-addressing hash tables outside of the heap.
+ * <p>
+ * Fingerprints are spread across shards, each a linear probing table in
+ * a direct buffer of 8 bytes per slot, which is doubled when it is more
+ * than half full. Two requests are only confused if their 64-bit
+ * fingerprints collide.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class FingerprintSeenFilter implements SeenFilter {
+
+  /**
+   * The number of shards, a power of two.
+   */
+  private static final int SHARDS = 16;
+
+  /**
+   * The value of an empty slot.
+   */
+  private static final long EMPTY = 0;
+
+  /**
+   * The value stored in place of a fingerprint equal to {@link #EMPTY}.
+   */
+  private static final long ZERO_REPLACEMENT = 0x9E3779B97F4A7C15L;
+
+  /**
+   * The maximum number of slots in a shard, the most whose table fits in
+   * a direct buffer.
+   */
+  static final int MAX_SLOTS = 1 << 27;
+
+  /**
+   * The shards of this filter.
+   */
+  private final Shard[] shards = new Shard[SHARDS];
+
+  /**
+   * Constructs an instance of FingerprintSeenFilter.
+   *
+   * @param expectedInsertions the number of fingerprints to size the tables for.
+   */
+  public FingerprintSeenFilter(final long expectedInsertions) {
+    if (expectedInsertions < 0) {
+      throw new IllegalArgumentException("Expected insertions must be more or equal to 0.");
+    }
+    final int slots = slotsFor(expectedInsertions);
+    for (int i = 0; i < SHARDS; i++) {
+      shards[i] = new Shard(slots);
+    }
+  }
+
+  /**
+   * Constructs an instance of FingerprintSeenFilter sized for a million
+   * fingerprints.
+   */
+  public FingerprintSeenFilter() {
+    this(1000000);
+  }
+
+  /**
+   * Get the number of slots of a shard sized for a number of fingerprints.
+   *
+   * @param expectedInsertions the number of fingerprints to size the tables for.
+   * @return the number of slots, a power of two no more than {@link #MAX_SLOTS}.
+   */
+  static int slotsFor(final long expectedInsertions) {
+    final long perShard = Math.max(1, expectedInsertions / SHARDS) * 2;
+    return (int) Math.max(16, Math.min(MAX_SLOTS, Long.highestOneBit(perShard - 1) << 1));
+  }
+
+  /**
+   * Get the number of bytes of a table.
+   *
+   * @param slots the number of slots.
+   * @return the number of bytes.
+   */
+  static int bytesFor(final int slots) {
+    final long bytes = (long) slots * Long.BYTES;
+    if (slots < 0 || bytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Table of " + slots + " slots is too large.");
+    }
+    return (int) bytes;
+  }
+
+  /**
+   * Mixes the bits of a key, so that its low bits are uniform.
+   *
+   * @param key the key.
+   * @return the mixed key.
+   */
+  private static long mix(final long key) {
+    long h = key;
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Get the value to store for a fingerprint.
+   *
+   * @param fingerprint the fingerprint.
+   * @return the value to store.
+   */
+  private static long key(final long fingerprint) {
+    return fingerprint == EMPTY ? ZERO_REPLACEMENT : fingerprint;
+  }
+
+  /**
+   * Get the shard of a mixed key.
+   *
+   * @param hash the mixed key.
+   * @return the shard.
+   */
+  private Shard shardOf(final long hash) {
+    return shards[(int) (hash >>> 60) & (SHARDS - 1)];
+  }
+
+  @Override
+  public boolean put(final long fingerprint) {
+    final long key = key(fingerprint);
+    final long hash = mix(key);
+    return shardOf(hash).put(key, hash);
+  }
+
+  @Override
+  public boolean contains(final long fingerprint) {
+    final long key = key(fingerprint);
+    final long hash = mix(key);
+    return shardOf(hash).contains(key, hash);
+  }
+
+  @Override
+  public long size() {
+    long size = 0;
+    for (final Shard shard : shards) {
+      size += shard.size();
+    }
+    return size;
+  }
+
+  /**
+   * Returns the number of bytes allocated outside of the heap.
+   *
+   * @return the number of bytes allocated.
+   */
+  public long getAllocatedBytes() {
+    long bytes = 0;
+    for (final Shard shard : shards) {
+      bytes += shard.allocatedBytes();
+    }
+    return bytes;
+  }
+
+  /**
+   * A linear probing hash table of fingerprints in a direct buffer.
+   */
+  private static final class Shard {
+
+    /**
+     * The slots of the table.
+     */
+    private LongBuffer table;
+
+    /**
+     * The mask of a slot index.
+     */
+    private int mask;
+
+    /**
+     * The number of fingerprints in the table.
+     */
+    private int size;
+
+    /**
+     * Constructs a shard.
+     *
+     * @param slots the number of slots, a power of two.
+     */
+    private Shard(final int slots) {
+      table = allocate(slots);
+      mask = slots - 1;
+    }
+
+    /**
+     * Allocates an empty table in a direct buffer.
+     *
+     * @param slots the number of slots.
+     * @return the table.
+     */
+    private static LongBuffer allocate(final int slots) {
+      return ByteBuffer.allocateDirect(bytesFor(slots)).asLongBuffer();
+    }
+
+    /**
+     * Find the slot of a key, or the empty slot to put it in.
+     *
+     * @param key  the key.
+     * @param hash the mixed key.
+     * @return the index of the slot.
+     */
+    private int find(final long key, final long hash) {
+      int index = (int) hash & mask;
+      while (true) {
+        final long value = table.get(index);
+        if (value == EMPTY || value == key) {
+          return index;
+        }
+        index = (index + 1) & mask;
+      }
+    }
+
+    /**
+     * Put a key into the table.
+     *
+     * @param key  the key.
+     * @param hash the mixed key.
+     * @return true if the key was not in the table.
+     */
+    private synchronized boolean put(final long key, final long hash) {
+      final int index = find(key, hash);
+      if (table.get(index) == key) {
+        return false;
+      }
+      table.put(index, key);
+      if (++size > (mask + 1) / 2) {
+        grow();
+      }
+      return true;
+    }
+
+    /**
+     * Check if a key is in the table.
+     *
+     * @param key  the key.
+     * @param hash the mixed key.
+     * @return true if the key is in the table.
+     */
+    private synchronized boolean contains(final long key, final long hash) {
+      return table.get(find(key, hash)) == key;
+    }
+
+    /**
+     * Get the number of keys in the table.
+     *
+     * @return the number of keys.
+     */
+    private synchronized int size() {
+      return size;
+    }
+
+    /**
+     * Get the number of bytes allocated for the table.
+     *
+     * @return the number of bytes.
+     */
+    private synchronized long allocatedBytes() {
+      return (long) table.capacity() * Long.BYTES;
+    }
+
+    /**
+     * Doubles the slots of the table.
+     */
+    private void grow() {
+      final int slots = (mask + 1) * 2;
+      if (slots > MAX_SLOTS) {
+        if (size >= slots / 2 - slots / 8) {
+          throw new IllegalStateException("Seen filter shard is full.");
+        }
+        return;
+      }
+      final LongBuffer old = table;
+      table = allocate(slots);
+      mask = slots - 1;
+      for (int i = 0; i < old.capacity(); i++) {
+        final long key = old.get(i);
+        if (key != EMPTY) {
+          table.put(find(key, mix(key)), key);
+        }
+      }
+    }
+
+  }
+
+}
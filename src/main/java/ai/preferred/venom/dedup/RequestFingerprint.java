@@ -0,0 +1,211 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.dedup;
+
+import ai.preferred.venom.request.Request;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * This class computes fingerprints of requests.
+ * <p>
+ * The 64-bit fingerprint keys seen filters, and is computed from the
+ * method, url and raw body of a request, so that requests differing only
+ * in their headers are seen as the same request.
+ * </p>
+ * <p>
+ * The 128-bit fingerprint keys requests stored by file managers, and is
+ * computed from the method, url, headers and body parameters of a request.
+ * Header names are lower-cased, headers and body parameters are hashed in
+ * key order, and headers with a null key or value are left out.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class RequestFingerprint {
+
+  /**
+   * The hash function used.
+   */
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  /**
+   * Prevent construction of RequestFingerprint.
+   */
+  private RequestFingerprint() {
+  }
+
+  /**
+   * Computes the 64-bit fingerprint of a request, ignoring its headers.
+   *
+   * @param request the request.
+   * @return the fingerprint of the request.
+   */
+  public static long of(final @NotNull Request request) {
+    return of(request.getMethod(), request.getUrl(), request.getBody());
+  }
+
+  /**
+   * Computes the 64-bit fingerprint of a request.
+   *
+   * @param method the method of the request.
+   * @param url    the url of the request.
+   * @param body   the body of the request, or null.
+   * @return the fingerprint of the request.
+   */
+  public static long of(final @NotNull Request.Method method, final @NotNull String url, final String body) {
+    final Hasher hasher = HASH_FUNCTION.newHasher()
+        .putString(method.name(), StandardCharsets.UTF_8)
+        .putByte((byte) 0)
+        .putString(url, StandardCharsets.UTF_8);
+    if (body != null) {
+      hasher.putByte((byte) 0).putString(body, StandardCharsets.UTF_8);
+    }
+    return hasher.hash().asLong();
+  }
+
+  /**
+   * Computes the 128-bit fingerprint of a request.
+   *
+   * @param request the request.
+   * @return the fingerprint of the request.
+   */
+  public static byte[] bytesOf(final @NotNull Request request) {
+    return hash(request.getMethod(), request.getUrl(), request.getHeaders(), parseParameters(request.getBody()));
+  }
+
+  /**
+   * Computes the 128-bit fingerprint of a request from its stored form.
+   * <p>
+   * This equals the fingerprint of the request, unless its body repeats
+   * a parameter name, which the map of parameters cannot hold.
+   * </p>
+   *
+   * @param method  the method of the request.
+   * @param url     the url of the request.
+   * @param headers the headers of the request, or null.
+   * @param body    the body of the request, as parsed by {@link #parseBody(String)}.
+   * @return the fingerprint of the request.
+   */
+  public static byte[] bytesOf(final @NotNull Request.Method method, final @NotNull String url,
+                               final Map<String, String> headers, final @NotNull Map<String, String> body) {
+    final List<String[]> parameters = new ArrayList<>(body.size());
+    for (final Map.Entry<String, String> entry : body.entrySet()) {
+      if (entry.getKey() != null && entry.getValue() != null) {
+        parameters.add(new String[]{entry.getKey(), entry.getValue()});
+      }
+    }
+    return hash(method, url, headers, parameters);
+  }
+
+  /**
+   * Converts a request body into a map of its parameters, as it is
+   * stored. Of a repeated parameter, the last value is kept.
+   *
+   * @param body the body of the request, or null.
+   * @return the map of parameters.
+   */
+  public static Map<String, String> parseBody(final String body) {
+    final Map<String, String> parameters = new HashMap<>();
+    for (final String[] parameter : parseParameters(body)) {
+      parameters.put(parameter[0], parameter[1]);
+    }
+    return parameters;
+  }
+
+  /**
+   * Splits a request body into its parameters, in order, each a pair of
+   * name and value. A parameter without a value has an empty value.
+   *
+   * @param body the body of the request, or null.
+   * @return the list of parameters.
+   */
+  private static List<String[]> parseParameters(final String body) {
+    final List<String[]> parameters = new ArrayList<>();
+    if (body != null) {
+      for (final String pair : body.split("&")) {
+        final String[] nvp = pair.split("=", 2);
+        parameters.add(new String[]{nvp[0], nvp.length > 1 ? nvp[1] : ""});
+      }
+    }
+    return parameters;
+  }
+
+  /**
+   * Computes the 128-bit hash of a request.
+   *
+   * @param method     the method of the request.
+   * @param url        the url of the request.
+   * @param headers    the headers of the request, or null.
+   * @param parameters the parameters of the body of the request.
+   * @return the hash of the request.
+   */
+  private static byte[] hash(final Request.Method method, final String url, final Map<String, String> headers,
+                             final List<String[]> parameters) {
+    final Hasher hasher = HASH_FUNCTION.newHasher()
+        .putString(method.name(), StandardCharsets.UTF_8)
+        .putByte((byte) 0)
+        .putString(url, StandardCharsets.UTF_8);
+    final SortedMap<String, String> sortedHeaders = new TreeMap<>();
+    if (headers != null) {
+      for (final Map.Entry<String, String> entry : headers.entrySet()) {
+        if (entry.getKey() != null && entry.getValue() != null) {
+          sortedHeaders.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+        }
+      }
+    }
+    hasher.putByte((byte) 1);
+    for (final Map.Entry<String, String> entry : sortedHeaders.entrySet()) {
+      putPair(hasher, entry.getKey(), entry.getValue());
+    }
+    final List<String[]> sortedParameters = new ArrayList<>(parameters);
+    sortedParameters.sort(Comparator.comparing(parameter -> parameter[0]));
+    hasher.putByte((byte) 1);
+    for (final String[] parameter : sortedParameters) {
+      putPair(hasher, parameter[0], parameter[1]);
+    }
+    return hasher.hash().asBytes();
+  }
+
+  /**
+   * Puts a pair of name and value into a hasher.
+   *
+   * @param hasher the hasher.
+   * @param name   the name.
+   * @param value  the value.
+   */
+  private static void putPair(final Hasher hasher, final String name, final String value) {
+    hasher.putByte((byte) 0)
+        .putString(name, StandardCharsets.UTF_8)
+        .putByte((byte) 0)
+        .putString(value, StandardCharsets.UTF_8);
+  }
+
+}
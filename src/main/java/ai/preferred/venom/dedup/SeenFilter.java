@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.dedup;
+
+import ai.preferred.venom.request.Request;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * This interface represents a filter of requests that have been seen,
+ * keyed by the fingerprint of a request.
+ *
+ * @author Ween Jiann Lee
+ */
+public interface SeenFilter {
+
+  /**
+   * Records a fingerprint as seen.
+   *
+   * @param fingerprint the fingerprint of a request.
+   * @return true if the fingerprint was not seen before.
+   */
+  boolean put(long fingerprint);
+
+  /**
+   * Checks if a fingerprint has been seen.
+   *
+   * @param fingerprint the fingerprint of a request.
+   * @return true if the fingerprint has been seen, or might have been
+   * seen if this filter is approximate.
+   */
+  boolean contains(long fingerprint);
+
+  /**
+   * Returns the number of fingerprints seen.
+   *
+   * @return the number of fingerprints seen, which may be approximate.
+   */
+  long size();
+
+  /**
+   * Records a request as seen, keyed by its method, url and body.
+   *
+   * @param request the request.
+   * @return true if the request was not seen before.
+   */
+  default boolean put(final @NotNull Request request) {
+    return put(RequestFingerprint.of(request));
+  }
+
+  /**
+   * Checks if a request has been seen, keyed by its method, url and body.
+   *
+   * @param request the request.
+   * @return true if the request has been seen, or might have been
+   * seen if this filter is approximate.
+   */
+  default boolean contains(final @NotNull Request request) {
+    return contains(RequestFingerprint.of(request));
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.fetcher;
+
+import java.io.IOException;
+
+/**
+ * Thrown to abort an exchange before the content of its response has
+ * been received, carrying the exception to fail the request with.
+ * <p>
+ * The http client only accepts I/O exceptions from a consumer while
+ * the response is received, this exception is unwrapped before it is
+ * passed to callbacks.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+final class AbortedResponseException extends IOException {
+
+  /**
+   * Constructs an aborted response exception.
+   *
+   * @param reason The exception to fail the request with
+   */
+  AbortedResponseException(final Exception reason) {
+    super(reason.getMessage(), reason);
+  }
+
+  /**
+   * Returns the exception to fail the request with, unwrapping an
+   * aborted response exception.
+   *
+   * @param ex The exception the exchange failed with
+   * @return The exception to fail the request with
+   */
+  static Exception unwrap(final Exception ex) {
+    if (ex instanceof AbortedResponseException) {
+      return (Exception) ex.getCause();
+    }
+    return ex;
+  }
+
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    return this;
+  }
+
+}
@@ -18,6 +18,10 @@ package ai.preferred.venom.fetcher;
 
 import ai.preferred.venom.ProxyProvider;
 import ai.preferred.venom.ValidatorRouter;
+import ai.preferred.venom.limiter.ConcurrencyLimiter;
+import ai.preferred.venom.metrics.Counter;
+import ai.preferred.venom.metrics.Histogram;
+import ai.preferred.venom.metrics.MetricsRegistry;
 import ai.preferred.venom.request.HttpFetcherRequest;
 import ai.preferred.venom.request.Request;
 import ai.preferred.venom.response.Response;
@@ -28,11 +32,13 @@ import ai.preferred.venom.storage.FileManager;
 import ai.preferred.venom.uagent.DefaultUserAgent;
 import ai.preferred.venom.uagent.UserAgent;
 import ai.preferred.venom.validator.EmptyContentValidator;
+import ai.preferred.venom.validator.HeaderValidator;
 import ai.preferred.venom.validator.PipelineValidator;
 import ai.preferred.venom.validator.StatusOkValidator;
 import ai.preferred.venom.validator.Validator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ForwardingFuture;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.http.HttpHost;
 import org.apache.http.client.ClientProtocolException;
@@ -47,18 +53,21 @@ import org.apache.http.concurrent.BasicFuture;
 import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.conn.DefaultRoutePlanner;
 import org.apache.http.impl.conn.DefaultSchemePortResolver;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.apache.http.nio.client.methods.HttpAsyncMethods;
 import org.apache.http.nio.conn.NoopIOSessionStrategy;
 import org.apache.http.nio.conn.SchemeIOSessionStrategy;
 import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
 import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -68,8 +77,13 @@ import javax.validation.constraints.NotNull;
 import java.io.IOException;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 
 /**
  * This class holds the implementation to provide how items are fetched from the web,
@@ -86,12 +100,22 @@ public final class AsyncFetcher implements Fetcher {
    */
   private static final Logger LOGGER = LoggerFactory.getLogger(AsyncFetcher.class);
 
+  /**
+   * The number of responses queued for processing per processing thread.
+   */
+  private static final int PROCESSING_QUEUE_FACTOR = 64;
+
   /**
    * A list of callbacks to execute upon response.
    */
   @NotNull
   private final List<Callback> callbacks;
 
+  /**
+   * The file manager to store responses with, or null if none.
+   */
+  private final FileManager<?> fileManager;
+
   /**
    * A list of headers to append to request.
    */
@@ -144,6 +168,78 @@ public final class AsyncFetcher implements Fetcher {
    */
   private final boolean compressed;
 
+  /**
+   * The pool of buffers to receive responses into.
+   */
+  private final ReceiveBufferPool bufferPool;
+
+  /**
+   * The validator of the status line and headers of responses.
+   */
+  private final HeaderValidator headerValidator;
+
+  /**
+   * The detector of content types not declared by servers.
+   */
+  private final ContentTypeDetector contentTypeDetector;
+
+  /**
+   * The maximum length of content to receive.
+   */
+  private final long maxContentLength;
+
+  /**
+   * The executor to process responses on, or null to process them on
+   * the I/O dispatcher threads.
+   */
+  private final ThreadPoolExecutor processingExecutor;
+
+  /**
+   * The connection manager used, or null if the default is used.
+   */
+  @Nullable
+  private final PoolingNHttpClientConnectionManager connectionManager;
+
+  /**
+   * The metrics registry used.
+   */
+  private final MetricsRegistry metrics;
+
+  /**
+   * The number of requests sent.
+   */
+  private final Counter requests;
+
+  /**
+   * The number of requests completed with a valid response.
+   */
+  private final Counter responses;
+
+  /**
+   * The number of requests failed.
+   */
+  private final Counter failures;
+
+  /**
+   * The number of requests cancelled.
+   */
+  private final Counter cancellations;
+
+  /**
+   * The number of bytes of response content received.
+   */
+  private final Counter responseBytes;
+
+  /**
+   * The time from sending a request to receiving the response headers.
+   */
+  private final Histogram firstByteLatency;
+
+  /**
+   * The time from sending a request to receiving the whole response.
+   */
+  private final Histogram fetchDuration;
+
   /**
    * Constructs an instance of AsyncFetcher.
    *
@@ -152,10 +248,16 @@ public final class AsyncFetcher implements Fetcher {
   private AsyncFetcher(final Builder builder) {
     final ImmutableList.Builder<Callback> callbackListBuilder = new ImmutableList.Builder<>();
     if (builder.fileManager != null) {
-      callbackListBuilder.add(builder.fileManager.getCallback());
+      if (builder.metricsRegistry != null) {
+        callbackListBuilder.add(new TimedCallback(builder.fileManager.getCallback(),
+            builder.metricsRegistry.histogram("venom_storage_write_seconds", "Time spent storing a response.")));
+      } else {
+        callbackListBuilder.add(builder.fileManager.getCallback());
+      }
     }
     callbackListBuilder.addAll(builder.callbacks);
     callbacks = callbackListBuilder.build();
+    fileManager = builder.fileManager;
     headers = builder.headers;
     proxyProvider = builder.proxyProvider;
     stopCodes = builder.stopCodes;
@@ -164,6 +266,17 @@ public final class AsyncFetcher implements Fetcher {
     router = builder.router;
     connectionRequestTimeout = builder.connectionRequestTimeout;
     compressed = builder.compressed;
+    bufferPool = builder.bufferPool;
+    headerValidator = builder.headerValidator;
+    contentTypeDetector = new ContentTypeDetector(builder.sniffWindow);
+    maxContentLength = builder.maxContentLength;
+    if (builder.processingThreads > 0) {
+      processingExecutor = new ThreadPoolExecutor(builder.processingThreads, builder.processingThreads,
+          0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(builder.processingThreads * PROCESSING_QUEUE_FACTOR),
+          new ThreadFactoryBuilder().setNameFormat("Venom Processor %d").setDaemon(true).build());
+    } else {
+      processingExecutor = null;
+    }
 
     final IOReactorConfig reactorConfig = IOReactorConfig.custom()
         .setIoThreadCount(builder.numIoThreads)
@@ -172,38 +285,76 @@ public final class AsyncFetcher implements Fetcher {
         .setSoTimeout(builder.socketTimeout)
         .build();
 
+    final int maxConnections;
+    if (builder.maxConnections < builder.maxRouteConnections) {
+      maxConnections = builder.maxRouteConnections;
+      LOGGER.info("Maximum total connections will be set to {}, to match maximum route connection.",
+          builder.maxRouteConnections);
+    } else {
+      maxConnections = builder.maxConnections;
+    }
+
     final HttpAsyncClientBuilder clientBuilder = HttpAsyncClientBuilder.create()
         .setMaxConnPerRoute(builder.maxRouteConnections)
-        .setMaxConnTotal(builder.maxConnections)
+        .setMaxConnTotal(maxConnections)
         .setSSLContext(builder.sslContext)
         .setRedirectStrategy(builder.redirectStrategy);
 
-    if (builder.enableSocksProxy) {
-      final PoolingNHttpClientConnectionManager connectionManager;
-      try {
-        final SSLIOSessionStrategy sslioSessionStrategy = SSLIOSessionStrategy.getDefaultStrategy();
-        final Registry<SchemeIOSessionStrategy> reg = RegistryBuilder.<SchemeIOSessionStrategy>create()
+    // The connection manager is created here, so that its pool can be inspected.
+    final SSLIOSessionStrategy sslioSessionStrategy = builder.sslContext == null
+        ? SSLIOSessionStrategy.getDefaultStrategy()
+        : new SSLIOSessionStrategy(builder.sslContext, SSLIOSessionStrategy.getDefaultHostnameVerifier());
+    PoolingNHttpClientConnectionManager poolingManager = null;
+    try {
+      final RegistryBuilder<SchemeIOSessionStrategy> registryBuilder = RegistryBuilder.<SchemeIOSessionStrategy>create()
+          .register("http", NoopIOSessionStrategy.INSTANCE)
+          .register("https", sslioSessionStrategy);
+      if (builder.enableSocksProxy) {
+        final Registry<SchemeIOSessionStrategy> reg = registryBuilder
             .register("socks", new SocksIOSessionStrategy(sslioSessionStrategy))
-            .register("http", NoopIOSessionStrategy.INSTANCE)
-            .register("https", sslioSessionStrategy)
             .build();
-
         final SocksConnectingIOReactor reactor = new SocksConnectingIOReactor(reactorConfig, builder.threadFactory);
-        connectionManager = new PoolingNHttpClientConnectionManager(reactor, reg);
-        clientBuilder.setConnectionManager(connectionManager)
-            .setRoutePlanner(new SocksHttpRoutePlanner(new DefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE)));
-      } catch (IOReactorException e) {
+        poolingManager = new PoolingNHttpClientConnectionManager(reactor, reg);
+        clientBuilder.setRoutePlanner(
+            new SocksHttpRoutePlanner(new DefaultRoutePlanner(DefaultSchemePortResolver.INSTANCE)));
+      } else {
+        final DefaultConnectingIOReactor reactor = new DefaultConnectingIOReactor(reactorConfig, builder.threadFactory);
+        poolingManager = new PoolingNHttpClientConnectionManager(reactor, registryBuilder.build());
+      }
+      // Limits set on the client builder are not applied to a custom connection manager.
+      poolingManager.setDefaultMaxPerRoute(builder.maxRouteConnections);
+      poolingManager.setMaxTotal(maxConnections);
+      clientBuilder.setConnectionManager(poolingManager).setThreadFactory(builder.threadFactory);
+    } catch (IOReactorException e) {
+      if (builder.enableSocksProxy) {
         LOGGER.error("Disabling SOCKS protocol", e);
-        clientBuilder.setDefaultIOReactorConfig(reactorConfig).setThreadFactory(builder.threadFactory);
+      } else {
+        LOGGER.error("Unable to create connection manager, pool metrics are disabled", e);
       }
-    } else {
       clientBuilder.setDefaultIOReactorConfig(reactorConfig).setThreadFactory(builder.threadFactory);
     }
-
-    if (builder.maxConnections < builder.maxRouteConnections) {
-      clientBuilder.setMaxConnTotal(builder.maxRouteConnections);
-      LOGGER.info("Maximum total connections will be set to {}, to match maximum route connection.",
-          builder.maxRouteConnections);
+    connectionManager = poolingManager;
+
+    metrics = builder.metricsRegistry == null ? new MetricsRegistry() : builder.metricsRegistry;
+    requests = metrics.counter("venom_fetcher_requests_total", "Requests sent.");
+    responses = metrics.counter("venom_fetcher_responses_total", "Requests completed with a valid response.");
+    failures = metrics.counter("venom_fetcher_failures_total", "Requests failed.");
+    cancellations = metrics.counter("venom_fetcher_cancellations_total", "Requests cancelled.");
+    responseBytes = metrics.counter("venom_fetcher_response_bytes_total", "Bytes of response content received.");
+    firstByteLatency = metrics.histogram("venom_fetcher_first_byte_seconds",
+        "Time from sending a request to receiving the response headers.");
+    fetchDuration = metrics.histogram("venom_fetcher_duration_seconds",
+        "Time from sending a request to receiving the whole response.");
+    if (connectionManager != null) {
+      registerPoolMetrics(connectionManager);
+    }
+    if (processingExecutor != null) {
+      metrics.gauge("venom_fetcher_processing_queued", "Responses waiting to be processed.",
+          () -> processingExecutor.getQueue().size());
+    }
+    if (bufferPool != null) {
+      metrics.gauge("venom_fetcher_buffer_pool_bytes", "Bytes held in the pool of receive buffers.",
+          bufferPool::getPooledBytes);
     }
 
     if (builder.disableCookies) {
@@ -217,6 +368,44 @@ public final class AsyncFetcher implements Fetcher {
     httpClient = clientBuilder.build();
   }
 
+  /**
+   * Register gauges of the connection pool.
+   *
+   * @param manager the connection manager to inspect
+   */
+  private void registerPoolMetrics(final PoolingNHttpClientConnectionManager manager) {
+    metrics.gauge("venom_fetcher_pool_leased", "Connections leased from the pool.",
+        () -> manager.getTotalStats().getLeased());
+    metrics.gauge("venom_fetcher_pool_available", "Idle connections in the pool.",
+        () -> manager.getTotalStats().getAvailable());
+    metrics.gauge("venom_fetcher_pool_pending", "Requests waiting for a connection from the pool.",
+        () -> manager.getTotalStats().getPending());
+    metrics.gauge("venom_fetcher_pool_max", "Maximum connections in the pool.",
+        () -> manager.getTotalStats().getMax());
+    metrics.labeledGauge("venom_fetcher_route_leased", "Connections leased for a route.", "route",
+        () -> getRouteStats(manager, PoolStats::getLeased));
+    metrics.labeledGauge("venom_fetcher_route_available", "Idle connections for a route.", "route",
+        () -> getRouteStats(manager, PoolStats::getAvailable));
+    metrics.labeledGauge("venom_fetcher_route_pending", "Requests waiting for a connection for a route.", "route",
+        () -> getRouteStats(manager, PoolStats::getPending));
+  }
+
+  /**
+   * Get a statistic of each route in the connection pool.
+   *
+   * @param manager the connection manager to inspect
+   * @param stat    the statistic to get
+   * @return the statistic keyed by route
+   */
+  private static Map<String, Integer> getRouteStats(final PoolingNHttpClientConnectionManager manager,
+                                                    final ToIntFunction<PoolStats> stat) {
+    final Map<String, Integer> stats = new TreeMap<>();
+    for (final HttpRoute route : manager.getRoutes()) {
+      stats.put(route.toString(), stat.applyAsInt(manager.getStats(route)));
+    }
+    return stats;
+  }
+
   /**
    * Creates {@link BasicFuture} and fails the request with a specified exception.
    *
@@ -387,11 +576,25 @@ public final class AsyncFetcher implements Fetcher {
     return fetch(request, Callback.EMPTY_CALLBACK);
   }
 
+  /**
+   * Wraps the concurrency limiter of the crawler with that of the file
+   * manager, if any, so that requests are held back while responses
+   * cannot be stored fast enough.
+   *
+   * @param limiter the concurrency limiter to wrap
+   * @return the concurrency limiter
+   */
+  @Override
+  public ConcurrencyLimiter limit(final ConcurrencyLimiter limiter) {
+    return fileManager == null ? limiter : fileManager.limit(limiter);
+  }
+
   @Override
   public Future<Response> fetch(final Request request, final Callback callback) {
     final HttpFetcherRequest httpFetcherRequest = prepareFetcherRequest(request);
 
     final FutureCallback<Response> requestCallback = new RequestCallback(httpFetcherRequest, callback);
+    requests.inc();
 
     if (Thread.currentThread().isInterrupted()) {
       return cancelRequest(requestCallback);
@@ -418,20 +621,28 @@ public final class AsyncFetcher implements Fetcher {
       return cancelRequest(requestCallback);
     }
 
+    final AsyncResponseConsumer consumer = new AsyncResponseConsumer(
+        prepareValidator(routedValidator),
+        headerValidator,
+        maxContentLength,
+        stopCodes,
+        compressed,
+        httpFetcherRequest,
+        bufferPool,
+        contentTypeDetector
+    );
+    final BasicFuture<Response> future = new BasicFuture<>(requestCallback);
     try {
-      return httpClient.execute(
+      final Future<ReceivedResponse> exchange = httpClient.execute(
           HttpAsyncMethods.create(target, httpReq),
-          new AsyncResponseConsumer(
-              prepareValidator(routedValidator),
-              stopCodes,
-              compressed,
-              httpFetcherRequest
-          ),
+          consumer,
           HttpClientContext.create(),
-          requestCallback
+          new ExchangeCallback(consumer, future)
       );
+      return new ExchangeFuture(future, exchange);
     } catch (final Exception e) {
-      return failRequest(requestCallback, e);
+      future.failed(e);
+      return future;
     }
   }
 
@@ -444,6 +655,9 @@ public final class AsyncFetcher implements Fetcher {
   public void close() throws IOException {
     LOGGER.debug("Shutting down the fetcher...");
     httpClient.close();
+    if (processingExecutor != null) {
+      processingExecutor.shutdown();
+    }
     LOGGER.debug("The fetcher shutdown completed.");
   }
 
@@ -549,6 +763,36 @@ public final class AsyncFetcher implements Fetcher {
      */
     private boolean compressed;
 
+    /**
+     * The metrics registry used.
+     */
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * The pool of buffers to receive responses into.
+     */
+    private ReceiveBufferPool bufferPool;
+
+    /**
+     * The validator of the status line and headers of responses.
+     */
+    private HeaderValidator headerValidator;
+
+    /**
+     * The maximum length of content to receive.
+     */
+    private long maxContentLength;
+
+    /**
+     * The number of threads to process responses on.
+     */
+    private int processingThreads;
+
+    /**
+     * The number of bytes to examine to detect content types.
+     */
+    private int sniffWindow;
+
     /**
      * Construct an instance of builder.
      */
@@ -572,6 +816,12 @@ public final class AsyncFetcher implements Fetcher {
       connectTimeout = -1;
       socketTimeout = -1;
       compressed = true;
+      metricsRegistry = null;
+      bufferPool = new ReceiveBufferPool();
+      headerValidator = null;
+      maxContentLength = -1;
+      processingThreads = 0;
+      sniffWindow = ContentTypeDetector.DEFAULT_SNIFF_WINDOW;
       enableSocksProxy = false;
     }
 
@@ -673,6 +923,11 @@ public final class AsyncFetcher implements Fetcher {
     /**
      * Sets the maximum allowable connections at an instance for
      * a particular route (host).
+     * <p>
+     * If the crawler limits connections to each host, this should be at least
+     * the maximum limit of a host, so that requests do not wait in the
+     * connection pool while holding a connection of the crawler.
+     * </p>
      *
      * @param maxRouteConnections the max allowable connections per route.
      * @return this
@@ -867,6 +1122,107 @@ public final class AsyncFetcher implements Fetcher {
       return this;
     }
 
+    /**
+     * Sets the MetricsRegistry to record the metrics of this fetcher to,
+     * including the connection pool and the time spent storing responses
+     * in the file manager. Defaults to none.
+     *
+     * @param metricsRegistry metrics registry to be used.
+     * @return this
+     */
+    public Builder setMetricsRegistry(final MetricsRegistry metricsRegistry) {
+      this.metricsRegistry = metricsRegistry;
+      return this;
+    }
+
+    /**
+     * Sets the pool of buffers to receive responses of unknown length
+     * into, or null to allocate a buffer for each response. Defaults to
+     * a pool of heap buffers.
+     *
+     * @param bufferPool pool of receive buffers to be used.
+     * @return this
+     */
+    public Builder setReceiveBufferPool(final ReceiveBufferPool bufferPool) {
+      this.bufferPool = bufferPool;
+      return this;
+    }
+
+    /**
+     * Sets the HeaderValidator to be used. Defaults to none.
+     * <p>
+     * This validates the status line and headers of a response before
+     * its content is received, and aborts the exchange without receiving
+     * the content if they are not valid.
+     * </p>
+     *
+     * @param headerValidator header validator to be used.
+     * @return this
+     */
+    public Builder setHeaderValidator(final HeaderValidator headerValidator) {
+      this.headerValidator = headerValidator;
+      return this;
+    }
+
+    /**
+     * Sets the maximum length of content to receive, in bytes. Defaults
+     * to -1 (unlimited).
+     * <p>
+     * Responses declaring a longer content are aborted before the content
+     * is received, other responses are aborted once more than this is
+     * received. For compressed responses, this applies to the compressed
+     * length.
+     * </p>
+     *
+     * @param maxContentLength maximum length of content in bytes.
+     * @return this
+     */
+    public Builder setMaxContentLength(final long maxContentLength) {
+      if (maxContentLength == -1 ^ maxContentLength < 0) {
+        throw new IllegalStateException("Attribute 'maxContentLength' must be -1, or more or equal to 0.");
+      }
+      this.maxContentLength = maxContentLength;
+      return this;
+    }
+
+    /**
+     * Sets the number of threads to process responses on. Defaults to 0.
+     * <p>
+     * Processing decompresses the content, detects its content type and
+     * validates it, and calls the callbacks. By default this runs on the
+     * I/O dispatcher threads, stalling other connections on the same
+     * dispatcher. If set, responses are processed on a bounded pool of
+     * this many threads instead, and on the I/O dispatcher thread only
+     * when the pool is saturated.
+     * </p>
+     *
+     * @param processingThreads number of threads, or 0 to process on the I/O dispatcher threads.
+     * @return this
+     */
+    public Builder setProcessingThreads(final int processingThreads) {
+      if (processingThreads < 0) {
+        throw new IllegalStateException("Attribute 'processingThreads' must be more or equal to 0.");
+      }
+      this.processingThreads = processingThreads;
+      return this;
+    }
+
+    /**
+     * Sets the number of bytes at the start of content to examine, when
+     * detecting a mime type or charset not declared by the server.
+     * Defaults to 8192.
+     *
+     * @param sniffWindow number of bytes to examine.
+     * @return this
+     */
+    public Builder setSniffWindow(final int sniffWindow) {
+      if (sniffWindow < 1) {
+        throw new IllegalStateException("Attribute 'sniffWindow' must be more or equal to 1.");
+      }
+      this.sniffWindow = sniffWindow;
+      return this;
+    }
+
     /**
      * Builds the fetcher with the options specified.
      *
@@ -878,6 +1234,175 @@ public final class AsyncFetcher implements Fetcher {
 
   }
 
+  /**
+   * Record the latency and size in the diagnostics of a request.
+   *
+   * @param diagnostics the diagnostics of the request
+   */
+  private void recordDiagnostics(final HttpFetcherRequest.Diagnostics diagnostics) {
+    final Long start = diagnostics.getStart();
+    if (start == null) {
+      return;
+    }
+    if (diagnostics.getAcknowledge() != null) {
+      firstByteLatency.observeNanos(diagnostics.getAcknowledge() - start);
+    }
+    if (diagnostics.getComplete() != null) {
+      fetchDuration.observeNanos(diagnostics.getComplete() - start);
+    }
+    if (diagnostics.getSize() != null) {
+      responseBytes.inc(diagnostics.getSize());
+    }
+  }
+
+  /**
+   * A callback that records the time spent in another callback.
+   */
+  private static final class TimedCallback implements Callback {
+
+    /**
+     * The callback to time.
+     */
+    private final Callback callback;
+
+    /**
+     * The histogram to record the time to.
+     */
+    private final Histogram histogram;
+
+    /**
+     * Constructs an instance of TimedCallback.
+     *
+     * @param callback  the callback to time
+     * @param histogram the histogram to record the time to
+     */
+    private TimedCallback(final Callback callback, final Histogram histogram) {
+      this.callback = callback;
+      this.histogram = histogram;
+    }
+
+    @Override
+    public void completed(final @NotNull Request request, final @NotNull Response response) {
+      final long start = System.nanoTime();
+      try {
+        callback.completed(request, response);
+      } finally {
+        histogram.observeNanos(System.nanoTime() - start);
+      }
+    }
+
+    @Override
+    public void failed(final @NotNull Request request, final @NotNull Exception ex) {
+      callback.failed(request, ex);
+    }
+
+    @Override
+    public void cancelled(final @NotNull Request request) {
+      callback.cancelled(request);
+    }
+
+  }
+
+  /**
+   * A future of a response, that also cancels its exchange when
+   * cancelled.
+   */
+  private static final class ExchangeFuture extends ForwardingFuture.SimpleForwardingFuture<Response> {
+
+    /**
+     * The future of the exchange.
+     */
+    private final Future<ReceivedResponse> exchange;
+
+    /**
+     * Constructs an instance of exchange future.
+     *
+     * @param future   the future of the response
+     * @param exchange the future of the exchange
+     */
+    private ExchangeFuture(final Future<Response> future, final Future<ReceivedResponse> exchange) {
+      super(future);
+      this.exchange = exchange;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+      final boolean cancelled = super.cancel(mayInterruptIfRunning);
+      exchange.cancel(mayInterruptIfRunning);
+      return cancelled;
+    }
+
+  }
+
+  /**
+   * A callback of an exchange, that processes the response received on
+   * the processing executor, if any, and completes the future of the
+   * response with the result.
+   */
+  private final class ExchangeCallback implements FutureCallback<ReceivedResponse> {
+
+    /**
+     * The consumer of the exchange.
+     */
+    private final AsyncResponseConsumer consumer;
+
+    /**
+     * The future of the response.
+     */
+    private final BasicFuture<Response> future;
+
+    /**
+     * Constructs an instance of exchange callback.
+     *
+     * @param consumer the consumer of the exchange
+     * @param future   the future of the response
+     */
+    private ExchangeCallback(final AsyncResponseConsumer consumer, final BasicFuture<Response> future) {
+      this.consumer = consumer;
+      this.future = future;
+    }
+
+    /**
+     * Processes the response received and completes the future.
+     *
+     * @param received the response received
+     */
+    private void process(final ReceivedResponse received) {
+      final Response response;
+      try {
+        response = consumer.process(received);
+      } catch (final Exception e) {
+        future.failed(e);
+        return;
+      }
+      future.completed(response);
+    }
+
+    @Override
+    public void completed(final ReceivedResponse received) {
+      if (processingExecutor == null) {
+        process(received);
+        return;
+      }
+      try {
+        processingExecutor.execute(() -> process(received));
+      } catch (final RejectedExecutionException e) {
+        process(received);
+      }
+    }
+
+    @Override
+    public void failed(final Exception ex) {
+      future.failed(AbortedResponseException.unwrap(ex));
+    }
+
+    @Override
+    public void cancelled() {
+      future.cancel(true);
+    }
+
+  }
+
   private class RequestCallback implements FutureCallback<Response> {
 
     private final HttpFetcherRequest fetcherRequest;
@@ -891,6 +1416,8 @@ public final class AsyncFetcher implements Fetcher {
     @Override
     public void completed(final Response response) {
       LOGGER.debug("Executing completion callback on {}.", fetcherRequest.getUrl());
+      responses.inc();
+      recordDiagnostics(fetcherRequest.getDiagnostics());
       try {
         callbacks.forEach(callback -> callback.completed(fetcherRequest, response));
       } finally {
@@ -901,6 +1428,8 @@ public final class AsyncFetcher implements Fetcher {
     @Override
     public void failed(final Exception ex) {
       LOGGER.debug("Executing failed callback on {}.", fetcherRequest.getUrl(), ex);
+      failures.inc();
+      recordDiagnostics(fetcherRequest.getDiagnostics());
       try {
         callbacks.forEach(callback -> callback.failed(fetcherRequest, ex));
       } finally {
@@ -911,6 +1440,7 @@ public final class AsyncFetcher implements Fetcher {
     @Override
     public void cancelled() {
       LOGGER.debug("Executing cancelled callback on {}.", fetcherRequest.getUrl());
+      cancellations.inc();
       try {
         callbacks.forEach(callback -> callback.cancelled(fetcherRequest));
       } finally {
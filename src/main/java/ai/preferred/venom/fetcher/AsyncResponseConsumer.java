@@ -19,31 +19,30 @@ package ai.preferred.venom.fetcher;
 import ai.preferred.venom.request.HttpFetcherRequest;
 import ai.preferred.venom.request.Unwrappable;
 import ai.preferred.venom.response.BaseResponse;
-import ai.preferred.venom.response.Response;
+import ai.preferred.venom.response.ResponseHead;
 import ai.preferred.venom.utils.ResponseDecompressor;
+import ai.preferred.venom.utils.UrlUtil;
+import ai.preferred.venom.validator.HeaderValidator;
 import ai.preferred.venom.validator.Validator;
-import com.ibm.icu.text.CharsetDetector;
-import com.ibm.icu.text.CharsetMatch;
-import org.apache.commons.io.IOUtils;
 import org.apache.http.*;
+import org.apache.http.client.entity.DecompressingEntity;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.BasicHttpEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.nio.ContentDecoder;
 import org.apache.http.nio.IOControl;
 import org.apache.http.nio.entity.ContentBufferEntity;
 import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
-import org.apache.http.nio.util.HeapByteBufferAllocator;
-import org.apache.http.nio.util.SimpleInputBuffer;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.Asserts;
-import org.apache.http.util.EntityUtils;
-import org.apache.tika.Tika;
-import org.apache.tika.io.TikaInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.nio.charset.UnsupportedCharsetException;
 import java.util.List;
 import java.util.Set;
@@ -51,10 +50,15 @@ import java.util.Set;
 /**
  * On top of the abstract class, this class handles the parsing of a response
  * from the web service.
+ * <p>
+ * The consumer only receives the response on the I/O dispatcher thread,
+ * decompression, content type detection and validation are left to
+ * {@link #process(ReceivedResponse)}, which may run on any thread.
+ * </p>
  *
  * @author Ween Jiann Lee
  */
-public class AsyncResponseConsumer extends AbstractAsyncResponseConsumer<Response> {
+public class AsyncResponseConsumer extends AbstractAsyncResponseConsumer<ReceivedResponse> {
 
   /**
    * Logger.
@@ -76,6 +80,16 @@ public class AsyncResponseConsumer extends AbstractAsyncResponseConsumer<Respons
    */
   private final Validator validator;
 
+  /**
+   * The validator of the status line and headers, or null if none.
+   */
+  private final HeaderValidator headerValidator;
+
+  /**
+   * The maximum length of content to receive, or negative if unlimited.
+   */
+  private final long maxContentLength;
+
   /**
    * A set of stop codes to interrupt crawling.
    */
@@ -92,190 +106,296 @@ public class AsyncResponseConsumer extends AbstractAsyncResponseConsumer<Respons
   private final HttpFetcherRequest request;
 
   /**
-   * An instance of http response.
+   * The pool of receive buffers, or null to allocate them.
    */
-  private volatile HttpResponse httpResponse;
+  private final ReceiveBufferPool bufferPool;
 
   /**
-   * A buffer for the content.
+   * The detector of content types not declared by the server.
    */
-  private volatile SimpleInputBuffer buf;
+  private final ContentTypeDetector contentTypeDetector;
 
   /**
-   * Lazy loaded content.
-   * <p>
-   * Use getContent() to retrieve.
-   * </p>
+   * The host of the request, for estimating the size of its response
+   * and caching its content type.
+   */
+  private final String host;
+
+  /**
+   * An instance of http response.
+   */
+  private volatile HttpResponse httpResponse;
+
+  /**
+   * A buffer for the content.
    */
-  private byte[] content;
+  private volatile CompositeInputBuffer buf;
 
   /**
    * Constructs an instance of async response consumer.
    *
-   * @param validator  The instance of validator to be used
-   * @param stopCodes  A set of stop code to interrupt crawling
-   * @param compressed Determines whether responses might be compressed
-   * @param request    The request leading to this response
+   * @param validator        The instance of validator to be used
+   * @param headerValidator  The validator of the status line and headers, or null if none
+   * @param maxContentLength The maximum length of content to receive, or negative if unlimited
+   * @param stopCodes        A set of stop code to interrupt crawling
+   * @param compressed       Determines whether responses might be compressed
+   * @param request          The request leading to this response
+   * @param bufferPool       The pool of receive buffers, or null to allocate them
+   * @param detector         The detector of content types not declared by the server
    */
-  AsyncResponseConsumer(final Validator validator, final Set<Integer> stopCodes, final boolean compressed,
-                        final HttpFetcherRequest request) {
+  AsyncResponseConsumer(final Validator validator, final HeaderValidator headerValidator,
+                        final long maxContentLength, final Set<Integer> stopCodes, final boolean compressed,
+                        final HttpFetcherRequest request, final ReceiveBufferPool bufferPool,
+                        final ContentTypeDetector detector) {
     this.validator = validator;
+    this.headerValidator = headerValidator;
+    this.maxContentLength = maxContentLength;
     this.stopCodes = stopCodes;
     this.compressed = compressed;
     this.request = request;
+    this.bufferPool = bufferPool;
+    this.contentTypeDetector = detector;
+    this.host = UrlUtil.getHost(request.getUrl());
     request.getDiagnostics().setStart();
   }
 
   /**
-   * Lazy loading of content.
+   * Returns a stream reading the remaining content of a byte buffer.
    *
-   * @param entity An instance of http entity.
-   * @return byte array of the entity
-   * @throws IOException If entity has no content or failed
+   * @param content A byte buffer backed by an array
+   * @return an input stream of the content
    */
-  private byte[] getContent(final HttpEntity entity) throws IOException {
-    if (content == null) {
-      content = IOUtils.toByteArray(entity.getContent());
+  private static InputStream toInputStream(final ByteBuffer content) {
+    return new ByteArrayInputStream(content.array(), content.arrayOffset() + content.position(), content.remaining());
+  }
+
+  /**
+   * Returns an entity of the content received, with the content type
+   * and encoding of the entity received.
+   *
+   * @param entity  The entity received
+   * @param content The content received
+   * @return an instance of http entity
+   */
+  private static HttpEntity createRawEntity(final HttpEntity entity, final ByteBuffer content) {
+    final BasicHttpEntity rawEntity = new BasicHttpEntity();
+    rawEntity.setContent(toInputStream(content));
+    rawEntity.setContentLength(content.remaining());
+    rawEntity.setContentType(entity.getContentType());
+    rawEntity.setContentEncoding(entity.getContentEncoding());
+    return rawEntity;
+  }
+
+  /**
+   * Detects the content type of the content, where the server did not
+   * declare the mime type or charset.
+   *
+   * @param entity  The entity of the content
+   * @param content The content
+   * @return an instance of content type
+   */
+  private ContentType detectContentType(final HttpEntity entity, final ByteBuffer content) {
+    try {
+      return contentTypeDetector.detect(host, ContentType.get(entity), content);
+    } catch (ParseException e) {
+      LOGGER.warn("Could not parse content type", e);
+    } catch (UnsupportedCharsetException e) {
+      LOGGER.warn("Charset is not available in this instance of the Java virtual machine", e);
     }
-    return content;
+    return DEFAULT_CONTENT_TYPE;
   }
 
   /**
-   * Create an instance of venom response.
+   * Processes a response received by this consumer: decompresses its
+   * content, detects its content type and validates it.
+   * <p>
+   * This may be called on any thread, once the response is received.
+   * </p>
    *
-   * @param compressed Determines whether responses might be compressed
+   * @param received The response received
    * @return An instance of base response
-   * @throws IOException Reading http response
+   * @throws ValidationException If the response is not valid
+   * @throws IOException         If the content cannot be decompressed
    */
-  private BaseResponse createVenomResponse(final boolean compressed, final HttpContext context) throws IOException {
-    if (compressed) {
-      RESPONSE_DECOMPRESSOR.decompress(httpResponse);
+  final BaseResponse process(final ReceivedResponse received) throws ValidationException, IOException {
+    final HttpResponse receivedResponse = received.getHttpResponse();
+    final int statusCode = receivedResponse.getStatusLine().getStatusCode();
+    ByteBuffer content = received.getContent();
+    ContentType contentType = DEFAULT_CONTENT_TYPE;
+    final HttpEntity entity = receivedResponse.getEntity();
+    if (entity != null) {
+      receivedResponse.setEntity(createRawEntity(entity, content));
+      if (compressed) {
+        RESPONSE_DECOMPRESSOR.decompress(receivedResponse);
+      }
+      final HttpEntity decodedEntity = receivedResponse.getEntity();
+      if (decodedEntity instanceof DecompressingEntity) {
+        try (InputStream stream = decodedEntity.getContent()) {
+          content = CompositeInputBuffer.readFully(stream).toByteBuffer();
+        }
+      }
+      contentType = detectContentType(decodedEntity, content);
     }
+    request.getDiagnostics().setSize(content.remaining());
 
-    final HttpClientContext clientContext = HttpClientContext.adapt(context);
-    final List<URI> redirectedLocations = clientContext.getRedirectLocations();
-    final String url;
-    if (redirectedLocations == null) {
-      url = request.getUrl();
-    } else {
-      url = redirectedLocations.get(redirectedLocations.size() - 1).toString();
+    final BaseResponse response = BaseResponse.wrap(
+        statusCode,
+        received.getUrl(),
+        content,
+        contentType,
+        receivedResponse.getAllHeaders(),
+        request.getProxy());
+
+    final Validator.Status status;
+    try {
+      status = validator.isValid(Unwrappable.unwrapRequest(request), response);
+    } catch (Exception e) {
+      throw new ValidationException(Validator.Status.INVALID_CONTENT, response, "Validator threw an exception, "
+          + "please check your code for bugs.", e);
     }
 
-    final HttpEntity entity = httpResponse.getEntity();
-    final byte[] content = getContent(entity);
-    request.getDiagnostics().setSize(content.length);
-    final ContentType contentType = getContentType(entity);
-    final Header[] headers = httpResponse.getAllHeaders();
+    if (status == Validator.Status.STOP) {
+      throw new ValidationException(status, response, "Validator stopped the request.");
+    } else if (status != Validator.Status.VALID) {
+      throw new ValidationException(status, response, "Invalid response.");
+    }
 
+    return response;
+  }
+
+  @Override
+  protected final ContentType getContentType(final HttpEntity entity) {
+    try {
+      return ContentType.get(entity);
+    } catch (ParseException | UnsupportedCharsetException e) {
+      LOGGER.debug("Could not parse declared content type", e);
+      return null;
+    }
+  }
+
+  /**
+   * Create a response without content from the status line and headers
+   * received, to fail a request with.
+   *
+   * @param contentType The declared content type, or null if none
+   * @return An instance of base response
+   */
+  private BaseResponse createHeadResponse(final ContentType contentType) {
     return new BaseResponse(
         httpResponse.getStatusLine().getStatusCode(),
-        url,
-        content,
-        contentType,
-        headers,
+        request.getUrl(),
+        new byte[0],
+        contentType == null ? DEFAULT_CONTENT_TYPE : contentType,
+        httpResponse.getAllHeaders(),
         request.getProxy());
   }
 
-  @Override
-  protected final synchronized ContentType getContentType(final HttpEntity entity) {
-    try {
-      ContentType contentType = ContentType.get(entity);
-      if (contentType == null || contentType.getCharset() == null) {
-        final byte[] bytes;
-        try {
-          bytes = getContent(entity);
-        } catch (IllegalStateException e) {
-          return contentType;
-        }
+  /**
+   * Validates the status line and headers of the response, aborting the
+   * exchange before the content is received if they are not valid.
+   *
+   * @throws AbortedResponseException If the exchange is to be aborted
+   */
+  private void validateHead() throws AbortedResponseException {
+    final int statusCode = httpResponse.getStatusLine().getStatusCode();
+    if (stopCodes.contains(statusCode)) {
+      throw new AbortedResponseException(new StopCodeException(statusCode, "Stop code received."));
+    }
+    if (headerValidator == null && maxContentLength < 0) {
+      return;
+    }
 
-        if (contentType == null) {
-          try (TikaInputStream stream = TikaInputStream.get(bytes)) {
-            final Tika tika = new Tika();
-            final String fileType = tika.detect(stream);
-            contentType = ContentType.create(fileType);
-          }
-        }
+    final HttpEntity entity = httpResponse.getEntity();
+    final long contentLength = entity == null ? 0 : entity.getContentLength();
+    final ContentType contentType = entity == null ? null : getContentType(entity);
 
-        if (contentType.getCharset() == null) {
-          try (TikaInputStream stream = TikaInputStream.get(bytes)) {
-            final CharsetMatch match = new CharsetDetector()
-                .setText(stream)
-                .detect();
+    if (maxContentLength >= 0 && contentLength > maxContentLength) {
+      throw new AbortedResponseException(new ValidationException(Validator.Status.INVALID_CONTENT,
+          createHeadResponse(contentType), "Declared content length exceeds the maximum."));
+    }
+    if (headerValidator == null) {
+      return;
+    }
 
-            if (match != null && match.getConfidence() > 50) {
-              contentType = contentType.withCharset(match.getName());
-            }
-          }
-        }
-      }
-      return contentType;
-    } catch (ParseException e) {
-      LOGGER.warn("Could not parse content type", e);
-    } catch (UnsupportedCharsetException e) {
-      LOGGER.warn("Charset is not available in this instance of the Java virtual machine", e);
-    } catch (IOException e) {
-      LOGGER.warn("Cannot get content to determine media type", e);
+    final ResponseHead head = new ResponseHead(statusCode, request.getUrl(), httpResponse.getAllHeaders(),
+        contentLength, contentType, request.getProxy());
+    final Validator.Status status;
+    try {
+      status = headerValidator.isValid(Unwrappable.unwrapRequest(request), head);
+    } catch (Exception e) {
+      throw new AbortedResponseException(new ValidationException(Validator.Status.INVALID_CONTENT,
+          createHeadResponse(contentType), "Header validator threw an exception, please check your code for bugs.",
+          e));
+    }
+
+    if (status == Validator.Status.STOP) {
+      throw new AbortedResponseException(new ValidationException(status, createHeadResponse(contentType),
+          "Header validator stopped the request."));
+    } else if (status != Validator.Status.VALID) {
+      throw new AbortedResponseException(new ValidationException(status, createHeadResponse(contentType),
+          "Invalid response headers."));
     }
-    return DEFAULT_CONTENT_TYPE;
   }
 
   @Override
-  protected final void onResponseReceived(final HttpResponse httpResponse) {
+  protected final void onResponseReceived(final HttpResponse httpResponse) throws IOException {
     request.getDiagnostics().setAcknowledge();
     this.httpResponse = httpResponse;
+    validateHead();
   }
 
   @Override
   protected final void onContentReceived(final ContentDecoder decoder, final IOControl ioctrl) throws IOException {
     Asserts.notNull(this.buf, "Content buffer");
     this.buf.consumeContent(decoder);
+    if (maxContentLength >= 0 && this.buf.size() > maxContentLength) {
+      throw new AbortedResponseException(new ValidationException(Validator.Status.INVALID_CONTENT,
+          createHeadResponse(null), "Content length exceeds the maximum."));
+    }
   }
 
   @Override
   protected final void onEntityEnclosed(final HttpEntity entity, final ContentType contentType) throws IOException {
-    long len = entity.getContentLength();
-    if (len > Integer.MAX_VALUE) {
+    final long len = entity.getContentLength();
+    if (len > Integer.MAX_VALUE - 8) {
       throw new ContentTooLongException("Entity content is too long: " + len);
     }
-    if (len < 0) {
-      len = 4096;
+    if (bufferPool == null || len >= 0) {
+      this.buf = new CompositeInputBuffer(len, bufferPool, ReceiveBufferPool.MIN_SIZE);
+    } else {
+      this.buf = new CompositeInputBuffer(len, bufferPool, bufferPool.estimateSize(host));
     }
-    this.buf = new SimpleInputBuffer((int) len, new HeapByteBufferAllocator());
     this.httpResponse.setEntity(new ContentBufferEntity(entity, this.buf));
   }
 
   @Override
-  protected final BaseResponse buildResult(final HttpContext context) throws Exception {
+  protected final ReceivedResponse buildResult(final HttpContext context) throws Exception {
     request.getDiagnostics().setComplete();
-    final int statusCode = httpResponse.getStatusLine().getStatusCode();
-    if (stopCodes.contains(statusCode)) {
-      EntityUtils.consumeQuietly(httpResponse.getEntity());
-      releaseResources();
-      throw new StopCodeException(statusCode, "Stop code received.");
+    final CompositeInputBuffer buffer = this.buf;
+    if (bufferPool != null && buffer != null) {
+      bufferPool.recordSize(host, buffer.size());
     }
-
-    final BaseResponse response = createVenomResponse(compressed, context);
-    releaseResources();
-
-    final Validator.Status status;
-    try {
-      status = validator.isValid(Unwrappable.unwrapRequest(request), response);
-    } catch (Exception e) {
-      throw new ValidationException(Validator.Status.INVALID_CONTENT, response, "Validator threw an exception, "
-          + "please check your code for bugs.", e);
-    }
-
-    if (status == Validator.Status.STOP) {
-      throw new ValidationException(status, response, "Validator stopped the request.");
-    } else if (status != Validator.Status.VALID) {
-      throw new ValidationException(status, response, "Invalid response.");
+    final HttpClientContext clientContext = HttpClientContext.adapt(context);
+    final List<URI> redirectedLocations = clientContext.getRedirectLocations();
+    final String url;
+    if (redirectedLocations == null) {
+      url = request.getUrl();
+    } else {
+      url = redirectedLocations.get(redirectedLocations.size() - 1).toString();
     }
 
-    return response;
+    final ByteBuffer content = buffer == null ? ByteBuffer.allocate(0) : buffer.toByteBuffer();
+    final ReceivedResponse received = new ReceivedResponse(httpResponse, url, content);
+    releaseResources();
+    return received;
   }
 
   @Override
   protected final void releaseResources() {
+    final CompositeInputBuffer buffer = this.buf;
+    if (buffer != null) {
+      buffer.release();
+    }
     this.httpResponse = null;
     this.buf = null;
   }
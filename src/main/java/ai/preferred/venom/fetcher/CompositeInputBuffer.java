@@ -0,0 +1,302 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.fetcher;
+
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.util.ContentInputBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides a content input buffer that accumulates content
+ * into a list of chunks, and hands out the content as a byte buffer
+ * without copying it again.
+ * <p>
+ * If the length of the content is known, a single chunk of that length
+ * is allocated and the content is never copied. Otherwise chunks grow
+ * geometrically up to {@link ReceiveBufferPool#MAX_SIZE}, and are joined
+ * once when the content is first viewed as a whole. Chunks taken from a
+ * pool are returned to it once joined, or when the buffer is released.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+final class CompositeInputBuffer implements ContentInputBuffer {
+
+  /**
+   * The pool to take chunks from, or null to allocate them.
+   */
+  private final ReceiveBufferPool pool;
+
+  /**
+   * The chunks of content, all full except the last.
+   */
+  private final List<ByteBuffer> chunks = new ArrayList<>(1);
+
+  /**
+   * Whether the chunks were taken from the pool.
+   */
+  private boolean pooled;
+
+  /**
+   * The total number of bytes in this buffer.
+   */
+  private int size;
+
+  /**
+   * The number of bytes read from this buffer as a stream.
+   */
+  private int readPosition;
+
+  /**
+   * Whether the end of stream has been reached.
+   */
+  private boolean endOfStream;
+
+  /**
+   * Whether the chunks have been released.
+   */
+  private boolean released;
+
+  /**
+   * Constructs an instance of composite input buffer.
+   *
+   * @param contentLength The length of the content, or negative if unknown.
+   * @param pool          The pool to take chunks from, or null to allocate them.
+   * @param sizeHint      The expected length of the content if unknown.
+   */
+  CompositeInputBuffer(final long contentLength, final ReceiveBufferPool pool, final int sizeHint) {
+    if (contentLength > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Content length exceeds the maximum size of a buffer.");
+    }
+    this.pool = pool;
+    if (contentLength >= 0) {
+      chunks.add(ByteBuffer.allocate((int) contentLength));
+    } else {
+      pooled = pool != null;
+      chunks.add(allocate(sizeHint));
+    }
+  }
+
+  /**
+   * Constructs an instance of composite input buffer that allocates
+   * its chunks.
+   *
+   * @param contentLength The length of the content, or negative if unknown.
+   */
+  CompositeInputBuffer(final long contentLength) {
+    this(contentLength, null, ReceiveBufferPool.MIN_SIZE);
+  }
+
+  /**
+   * Reads a stream to its end into a new buffer.
+   *
+   * @param inputStream The stream to read.
+   * @return A buffer holding the content of the stream.
+   * @throws IOException if the stream cannot be read.
+   */
+  static CompositeInputBuffer readFully(final InputStream inputStream) throws IOException {
+    final CompositeInputBuffer buffer = new CompositeInputBuffer(-1);
+    while (true) {
+      final ByteBuffer tail = buffer.writableTail();
+      final int read = inputStream.read(tail.array(), tail.position(), tail.remaining());
+      if (read == -1) {
+        break;
+      }
+      tail.position(tail.position() + read);
+      buffer.size += read;
+    }
+    buffer.endOfStream = true;
+    return buffer;
+  }
+
+  /**
+   * Allocates a chunk, from the pool if there is one.
+   *
+   * @param chunkSize The size of the chunk.
+   * @return A cleared chunk.
+   */
+  private ByteBuffer allocate(final int chunkSize) {
+    if (pool != null) {
+      pooled = true;
+      return pool.acquire(chunkSize);
+    }
+    return ByteBuffer.allocate(Math.min(ReceiveBufferPool.MAX_SIZE, Math.max(ReceiveBufferPool.MIN_SIZE, chunkSize)));
+  }
+
+  /**
+   * Returns the last chunk, appending a new chunk if it is full.
+   *
+   * @return The last chunk with space remaining.
+   */
+  private ByteBuffer writableTail() {
+    final ByteBuffer tail = chunks.get(chunks.size() - 1);
+    if (tail.hasRemaining()) {
+      return tail;
+    }
+    final ByteBuffer chunk = allocate(size);
+    chunks.add(chunk);
+    return chunk;
+  }
+
+  @Override
+  public synchronized int consumeContent(final ContentDecoder decoder) throws IOException {
+    if (released) {
+      throw new IOException("Buffer has been released.");
+    }
+    int totalRead = 0;
+    int bytesRead;
+    do {
+      bytesRead = decoder.read(writableTail());
+      if (bytesRead > 0) {
+        size += bytesRead;
+        totalRead += bytesRead;
+      }
+    } while (bytesRead > 0);
+    if (bytesRead == -1 || decoder.isCompleted()) {
+      endOfStream = true;
+    }
+    return totalRead;
+  }
+
+  /**
+   * Returns whether the end of stream has been reached.
+   *
+   * @return true if the end of stream has been reached.
+   */
+  synchronized boolean isEndOfStream() {
+    return endOfStream;
+  }
+
+  /**
+   * Returns the number of bytes in this buffer.
+   *
+   * @return the number of bytes in this buffer.
+   */
+  synchronized int size() {
+    return size;
+  }
+
+  /**
+   * Returns the content of this buffer as a byte buffer backed by a
+   * heap array not shared with the pool. Chunks are joined the first
+   * time this is called.
+   *
+   * @return a byte buffer positioned at the start of the content.
+   */
+  synchronized ByteBuffer toByteBuffer() {
+    if (chunks.isEmpty()) {
+      throw new IllegalStateException("Buffer has been released.");
+    }
+    if (chunks.size() > 1 || pooled) {
+      final byte[] joined = new byte[size];
+      int offset = 0;
+      for (final ByteBuffer chunk : chunks) {
+        final ByteBuffer filled = (ByteBuffer) chunk.duplicate().flip();
+        final int length = filled.remaining();
+        filled.get(joined, offset, length);
+        offset += length;
+      }
+      releaseChunks();
+      chunks.add((ByteBuffer) ByteBuffer.wrap(joined).position(size));
+    }
+    return ByteBuffer.wrap(chunks.get(0).array(), 0, size);
+  }
+
+  /**
+   * Returns the chunks to the pool, if they were taken from it.
+   */
+  private void releaseChunks() {
+    if (pooled) {
+      for (final ByteBuffer chunk : chunks) {
+        pool.release(chunk);
+      }
+      pooled = false;
+    }
+    chunks.clear();
+  }
+
+  /**
+   * Returns the chunks to the pool. This buffer must not be used to
+   * receive content after this, content joined before remains valid.
+   */
+  synchronized void release() {
+    if (!released) {
+      released = true;
+      if (pooled) {
+        releaseChunks();
+      }
+    }
+  }
+
+  @Override
+  public synchronized void reset() {
+    final ByteBuffer head = chunks.get(0);
+    for (int i = 1; i < chunks.size(); i++) {
+      if (pooled) {
+        pool.release(chunks.get(i));
+      }
+    }
+    chunks.clear();
+    head.clear();
+    chunks.add(head);
+    size = 0;
+    readPosition = 0;
+    endOfStream = false;
+  }
+
+  @Override
+  public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+    if (readPosition >= size) {
+      return endOfStream ? -1 : 0;
+    }
+    int remaining = Math.min(len, size - readPosition);
+    final int read = remaining;
+    int chunkStart = 0;
+    int target = off;
+    for (final ByteBuffer chunk : chunks) {
+      if (remaining == 0) {
+        break;
+      }
+      final int chunkEnd = chunkStart + chunk.position();
+      if (readPosition < chunkEnd) {
+        final int length = Math.min(remaining, chunkEnd - readPosition);
+        final ByteBuffer source = chunk.duplicate();
+        source.position(readPosition - chunkStart);
+        source.get(b, target, length);
+        readPosition += length;
+        target += length;
+        remaining -= length;
+      }
+      chunkStart = chunkEnd;
+    }
+    return read;
+  }
+
+  @Override
+  public int read() throws IOException {
+    final byte[] b = new byte[1];
+    final int read = read(b, 0, 1);
+    return read == 1 ? b[0] & 0xff : -1;
+  }
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.fetcher;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.ibm.icu.text.CharsetDetector;
+import com.ibm.icu.text.CharsetMatch;
+import org.apache.http.entity.ContentType;
+import org.apache.tika.Tika;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class detects the mime type and charset of content, where the
+ * server did not declare them.
+ * <p>
+ * Only the first bytes of the content, up to the sniff window, are
+ * examined. The charset is taken from a byte order mark, an XML
+ * declaration or an HTML meta tag if present, before falling back to
+ * statistical detection. Once statistical detection has agreed a few
+ * times in a row for a host and declared content type, its result is
+ * reused for that host and declared content type.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+final class ContentTypeDetector {
+
+  /**
+   * The default number of bytes to examine.
+   */
+  static final int DEFAULT_SNIFF_WINDOW = 8192;
+
+  /**
+   * The minimum confidence of a detected charset to be used.
+   */
+  private static final int MIN_CONFIDENCE = 50;
+
+  /**
+   * The number of agreeing detections before a charset is reused.
+   */
+  private static final int AGREEMENTS_TO_CACHE = 3;
+
+  /**
+   * The maximum number of hosts and declared content types to remember.
+   */
+  private static final int MAX_CACHED = 10000;
+
+  /**
+   * The pattern of an encoding in an XML declaration.
+   */
+  private static final Pattern XML_ENCODING = Pattern.compile(
+      "^<\\?xml[^>]*?encoding\\s*=\\s*[\"']([A-Za-z0-9._:-]+)[\"']");
+
+  /**
+   * The pattern of a charset in an HTML meta tag.
+   */
+  private static final Pattern META_CHARSET = Pattern.compile(
+      "<meta[^>]*?charset\\s*=\\s*[\"']?\\s*([A-Za-z0-9._:-]+)", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * The shared detector of mime types, it is thread safe.
+   */
+  private static final Tika TIKA = new Tika();
+
+  /**
+   * The number of bytes to examine.
+   */
+  private final int sniffWindow;
+
+  /**
+   * The charsets detected for each host and declared content type.
+   */
+  private final Cache<String, DetectedCharset> detectedCharsets = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED)
+      .build();
+
+  /**
+   * Constructs an instance of content type detector.
+   *
+   * @param sniffWindow The number of bytes to examine
+   */
+  ContentTypeDetector(final int sniffWindow) {
+    if (sniffWindow <= 0) {
+      throw new IllegalArgumentException("Sniff window must be more than 0.");
+    }
+    this.sniffWindow = sniffWindow;
+  }
+
+  /**
+   * Constructs an instance of content type detector examining
+   * {@link #DEFAULT_SNIFF_WINDOW} bytes.
+   */
+  ContentTypeDetector() {
+    this(DEFAULT_SNIFF_WINDOW);
+  }
+
+  /**
+   * Returns the charset named, if supported.
+   *
+   * @param name The name of the charset
+   * @return The charset, or null if not supported
+   */
+  private static Charset forName(final String name) {
+    try {
+      return Charset.isSupported(name) ? Charset.forName(name) : null;
+    } catch (IllegalCharsetNameException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Returns the charset of a byte order mark at the start of content.
+   *
+   * @param window The start of the content
+   * @return The charset, or null if there is no byte order mark
+   */
+  private static Charset fromByteOrderMark(final byte[] window) {
+    if (window.length >= 3 && (window[0] & 0xff) == 0xef && (window[1] & 0xff) == 0xbb
+        && (window[2] & 0xff) == 0xbf) {
+      return StandardCharsets.UTF_8;
+    }
+    if (window.length >= 2 && (window[0] & 0xff) == 0xfe && (window[1] & 0xff) == 0xff) {
+      return StandardCharsets.UTF_16BE;
+    }
+    if (window.length >= 2 && (window[0] & 0xff) == 0xff && (window[1] & 0xff) == 0xfe) {
+      return StandardCharsets.UTF_16LE;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the charset declared in the markup at the start of content.
+   *
+   * @param window The start of the content
+   * @return The charset, or null if none is declared
+   */
+  private static Charset fromMarkup(final byte[] window) {
+    final String text = new String(window, StandardCharsets.ISO_8859_1);
+    final Matcher xml = XML_ENCODING.matcher(text);
+    if (xml.find()) {
+      return forName(xml.group(1));
+    }
+    final Matcher meta = META_CHARSET.matcher(text);
+    if (meta.find()) {
+      return forName(meta.group(1));
+    }
+    return null;
+  }
+
+  /**
+   * Detects the content type of content.
+   *
+   * @param host     The host the content is from
+   * @param declared The content type declared by the server, or null if none
+   * @param content  The content
+   * @return The content type detected
+   */
+  ContentType detect(final String host, final ContentType declared, final ByteBuffer content) {
+    if (declared != null && declared.getCharset() != null) {
+      return declared;
+    }
+
+    final ByteBuffer view = content.duplicate();
+    final byte[] window = new byte[Math.min(sniffWindow, view.remaining())];
+    view.get(window);
+
+    final ContentType contentType = declared != null ? declared : ContentType.create(TIKA.detect(window));
+    Charset charset = fromByteOrderMark(window);
+    if (charset == null) {
+      charset = fromMarkup(window);
+    }
+    if (charset != null) {
+      return contentType.withCharset(charset);
+    }
+
+    final String key = declared == null ? null : host + ' ' + declared.getMimeType().toLowerCase(Locale.ROOT);
+    final DetectedCharset cached = key == null ? null : detectedCharsets.getIfPresent(key);
+    if (cached != null && cached.isSettled()) {
+      return cached.apply(contentType);
+    }
+
+    final CharsetMatch match = new CharsetDetector().setText(window).detect();
+    final String name = match != null && match.getConfidence() > MIN_CONFIDENCE ? match.getName() : null;
+    if (key != null) {
+      if (cached == null) {
+        detectedCharsets.put(key, new DetectedCharset(name));
+      } else {
+        cached.agree(name);
+      }
+    }
+    return name == null ? contentType : contentType.withCharset(name);
+  }
+
+  /**
+   * The charset detected for a host and declared content type, and how
+   * many times in a row it was detected.
+   */
+  private static final class DetectedCharset {
+
+    /**
+     * The name of the charset, or null if none was detected.
+     */
+    private String name;
+
+    /**
+     * The number of times in a row the charset was detected.
+     */
+    private int agreements;
+
+    /**
+     * Constructs an instance of detected charset.
+     *
+     * @param name The name of the charset, or null if none was detected
+     */
+    private DetectedCharset(final String name) {
+      this.name = name;
+      this.agreements = 1;
+    }
+
+    /**
+     * Records a charset detected.
+     *
+     * @param detected The name of the charset, or null if none was detected
+     */
+    private synchronized void agree(final String detected) {
+      if (Objects.equals(name, detected)) {
+        agreements++;
+      } else {
+        name = detected;
+        agreements = 1;
+      }
+    }
+
+    /**
+     * Returns whether the charset has been detected enough times in a
+     * row to be reused.
+     *
+     * @return true if the charset should be reused
+     */
+    private synchronized boolean isSettled() {
+      return agreements >= AGREEMENTS_TO_CACHE;
+    }
+
+    /**
+     * Applies the charset to a content type.
+     *
+     * @param contentType The content type
+     * @return The content type with the charset, if any
+     */
+    private synchronized ContentType apply(final ContentType contentType) {
+      return name == null ? contentType : contentType.withCharset(name);
+    }
+
+  }
+
+}
@@ -16,6 +16,7 @@
 
 package ai.preferred.venom.fetcher;
 
+import ai.preferred.venom.limiter.ConcurrencyLimiter;
 import ai.preferred.venom.request.Request;
 import ai.preferred.venom.response.Response;
 
@@ -59,4 +60,17 @@ public interface Fetcher extends AutoCloseable {
   @NotNull
   Future<Response> fetch(@NotNull Request request, @NotNull Callback callback);
 
+  /**
+   * Wraps the concurrency limiter of the crawler so that requests are
+   * held back while this fetcher cannot keep up, such as when responses
+   * cannot be stored fast enough.
+   *
+   * @param limiter the concurrency limiter to wrap
+   * @return the concurrency limiter, which is the limiter given by default
+   */
+  @NotNull
+  default ConcurrencyLimiter limit(@NotNull ConcurrencyLimiter limiter) {
+    return limiter;
+  }
+
 }
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.fetcher;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class provides a pool of buffers for receiving the content of
+ * responses of unknown length, in size classes of powers of two.
+ * <p>
+ * The pool also keeps a running histogram of response sizes for each
+ * host, from which the initial size of a buffer for the next response
+ * from that host is estimated.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class ReceiveBufferPool {
+
+  /**
+   * The size of the smallest size class.
+   */
+  public static final int MIN_SIZE = 4096;
+
+  /**
+   * The size of the largest size class, kept below the humongous object
+   * threshold of G1.
+   */
+  public static final int MAX_SIZE = 256 * 1024;
+
+  /**
+   * The default maximum number of bytes held in the pool.
+   */
+  public static final long DEFAULT_MAX_POOLED_BYTES = 64L * 1024 * 1024;
+
+  /**
+   * The maximum number of hosts to keep response sizes for.
+   */
+  private static final int MAX_HOSTS = 10000;
+
+  /**
+   * The log base 2 of the smallest size class.
+   */
+  private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+
+  /**
+   * The free buffers of each size class.
+   */
+  private final Queue<ByteBuffer>[] free;
+
+  /**
+   * Whether buffers are allocated from direct memory.
+   */
+  private final boolean direct;
+
+  /**
+   * The maximum number of bytes held in the pool.
+   */
+  private final long maxPooledBytes;
+
+  /**
+   * The number of bytes held in the pool.
+   */
+  private final AtomicLong pooledBytes = new AtomicLong();
+
+  /**
+   * The response sizes of each host.
+   */
+  private final Cache<String, ResponseSizeHistogram> histograms = CacheBuilder.newBuilder()
+      .maximumSize(MAX_HOSTS)
+      .build();
+
+  /**
+   * Constructs an instance of receive buffer pool.
+   *
+   * @param direct         Whether buffers are allocated from direct memory.
+   * @param maxPooledBytes The maximum number of bytes held in the pool.
+   */
+  @SuppressWarnings("unchecked")
+  public ReceiveBufferPool(final boolean direct, final long maxPooledBytes) {
+    if (maxPooledBytes < 0) {
+      throw new IllegalArgumentException("Maximum pooled bytes must be more or equal to 0.");
+    }
+    this.direct = direct;
+    this.maxPooledBytes = maxPooledBytes;
+    this.free = new Queue[Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1];
+    for (int i = 0; i < free.length; i++) {
+      free[i] = new ConcurrentLinkedQueue<>();
+    }
+  }
+
+  /**
+   * Constructs an instance of receive buffer pool of heap buffers,
+   * holding up to {@link #DEFAULT_MAX_POOLED_BYTES}.
+   */
+  public ReceiveBufferPool() {
+    this(false, DEFAULT_MAX_POOLED_BYTES);
+  }
+
+  /**
+   * Returns the index of the smallest size class fitting a size.
+   *
+   * @param size the size to fit.
+   * @return the index of the size class.
+   */
+  private static int sizeClass(final int size) {
+    if (size <= MIN_SIZE) {
+      return 0;
+    }
+    final int shift = 32 - Integer.numberOfLeadingZeros(Math.min(size, MAX_SIZE) - 1);
+    return shift - MIN_SHIFT;
+  }
+
+  /**
+   * Returns whether buffers are allocated from direct memory.
+   *
+   * @return true if buffers are direct.
+   */
+  public boolean isDirect() {
+    return direct;
+  }
+
+  /**
+   * Returns the number of bytes held in the pool.
+   *
+   * @return the number of bytes held in the pool.
+   */
+  public long getPooledBytes() {
+    return pooledBytes.get();
+  }
+
+  /**
+   * Acquires a cleared buffer of the smallest size class fitting the
+   * size specified, or of the largest size class if none fits.
+   *
+   * @param size the size requested.
+   * @return a buffer with a capacity of a size class.
+   */
+  public ByteBuffer acquire(final int size) {
+    final int sizeClass = sizeClass(size);
+    final ByteBuffer buffer = free[sizeClass].poll();
+    if (buffer == null) {
+      final int capacity = MIN_SIZE << sizeClass;
+      return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+    pooledBytes.addAndGet(-buffer.capacity());
+    buffer.clear();
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer acquired from this pool to it. The buffer must not
+   * be used after this.
+   *
+   * @param buffer the buffer to return.
+   */
+  public void release(final ByteBuffer buffer) {
+    final int capacity = buffer.capacity();
+    if (buffer.isDirect() != direct || Integer.bitCount(capacity) != 1 || capacity < MIN_SIZE
+        || capacity > MAX_SIZE) {
+      return;
+    }
+    if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+      pooledBytes.addAndGet(-capacity);
+      return;
+    }
+    free[sizeClass(capacity)].offer(buffer);
+  }
+
+  /**
+   * Returns the estimated size of the next response from a host.
+   *
+   * @param host the host of the response.
+   * @return the estimated size in bytes.
+   */
+  public int estimateSize(final String host) {
+    final ResponseSizeHistogram histogram = histograms.getIfPresent(host);
+    return histogram == null ? MIN_SIZE : histogram.estimate();
+  }
+
+  /**
+   * Records the size of a response from a host.
+   *
+   * @param host the host of the response.
+   * @param size the size of the response in bytes.
+   */
+  public void recordSize(final String host, final long size) {
+    try {
+      histograms.get(host, ResponseSizeHistogram::new).record(size);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * A running histogram of response sizes in buckets of powers of two,
+   * that halves its counts periodically to follow recent responses.
+   */
+  static final class ResponseSizeHistogram {
+
+    /**
+     * The proportion of responses the estimate should fit.
+     */
+    private static final double PERCENTILE = 0.9;
+
+    /**
+     * The number of responses recorded before counts are halved.
+     */
+    private static final int DECAY_THRESHOLD = 256;
+
+    /**
+     * The number of buckets, the last bucket holds all larger sizes.
+     */
+    private static final int BUCKETS = 31 - MIN_SHIFT;
+
+    /**
+     * The counts of each bucket.
+     */
+    private final int[] counts = new int[BUCKETS];
+
+    /**
+     * The sum of all counts.
+     */
+    private int total;
+
+    /**
+     * Records the size of a response.
+     *
+     * @param size the size of the response in bytes.
+     */
+    synchronized void record(final long size) {
+      final int bucket;
+      if (size <= MIN_SIZE) {
+        bucket = 0;
+      } else {
+        bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(size - 1) - MIN_SHIFT);
+      }
+      counts[bucket]++;
+      if (++total >= DECAY_THRESHOLD) {
+        total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+          counts[i] >>= 1;
+          total += counts[i];
+        }
+      }
+    }
+
+    /**
+     * Returns the upper bound of the bucket at the percentile.
+     *
+     * @return the estimated size in bytes.
+     */
+    synchronized int estimate() {
+      final int target = (int) Math.ceil(total * PERCENTILE);
+      int seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= target) {
+          return MIN_SIZE << i;
+        }
+      }
+      return MIN_SIZE;
+    }
+
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.fetcher;
+
+import org.apache.http.HttpResponse;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class holds a response as received, before its content is
+ * decompressed, its content type detected and it is validated.
+ *
+ * @author Ween Jiann Lee
+ */
+final class ReceivedResponse {
+
+  /**
+   * The http response received.
+   */
+  private final HttpResponse httpResponse;
+
+  /**
+   * The url of the response, after any redirection.
+   */
+  private final String url;
+
+  /**
+   * The content as received.
+   */
+  private final ByteBuffer content;
+
+  /**
+   * Constructs a received response.
+   *
+   * @param httpResponse The http response received
+   * @param url          The url of the response, after any redirection
+   * @param content      The content as received
+   */
+  ReceivedResponse(final HttpResponse httpResponse, final String url, final ByteBuffer content) {
+    this.httpResponse = httpResponse;
+    this.url = url;
+    this.content = content;
+  }
+
+  /**
+   * Returns the http response received.
+   *
+   * @return the http response
+   */
+  HttpResponse getHttpResponse() {
+    return httpResponse;
+  }
+
+  /**
+   * Returns the url of the response, after any redirection.
+   *
+   * @return the url of the response
+   */
+  String getUrl() {
+    return url;
+  }
+
+  /**
+   * Returns the content as received.
+   *
+   * @return a byte buffer of the content
+   */
+  ByteBuffer getContent() {
+    return content.duplicate();
+  }
+
+}
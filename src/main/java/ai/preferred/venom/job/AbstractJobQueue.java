@@ -27,7 +27,7 @@ import java.util.concurrent.BlockingQueue;
  * @author Maksim Tkachenko
  */
 @SuppressWarnings("NullableProblems")
-public abstract class AbstractJobQueue extends AbstractQueue<Job> implements BlockingQueue<Job> {
+public abstract class AbstractJobQueue extends AbstractQueue<Job> implements JobQueue {
 
   /**
    * The queue used for this scheduler.
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.job;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This class provides an implementation of job attribute that delays
+ * retries of a job with exponential backoff.
+ * <p>
+ * The delay before the n-th retry is the initial delay multiplied by
+ * the multiplier n - 1 times, capped at the maximum delay, and varied
+ * randomly by up to the jitter proportion of the delay.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public class BackoffJobAttribute implements JobAttribute {
+
+  /**
+   * The delay in milliseconds before the first retry.
+   */
+  private final long initialDelay;
+
+  /**
+   * The factor to multiply the delay by for each retry.
+   */
+  private final double multiplier;
+
+  /**
+   * The maximum delay in milliseconds.
+   */
+  private final long maxDelay;
+
+  /**
+   * The proportion of the delay to vary randomly.
+   */
+  private final double jitter;
+
+  /**
+   * The number of retries prepared.
+   */
+  private int retries;
+
+  /**
+   * Constructs an instance of BackoffJobAttribute.
+   *
+   * @param initialDelay The delay in milliseconds before the first retry.
+   * @param multiplier   The factor to multiply the delay by for each retry.
+   * @param maxDelay     The maximum delay in milliseconds.
+   * @param jitter       The proportion of the delay to vary randomly, between 0 and 1.
+   */
+  public BackoffJobAttribute(final long initialDelay, final double multiplier, final long maxDelay,
+                             final double jitter) {
+    if (initialDelay < 0 || maxDelay < initialDelay) {
+      throw new IllegalArgumentException("Delays must be positive, and max delay at least the initial delay.");
+    }
+    if (multiplier < 1) {
+      throw new IllegalArgumentException("Multiplier must be more or equal to 1.");
+    }
+    if (jitter < 0 || jitter > 1) {
+      throw new IllegalArgumentException("Jitter not within range, must be [0,1].");
+    }
+    this.initialDelay = initialDelay;
+    this.multiplier = multiplier;
+    this.maxDelay = maxDelay;
+    this.jitter = jitter;
+  }
+
+  /**
+   * Constructs an instance of BackoffJobAttribute, that doubles the delay
+   * for each retry with a jitter of 0.2.
+   *
+   * @param initialDelay The delay in milliseconds before the first retry.
+   * @param maxDelay     The maximum delay in milliseconds.
+   */
+  public BackoffJobAttribute(final long initialDelay, final long maxDelay) {
+    this(initialDelay, 2, maxDelay, 0.2);
+  }
+
+  /**
+   * Get the number of retries prepared.
+   *
+   * @return the number of retries prepared.
+   */
+  public final int getRetries() {
+    return retries;
+  }
+
+  /**
+   * Restore the number of retries prepared.
+   *
+   * @param retries the number of retries prepared.
+   */
+  final void setRetries(final int retries) {
+    this.retries = retries;
+  }
+
+  /**
+   * Get the delay in milliseconds before the first retry.
+   *
+   * @return the initial delay in milliseconds.
+   */
+  final long getInitialDelay() {
+    return initialDelay;
+  }
+
+  /**
+   * Get the factor to multiply the delay by for each retry.
+   *
+   * @return the multiplier.
+   */
+  final double getMultiplier() {
+    return multiplier;
+  }
+
+  /**
+   * Get the maximum delay in milliseconds.
+   *
+   * @return the maximum delay in milliseconds.
+   */
+  final long getMaxDelay() {
+    return maxDelay;
+  }
+
+  /**
+   * Get the proportion of the delay to vary randomly.
+   *
+   * @return the jitter.
+   */
+  final double getJitter() {
+    return jitter;
+  }
+
+  /**
+   * Get the delay in milliseconds before the job may be retried.
+   *
+   * @return the delay in milliseconds, or 0 if no retry is prepared.
+   */
+  public final long getDelay() {
+    if (retries == 0) {
+      return 0;
+    }
+    final double delay = Math.min(maxDelay, initialDelay * Math.pow(multiplier, retries - 1));
+    if (jitter == 0) {
+      return (long) delay;
+    }
+    final double variation = delay * jitter * ThreadLocalRandom.current().nextDouble(-1, 1);
+    return Math.max(0, Math.min(maxDelay, (long) (delay + variation)));
+  }
+
+  @Override
+  public final void prepareRetry() {
+    retries++;
+  }
+
+}
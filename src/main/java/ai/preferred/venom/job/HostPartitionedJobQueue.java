@@ -0,0 +1,591 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.SleepScheduler;
+import ai.preferred.venom.utils.UrlUtil;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class provides an implementation of job queue that partitions
+ * jobs by the host of their request, and keeps a separate ready time
+ * for each host.
+ * <p>
+ * A job is only dispatched after the sleep time of its request has
+ * elapsed since the last job of the same host was dispatched, while
+ * jobs of other hosts may be dispatched in the meantime. The sleep time
+ * is taken from {@link ai.preferred.venom.request.Request#getSleepScheduler()}
+ * or, if not specified, from the sleep scheduler of this queue.
+ * </p>
+ * <p>
+ * Jobs of the same host will be processed first in order of higher priority,
+ * followed by order of insertion. {@link ai.preferred.venom.Crawler} does not apply its own
+ * sleep scheduler when this queue is used.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+@SuppressWarnings("NullableProblems")
+public class HostPartitionedJobQueue extends AbstractQueue<Job> implements JobQueue {
+
+  /**
+   * Number of idle hosts to inspect for expiry on each operation.
+   */
+  private static final int EXPIRY_BATCH = 2;
+
+  /**
+   * The default sleep scheduler for requests without one.
+   */
+  @Nullable
+  private final SleepScheduler sleepScheduler;
+
+  /**
+   * Main lock guarding all access.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Condition for waiting on a job to be ready.
+   */
+  private final Condition available = lock.newCondition();
+
+  /**
+   * The hosts known to this queue.
+   */
+  private final Map<String, HostLane> lanes = new HashMap<>();
+
+  /**
+   * The hosts with jobs in queue, ordered by ready time.
+   */
+  private final TreeSet<HostLane> schedule = new TreeSet<>(
+      Comparator.comparingLong((HostLane lane) -> lane.readyTime).thenComparingLong(lane -> lane.id));
+
+  /**
+   * The hosts without jobs in queue, in order of becoming idle.
+   */
+  private final Deque<HostLane> idleLanes = new ArrayDeque<>();
+
+  /**
+   * The reference for relative time in nanoseconds.
+   */
+  private final long origin = System.nanoTime();
+
+  /**
+   * Sequence number used to order insertions.
+   */
+  private long sequence;
+
+  /**
+   * The number of jobs in queue.
+   */
+  private int count;
+
+  /**
+   * Constructs an instance of HostPartitionedJobQueue.
+   *
+   * @param sleepScheduler the sleep scheduler for requests without one
+   */
+  public HostPartitionedJobQueue(final @Nullable SleepScheduler sleepScheduler) {
+    this.sleepScheduler = sleepScheduler;
+  }
+
+  /**
+   * Constructs an instance of HostPartitionedJobQueue with the default
+   * sleep scheduler of {@link Crawler}.
+   */
+  public HostPartitionedJobQueue() {
+    this(new SleepScheduler(250, 2000));
+  }
+
+  @Override
+  public final boolean isSleepScheduled() {
+    return true;
+  }
+
+  /**
+   * Get the current time relative to the creation of this queue.
+   *
+   * @return time in nanoseconds
+   */
+  private long now() {
+    return System.nanoTime() - origin;
+  }
+
+  /**
+   * Get the sleep time to apply before a job is dispatched.
+   *
+   * @param job the job to check
+   * @return sleep time in nanoseconds
+   */
+  private long getSleepTime(final Job job) {
+    final SleepScheduler requestScheduler = job.getRequest().getSleepScheduler();
+    if (requestScheduler != null) {
+      return TimeUnit.MILLISECONDS.toNanos(requestScheduler.getSleepTime());
+    } else if (sleepScheduler != null) {
+      return TimeUnit.MILLISECONDS.toNanos(sleepScheduler.getSleepTime());
+    }
+    return 0;
+  }
+
+  /**
+   * Check the job for {@see PriorityJobAttribute}, if missing,
+   * adds it to the job.
+   *
+   * @param job the job to check.
+   * @return the input job.
+   */
+  private Job ensurePriorityJobAttribute(final Job job) {
+    if (job.getJobAttribute(PriorityJobAttribute.class) == null) {
+      job.setJobAttribute(new PriorityJobAttribute());
+    }
+    return job;
+  }
+
+  /**
+   * Remove hosts that have been idle for longer than their sleep time.
+   * Must be called while holding the lock.
+   *
+   * @param now current relative time
+   */
+  private void expireIdleLanes(final long now) {
+    for (int i = 0; i < EXPIRY_BATCH && !idleLanes.isEmpty(); i++) {
+      final HostLane lane = idleLanes.peekFirst();
+      if (!lane.entries.isEmpty()) {
+        idleLanes.pollFirst();
+      } else if (lane.lastDispatch + lane.maxSleepTime <= now) {
+        idleLanes.pollFirst();
+        lanes.remove(lane.host, lane);
+      } else {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Retrieves and removes the next job if its host is ready.
+   * Must be called while holding the lock.
+   *
+   * @return the next job or null
+   */
+  private Job dispatch() {
+    final long now = now();
+    expireIdleLanes(now);
+    if (schedule.isEmpty() || schedule.first().readyTime > now) {
+      return null;
+    }
+    final HostLane lane = schedule.pollFirst();
+    final Entry entry = lane.entries.poll();
+    lane.lastDispatch = now;
+    lane.dispatched = true;
+    count--;
+    if (lane.entries.isEmpty()) {
+      idleLanes.addLast(lane);
+    } else {
+      lane.reschedule();
+      schedule.add(lane);
+    }
+    return entry.job;
+  }
+
+  @Override
+  public final boolean offer(final @Nonnull Job job) {
+    if (job == null) {
+      throw new NullPointerException();
+    }
+    ensurePriorityJobAttribute(job);
+    final String host = UrlUtil.getHost(job.getRequest().getUrl());
+    final long sleepTime = getSleepTime(job);
+    lock.lock();
+    try {
+      expireIdleLanes(now());
+      HostLane lane = lanes.get(host);
+      if (lane == null) {
+        lane = new HostLane(host, sequence++);
+        lanes.put(host, lane);
+      } else if (!lane.entries.isEmpty()) {
+        schedule.remove(lane);
+      }
+      lane.entries.add(new Entry(job, sleepTime, sequence++));
+      lane.maxSleepTime = Math.max(lane.maxSleepTime, sleepTime);
+      lane.reschedule();
+      schedule.add(lane);
+      count++;
+      available.signalAll();
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public final void put(final @Nonnull Job job) {
+    offer(job);
+  }
+
+  @Override
+  public final boolean offer(final Job job, final long timeout, final @Nonnull TimeUnit unit) {
+    return offer(job);
+  }
+
+  @Override
+  public final Job poll() {
+    lock.lock();
+    try {
+      return dispatch();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public final Job poll(final long timeout, final @Nonnull TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      while (true) {
+        final Job job = dispatch();
+        if (job != null) {
+          return job;
+        }
+        if (nanos <= 0) {
+          return null;
+        }
+        final long wait;
+        if (schedule.isEmpty()) {
+          wait = nanos;
+        } else {
+          wait = Math.min(nanos, schedule.first().readyTime - now());
+        }
+        nanos -= wait - available.awaitNanos(wait);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Nonnull
+  @Override
+  public final Job take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (true) {
+        final Job job = dispatch();
+        if (job != null) {
+          return job;
+        }
+        if (schedule.isEmpty()) {
+          available.await();
+        } else {
+          available.awaitNanos(schedule.first().readyTime - now());
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Retrieves, but does not remove, the job that will be dispatched
+   * next, even if its host is not ready, or returns null if this
+   * queue is empty.
+   *
+   * @return the next job or null
+   */
+  @Override
+  public final Job peek() {
+    lock.lock();
+    try {
+      if (schedule.isEmpty()) {
+        return null;
+      }
+      return schedule.first().entries.peek().job;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public final int size() {
+    lock.lock();
+    try {
+      return count;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public final int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Removes all jobs whose hosts are ready from this queue and adds
+   * them to the given collection.
+   *
+   * @param c the collection to transfer jobs into
+   * @return the number of jobs transferred
+   */
+  @Override
+  public final int drainTo(final @Nonnull Collection<? super Job> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Removes at most the given number of jobs whose hosts are ready
+   * from this queue and adds them to the given collection.
+   *
+   * @param c           the collection to transfer jobs into
+   * @param maxElements the maximum number of jobs to transfer
+   * @return the number of jobs transferred
+   */
+  @Override
+  public final int drainTo(final @Nonnull Collection<? super Job> c, final int maxElements) {
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    lock.lock();
+    try {
+      int n = 0;
+      while (n < maxElements) {
+        final Job job = dispatch();
+        if (job == null) {
+          break;
+        }
+        c.add(job);
+        n++;
+      }
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public final boolean remove(final Object o) {
+    if (!(o instanceof Job)) {
+      return false;
+    }
+    final String host = UrlUtil.getHost(((Job) o).getRequest().getUrl());
+    lock.lock();
+    try {
+      final HostLane lane = lanes.get(host);
+      if (lane == null || lane.entries.isEmpty()) {
+        return false;
+      }
+      for (final Entry entry : lane.entries) {
+        if (entry.job == o) {
+          schedule.remove(lane);
+          lane.entries.remove(entry);
+          count--;
+          if (lane.entries.isEmpty()) {
+            idleLanes.addLast(lane);
+          } else {
+            lane.reschedule();
+            schedule.add(lane);
+          }
+          return true;
+        }
+      }
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public final void clear() {
+    lock.lock();
+    try {
+      for (final HostLane lane : schedule) {
+        lane.entries.clear();
+        idleLanes.addLast(lane);
+      }
+      schedule.clear();
+      count = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns an iterator over a snapshot of the jobs in this queue. The
+   * iterator does not return the jobs in any particular order.
+   *
+   * @return an iterator over the jobs in this queue
+   */
+  @Nonnull
+  @Override
+  public final Iterator<Job> iterator() {
+    final List<Job> snapshot = new ArrayList<>();
+    lock.lock();
+    try {
+      for (final HostLane lane : schedule) {
+        for (final Entry entry : lane.entries) {
+          snapshot.add(entry.job);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    final Iterator<Job> iterator = snapshot.iterator();
+    return new Iterator<Job>() {
+
+      /**
+       * The last job returned.
+       */
+      private Job last;
+
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public Job next() {
+        last = iterator.next();
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        HostPartitionedJobQueue.this.remove(last);
+        last = null;
+      }
+    };
+  }
+
+  /**
+   * A job in queue, with its sleep time and insertion order.
+   */
+  private static final class Entry {
+
+    /**
+     * The job queued.
+     */
+    private final Job job;
+
+    /**
+     * The sleep time in nanoseconds to apply before dispatch.
+     */
+    private final long sleepTime;
+
+    /**
+     * The insertion order of this entry.
+     */
+    private final long sequence;
+
+    /**
+     * Constructs an instance of Entry.
+     *
+     * @param job       the job queued
+     * @param sleepTime the sleep time in nanoseconds
+     * @param sequence  the insertion order
+     */
+    private Entry(final Job job, final long sleepTime, final long sequence) {
+      this.job = job;
+      this.sleepTime = sleepTime;
+      this.sequence = sequence;
+    }
+
+  }
+
+  /**
+   * The jobs and ready time of a single host.
+   */
+  private static final class HostLane {
+
+    /**
+     * The host of this lane.
+     */
+    private final String host;
+
+    /**
+     * The id of this lane, used to order lanes with the same ready time.
+     */
+    private final long id;
+
+    /**
+     * Jobs of this host, in order of priority then insertion.
+     */
+    private final PriorityQueue<Entry> entries = new PriorityQueue<>(
+        Comparator.comparing((Entry entry) -> entry.job.getJobAttribute(PriorityJobAttribute.class))
+            .thenComparingLong(entry -> entry.sequence));
+
+    /**
+     * The time the last job of this host was dispatched.
+     */
+    private long lastDispatch;
+
+    /**
+     * Whether a job of this host has been dispatched.
+     */
+    private boolean dispatched;
+
+    /**
+     * The longest sleep time seen for this host.
+     */
+    private long maxSleepTime;
+
+    /**
+     * The time the next job of this host is ready.
+     */
+    private long readyTime;
+
+    /**
+     * Constructs an instance of HostLane.
+     *
+     * @param host the host of this lane
+     * @param id   the id of this lane
+     */
+    private HostLane(final String host, final long id) {
+      this.host = host;
+      this.id = id;
+    }
+
+    /**
+     * Update the ready time using the job at the head of this lane.
+     * The lane must not be in the schedule when this is called.
+     */
+    private void reschedule() {
+      readyTime = dispatched ? lastDispatch + entries.peek().sleepTime : 0;
+    }
+
+  }
+
+}
@@ -23,8 +23,11 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * This class will be placed in a scheduler for queuing requests.
@@ -50,9 +53,25 @@ public class Job {
   private final Handler handler;
 
   /**
-   *
+   * An empty array of job attributes.
+   */
+  private static final JobAttribute[] NO_ATTRIBUTES = new JobAttribute[0];
+
+  /**
+   * The priority attribute of this job, kept in its own slot as every
+   * queued job has one.
+   */
+  private PriorityJobAttribute priorityAttribute;
+
+  /**
+   * The backoff attribute of this job.
    */
-  private final Map<Class<? extends JobAttribute>, JobAttribute> jobAttributeMap = new HashMap<>();
+  private BackoffJobAttribute backoffAttribute;
+
+  /**
+   * The other attributes of this job, at most one of each class.
+   */
+  private JobAttribute[] otherAttributes = NO_ATTRIBUTES;
 
   /**
    * The current try of this job.
@@ -70,7 +89,7 @@ public class Job {
     this.request = request;
     this.handler = handler;
     for (final JobAttribute jobAttribute : jobAttributes) {
-      jobAttributeMap.put(jobAttribute.getClass(), jobAttribute);
+      setJobAttribute(jobAttribute);
     }
   }
 
@@ -126,6 +145,32 @@ public class Job {
     return tryCount;
   }
 
+  /**
+   * Restore the attempt number of this job.
+   *
+   * @param tryCount Attempt (try) count of the job.
+   */
+  final void setTryCount(final int tryCount) {
+    this.tryCount = tryCount;
+  }
+
+  /**
+   * Get all job attributes of this job.
+   *
+   * @return a new list of the job attributes.
+   */
+  final Collection<JobAttribute> getJobAttributes() {
+    final List<JobAttribute> jobAttributes = new ArrayList<>(otherAttributes.length + 2);
+    if (priorityAttribute != null) {
+      jobAttributes.add(priorityAttribute);
+    }
+    if (backoffAttribute != null) {
+      jobAttributes.add(backoffAttribute);
+    }
+    Collections.addAll(jobAttributes, otherAttributes);
+    return jobAttributes;
+  }
+
   /**
    * This method is called before the job is scheduled
    * for a retry.
@@ -136,7 +181,9 @@ public class Job {
    */
   public final void prepareRetry() {
     LOGGER.debug("Preparing job {} - {} for next state.", Integer.toHexString(this.hashCode()), request.getUrl());
-    jobAttributeMap.forEach((k, jobAttribute) -> jobAttribute.prepareRetry());
+    for (final JobAttribute jobAttribute : getJobAttributes()) {
+      jobAttribute.prepareRetry();
+    }
     tryCount++;
   }
 
@@ -148,7 +195,21 @@ public class Job {
    * @return this.
    */
   public final Job setJobAttribute(final JobAttribute jobAttribute) {
-    jobAttributeMap.put(jobAttribute.getClass(), jobAttribute);
+    final Class<? extends JobAttribute> clazz = jobAttribute.getClass();
+    if (clazz == PriorityJobAttribute.class) {
+      priorityAttribute = (PriorityJobAttribute) jobAttribute;
+    } else if (clazz == BackoffJobAttribute.class) {
+      backoffAttribute = (BackoffJobAttribute) jobAttribute;
+    } else {
+      for (int i = 0; i < otherAttributes.length; i++) {
+        if (otherAttributes[i].getClass() == clazz) {
+          otherAttributes[i] = jobAttribute;
+          return this;
+        }
+      }
+      otherAttributes = Arrays.copyOf(otherAttributes, otherAttributes.length + 1);
+      otherAttributes[otherAttributes.length - 1] = jobAttribute;
+    }
     return this;
   }
 
@@ -161,8 +222,17 @@ public class Job {
    * @return an instance of job attribute for class or null.
    */
   public final <T extends JobAttribute> T getJobAttribute(final Class<T> clazz) {
-    //noinspection unchecked
-    return (T) jobAttributeMap.get(clazz);
+    if (clazz == PriorityJobAttribute.class) {
+      return clazz.cast(priorityAttribute);
+    } else if (clazz == BackoffJobAttribute.class) {
+      return clazz.cast(backoffAttribute);
+    }
+    for (final JobAttribute jobAttribute : otherAttributes) {
+      if (jobAttribute.getClass() == clazz) {
+        return clazz.cast(jobAttribute);
+      }
+    }
+    return null;
   }
 
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.validation.constraints.NotNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * This class stores a snapshot of jobs in a local file, so that a crawl
+ * may be resumed after a restart.
+ * <p>
+ * A snapshot is written to a temporary file next to the checkpoint file,
+ * synced to disk and then moved over the checkpoint file, so that the
+ * checkpoint file always holds a complete snapshot.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class JobCheckpoint {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(JobCheckpoint.class);
+
+  /**
+   * The magic number at the start of a checkpoint file.
+   */
+  private static final int MAGIC = 0x564E4D43;
+
+  /**
+   * The version of the checkpoint format.
+   */
+  private static final int VERSION = 1;
+
+  /**
+   * The checkpoint file.
+   */
+  private final Path file;
+
+  /**
+   * The temporary file to write snapshots to.
+   */
+  private final Path tempFile;
+
+  /**
+   * The codec to encode jobs with.
+   */
+  private final JobCodec codec;
+
+  /**
+   * Constructs an instance of job checkpoint.
+   *
+   * @param file  The checkpoint file.
+   * @param codec The codec to encode jobs with.
+   */
+  public JobCheckpoint(final @NotNull Path file, final @NotNull JobCodec codec) {
+    this.file = file;
+    this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+    this.codec = codec;
+  }
+
+  /**
+   * Constructs an instance of job checkpoint with the default codec.
+   *
+   * @param file The checkpoint file.
+   */
+  public JobCheckpoint(final @NotNull Path file) {
+    this(file, new JobCodec());
+  }
+
+  /**
+   * Get the checkpoint file.
+   *
+   * @return the checkpoint file.
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Check if a snapshot exists in the checkpoint file.
+   *
+   * @return true if the checkpoint file exists.
+   */
+  public boolean exists() {
+    return Files.exists(file);
+  }
+
+  /**
+   * Write a snapshot of jobs to the checkpoint file, replacing any
+   * previous snapshot.
+   *
+   * @param jobs The jobs to write.
+   * @throws IOException if the snapshot cannot be written.
+   */
+  public synchronized void write(final @NotNull Collection<Job> jobs) throws IOException {
+    final long start = System.nanoTime();
+    try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(jobs.size());
+      for (final Job job : jobs) {
+        final byte[] bytes = codec.encode(job);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      out.flush();
+      channel.force(true);
+    }
+
+    try {
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (final AtomicMoveNotSupportedException e) {
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    LOGGER.debug("Checkpoint of {} jobs written to {} in {} ms.", jobs.size(), file,
+        (System.nanoTime() - start) / 1000000);
+  }
+
+  /**
+   * Read the snapshot of jobs in the checkpoint file.
+   *
+   * @return the jobs in the snapshot, or an empty list if the checkpoint file does not exist.
+   * @throws IOException if the snapshot cannot be read or is malformed.
+   */
+  public synchronized List<Job> read() throws IOException {
+    if (!exists()) {
+      return new ArrayList<>();
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a checkpoint file: " + file);
+      }
+      final int version = in.readInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported checkpoint version: " + version);
+      }
+      final int size = in.readInt();
+      final List<Job> jobs = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        jobs.add(codec.decode(bytes));
+      }
+      LOGGER.debug("Checkpoint of {} jobs read from {}.", jobs.size(), file);
+      return jobs;
+    }
+  }
+
+}
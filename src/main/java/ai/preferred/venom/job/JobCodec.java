@@ -0,0 +1,426 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.Handler;
+import ai.preferred.venom.SleepScheduler;
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import org.apache.http.HttpHost;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.validation.constraints.NotNull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * This class encodes jobs to a compact binary form and decodes them back,
+ * so that they may be kept outside of the heap.
+ * <p>
+ * The request of a job is decoded as a {@link VRequest}. Handlers are
+ * encoded by their class name and resolved on decode, by default by
+ * instantiating the class with its no-argument constructor. Handlers that
+ * cannot be resolved, such as lambdas, are decoded as null so that the
+ * response is routed by the handler router of the crawler.
+ * </p>
+ * <p>
+ * Job attributes are encoded with the codec registered for their class.
+ * Codecs for {@link PriorityJobAttribute} and {@link BackoffJobAttribute}
+ * are registered by default, attributes of other classes are dropped.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class JobCodec {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(JobCodec.class);
+
+  /**
+   * The length written in place of a null string.
+   */
+  private static final int NULL_LENGTH = -1;
+
+  /**
+   * The function to resolve a handler from its class name.
+   */
+  private final Function<String, Handler> handlerResolver;
+
+  /**
+   * The codecs of job attributes, keyed by class name.
+   */
+  private final Map<String, AttributeCodec<?>> attributeCodecs = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs an instance of job codec that resolves handlers by
+   * their no-argument constructor.
+   */
+  public JobCodec() {
+    this(JobCodec::instantiateHandler);
+  }
+
+  /**
+   * Constructs an instance of job codec.
+   *
+   * @param handlerResolver The function to resolve a handler from its class name,
+   *                        returning null if it cannot be resolved.
+   */
+  public JobCodec(final @NotNull Function<String, Handler> handlerResolver) {
+    this.handlerResolver = handlerResolver;
+    register(PriorityJobAttribute.class, new AttributeCodec<PriorityJobAttribute>() {
+      @Override
+      public void write(final PriorityJobAttribute attribute, final DataOutput out) throws IOException {
+        out.writeUTF(attribute.getPriority().name());
+        out.writeUTF(attribute.getPriorityFloor().name());
+      }
+
+      @Override
+      public PriorityJobAttribute read(final DataInput in) throws IOException {
+        return new PriorityJobAttribute(Priority.valueOf(in.readUTF()), Priority.valueOf(in.readUTF()));
+      }
+    });
+    register(BackoffJobAttribute.class, new AttributeCodec<BackoffJobAttribute>() {
+      @Override
+      public void write(final BackoffJobAttribute attribute, final DataOutput out) throws IOException {
+        out.writeLong(attribute.getInitialDelay());
+        out.writeDouble(attribute.getMultiplier());
+        out.writeLong(attribute.getMaxDelay());
+        out.writeDouble(attribute.getJitter());
+        out.writeInt(attribute.getRetries());
+      }
+
+      @Override
+      public BackoffJobAttribute read(final DataInput in) throws IOException {
+        final BackoffJobAttribute attribute = new BackoffJobAttribute(in.readLong(), in.readDouble(),
+            in.readLong(), in.readDouble());
+        attribute.setRetries(in.readInt());
+        return attribute;
+      }
+    });
+  }
+
+  /**
+   * Resolve a handler by instantiating its class with its no-argument constructor. The class is
+   * loaded without being initialized and rejected unless it implements {@link Handler}, so a
+   * checkpoint cannot run the static initializer of an arbitrary class.
+   *
+   * @param className The class name of the handler.
+   * @return an instance of the handler, or null if it cannot be instantiated.
+   */
+  private static Handler instantiateHandler(final String className) {
+    try {
+      final Class<?> clazz = Class.forName(className, false, JobCodec.class.getClassLoader());
+      if (Handler.class.isAssignableFrom(clazz)) {
+        return (Handler) clazz.getDeclaredConstructor().newInstance();
+      }
+    } catch (final ReflectiveOperationException | LinkageError e) {
+      LOGGER.debug("Unable to instantiate handler {}.", className, e);
+    }
+    LOGGER.warn("Unable to resolve handler {}, response will be routed.", className);
+    return null;
+  }
+
+  /**
+   * Write a string that may be null or longer than {@link DataOutput#writeUTF(String)} allows.
+   *
+   * @param out    The output to write to.
+   * @param string The string to write.
+   * @throws IOException if an I/O error occurs.
+   */
+  private static void writeString(final DataOutput out, final String string) throws IOException {
+    if (string == null) {
+      out.writeInt(NULL_LENGTH);
+      return;
+    }
+    final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Read a string written by {@link #writeString(DataOutput, String)}.
+   *
+   * @param in The input to read from.
+   * @return the string read, or null.
+   * @throws IOException if an I/O error occurs.
+   */
+  private static String readString(final DataInput in) throws IOException {
+    final int length = in.readInt();
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    if (length < 0) {
+      throw new IOException("Invalid string length: " + length);
+    }
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Register a codec for a class of job attribute, replacing any codec
+   * registered for the class.
+   *
+   * @param clazz The class of job attribute.
+   * @param codec The codec of the job attribute.
+   * @param <T>   The class of job attribute.
+   * @return this.
+   */
+  public <T extends JobAttribute> JobCodec register(final @NotNull Class<T> clazz,
+                                                    final @NotNull AttributeCodec<T> codec) {
+    attributeCodecs.put(clazz.getName(), codec);
+    return this;
+  }
+
+  /**
+   * Encode a job to an output.
+   *
+   * @param job The job to encode.
+   * @param out The output to write to.
+   * @throws IOException if an I/O error occurs.
+   */
+  public void encode(final @NotNull Job job, final @NotNull DataOutput out) throws IOException {
+    encodeRequest(job.getRequest(), out);
+
+    final Handler handler = job.getHandler();
+    writeString(out, handler == null ? null : handler.getClass().getName());
+    out.writeInt(job.getTryCount());
+    encodeAttributes(job.getJobAttributes(), out);
+  }
+
+  /**
+   * Check if a job attribute can be encoded by this codec.
+   *
+   * @param attribute The job attribute.
+   * @return true if a codec is registered for the class of the attribute.
+   */
+  boolean canEncode(final @NotNull JobAttribute attribute) {
+    return attributeCodecs.containsKey(attribute.getClass().getName());
+  }
+
+  /**
+   * Encode job attributes to an output, dropping those without a
+   * registered codec.
+   *
+   * @param jobAttributes The job attributes to encode.
+   * @param out           The output to write to.
+   * @throws IOException if an I/O error occurs.
+   */
+  void encodeAttributes(final @NotNull Iterable<JobAttribute> jobAttributes, final @NotNull DataOutput out)
+      throws IOException {
+    final ByteArrayOutputStream attributes = new ByteArrayOutputStream();
+    final DataOutputStream attributesOut = new DataOutputStream(attributes);
+    int count = 0;
+    for (final JobAttribute attribute : jobAttributes) {
+      @SuppressWarnings("unchecked") final AttributeCodec<JobAttribute> codec =
+          (AttributeCodec<JobAttribute>) attributeCodecs.get(attribute.getClass().getName());
+      if (codec == null) {
+        LOGGER.debug("No codec for job attribute {}, dropping it.", attribute.getClass().getName());
+        continue;
+      }
+      final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+      codec.write(attribute, new DataOutputStream(payload));
+      attributesOut.writeUTF(attribute.getClass().getName());
+      attributesOut.writeInt(payload.size());
+      payload.writeTo(attributesOut);
+      count++;
+    }
+    out.writeInt(count);
+    out.write(attributes.toByteArray());
+  }
+
+  /**
+   * Encode the request of a job to an output.
+   *
+   * @param request The request to encode.
+   * @param out     The output to write to.
+   * @throws IOException if an I/O error occurs.
+   */
+  void encodeRequest(final @NotNull Request request, final @NotNull DataOutput out) throws IOException {
+    out.writeUTF(request.getMethod().name());
+    writeString(out, request.getUrl());
+    writeString(out, request.getBody());
+
+    final Map<String, String> headers = request.getHeaders();
+    out.writeInt(headers == null ? 0 : headers.size());
+    if (headers != null) {
+      for (final Map.Entry<String, String> header : headers.entrySet()) {
+        writeString(out, header.getKey());
+        writeString(out, header.getValue());
+      }
+    }
+
+    final HttpHost proxy = request.getProxy();
+    out.writeBoolean(proxy != null);
+    if (proxy != null) {
+      out.writeUTF(proxy.getHostName());
+      out.writeInt(proxy.getPort());
+      out.writeUTF(proxy.getSchemeName());
+    }
+
+    final SleepScheduler sleepScheduler = request.getSleepScheduler();
+    out.writeBoolean(sleepScheduler != null);
+    if (sleepScheduler != null) {
+      out.writeLong(sleepScheduler.getMin());
+      out.writeLong(sleepScheduler.getMax());
+    }
+  }
+
+  /**
+   * Encode a job to an array of bytes.
+   *
+   * @param job The job to encode.
+   * @return the encoded job.
+   */
+  public byte[] encode(final @NotNull Job job) {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      encode(job, new DataOutputStream(bytes));
+    } catch (final IOException e) {
+      throw new IllegalStateException("Unable to encode job.", e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decode a job from an input.
+   * <p>
+   * Attributes without a registered codec are skipped.
+   * </p>
+   *
+   * @param in The input to read from.
+   * @return the decoded job.
+   * @throws IOException if an I/O error occurs or the input is malformed.
+   */
+  public Job decode(final @NotNull DataInput in) throws IOException {
+    final Request request = decodeRequest(in);
+    final String handlerName = readString(in);
+    final Handler handler = handlerName == null ? null : handlerResolver.apply(handlerName);
+    final Job job = new Job(request, handler);
+    job.setTryCount(in.readInt());
+    decodeAttributes(in, job);
+    return job;
+  }
+
+  /**
+   * Decode job attributes written by {@link #encodeAttributes(Iterable, DataOutput)}
+   * from an input and set them on a job, skipping attributes without a
+   * registered codec.
+   *
+   * @param in  The input to read from.
+   * @param job The job to set the attributes on.
+   * @throws IOException if an I/O error occurs or the input is malformed.
+   */
+  void decodeAttributes(final @NotNull DataInput in, final @NotNull Job job) throws IOException {
+    final int attributes = in.readInt();
+    for (int i = 0; i < attributes; i++) {
+      final String className = in.readUTF();
+      final byte[] payload = new byte[in.readInt()];
+      in.readFully(payload);
+      final AttributeCodec<?> codec = attributeCodecs.get(className);
+      if (codec == null) {
+        LOGGER.warn("No codec for job attribute {}, skipping it.", className);
+        continue;
+      }
+      job.setJobAttribute(codec.read(new DataInputStream(new ByteArrayInputStream(payload))));
+    }
+  }
+
+  /**
+   * Decode the request of a job from an input.
+   *
+   * @param in The input to read from.
+   * @return the decoded request.
+   * @throws IOException if an I/O error occurs or the input is malformed.
+   */
+  Request decodeRequest(final @NotNull DataInput in) throws IOException {
+    final Request.Method method;
+    try {
+      method = Request.Method.valueOf(in.readUTF());
+    } catch (final IllegalArgumentException e) {
+      throw new IOException("Invalid request method.", e);
+    }
+    final VRequest.Builder<?> builder = VRequest.build(method, readString(in));
+    builder.setBody(readString(in));
+
+    final int headers = in.readInt();
+    for (int i = 0; i < headers; i++) {
+      builder.addHeader(readString(in), readString(in));
+    }
+
+    if (in.readBoolean()) {
+      builder.setProxy(new HttpHost(in.readUTF(), in.readInt(), in.readUTF()));
+    }
+
+    if (in.readBoolean()) {
+      builder.setSleepScheduler(new SleepScheduler(in.readLong(), in.readLong()));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Decode a job from an array of bytes.
+   *
+   * @param bytes The encoded job.
+   * @return the decoded job.
+   * @throws IOException if the bytes are malformed.
+   */
+  public Job decode(final @NotNull byte[] bytes) throws IOException {
+    return decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+  }
+
+  /**
+   * An interface to encode and decode a class of job attribute.
+   *
+   * @param <T> The class of job attribute.
+   */
+  public interface AttributeCodec<T extends JobAttribute> {
+
+    /**
+     * Write a job attribute to an output.
+     *
+     * @param attribute The job attribute to write.
+     * @param out       The output to write to.
+     * @throws IOException if an I/O error occurs.
+     */
+    void write(T attribute, DataOutput out) throws IOException;
+
+    /**
+     * Read a job attribute from an input.
+     *
+     * @param in The input to read from.
+     * @return the job attribute read.
+     * @throws IOException if an I/O error occurs.
+     */
+    T read(DataInput in) throws IOException;
+
+  }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This interface represents a blocking queue of jobs to be crawled.
+ *
+ * @author Ween Jiann Lee
+ */
+public interface JobQueue extends BlockingQueue<Job> {
+
+  /**
+   * Returns whether this queue applies the sleep time between jobs
+   * itself, in which case {@link ai.preferred.venom.Crawler} does not
+   * apply its own sleep scheduler.
+   *
+   * @return true if the sleep time is applied by this queue
+   */
+  default boolean isSleepScheduled() {
+    return false;
+  }
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.Handler;
+import ai.preferred.venom.request.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * This class provides an implementation of a lazy job queue, that reads
+ * requests from a source ahead of time on a separate thread.
+ * <p>
+ * Jobs in queue will be processed first in order of higher priority,
+ * followed by requests read from the source. Requests are read in batches
+ * into a bounded buffer, so a slow source, such as a database cursor or
+ * a compressed file, does not stall the crawler. No lock is held while
+ * reading from the source.
+ * </p>
+ * <p>
+ * Requests in the buffer are not included in the size or the iterator
+ * of this queue.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public class PrefetchingJobQueue extends AbstractJobQueue implements AutoCloseable {
+
+  /**
+   * The default number of requests to buffer.
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+  /**
+   * The default number of requests to read in a batch.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 64;
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingJobQueue.class);
+
+  /**
+   * The number of instances created, to name threads.
+   */
+  private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+  /**
+   * The source to read requests from.
+   */
+  private final Spliterator<Request> source;
+
+  /**
+   * The action to run when the source is exhausted or closed.
+   */
+  private final Runnable onClose;
+
+  /**
+   * The default handler for requests from the source.
+   */
+  private final Handler handler;
+
+  /**
+   * The number of requests to read in a batch.
+   */
+  private final int batchSize;
+
+  /**
+   * The jobs read from the source.
+   */
+  private final BlockingQueue<Job> buffer;
+
+  /**
+   * The thread reading from the source.
+   */
+  private final Thread prefetcher;
+
+  /**
+   * Whether the prefetcher has been started.
+   */
+  private final AtomicBoolean started = new AtomicBoolean();
+
+  /**
+   * Whether the source has been read to the end.
+   */
+  private volatile boolean exhausted;
+
+  /**
+   * The lock to wait for jobs on.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * The condition signalled when a job is added or read.
+   */
+  private final Condition available = lock.newCondition();
+
+  /**
+   * The number of threads waiting for jobs.
+   */
+  private final AtomicInteger waiters = new AtomicInteger();
+
+  /**
+   * Constructs an instance of PrefetchingJobQueue.
+   *
+   * @param source     The source to read requests from.
+   * @param handler    The default handler to use, or null.
+   * @param bufferSize The number of requests to buffer.
+   * @param batchSize  The number of requests to read in a batch.
+   * @param onClose    The action to run when the source is exhausted or closed.
+   */
+  private PrefetchingJobQueue(final Spliterator<Request> source, final Handler handler, final int bufferSize,
+                              final int batchSize, final Runnable onClose) {
+    super(new PriorityLaneBlockingQueue(0));
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("Buffer size must be more or equal to 1.");
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be more or equal to 1.");
+    }
+    this.source = source;
+    this.handler = handler;
+    this.batchSize = batchSize;
+    this.onClose = onClose;
+    this.buffer = new LinkedBlockingQueue<>(bufferSize);
+    this.prefetcher = new Thread(this::prefetch, "PrefetchingJobQueue " + INSTANCES.incrementAndGet());
+    this.prefetcher.setDaemon(true);
+  }
+
+  /**
+   * Constructs an instance of PrefetchingJobQueue.
+   *
+   * @param source     The source to read requests from.
+   * @param handler    The default handler to use, or null.
+   * @param bufferSize The number of requests to buffer.
+   * @param batchSize  The number of requests to read in a batch.
+   */
+  public PrefetchingJobQueue(final @Nonnull Spliterator<Request> source, final Handler handler,
+                             final int bufferSize, final int batchSize) {
+    this(source, handler, bufferSize, batchSize, () -> {
+    });
+  }
+
+  /**
+   * Constructs an instance of PrefetchingJobQueue. The stream is closed
+   * when it is read to the end, or this queue is closed.
+   *
+   * @param source  The stream to read requests from.
+   * @param handler The default handler to use, or null.
+   */
+  public PrefetchingJobQueue(final @Nonnull Stream<Request> source, final Handler handler) {
+    this(source.spliterator(), handler, DEFAULT_BUFFER_SIZE, DEFAULT_BATCH_SIZE, source::close);
+  }
+
+  /**
+   * Constructs an instance of PrefetchingJobQueue.
+   *
+   * @param source  The iterator to read requests from.
+   * @param handler The default handler to use, or null.
+   */
+  public PrefetchingJobQueue(final @Nonnull Iterator<Request> source, final Handler handler) {
+    this(Spliterators.spliteratorUnknownSize(source, Spliterator.ORDERED), handler, DEFAULT_BUFFER_SIZE,
+        DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Read requests from the source into the buffer until the source is
+   * exhausted or the thread is interrupted.
+   */
+  private void prefetch() {
+    final List<Job> batch = new ArrayList<>(batchSize);
+    try {
+      boolean more = true;
+      while (more && !Thread.currentThread().isInterrupted()) {
+        while (more && batch.size() < batchSize) {
+          more = source.tryAdvance(request -> batch.add(new Job(request, handler, new PriorityJobAttribute())));
+        }
+        for (final Job job : batch) {
+          buffer.put(job);
+          signalAvailable();
+        }
+        batch.clear();
+      }
+    } catch (final InterruptedException e) {
+      LOGGER.debug("Prefetching interrupted.");
+    } catch (final RuntimeException e) {
+      LOGGER.error("Unable to read requests from source, stopping prefetch.", e);
+    } finally {
+      try {
+        onClose.run();
+      } catch (final RuntimeException e) {
+        LOGGER.warn("Unable to close source.", e);
+      }
+      exhausted = true;
+      signalAvailable();
+    }
+  }
+
+  /**
+   * Start the prefetcher if it has not been started.
+   */
+  private void ensureStarted() {
+    if (started.compareAndSet(false, true)) {
+      prefetcher.start();
+    }
+  }
+
+  /**
+   * Wake threads waiting for jobs, if any.
+   */
+  private void signalAvailable() {
+    if (waiters.get() > 0) {
+      lock.lock();
+      try {
+        available.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Check the job for {@link PriorityJobAttribute}, if missing,
+   * adds it to the job.
+   *
+   * @param job the job to check.
+   * @return the input job.
+   */
+  private Job ensurePriorityJobAttribute(final Job job) {
+    if (job.getJobAttribute(PriorityJobAttribute.class) == null) {
+      job.setJobAttribute(new PriorityJobAttribute());
+    }
+    return job;
+  }
+
+  @Override
+  public final void put(final @Nonnull Job job) throws InterruptedException {
+    getQueue().put(ensurePriorityJobAttribute(job));
+    signalAvailable();
+  }
+
+  @Override
+  public final boolean offer(final Job job, final long timeout, final @Nonnull TimeUnit unit)
+      throws InterruptedException {
+    final boolean offered = getQueue().offer(ensurePriorityJobAttribute(job), timeout, unit);
+    signalAvailable();
+    return offered;
+  }
+
+  @Override
+  public final boolean offer(final @Nonnull Job job) {
+    final boolean offered = getQueue().offer(ensurePriorityJobAttribute(job));
+    signalAvailable();
+    return offered;
+  }
+
+  @Override
+  public final Job poll() {
+    ensureStarted();
+    final Job job = getQueue().poll();
+    return job != null ? job : buffer.poll();
+  }
+
+  @Override
+  public final Job poll(final long timeout, final @Nonnull TimeUnit unit) throws InterruptedException {
+    Job job = poll();
+    if (job != null) {
+      return job;
+    }
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    waiters.incrementAndGet();
+    try {
+      while ((job = poll()) == null) {
+        if (nanos <= 0 || (exhausted && buffer.isEmpty() && getQueue().isEmpty())) {
+          return null;
+        }
+        nanos = available.awaitNanos(nanos);
+      }
+      return job;
+    } finally {
+      waiters.decrementAndGet();
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public final boolean isEmpty() {
+    ensureStarted();
+    return exhausted && buffer.isEmpty() && getQueue().isEmpty();
+  }
+
+  /**
+   * Stops reading from the source, and closes it if it is a stream.
+   */
+  @Override
+  public final void close() {
+    if (started.compareAndSet(false, true)) {
+      onClose.run();
+      exhausted = true;
+      return;
+    }
+    prefetcher.interrupt();
+  }
+
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import javax.annotation.Nonnull;
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An unbounded blocking queue of jobs with a first-in-first-out lane
+ * per priority.
+ * <p>
+ * Jobs are added without locking. Jobs are taken under a single lock
+ * from the head of the lane with the highest effective priority, which
+ * is the priority of the job raised by one level for each aging interval
+ * it has waited. As lanes are in first-in-first-out order, only the
+ * head of each lane is compared.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+@SuppressWarnings("NullableProblems")
+final class PriorityLaneBlockingQueue extends AbstractQueue<Job> implements BlockingQueue<Job> {
+
+  /**
+   * The time in nanoseconds to wait before retrying to take a job counted
+   * but not yet in a lane.
+   */
+  private static final long RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  /**
+   * The lanes of jobs, indexed by the ordinal of their priority.
+   */
+  private final ConcurrentLinkedQueue<Entry>[] lanes;
+
+  /**
+   * The aging interval in nanoseconds, or 0 if aging is disabled.
+   */
+  private final long agingNanos;
+
+  /**
+   * The number of jobs in the lanes. As jobs are added to a lane before
+   * they are counted, and may be removed by an iterator before that, the
+   * count may briefly differ from the jobs in the lanes.
+   */
+  private final AtomicInteger count = new AtomicInteger();
+
+  /**
+   * The lock held to take jobs.
+   */
+  private final ReentrantLock takeLock = new ReentrantLock();
+
+  /**
+   * The condition signalled when a job is added.
+   */
+  private final Condition notEmpty = takeLock.newCondition();
+
+  /**
+   * Constructs an instance of PriorityLaneBlockingQueue.
+   *
+   * @param agingInterval The time in milliseconds a job waits to be raised
+   *                      by one priority level, or 0 to disable aging.
+   */
+  @SuppressWarnings("unchecked")
+  PriorityLaneBlockingQueue(final long agingInterval) {
+    this.agingNanos = TimeUnit.MILLISECONDS.toNanos(agingInterval);
+    this.lanes = new ConcurrentLinkedQueue[Priority.values().length];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = new ConcurrentLinkedQueue<>();
+    }
+  }
+
+  /**
+   * Signals a waiting taker, called when the queue was empty.
+   */
+  private void signalNotEmpty() {
+    takeLock.lock();
+    try {
+      notEmpty.signal();
+    } finally {
+      takeLock.unlock();
+    }
+  }
+
+  /**
+   * Find the lane to take the next job from. Must be called while
+   * holding the take lock.
+   *
+   * @return the lane, or null if all lanes are empty.
+   */
+  private ConcurrentLinkedQueue<Entry> nextLane() {
+    if (agingNanos == 0) {
+      for (final ConcurrentLinkedQueue<Entry> lane : lanes) {
+        if (!lane.isEmpty()) {
+          return lane;
+        }
+      }
+      return null;
+    }
+
+    final long now = System.nanoTime();
+    ConcurrentLinkedQueue<Entry> next = null;
+    long best = Long.MAX_VALUE;
+    for (int i = 0; i < lanes.length; i++) {
+      final Entry head = lanes[i].peek();
+      if (head != null) {
+        final long effective = i - (now - head.time) / agingNanos;
+        if (effective < best) {
+          best = effective;
+          next = lanes[i];
+        }
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Removes the next job. Must be called while holding the take lock,
+   * and the count is more than 0.
+   *
+   * @return the job removed, or null if the lanes are empty as the count
+   * is ahead of them.
+   */
+  private Job dequeue() {
+    final ConcurrentLinkedQueue<Entry> lane = nextLane();
+    final Entry entry = lane == null ? null : lane.poll();
+    if (entry == null) {
+      return null;
+    }
+    if (count.getAndDecrement() > 1) {
+      notEmpty.signal();
+    }
+    return entry.job;
+  }
+
+  @Override
+  public boolean offer(final @Nonnull Job job) {
+    final PriorityJobAttribute attribute = job.getJobAttribute(PriorityJobAttribute.class);
+    final Priority priority = attribute == null ? Priority.DEFAULT : attribute.getPriority();
+    lanes[priority.ordinal()].add(new Entry(job, agingNanos == 0 ? 0 : System.nanoTime()));
+    if (count.getAndIncrement() == 0) {
+      signalNotEmpty();
+    }
+    return true;
+  }
+
+  @Override
+  public void put(final @Nonnull Job job) {
+    offer(job);
+  }
+
+  @Override
+  public boolean offer(final Job job, final long timeout, final @Nonnull TimeUnit unit) {
+    return offer(job);
+  }
+
+  @Override
+  public Job poll() {
+    if (count.get() <= 0) {
+      return null;
+    }
+    takeLock.lock();
+    try {
+      return count.get() > 0 ? dequeue() : null;
+    } finally {
+      takeLock.unlock();
+    }
+  }
+
+  @Nonnull
+  @Override
+  public Job take() throws InterruptedException {
+    takeLock.lockInterruptibly();
+    try {
+      while (true) {
+        while (count.get() <= 0) {
+          notEmpty.await();
+        }
+        final Job job = dequeue();
+        if (job != null) {
+          return job;
+        }
+        notEmpty.awaitNanos(RETRY_NANOS);
+      }
+    } finally {
+      takeLock.unlock();
+    }
+  }
+
+  @Override
+  public Job poll(final long timeout, final @Nonnull TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    takeLock.lockInterruptibly();
+    try {
+      while (true) {
+        if (count.get() > 0) {
+          final Job job = dequeue();
+          if (job != null) {
+            return job;
+          }
+          if (nanos <= 0) {
+            return null;
+          }
+          nanos = notEmpty.awaitNanos(Math.min(nanos, RETRY_NANOS));
+          continue;
+        }
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+    } finally {
+      takeLock.unlock();
+    }
+  }
+
+  @Override
+  public Job peek() {
+    takeLock.lock();
+    try {
+      final ConcurrentLinkedQueue<Entry> lane = nextLane();
+      if (lane == null) {
+        return null;
+      }
+      final Entry entry = lane.peek();
+      return entry == null ? null : entry.job;
+    } finally {
+      takeLock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    return Math.max(0, count.get());
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int drainTo(final @Nonnull Collection<? super Job> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(final @Nonnull Collection<? super Job> c, final int maxElements) {
+    takeLock.lock();
+    try {
+      int n = 0;
+      while (n < maxElements && count.get() > 0) {
+        final Job job = dequeue();
+        if (job == null) {
+          break;
+        }
+        c.add(job);
+        n++;
+      }
+      return n;
+    } finally {
+      takeLock.unlock();
+    }
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the jobs in this queue, in
+   * order of priority without aging.
+   *
+   * @return an iterator over the jobs in this queue
+   */
+  @Nonnull
+  @Override
+  public Iterator<Job> iterator() {
+    return new Iterator<Job>() {
+
+      /**
+       * The index of the lane being iterated.
+       */
+      private int index;
+
+      /**
+       * The iterator of the lane being iterated.
+       */
+      private Iterator<Entry> iterator = lanes[0].iterator();
+
+      /**
+       * The last entry returned.
+       */
+      private Entry last;
+
+      @Override
+      public boolean hasNext() {
+        while (!iterator.hasNext()) {
+          if (++index >= lanes.length) {
+            index = lanes.length - 1;
+            return false;
+          }
+          iterator = lanes[index].iterator();
+        }
+        return true;
+      }
+
+      @Override
+      public Job next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        last = iterator.next();
+        return last.job;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        takeLock.lock();
+        try {
+          if (lanes[index].remove(last)) {
+            count.decrementAndGet();
+          }
+        } finally {
+          takeLock.unlock();
+        }
+        last = null;
+      }
+    };
+  }
+
+  /**
+   * A job in a lane with the time it was added.
+   */
+  private static final class Entry {
+
+    /**
+     * The job.
+     */
+    private final Job job;
+
+    /**
+     * The time in nanoseconds the job was added.
+     */
+    private final long time;
+
+    /**
+     * Constructs an entry.
+     *
+     * @param job  The job.
+     * @param time The time in nanoseconds the job was added.
+     */
+    private Entry(final Job job, final long time) {
+      this.job = job;
+      this.time = time;
+    }
+
+  }
+
+}
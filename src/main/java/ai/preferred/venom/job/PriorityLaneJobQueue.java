@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class provides an implementation of a job queue with a lane per
+ * priority, in which jobs of the same priority are taken in the order
+ * they were added.
+ * <p>
+ * Unlike {@link PriorityJobQueue}, jobs are added and taken in constant
+ * time, and adding jobs does not contend with taking them. With aging
+ * enabled, a job is raised by one priority level for each aging interval
+ * it has waited, so that jobs of low priority are not starved.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public class PriorityLaneJobQueue extends AbstractJobQueue {
+
+  /**
+   * Constructs an instance of PriorityLaneJobQueue without aging.
+   */
+  public PriorityLaneJobQueue() {
+    this(0);
+  }
+
+  /**
+   * Constructs an instance of PriorityLaneJobQueue.
+   *
+   * @param agingInterval The time in milliseconds a job waits to be raised
+   *                      by one priority level, or 0 to disable aging.
+   */
+  public PriorityLaneJobQueue(final long agingInterval) {
+    super(new PriorityLaneBlockingQueue(checkAgingInterval(agingInterval)));
+  }
+
+  /**
+   * Check the aging interval.
+   *
+   * @param agingInterval The aging interval in milliseconds.
+   * @return the input.
+   */
+  private static long checkAgingInterval(final long agingInterval) {
+    if (agingInterval < 0) {
+      throw new IllegalArgumentException("Aging interval must be more or equal to 0.");
+    }
+    return agingInterval;
+  }
+
+  /**
+   * Check the job for {@link PriorityJobAttribute}, if missing,
+   * adds it to the job.
+   *
+   * @param job the job to check.
+   * @return the input job.
+   */
+  private Job ensurePriorityJobAttribute(final Job job) {
+    if (job.getJobAttribute(PriorityJobAttribute.class) == null) {
+      job.setJobAttribute(new PriorityJobAttribute());
+    }
+    return job;
+  }
+
+  @Override
+  public final void put(final @Nonnull Job job) throws InterruptedException {
+    getQueue().put(ensurePriorityJobAttribute(job));
+  }
+
+  @Override
+  public final boolean offer(final Job job, final long timeout, final @Nonnull TimeUnit unit)
+      throws InterruptedException {
+    return getQueue().offer(ensurePriorityJobAttribute(job), timeout, unit);
+  }
+
+  @Override
+  public final boolean offer(final @Nonnull Job job) {
+    return getQueue().offer(ensurePriorityJobAttribute(job));
+  }
+
+  @Override
+  public final Job poll(final long timeout, final @Nonnull TimeUnit unit) throws InterruptedException {
+    return getQueue().poll(timeout, unit);
+  }
+
+  @Override
+  public final Job poll() {
+    return getQueue().poll();
+  }
+
+}
@@ -17,6 +17,7 @@
 package ai.preferred.venom.job;
 
 import ai.preferred.venom.Handler;
+import ai.preferred.venom.dedup.SeenFilter;
 import ai.preferred.venom.request.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,13 +43,34 @@ public class Scheduler {
    */
   private final BlockingQueue<Job> queue;
 
+  /**
+   * The filter of requests already scheduled.
+   */
+  private final SeenFilter seenFilter;
+
   /**
    * Constructs an instance of Scheduler.
    *
    * @param queue an instance of BlockingQueue
    */
   public Scheduler(final BlockingQueue<Job> queue) {
+    this(queue, null);
+  }
+
+  /**
+   * Constructs an instance of Scheduler that drops requests already
+   * scheduled.
+   * <p>
+   * Requests are keyed by their method, url and body. Jobs re-queued
+   * for retry are not added through the scheduler, and are not dropped.
+   * </p>
+   *
+   * @param queue      an instance of BlockingQueue
+   * @param seenFilter the filter of requests already scheduled, or null to keep all requests
+   */
+  public Scheduler(final BlockingQueue<Job> queue, final SeenFilter seenFilter) {
     this.queue = queue;
+    this.seenFilter = seenFilter;
   }
 
   /**
@@ -63,6 +85,10 @@ public class Scheduler {
    */
   public final void add(final @NotNull Request request, final Handler handler,
                         final @NotNull JobAttribute... jobAttributes) {
+    if (seenFilter != null && !seenFilter.put(request)) {
+      LOGGER.debug("Request {} already scheduled, dropped.", request.getUrl());
+      return;
+    }
     final Job job = new Job(request, handler, jobAttributes);
     queue.add(job);
     LOGGER.debug("Job {} - {} added to queue.", job.toString(), request.getUrl());
@@ -0,0 +1,1001 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.Handler;
+import ai.preferred.venom.request.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An unbounded blocking queue of jobs ordered by priority, that keeps a
+ * bounded number of jobs in memory and spills the rest to memory-mapped,
+ * append-only segment files.
+ * <p>
+ * Jobs are kept in a lane per priority, in first-in-first-out order. Once
+ * the jobs in memory reach the capacity, a job is encoded and appended to
+ * the segments of its lane, as are all later jobs of that lane until its
+ * segments are drained, so that the order of each lane is preserved.
+ * </p>
+ * <p>
+ * A spilled job is encoded with its request, try count and the attributes
+ * that have a codec in {@link JobCodec}. Its handler and any attribute
+ * without a codec are interned by identity in a side table and encoded by
+ * their index, so a spilled job is taken with the same handler and
+ * attributes it was added with, while jobs sharing a handler take no
+ * memory per job.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+@SuppressWarnings("NullableProblems")
+final class SpillingBlockingQueue extends AbstractQueue<Job> implements BlockingQueue<Job>, AutoCloseable {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(SpillingBlockingQueue.class);
+
+  /**
+   * The size in bytes of the length prefix of a record.
+   */
+  private static final int LENGTH_BYTES = Integer.BYTES;
+
+  /**
+   * The id of a job in memory.
+   */
+  private static final long NO_ID = -1;
+
+  /**
+   * The index encoded in place of a null handler.
+   */
+  private static final int NO_HANDLER = -1;
+
+  /**
+   * The directory to write segment files to.
+   */
+  private final Path directory;
+
+  /**
+   * The maximum number of jobs to keep in memory.
+   */
+  private final int hotCapacity;
+
+  /**
+   * The size in bytes of a segment file.
+   */
+  private final int segmentSize;
+
+  /**
+   * The codec to encode spilled jobs with.
+   */
+  private final JobCodec codec;
+
+  /**
+   * The handlers of spilled jobs.
+   */
+  private final InternTable<Handler> handlers = new InternTable<>();
+
+  /**
+   * The attributes of spilled jobs that cannot be encoded.
+   */
+  private final InternTable<JobAttribute> attributes = new InternTable<>();
+
+  /**
+   * The ids of spilled jobs removed from this queue, whose records are
+   * skipped when reached.
+   */
+  private final Set<Long> tombstones = new HashSet<>();
+
+  /**
+   * The lanes of jobs, indexed by the ordinal of their priority.
+   */
+  private final Lane[] lanes;
+
+  /**
+   * The lock guarding the lanes.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * The condition signalled when a job is added.
+   */
+  private final Condition notEmpty = lock.newCondition();
+
+  /**
+   * The number of jobs in memory.
+   */
+  private int hotCount;
+
+  /**
+   * The number of jobs spilled to segments.
+   */
+  private int spilledCount;
+
+  /**
+   * The sequence number of the next segment file.
+   */
+  private long segmentSequence;
+
+  /**
+   * The id of the next spilled job.
+   */
+  private long spillSequence;
+
+  /**
+   * Whether this queue is closed.
+   */
+  private boolean closed;
+
+  /**
+   * Constructs an instance of SpillingBlockingQueue.
+   *
+   * @param directory   The directory to write segment files to.
+   * @param hotCapacity The maximum number of jobs to keep in memory.
+   * @param segmentSize The size in bytes of a segment file.
+   * @param codec       The codec to encode spilled jobs with.
+   */
+  SpillingBlockingQueue(final Path directory, final int hotCapacity, final int segmentSize, final JobCodec codec) {
+    this.directory = directory;
+    this.hotCapacity = hotCapacity;
+    this.segmentSize = segmentSize;
+    this.codec = codec;
+    this.lanes = new Lane[Priority.values().length];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = new Lane(i);
+    }
+  }
+
+  /**
+   * Get the lane of a job.
+   *
+   * @param job The job.
+   * @return the lane of the priority of the job.
+   */
+  private Lane laneOf(final Job job) {
+    final PriorityJobAttribute attribute = job.getJobAttribute(PriorityJobAttribute.class);
+    return lanes[(attribute == null ? Priority.DEFAULT : attribute.getPriority()).ordinal()];
+  }
+
+  /**
+   * Encode a job to the segments of a lane, mapping a new segment if the
+   * last one is full, and intern the parts of the job that cannot be
+   * encoded. Must be called while holding the lock.
+   *
+   * @param lane The lane to append to.
+   * @param job  The job to spill.
+   * @throws IOException if a segment cannot be created.
+   */
+  private void spill(final Lane lane, final Job job) throws IOException {
+    final long id = spillSequence++;
+    final List<JobAttribute> encoded = new ArrayList<>();
+    final List<JobAttribute> interned = new ArrayList<>();
+    for (final JobAttribute attribute : job.getJobAttributes()) {
+      (codec.canEncode(attribute) ? encoded : interned).add(attribute);
+    }
+
+    final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(record);
+    out.writeLong(id);
+    codec.encodeRequest(job.getRequest(), out);
+    out.writeInt(job.getTryCount());
+    final Handler handler = job.getHandler();
+    out.writeInt(handler == null ? NO_HANDLER : handlers.acquire(handler));
+    out.writeInt(interned.size());
+    for (final JobAttribute attribute : interned) {
+      out.writeInt(attributes.acquire(attribute));
+    }
+    codec.encodeAttributes(encoded, out);
+    final byte[] bytes = record.toByteArray();
+
+    Segment tail = lane.segments.peekLast();
+    if (tail == null || tail.remaining() < LENGTH_BYTES + bytes.length) {
+      final Path file = directory.resolve("segment-" + lane.index + "-" + segmentSequence++ + ".dat");
+      tail = new Segment(file, Math.max(segmentSize, LENGTH_BYTES + bytes.length));
+      lane.segments.add(tail);
+    }
+    tail.append(bytes);
+    lane.spilled++;
+    spilledCount++;
+  }
+
+  /**
+   * Get the id of a spilled job from its record.
+   *
+   * @param bytes The record of the job.
+   * @return the id of the job.
+   */
+  private static long idOf(final byte[] bytes) {
+    return ByteBuffer.wrap(bytes).getLong();
+  }
+
+  /**
+   * Restore a spilled job from its record. Must be called while holding
+   * the lock.
+   *
+   * @param bytes   The record of the job.
+   * @param release Whether to release the interned parts of the job, once
+   *                its record is taken or removed.
+   * @return the job.
+   */
+  private Job restore(final byte[] bytes, final boolean release) {
+    try {
+      final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, Long.BYTES,
+          bytes.length - Long.BYTES));
+      final Request request = codec.decodeRequest(in);
+      final int tryCount = in.readInt();
+      final int handlerIndex = in.readInt();
+      final JobAttribute[] jobAttributes = new JobAttribute[in.readInt()];
+      for (int i = 0; i < jobAttributes.length; i++) {
+        final int index = in.readInt();
+        jobAttributes[i] = attributes.get(index);
+        if (release) {
+          attributes.release(index);
+        }
+      }
+      final Handler handler = handlerIndex == NO_HANDLER ? null : handlers.get(handlerIndex);
+      if (release && handlerIndex != NO_HANDLER) {
+        handlers.release(handlerIndex);
+      }
+
+      final Job job = new Job(request, handler, jobAttributes);
+      job.setTryCount(tryCount);
+      codec.decodeAttributes(in, job);
+      return job;
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Unable to decode spilled job.", e);
+    }
+  }
+
+  /**
+   * Removes the records of removed jobs from the head of the segments of
+   * a lane. Must be called while holding the lock.
+   *
+   * @param lane The lane.
+   */
+  private void skipRemoved(final Lane lane) {
+    while (lane.spilled > 0 && !tombstones.isEmpty()) {
+      final Segment head = lane.segments.peek();
+      final long id = idOf(head.peek());
+      if (!tombstones.remove(id)) {
+        return;
+      }
+      head.next();
+      lane.taken = id;
+      lane.spilled--;
+      if (head.isDrained()) {
+        lane.segments.poll();
+        head.delete();
+      }
+    }
+  }
+
+  /**
+   * Check if a spilled job is still in a lane, that is, it has not been
+   * taken or removed. Must be called while holding the lock.
+   *
+   * @param lane The lane of the job.
+   * @param id   The id of the job.
+   * @return true if the job is still in the lane.
+   */
+  private boolean isQueued(final Lane lane, final long id) {
+    return id > lane.taken && !tombstones.contains(id);
+  }
+
+  /**
+   * Removes the first job of the highest priority lane with jobs.
+   * Must be called while holding the lock.
+   *
+   * @return the job removed, or null if the queue is empty.
+   */
+  private Job dequeue() {
+    for (final Lane lane : lanes) {
+      final Job job = lane.hot.poll();
+      if (job != null) {
+        hotCount--;
+        return job;
+      }
+      skipRemoved(lane);
+      if (lane.spilled > 0) {
+        final Segment head = lane.segments.peek();
+        final byte[] bytes = head.next();
+        lane.taken = idOf(bytes);
+        lane.spilled--;
+        spilledCount--;
+        if (head.isDrained()) {
+          lane.segments.poll();
+          head.delete();
+        }
+        return restore(bytes, true);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean offer(final @Nonnull Job job) {
+    final Lane lane = laneOf(job);
+    lock.lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Queue is closed.");
+      }
+      if (lane.spilled == 0 && hotCount < hotCapacity) {
+        lane.hot.add(job);
+        hotCount++;
+      } else {
+        spill(lane, job);
+      }
+      notEmpty.signal();
+      return true;
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Unable to spill job.", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void put(final @Nonnull Job job) {
+    offer(job);
+  }
+
+  @Override
+  public boolean offer(final Job job, final long timeout, final @Nonnull TimeUnit unit) {
+    return offer(job);
+  }
+
+  @Override
+  public Job poll() {
+    lock.lock();
+    try {
+      return dequeue();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Nonnull
+  @Override
+  public Job take() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      Job job;
+      while ((job = dequeue()) == null) {
+        notEmpty.await();
+      }
+      return job;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Job poll(final long timeout, final @Nonnull TimeUnit unit) throws InterruptedException {
+    long nanos = unit.toNanos(timeout);
+    lock.lockInterruptibly();
+    try {
+      Job job;
+      while ((job = dequeue()) == null) {
+        if (nanos <= 0) {
+          return null;
+        }
+        nanos = notEmpty.awaitNanos(nanos);
+      }
+      return job;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Job peek() {
+    lock.lock();
+    try {
+      for (final Lane lane : lanes) {
+        final Job job = lane.hot.peek();
+        if (job != null) {
+          return job;
+        }
+        skipRemoved(lane);
+        if (lane.spilled > 0) {
+          return restore(lane.segments.peek().peek(), false);
+        }
+      }
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int size() {
+    lock.lock();
+    try {
+      return hotCount + spilledCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of handlers and attributes interned for spilled jobs.
+   *
+   * @return the number of objects interned.
+   */
+  int internedSize() {
+    lock.lock();
+    try {
+      return handlers.size() + attributes.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of jobs spilled to segments.
+   *
+   * @return the number of jobs spilled.
+   */
+  int spilledSize() {
+    lock.lock();
+    try {
+      return spilledCount;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return Integer.MAX_VALUE;
+  }
+
+  @Override
+  public int drainTo(final @Nonnull Collection<? super Job> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(final @Nonnull Collection<? super Job> c, final int maxElements) {
+    lock.lock();
+    try {
+      int n = 0;
+      Job job;
+      while (n < maxElements && (job = dequeue()) != null) {
+        c.add(job);
+        n++;
+      }
+      return n;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      for (final Lane lane : lanes) {
+        lane.hot.clear();
+        lane.spilled = 0;
+        Segment segment;
+        while ((segment = lane.segments.poll()) != null) {
+          segment.delete();
+        }
+      }
+      handlers.clear();
+      attributes.clear();
+      tombstones.clear();
+      hotCount = 0;
+      spilledCount = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the jobs in this queue, in
+   * order of priority. Spilled jobs are decoded as they are iterated, and
+   * are skipped if taken or removed meanwhile.
+   *
+   * @return an iterator over the jobs in this queue
+   */
+  @Nonnull
+  @Override
+  public Iterator<Job> iterator() {
+    final List<Object> snapshot = new ArrayList<>();
+    lock.lock();
+    try {
+      for (final Lane lane : lanes) {
+        snapshot.addAll(lane.hot);
+        for (final Segment segment : lane.segments) {
+          snapshot.add(new Records(lane, segment.view()));
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    final Iterator<Object> iterator = snapshot.iterator();
+    return new Iterator<Job>() {
+
+      /**
+       * The records of the segment being iterated.
+       */
+      private Records records;
+
+      /**
+       * The next job to return, or null if not found yet.
+       */
+      private Job next;
+
+      /**
+       * The id of the next job if spilled.
+       */
+      private long nextId = NO_ID;
+
+      /**
+       * The record of the next job if spilled.
+       */
+      private byte[] nextBytes;
+
+      /**
+       * The lane of the next job if spilled.
+       */
+      private Lane nextLane;
+
+      /**
+       * The last job returned.
+       */
+      private Job last;
+
+      /**
+       * The id of the last job returned if spilled.
+       */
+      private long lastId = NO_ID;
+
+      /**
+       * The record of the last job returned if spilled.
+       */
+      private byte[] lastBytes;
+
+      /**
+       * The lane of the last job returned if spilled.
+       */
+      private Lane lastLane;
+
+      /**
+       * Find the next job to return.
+       *
+       * @return true if there is a next job.
+       */
+      private boolean advance() {
+        while (next == null) {
+          if (records != null && records.buffer.hasRemaining()) {
+            final byte[] bytes = new byte[records.buffer.getInt()];
+            records.buffer.get(bytes);
+            final long id = idOf(bytes);
+            lock.lock();
+            try {
+              if (isQueued(records.lane, id)) {
+                next = restore(bytes, false);
+                nextId = id;
+                nextBytes = bytes;
+                nextLane = records.lane;
+              }
+            } finally {
+              lock.unlock();
+            }
+          } else if (iterator.hasNext()) {
+            final Object element = iterator.next();
+            if (element instanceof Job) {
+              next = (Job) element;
+              nextId = NO_ID;
+            } else {
+              records = (Records) element;
+            }
+          } else {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return advance();
+      }
+
+      @Override
+      public Job next() {
+        if (!advance()) {
+          throw new NoSuchElementException();
+        }
+        last = next;
+        lastId = nextId;
+        lastBytes = nextBytes;
+        lastLane = nextLane;
+        next = null;
+        return last;
+      }
+
+      @Override
+      public void remove() {
+        if (last == null) {
+          throw new IllegalStateException();
+        }
+        lock.lock();
+        try {
+          if (lastId == NO_ID) {
+            for (final Lane lane : lanes) {
+              if (lane.hot.removeIf(job -> job == last)) {
+                hotCount--;
+                break;
+              }
+            }
+          } else if (isQueued(lastLane, lastId)) {
+            tombstones.add(lastId);
+            restore(lastBytes, true);
+            spilledCount--;
+          }
+        } finally {
+          lock.unlock();
+        }
+        last = null;
+      }
+    };
+  }
+
+  /**
+   * Deletes all segment files and their directory, after which this queue
+   * may no longer be used.
+   *
+   * @throws IOException if the directory cannot be deleted.
+   */
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      clear();
+      closed = true;
+    } finally {
+      lock.unlock();
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  /**
+   * A table of objects interned by identity, each kept under an index
+   * until it is released as many times as it was acquired.
+   *
+   * @param <T> the type of objects.
+   */
+  private static final class InternTable<T> {
+
+    /**
+     * The indices of the objects interned.
+     */
+    private final Map<T, Integer> indices = new IdentityHashMap<>();
+
+    /**
+     * The objects interned, by index.
+     */
+    private final List<T> values = new ArrayList<>();
+
+    /**
+     * The number of references to the objects, by index.
+     */
+    private int[] references = new int[0];
+
+    /**
+     * The indices released and free for reuse.
+     */
+    private final ArrayDeque<Integer> free = new ArrayDeque<>();
+
+    /**
+     * Intern an object and add a reference to it.
+     *
+     * @param value The object.
+     * @return the index of the object.
+     */
+    private int acquire(final T value) {
+      Integer index = indices.get(value);
+      if (index == null) {
+        index = free.poll();
+        if (index == null) {
+          index = values.size();
+          values.add(value);
+          if (index == references.length) {
+            references = Arrays.copyOf(references, Math.max(8, index * 2));
+          }
+        } else {
+          values.set(index, value);
+        }
+        indices.put(value, index);
+      }
+      references[index]++;
+      return index;
+    }
+
+    /**
+     * Get an interned object.
+     *
+     * @param index The index of the object.
+     * @return the object.
+     */
+    private T get(final int index) {
+      return values.get(index);
+    }
+
+    /**
+     * Remove a reference to an object, and remove the object once it
+     * has no references.
+     *
+     * @param index The index of the object.
+     */
+    private void release(final int index) {
+      if (--references[index] == 0) {
+        indices.remove(values.set(index, null));
+        free.add(index);
+      }
+    }
+
+    /**
+     * Get the number of objects interned.
+     *
+     * @return the number of objects.
+     */
+    private int size() {
+      return indices.size();
+    }
+
+    /**
+     * Remove all objects.
+     */
+    private void clear() {
+      indices.clear();
+      values.clear();
+      references = new int[0];
+      free.clear();
+    }
+
+  }
+
+  /**
+   * The unread records of a segment of a lane.
+   */
+  private static final class Records {
+
+    /**
+     * The lane of the segment.
+     */
+    private final Lane lane;
+
+    /**
+     * The records not yet read.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructs the records of a segment.
+     *
+     * @param lane   The lane of the segment.
+     * @param buffer The records not yet read.
+     */
+    private Records(final Lane lane, final ByteBuffer buffer) {
+      this.lane = lane;
+      this.buffer = buffer;
+    }
+
+  }
+
+  /**
+   * The jobs of a priority.
+   */
+  private static final class Lane {
+
+    /**
+     * The ordinal of the priority of this lane.
+     */
+    private final int index;
+
+    /**
+     * The jobs in memory, all of which were added before any spilled job.
+     */
+    private final ArrayDeque<Job> hot = new ArrayDeque<>();
+
+    /**
+     * The segments of spilled jobs, in the order they were written.
+     */
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    /**
+     * The number of spilled jobs.
+     */
+    private int spilled;
+
+    /**
+     * The id of the last spilled job taken or removed from the head.
+     */
+    private long taken = NO_ID;
+
+    /**
+     * Constructs a lane.
+     *
+     * @param index The ordinal of the priority of this lane.
+     */
+    private Lane(final int index) {
+      this.index = index;
+    }
+
+  }
+
+  /**
+   * An append-only, memory-mapped segment file of length-prefixed records.
+   */
+  private static final class Segment {
+
+    /**
+     * The segment file.
+     */
+    private final Path file;
+
+    /**
+     * The mapped buffer of the segment file.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The position of the next record to read.
+     */
+    private int readPosition;
+
+    /**
+     * The position to append the next record at.
+     */
+    private int writePosition;
+
+    /**
+     * Creates and maps a segment file.
+     *
+     * @param file The segment file.
+     * @param size The size in bytes of the segment.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    private Segment(final Path file, final int size) throws IOException {
+      this.file = file;
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+          StandardOpenOption.WRITE)) {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      }
+    }
+
+    /**
+     * Get the number of bytes left to append.
+     *
+     * @return the number of bytes left.
+     */
+    private int remaining() {
+      return buffer.capacity() - writePosition;
+    }
+
+    /**
+     * Append a record to this segment.
+     *
+     * @param bytes The record.
+     */
+    private void append(final byte[] bytes) {
+      buffer.putInt(writePosition, bytes.length);
+      final ByteBuffer view = buffer.duplicate();
+      view.position(writePosition + LENGTH_BYTES);
+      view.put(bytes);
+      writePosition += LENGTH_BYTES + bytes.length;
+    }
+
+    /**
+     * Read the next record without consuming it.
+     *
+     * @return the next record.
+     */
+    private byte[] peek() {
+      final byte[] bytes = new byte[buffer.getInt(readPosition)];
+      final ByteBuffer view = buffer.duplicate();
+      view.position(readPosition + LENGTH_BYTES);
+      view.get(bytes);
+      return bytes;
+    }
+
+    /**
+     * Read and consume the next record.
+     *
+     * @return the next record.
+     */
+    private byte[] next() {
+      final byte[] bytes = peek();
+      readPosition += LENGTH_BYTES + bytes.length;
+      return bytes;
+    }
+
+    /**
+     * Check if all records appended have been read.
+     *
+     * @return true if all records have been read.
+     */
+    private boolean isDrained() {
+      return readPosition == writePosition;
+    }
+
+    /**
+     * Get a view of the records not yet read.
+     *
+     * @return a buffer of the records not yet read.
+     */
+    private ByteBuffer view() {
+      final ByteBuffer view = buffer.duplicate();
+      view.limit(writePosition);
+      view.position(readPosition);
+      return view.slice();
+    }
+
+    /**
+     * Delete the segment file. The mapping is released when the
+     * buffer is garbage collected.
+     */
+    private void delete() {
+      try {
+        Files.deleteIfExists(file);
+      } catch (final IOException e) {
+        LOGGER.debug("Unable to delete segment {}, deleting on exit.", file, e);
+        file.toFile().deleteOnExit();
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class provides an implementation of a job queue ordered by
+ * priority, that keeps a bounded number of jobs in memory and spills
+ * the rest to memory-mapped segment files on disk.
+ * <p>
+ * Jobs of the same priority are taken in the order they were added.
+ * Spilled jobs are encoded with a {@link JobCodec}. Their handlers, and
+ * attributes without a registered codec, are shared by identity instead,
+ * so spilled jobs are taken with the same handlers they were added with.
+ * </p>
+ * <p>
+ * Segment files are written to a new directory, which is deleted when
+ * the queue is closed. Use a {@link JobCheckpoint} to resume a crawl.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public class SpillingJobQueue extends AbstractJobQueue implements AutoCloseable {
+
+  /**
+   * The default maximum number of jobs to keep in memory.
+   */
+  public static final int DEFAULT_HOT_CAPACITY = 100000;
+
+  /**
+   * The default size in bytes of a segment file.
+   */
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  /**
+   * Constructs an instance of SpillingJobQueue.
+   *
+   * @param parent      The directory to create the directory of segment files in.
+   * @param hotCapacity The maximum number of jobs to keep in memory.
+   * @param segmentSize The size in bytes of a segment file.
+   * @param codec       The codec to encode spilled jobs with.
+   * @throws IOException if the directory of segment files cannot be created.
+   */
+  public SpillingJobQueue(final @Nonnull Path parent, final int hotCapacity, final int segmentSize,
+                          final @Nonnull JobCodec codec) throws IOException {
+    super(new SpillingBlockingQueue(Files.createTempDirectory(Files.createDirectories(parent), "venom-queue-"),
+        checkHotCapacity(hotCapacity), checkSegmentSize(segmentSize), codec));
+  }
+
+  /**
+   * Constructs an instance of SpillingJobQueue.
+   *
+   * @param parent      The directory to create the directory of segment files in.
+   * @param hotCapacity The maximum number of jobs to keep in memory.
+   * @throws IOException if the directory of segment files cannot be created.
+   */
+  public SpillingJobQueue(final @Nonnull Path parent, final int hotCapacity) throws IOException {
+    this(parent, hotCapacity, DEFAULT_SEGMENT_SIZE, new JobCodec());
+  }
+
+  /**
+   * Constructs an instance of SpillingJobQueue.
+   *
+   * @param parent The directory to create the directory of segment files in.
+   * @throws IOException if the directory of segment files cannot be created.
+   */
+  public SpillingJobQueue(final @Nonnull Path parent) throws IOException {
+    this(parent, DEFAULT_HOT_CAPACITY);
+  }
+
+  /**
+   * Check the maximum number of jobs to keep in memory.
+   *
+   * @param hotCapacity The maximum number of jobs to keep in memory.
+   * @return the input.
+   */
+  private static int checkHotCapacity(final int hotCapacity) {
+    if (hotCapacity < 0) {
+      throw new IllegalArgumentException("Hot capacity must be more or equal to 0.");
+    }
+    return hotCapacity;
+  }
+
+  /**
+   * Check the size of a segment file.
+   *
+   * @param segmentSize The size in bytes of a segment file.
+   * @return the input.
+   */
+  private static int checkSegmentSize(final int segmentSize) {
+    if (segmentSize < 1) {
+      throw new IllegalArgumentException("Segment size must be more or equal to 1.");
+    }
+    return segmentSize;
+  }
+
+  /**
+   * Check the job for {@link PriorityJobAttribute}, if missing,
+   * adds it to the job.
+   *
+   * @param job the job to check.
+   * @return the input job.
+   */
+  private Job ensurePriorityJobAttribute(final Job job) {
+    if (job.getJobAttribute(PriorityJobAttribute.class) == null) {
+      job.setJobAttribute(new PriorityJobAttribute());
+    }
+    return job;
+  }
+
+  /**
+   * Get the number of jobs spilled to disk.
+   *
+   * @return the number of jobs spilled.
+   */
+  public final int getSpilledSize() {
+    return ((SpillingBlockingQueue) getQueue()).spilledSize();
+  }
+
+  @Override
+  public final void put(final @Nonnull Job job) throws InterruptedException {
+    getQueue().put(ensurePriorityJobAttribute(job));
+  }
+
+  @Override
+  public final boolean offer(final Job job, final long timeout, final @Nonnull TimeUnit unit)
+      throws InterruptedException {
+    return getQueue().offer(ensurePriorityJobAttribute(job), timeout, unit);
+  }
+
+  @Override
+  public final boolean offer(final @Nonnull Job job) {
+    return getQueue().offer(ensurePriorityJobAttribute(job));
+  }
+
+  @Override
+  public final Job poll(final long timeout, final @Nonnull TimeUnit unit) throws InterruptedException {
+    return getQueue().poll(timeout, unit);
+  }
+
+  @Override
+  public final Job poll() {
+    return getQueue().poll();
+  }
+
+  @Override
+  public final void clear() {
+    getQueue().clear();
+  }
+
+  /**
+   * Deletes all spilled jobs and the directory of segment files, after
+   * which this queue may no longer be used.
+   *
+   * @throws IOException if the directory cannot be deleted.
+   */
+  @Override
+  public final void close() throws IOException {
+    ((SpillingBlockingQueue) getQueue()).close();
+  }
+
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.limiter;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class provides an implementation of concurrency limiter that adapts
+ * its limit using additive increase and multiplicative decrease.
+ * <p>
+ * The limit is increased by about one for every round of successful
+ * requests while the limit is being used. It is decreased by the backoff
+ * ratio when a request is dropped, or when the recent latency rises above
+ * the long term latency by more than the tolerance, at most once for
+ * every round of requests.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class AimdConcurrencyLimiter implements ConcurrencyLimiter {
+
+  /**
+   * The smoothing factor of the recent latency.
+   */
+  private static final double SHORT_SMOOTHING = 0.2;
+
+  /**
+   * The smoothing factor of the long term latency.
+   */
+  private static final double LONG_SMOOTHING = 0.01;
+
+  /**
+   * The minimum limit.
+   */
+  private final int minLimit;
+
+  /**
+   * The maximum limit.
+   */
+  private final int maxLimit;
+
+  /**
+   * The ratio to multiply the limit by on congestion.
+   */
+  private final double backoffRatio;
+
+  /**
+   * The ratio of recent to long term latency tolerated before backing off.
+   */
+  private final double tolerance;
+
+  /**
+   * Main lock guarding all state.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  /**
+   * Condition for waiting on a permit.
+   */
+  private final Condition available = lock.newCondition();
+
+  /**
+   * The estimated limit.
+   */
+  private double estimate;
+
+  /**
+   * The current limit.
+   */
+  private volatile int limit;
+
+  /**
+   * The number of requests in flight.
+   */
+  private volatile int inFlight;
+
+  /**
+   * The number of requests released since the limit was last decreased.
+   */
+  private int releasedSinceBackoff;
+
+  /**
+   * The recent latency in nanoseconds.
+   */
+  private double shortLatency;
+
+  /**
+   * The long term latency in nanoseconds.
+   */
+  private double longLatency;
+
+  /**
+   * Constructs an instance of AimdConcurrencyLimiter.
+   *
+   * @param builder An instance of builder
+   */
+  private AimdConcurrencyLimiter(final Builder builder) {
+    minLimit = builder.minLimit;
+    maxLimit = builder.maxLimit;
+    backoffRatio = builder.backoffRatio;
+    tolerance = builder.tolerance;
+    estimate = Math.max(minLimit, Math.min(maxLimit, builder.initialLimit));
+    limit = (int) estimate;
+  }
+
+  /**
+   * Create an instance of builder.
+   *
+   * @return A new instance of builder
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Create an instance of limiter with default values.
+   *
+   * @return A new instance of limiter
+   */
+  public static AimdConcurrencyLimiter buildDefault() {
+    return builder().build();
+  }
+
+  @Override
+  public void acquire() throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      while (inFlight >= limit) {
+        available.await();
+      }
+      inFlight++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean tryAcquire() {
+    lock.lock();
+    try {
+      if (inFlight >= limit) {
+        return false;
+      }
+      inFlight++;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void release(final Outcome outcome, final long latency) {
+    lock.lock();
+    try {
+      inFlight--;
+      releasedSinceBackoff++;
+      if (outcome != Outcome.IGNORED) {
+        final boolean congested = updateLatency(latency) || outcome == Outcome.DROPPED;
+        if (congested) {
+          if (releasedSinceBackoff >= limit) {
+            estimate = Math.max(minLimit, estimate * backoffRatio);
+            releasedSinceBackoff = 0;
+          }
+        } else if (inFlight + 1 >= limit / 2) {
+          estimate = Math.min(maxLimit, estimate + 1.0 / estimate);
+        }
+        limit = (int) estimate;
+      }
+      if (inFlight < limit) {
+        available.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Update the recent and long term latency with a new sample.
+   * Must be called while holding the lock.
+   *
+   * @param latency the latency in nanoseconds, or a negative value if unknown
+   * @return true if the recent latency is above tolerance
+   */
+  private boolean updateLatency(final long latency) {
+    if (latency < 0) {
+      return false;
+    }
+    if (longLatency == 0) {
+      shortLatency = latency;
+      longLatency = latency;
+      return false;
+    }
+    shortLatency += (latency - shortLatency) * SHORT_SMOOTHING;
+    longLatency += (latency - longLatency) * LONG_SMOOTHING;
+    return shortLatency > longLatency * tolerance;
+  }
+
+  @Override
+  public int getLimit() {
+    return limit;
+  }
+
+  @Override
+  public int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * A builder for AimdConcurrencyLimiter class.
+   */
+  public static final class Builder {
+
+    /**
+     * The initial limit.
+     */
+    private int initialLimit;
+
+    /**
+     * The minimum limit.
+     */
+    private int minLimit;
+
+    /**
+     * The maximum limit.
+     */
+    private int maxLimit;
+
+    /**
+     * The ratio to multiply the limit by on congestion.
+     */
+    private double backoffRatio;
+
+    /**
+     * The ratio of recent to long term latency tolerated before backing off.
+     */
+    private double tolerance;
+
+    /**
+     * Constructs an instance of builder with default values.
+     */
+    private Builder() {
+      initialLimit = 32;
+      minLimit = 1;
+      maxLimit = 256;
+      backoffRatio = 0.9;
+      tolerance = 2.0;
+    }
+
+    /**
+     * Sets the initial limit. Defaults to 32.
+     *
+     * @param initialLimit the initial limit.
+     * @return this
+     */
+    public Builder setInitialLimit(final int initialLimit) {
+      if (initialLimit <= 0) {
+        throw new IllegalStateException("Attribute 'initialLimit' must be more or equal to 1.");
+      }
+      this.initialLimit = initialLimit;
+      return this;
+    }
+
+    /**
+     * Sets the minimum limit. Defaults to 1.
+     *
+     * @param minLimit the minimum limit.
+     * @return this
+     */
+    public Builder setMinLimit(final int minLimit) {
+      if (minLimit <= 0) {
+        throw new IllegalStateException("Attribute 'minLimit' must be more or equal to 1.");
+      }
+      this.minLimit = minLimit;
+      return this;
+    }
+
+    /**
+     * Sets the maximum limit. Defaults to 256.
+     *
+     * @param maxLimit the maximum limit.
+     * @return this
+     */
+    public Builder setMaxLimit(final int maxLimit) {
+      if (maxLimit <= 0) {
+        throw new IllegalStateException("Attribute 'maxLimit' must be more or equal to 1.");
+      }
+      this.maxLimit = maxLimit;
+      return this;
+    }
+
+    /**
+     * Sets the ratio to multiply the limit by on congestion.
+     * Number should be between 0 and 1 exclusive, defaults to 0.9.
+     *
+     * @param backoffRatio the backoff ratio.
+     * @return this
+     */
+    public Builder setBackoffRatio(final double backoffRatio) {
+      if (backoffRatio <= 0 || backoffRatio >= 1) {
+        throw new IllegalStateException("Attribute 'backoffRatio' not within range, must be (0,1).");
+      }
+      this.backoffRatio = backoffRatio;
+      return this;
+    }
+
+    /**
+     * Sets the ratio of recent to long term latency tolerated before
+     * backing off. Number should be more than 1, defaults to 2.
+     *
+     * @param tolerance the latency tolerance.
+     * @return this
+     */
+    public Builder setTolerance(final double tolerance) {
+      if (tolerance <= 1) {
+        throw new IllegalStateException("Attribute 'tolerance' must be more than 1.");
+      }
+      this.tolerance = tolerance;
+      return this;
+    }
+
+    /**
+     * Builds the limiter with the options specified.
+     *
+     * @return an instance of AimdConcurrencyLimiter.
+     */
+    public AimdConcurrencyLimiter build() {
+      if (minLimit > maxLimit) {
+        throw new IllegalStateException("Attribute 'minLimit' must be less or equal to 'maxLimit'.");
+      }
+      return new AimdConcurrencyLimiter(this);
+    }
+
+  }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.limiter;
+
+/**
+ * A limiter for the number of requests in flight at the same time.
+ * <p>
+ * {@link #acquire()} must be called before a request is sent, and
+ * {@link #release(Outcome, long)} exactly once after the request has
+ * completed, failed or was cancelled.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public interface ConcurrencyLimiter {
+
+  /**
+   * Waits until a request may be sent and marks it as in flight.
+   *
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  void acquire() throws InterruptedException;
+
+  /**
+   * Marks a request as in flight if it may be sent without waiting.
+   *
+   * @return true if the request may be sent
+   */
+  boolean tryAcquire();
+
+  /**
+   * Marks a request as no longer in flight.
+   *
+   * @param outcome the outcome of the request
+   * @param latency the latency of the request in nanoseconds, or a negative
+   *                value if unknown
+   */
+  void release(Outcome outcome, long latency);
+
+  /**
+   * Get the current limit of requests in flight.
+   *
+   * @return the current limit
+   */
+  int getLimit();
+
+  /**
+   * Get the number of requests in flight.
+   *
+   * @return the number of requests in flight
+   */
+  int getInFlight();
+
+  /**
+   * The outcome of a request.
+   */
+  enum Outcome {
+    /**
+     * The request completed successfully.
+     */
+    SUCCESS,
+    /**
+     * The request failed or was rejected, which indicates congestion.
+     */
+    DROPPED,
+    /**
+     * The request should not be used to adjust the limit.
+     */
+    IGNORED
+  }
+
+}
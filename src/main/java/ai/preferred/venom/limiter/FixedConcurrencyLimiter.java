@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.limiter;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * This class provides an implementation of concurrency limiter with a
+ * fixed limit.
+ *
+ * @author Ween Jiann Lee
+ */
+public class FixedConcurrencyLimiter implements ConcurrencyLimiter {
+
+  /**
+   * The limit of requests in flight.
+   */
+  private final int limit;
+
+  /**
+   * The permits for requests in flight.
+   */
+  private final Semaphore permits;
+
+  /**
+   * Constructs an instance of FixedConcurrencyLimiter.
+   *
+   * @param limit the limit of requests in flight
+   */
+  public FixedConcurrencyLimiter(final int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be more or equal to 1.");
+    }
+    this.limit = limit;
+    this.permits = new Semaphore(limit);
+  }
+
+  @Override
+  public final void acquire() throws InterruptedException {
+    permits.acquire();
+  }
+
+  @Override
+  public final boolean tryAcquire() {
+    return permits.tryAcquire();
+  }
+
+  @Override
+  public final void release(final Outcome outcome, final long latency) {
+    permits.release();
+  }
+
+  @Override
+  public final int getLimit() {
+    return limit;
+  }
+
+  @Override
+  public final int getInFlight() {
+    return limit - permits.availablePermits();
+  }
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.limiter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * This class limits the number of requests in flight to each host
+ * separately, using a concurrency limiter for each host.
+ * <p>
+ * Each host has its own limiter, so the limit of a host only adapts to
+ * the latency and failures of requests to that host.
+ * </p>
+ * <p>
+ * The limiter of a host is evicted once the host has had no request in
+ * flight for the idle timeout, so a broad crawl only keeps limiters for
+ * the hosts it is actively crawling.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class HostConcurrencyLimiter {
+
+  /**
+   * The default time in milliseconds after which an idle host is evicted.
+   */
+  public static final long DEFAULT_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(10);
+
+  /**
+   * The supplier of limiters for new hosts.
+   */
+  private final Supplier<ConcurrencyLimiter> limiterSupplier;
+
+  /**
+   * The limiters of each host.
+   */
+  private final ConcurrentMap<String, HostLimiter> limiters = new ConcurrentHashMap<>();
+
+  /**
+   * The limit of a host without a limiter.
+   */
+  private final int defaultLimit;
+
+  /**
+   * The time in nanoseconds after which an idle host is evicted.
+   */
+  private final long idleTimeout;
+
+  /**
+   * The time in nanoseconds idle hosts were last evicted.
+   */
+  private final AtomicLong lastEviction = new AtomicLong(System.nanoTime());
+
+  /**
+   * Constructs an instance of HostConcurrencyLimiter.
+   *
+   * @param limiterSupplier the supplier of limiters for new hosts
+   * @param idleTimeout     the time in milliseconds after which a host without requests in flight is evicted
+   */
+  public HostConcurrencyLimiter(final Supplier<ConcurrencyLimiter> limiterSupplier, final long idleTimeout) {
+    if (idleTimeout < 0) {
+      throw new IllegalArgumentException("Idle timeout must be more or equal to 0.");
+    }
+    this.limiterSupplier = limiterSupplier;
+    this.defaultLimit = limiterSupplier.get().getLimit();
+    this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+  }
+
+  /**
+   * Constructs an instance of HostConcurrencyLimiter, evicting hosts
+   * idle for {@link #DEFAULT_IDLE_TIMEOUT}.
+   *
+   * @param limiterSupplier the supplier of limiters for new hosts
+   */
+  public HostConcurrencyLimiter(final Supplier<ConcurrencyLimiter> limiterSupplier) {
+    this(limiterSupplier, DEFAULT_IDLE_TIMEOUT);
+  }
+
+  /**
+   * Create an instance with a fixed limit for each host.
+   *
+   * @param limit the limit of requests in flight for each host
+   * @return A new instance of host concurrency limiter
+   */
+  public static HostConcurrencyLimiter fixed(final int limit) {
+    return new HostConcurrencyLimiter(() -> new FixedConcurrencyLimiter(limit));
+  }
+
+  /**
+   * Create an instance with an adaptive limit for each host.
+   *
+   * @param initialLimit the initial limit of requests in flight for each host
+   * @param maxLimit     the maximum limit of requests in flight for each host
+   * @return A new instance of host concurrency limiter
+   */
+  public static HostConcurrencyLimiter adaptive(final int initialLimit, final int maxLimit) {
+    return new HostConcurrencyLimiter(() -> AimdConcurrencyLimiter.builder()
+        .setInitialLimit(initialLimit)
+        .setMaxLimit(maxLimit)
+        .build());
+  }
+
+  /**
+   * Evicts the limiters of hosts without requests in flight since the idle
+   * timeout, at most once per idle timeout.
+   *
+   * @param now the current time in nanoseconds
+   */
+  private void evictIdle(final long now) {
+    final long last = lastEviction.get();
+    if (now - last < idleTimeout || !lastEviction.compareAndSet(last, now)) {
+      return;
+    }
+    for (final Map.Entry<String, HostLimiter> entry : limiters.entrySet()) {
+      final HostLimiter hostLimiter = entry.getValue();
+      synchronized (hostLimiter) {
+        if (now - hostLimiter.lastUsed >= idleTimeout && hostLimiter.limiter.getInFlight() == 0) {
+          hostLimiter.evicted = true;
+          limiters.remove(entry.getKey(), hostLimiter);
+        }
+      }
+    }
+  }
+
+  /**
+   * Marks a request to a host as in flight if it may be sent without waiting.
+   *
+   * @param host the host of the request
+   * @return true if the request may be sent
+   */
+  public boolean tryAcquire(final String host) {
+    final long now = System.nanoTime();
+    evictIdle(now);
+    while (true) {
+      final HostLimiter hostLimiter = limiters.computeIfAbsent(host, key -> new HostLimiter(limiterSupplier.get()));
+      synchronized (hostLimiter) {
+        if (!hostLimiter.evicted) {
+          hostLimiter.lastUsed = now;
+          return hostLimiter.limiter.tryAcquire();
+        }
+      }
+    }
+  }
+
+  /**
+   * Marks a request to a host as no longer in flight.
+   *
+   * @param host    the host of the request
+   * @param outcome the outcome of the request
+   * @param latency the latency of the request in nanoseconds, or a negative
+   *                value if unknown
+   */
+  public void release(final String host, final ConcurrencyLimiter.Outcome outcome, final long latency) {
+    final HostLimiter hostLimiter = limiters.get(host);
+    if (hostLimiter == null) {
+      throw new IllegalStateException("No request in flight to host " + host + ".");
+    }
+    hostLimiter.lastUsed = System.nanoTime();
+    hostLimiter.limiter.release(outcome, latency);
+  }
+
+  /**
+   * Get the current limit of requests in flight to a host.
+   *
+   * @param host the host
+   * @return the current limit
+   */
+  public int getLimit(final String host) {
+    final HostLimiter hostLimiter = limiters.get(host);
+    return hostLimiter == null ? defaultLimit : hostLimiter.limiter.getLimit();
+  }
+
+  /**
+   * Get the number of requests in flight to a host.
+   *
+   * @param host the host
+   * @return the number of requests in flight
+   */
+  public int getInFlight(final String host) {
+    final HostLimiter hostLimiter = limiters.get(host);
+    return hostLimiter == null ? 0 : hostLimiter.limiter.getInFlight();
+  }
+
+  /**
+   * Get the number of hosts with a limiter.
+   *
+   * @return the number of hosts
+   */
+  public int getHostCount() {
+    return limiters.size();
+  }
+
+  /**
+   * The limiter of a host.
+   */
+  private static final class HostLimiter {
+
+    /**
+     * The limiter of the host.
+     */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * The time in nanoseconds a request to the host was last acquired or
+     * released.
+     */
+    private volatile long lastUsed = System.nanoTime();
+
+    /**
+     * Whether this limiter is evicted, guarded by this.
+     */
+    private boolean evicted;
+
+    /**
+     * Constructs an instance of HostLimiter.
+     *
+     * @param limiter the limiter of the host
+     */
+    private HostLimiter(final ConcurrencyLimiter limiter) {
+      this.limiter = limiter;
+    }
+
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class provides a metric that counts up.
+ *
+ * @author Ween Jiann Lee
+ */
+public final class Counter extends Metric {
+
+  /**
+   * The count.
+   */
+  private final LongAdder count = new LongAdder();
+
+  /**
+   * Constructs an instance of counter.
+   *
+   * @param name the name of this metric
+   * @param help the description of this metric
+   */
+  Counter(final String name, final String help) {
+    super(name, help);
+  }
+
+  /**
+   * Increment the count by one.
+   */
+  public void inc() {
+    count.increment();
+  }
+
+  /**
+   * Increment the count.
+   *
+   * @param amount the amount to add
+   */
+  public void inc(final long amount) {
+    count.add(amount);
+  }
+
+  /**
+   * Get the count.
+   *
+   * @return the count
+   */
+  public long get() {
+    return count.sum();
+  }
+
+  @Override
+  public String getType() {
+    return "counter";
+  }
+
+  @Override
+  public void collect(final Map<String, Double> samples) {
+    samples.put(getName(), (double) get());
+  }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * This class provides a metric that reads its value when collected.
+ *
+ * @author Ween Jiann Lee
+ */
+public final class Gauge extends Metric {
+
+  /**
+   * The supplier of the value.
+   */
+  private final DoubleSupplier supplier;
+
+  /**
+   * Constructs an instance of gauge.
+   *
+   * @param name     the name of this metric
+   * @param help     the description of this metric
+   * @param supplier the supplier of the value
+   */
+  Gauge(final String name, final String help, final DoubleSupplier supplier) {
+    super(name, help);
+    this.supplier = supplier;
+  }
+
+  /**
+   * Get the value.
+   *
+   * @return the value
+   */
+  public double get() {
+    return supplier.getAsDouble();
+  }
+
+  @Override
+  public String getType() {
+    return "gauge";
+  }
+
+  @Override
+  public void collect(final Map<String, Double> samples) {
+    samples.put(getName(), get());
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class provides a metric that counts observations, such as
+ * durations in seconds, in buckets.
+ *
+ * @author Ween Jiann Lee
+ */
+public final class Histogram extends Metric {
+
+  /**
+   * The default upper bounds of buckets, suitable for durations in seconds.
+   */
+  static final double[] DEFAULT_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+  /**
+   * The upper bounds of buckets, in ascending order.
+   */
+  private final double[] bounds;
+
+  /**
+   * The number of observations in each bucket, the last for values
+   * above all bounds.
+   */
+  private final LongAdder[] counts;
+
+  /**
+   * The sum of observations.
+   */
+  private final DoubleAdder sum = new DoubleAdder();
+
+  /**
+   * Constructs an instance of histogram.
+   *
+   * @param name   the name of this metric
+   * @param help   the description of this metric
+   * @param bounds the upper bounds of buckets
+   */
+  Histogram(final String name, final String help, final double[] bounds) {
+    super(name, help);
+    this.bounds = bounds.clone();
+    Arrays.sort(this.bounds);
+    this.counts = new LongAdder[this.bounds.length + 1];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Record an observation.
+   *
+   * @param value the value observed
+   */
+  public void observe(final double value) {
+    int i = Arrays.binarySearch(bounds, value);
+    if (i < 0) {
+      i = -i - 1;
+    }
+    counts[i].increment();
+    sum.add(value);
+  }
+
+  /**
+   * Record a duration in seconds.
+   *
+   * @param nanos the duration in nanoseconds
+   */
+  public void observeNanos(final long nanos) {
+    observe((double) nanos / TimeUnit.SECONDS.toNanos(1));
+  }
+
+  /**
+   * Get the number of observations.
+   *
+   * @return the number of observations
+   */
+  public long getCount() {
+    long count = 0;
+    for (final LongAdder bucket : counts) {
+      count += bucket.sum();
+    }
+    return count;
+  }
+
+  /**
+   * Get the sum of observations.
+   *
+   * @return the sum of observations
+   */
+  public double getSum() {
+    return sum.sum();
+  }
+
+  @Override
+  public String getType() {
+    return "histogram";
+  }
+
+  @Override
+  public void collect(final Map<String, Double> samples) {
+    long cumulative = 0;
+    for (int i = 0; i < bounds.length; i++) {
+      cumulative += counts[i].sum();
+      samples.put(getName() + "_bucket{le=\"" + bounds[i] + "\"}", (double) cumulative);
+    }
+    cumulative += counts[bounds.length].sum();
+    samples.put(getName() + "_bucket{le=\"+Inf\"}", (double) cumulative);
+    samples.put(getName() + "_sum", getSum());
+    samples.put(getName() + "_count", (double) cumulative);
+  }
+
+}
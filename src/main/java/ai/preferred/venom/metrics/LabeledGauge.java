@@ -0,0 +1,66 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * This class provides a metric that reads a value for each value of a
+ * label when collected, such as a value for each route.
+ *
+ * @author Ween Jiann Lee
+ */
+public final class LabeledGauge extends Metric {
+
+  /**
+   * The name of the label.
+   */
+  private final String labelName;
+
+  /**
+   * The supplier of values keyed by label value.
+   */
+  private final Supplier<Map<String, ? extends Number>> supplier;
+
+  /**
+   * Constructs an instance of labeled gauge.
+   *
+   * @param name      the name of this metric
+   * @param help      the description of this metric
+   * @param labelName the name of the label
+   * @param supplier  the supplier of values keyed by label value
+   */
+  LabeledGauge(final String name, final String help, final String labelName,
+               final Supplier<Map<String, ? extends Number>> supplier) {
+    super(name, help);
+    this.labelName = checkName(labelName);
+    this.supplier = supplier;
+  }
+
+  @Override
+  public String getType() {
+    return "gauge";
+  }
+
+  @Override
+  public void collect(final Map<String, Double> samples) {
+    supplier.get().forEach((label, value) ->
+        samples.put(getName() + "{" + labelName + "=\"" + escapeLabel(label) + "\"}", value.doubleValue()));
+  }
+
+}
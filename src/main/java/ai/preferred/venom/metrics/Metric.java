@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * This class represents a named metric that can be collected into samples.
+ *
+ * @author Ween Jiann Lee
+ */
+public abstract class Metric {
+
+  /**
+   * The pattern of valid metric and label names.
+   */
+  private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+
+  /**
+   * The name of this metric.
+   */
+  private final String name;
+
+  /**
+   * The description of this metric.
+   */
+  private final String help;
+
+  /**
+   * Constructs an instance of metric.
+   *
+   * @param name the name of this metric
+   * @param help the description of this metric
+   */
+  Metric(final String name, final String help) {
+    this.name = checkName(name);
+    this.help = help;
+  }
+
+  /**
+   * Check that a metric or label name is valid.
+   *
+   * @param name the name to check
+   * @return the name
+   */
+  static String checkName(final String name) {
+    if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+      throw new IllegalArgumentException("Invalid metric name: " + name);
+    }
+    return name;
+  }
+
+  /**
+   * Escape a label value for use in a sample name.
+   *
+   * @param value the label value
+   * @return the escaped label value
+   */
+  static String escapeLabel(final String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  /**
+   * Get the name of this metric.
+   *
+   * @return the name of this metric
+   */
+  public final String getName() {
+    return name;
+  }
+
+  /**
+   * Get the description of this metric.
+   *
+   * @return the description of this metric
+   */
+  public final String getHelp() {
+    return help;
+  }
+
+  /**
+   * Get the Prometheus type of this metric.
+   *
+   * @return the type of this metric
+   */
+  public abstract String getType();
+
+  /**
+   * Collect the current samples of this metric, keyed by the sample
+   * name including its labels.
+   *
+   * @param samples the map to put samples into
+   */
+  public abstract void collect(Map<String, Double> samples);
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class serves the samples of a metrics registry in the Prometheus
+ * text format at {@code /metrics}, using the HTTP server built into the JDK.
+ *
+ * @author Ween Jiann Lee
+ */
+public final class MetricsHttpServer implements AutoCloseable {
+
+  /**
+   * The content type of the Prometheus text format.
+   */
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  /**
+   * The registry to serve.
+   */
+  private final MetricsRegistry registry;
+
+  /**
+   * The HTTP server.
+   */
+  private final HttpServer server;
+
+  /**
+   * Constructs and starts an instance of MetricsHttpServer.
+   *
+   * @param registry the registry to serve
+   * @param address  the address to listen on, port 0 for any free port
+   * @throws IOException if the server cannot be started
+   */
+  public MetricsHttpServer(final MetricsRegistry registry, final InetSocketAddress address) throws IOException {
+    this.registry = registry;
+    this.server = HttpServer.create(address, 0);
+    server.createContext("/metrics", this::handle);
+    server.start();
+  }
+
+  /**
+   * Constructs and starts an instance of MetricsHttpServer on all
+   * interfaces.
+   *
+   * @param registry the registry to serve
+   * @param port     the port to listen on, 0 for any free port
+   * @throws IOException if the server cannot be started
+   */
+  public MetricsHttpServer(final MetricsRegistry registry, final int port) throws IOException {
+    this(registry, new InetSocketAddress(port));
+  }
+
+  /**
+   * Handle a request for metrics.
+   *
+   * @param exchange the exchange to respond to
+   * @throws IOException if the response cannot be written
+   */
+  private void handle(final HttpExchange exchange) throws IOException {
+    try {
+      final byte[] body = registry.toPrometheus().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      if ("HEAD".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(200, -1);
+        return;
+      }
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Get the port the server is listening on.
+   *
+   * @return the port
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+}
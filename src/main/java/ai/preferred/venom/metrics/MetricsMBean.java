@@ -0,0 +1,133 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+/**
+ * This class exposes the samples of a metrics registry as read-only
+ * attributes of a JMX MBean.
+ *
+ * @author Ween Jiann Lee
+ */
+public final class MetricsMBean implements DynamicMBean {
+
+  /**
+   * The domain of the MBeans registered.
+   */
+  private static final String DOMAIN = "ai.preferred.venom";
+
+  /**
+   * The registry to expose.
+   */
+  private final MetricsRegistry registry;
+
+  /**
+   * Constructs an instance of MetricsMBean.
+   *
+   * @param registry the registry to expose
+   */
+  public MetricsMBean(final MetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Register a registry to the platform MBean server.
+   *
+   * @param registry the registry to expose
+   * @param name     the name to register the registry under, such as the crawler name
+   * @return the object name registered
+   * @throws JMException if the MBean cannot be registered
+   */
+  public static ObjectName register(final MetricsRegistry registry, final String name) throws JMException {
+    final ObjectName objectName = new ObjectName(DOMAIN, "name", ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(registry), objectName);
+    return objectName;
+  }
+
+  /**
+   * Unregister a registry from the platform MBean server.
+   *
+   * @param objectName the object name registered
+   * @throws JMException if the MBean cannot be unregistered
+   */
+  public static void unregister(final ObjectName objectName) throws JMException {
+    final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    if (server.isRegistered(objectName)) {
+      server.unregisterMBean(objectName);
+    }
+  }
+
+  @Override
+  public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+    final Double value = registry.collect().get(attribute);
+    if (value == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return value;
+  }
+
+  @Override
+  public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+  }
+
+  @Override
+  public AttributeList getAttributes(final String[] attributes) {
+    final Map<String, Double> samples = registry.collect();
+    final AttributeList list = new AttributeList();
+    for (final String attribute : attributes) {
+      final Double value = samples.get(attribute);
+      if (value != null) {
+        list.add(new Attribute(attribute, value));
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public AttributeList setAttributes(final AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(final String actionName, final Object[] params, final String[] signature) {
+    throw new UnsupportedOperationException("Metrics do not support operations.");
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    final Map<String, Double> samples = registry.collect();
+    final MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[samples.size()];
+    int i = 0;
+    for (final String sample : samples.keySet()) {
+      attributes[i++] = new MBeanAttributeInfo(sample, Double.class.getName(), sample, true, false, false);
+    }
+    return new MBeanInfo(getClass().getName(), "Venom crawler metrics.", attributes, null, null, null);
+  }
+
+}
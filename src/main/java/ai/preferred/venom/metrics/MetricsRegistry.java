@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * This class holds the metrics of a crawler, and exports them in the
+ * Prometheus text format.
+ * <p>
+ * Counters and histograms are shared by name, so components given the same
+ * registry add to the same metric. Gauges replace any gauge of the same name.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class MetricsRegistry {
+
+  /**
+   * The metrics registered, keyed by name.
+   */
+  private final ConcurrentMap<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+  /**
+   * Get a metric of a type, registering it if absent.
+   *
+   * @param name    the name of the metric
+   * @param type    the class of the metric
+   * @param factory the factory to create the metric
+   * @param <T>     the type of the metric
+   * @return the metric registered
+   */
+  private <T extends Metric> T getOrRegister(final String name, final Class<T> type, final Supplier<T> factory) {
+    final Metric metric = metrics.computeIfAbsent(name, key -> factory.get());
+    if (!type.isInstance(metric)) {
+      throw new IllegalArgumentException("Metric " + name + " is already registered as a " + metric.getType() + ".");
+    }
+    return type.cast(metric);
+  }
+
+  /**
+   * Get a counter, registering it if absent.
+   *
+   * @param name the name of the counter
+   * @param help the description of the counter
+   * @return the counter
+   */
+  public Counter counter(final String name, final String help) {
+    return getOrRegister(name, Counter.class, () -> new Counter(name, help));
+  }
+
+  /**
+   * Get a histogram with buckets suitable for durations in seconds,
+   * registering it if absent.
+   *
+   * @param name the name of the histogram
+   * @param help the description of the histogram
+   * @return the histogram
+   */
+  public Histogram histogram(final String name, final String help) {
+    return histogram(name, help, Histogram.DEFAULT_BUCKETS);
+  }
+
+  /**
+   * Get a histogram, registering it if absent.
+   *
+   * @param name    the name of the histogram
+   * @param help    the description of the histogram
+   * @param buckets the upper bounds of buckets
+   * @return the histogram
+   */
+  public Histogram histogram(final String name, final String help, final double... buckets) {
+    return getOrRegister(name, Histogram.class, () -> new Histogram(name, help, buckets));
+  }
+
+  /**
+   * Register a gauge, replacing any metric of the same name.
+   *
+   * @param name     the name of the gauge
+   * @param help     the description of the gauge
+   * @param supplier the supplier of the value
+   * @return the gauge
+   */
+  public Gauge gauge(final String name, final String help, final DoubleSupplier supplier) {
+    final Gauge gauge = new Gauge(name, help, supplier);
+    metrics.put(name, gauge);
+    return gauge;
+  }
+
+  /**
+   * Register a gauge with a value for each value of a label, replacing any
+   * metric of the same name.
+   *
+   * @param name      the name of the gauge
+   * @param help      the description of the gauge
+   * @param labelName the name of the label
+   * @param supplier  the supplier of values keyed by label value
+   * @return the gauge
+   */
+  public LabeledGauge labeledGauge(final String name, final String help, final String labelName,
+                                   final Supplier<Map<String, ? extends Number>> supplier) {
+    final LabeledGauge gauge = new LabeledGauge(name, help, labelName, supplier);
+    metrics.put(name, gauge);
+    return gauge;
+  }
+
+  /**
+   * Remove a metric.
+   *
+   * @param name the name of the metric
+   */
+  public void remove(final String name) {
+    metrics.remove(name);
+  }
+
+  /**
+   * Get the metrics registered, ordered by name.
+   *
+   * @return the metrics registered
+   */
+  public Collection<Metric> getMetrics() {
+    return Collections.unmodifiableCollection(metrics.values());
+  }
+
+  /**
+   * Collect the current samples of all metrics, keyed by the sample name
+   * including its labels.
+   *
+   * @return the samples collected
+   */
+  public Map<String, Double> collect() {
+    final Map<String, Double> samples = new LinkedHashMap<>();
+    for (final Metric metric : metrics.values()) {
+      metric.collect(samples);
+    }
+    return samples;
+  }
+
+  /**
+   * Write the current samples of all metrics in the Prometheus text format.
+   *
+   * @param writer the writer to write to
+   * @throws IOException if an I/O error occurs
+   */
+  public void writePrometheus(final Writer writer) throws IOException {
+    final Map<String, Double> samples = new LinkedHashMap<>();
+    for (final Metric metric : metrics.values()) {
+      samples.clear();
+      metric.collect(samples);
+      if (metric.getHelp() != null) {
+        writer.write("# HELP " + metric.getName() + " "
+            + metric.getHelp().replace("\\", "\\\\").replace("\n", "\\n") + "\n");
+      }
+      writer.write("# TYPE " + metric.getName() + " " + metric.getType() + "\n");
+      for (final Map.Entry<String, Double> sample : samples.entrySet()) {
+        writer.write(sample.getKey() + " " + formatValue(sample.getValue()) + "\n");
+      }
+    }
+  }
+
+  /**
+   * Get the current samples of all metrics in the Prometheus text format.
+   *
+   * @return the samples in the Prometheus text format
+   */
+  public String toPrometheus() {
+    final StringWriter writer = new StringWriter();
+    try {
+      writePrometheus(writer);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return writer.toString();
+  }
+
+  /**
+   * Format a sample value in the Prometheus text format.
+   *
+   * @param value the value
+   * @return the formatted value
+   */
+  private static String formatValue(final double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    } else if (Double.isInfinite(value)) {
+      return value > 0 ? "+Inf" : "-Inf";
+    } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+}
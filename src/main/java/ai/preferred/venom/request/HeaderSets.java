@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.request;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class interns the header sets of requests, so that requests
+ * created with equal headers share one immutable map.
+ * <p>
+ * Seeds and extracted links usually carry the same few header sets,
+ * if any. Interning these keeps a large in-memory frontier from
+ * holding one map per queued request. Interned maps are weakly held
+ * and collected once no request refers to them.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class HeaderSets {
+
+  /**
+   * The pool of interned header sets.
+   */
+  private static final Interner<ImmutableMap<String, String>> INTERNER = Interners.newWeakInterner();
+
+  /**
+   * Prevent construction of header sets.
+   */
+  private HeaderSets() {
+  }
+
+  /**
+   * Returns an immutable header set equal to the headers specified,
+   * shared with all other header sets interned with equal headers.
+   * <p>
+   * Header sets containing a {@code null} name or value are copied
+   * but not interned.
+   * </p>
+   *
+   * @param headers the headers to intern.
+   * @return an immutable map of the headers.
+   */
+  public static Map<String, String> intern(final Map<String, String> headers) {
+    if (headers.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    if (headers instanceof ImmutableMap) {
+      return INTERNER.intern((ImmutableMap<String, String>) headers);
+    }
+    for (final Map.Entry<String, String> header : headers.entrySet()) {
+      if (header.getKey() == null || header.getValue() == null) {
+        return Collections.unmodifiableMap(new HashMap<>(headers));
+      }
+    }
+    return INTERNER.intern(ImmutableMap.copyOf(headers));
+  }
+
+}
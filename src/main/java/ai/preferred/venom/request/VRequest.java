@@ -41,7 +41,7 @@ public class VRequest implements Request {
    */
   private final String url;
   /**
-   * The headers to append to global headers.
+   * The interned headers to append to global headers.
    */
   private final Map<String, String> headers;
   /**
@@ -73,7 +73,7 @@ public class VRequest implements Request {
    * @param headers The headers to append for this request
    */
   public VRequest(final String url, final Map<String, String> headers) {
-    this(Method.GET, url, new HashMap<>(headers), null, null, null);
+    this(Method.GET, url, HeaderSets.intern(headers), null, null, null);
   }
 
   /**
@@ -84,7 +84,7 @@ public class VRequest implements Request {
   protected VRequest(final Builder<?> builder) {
     this(builder.method == null ? Method.GET : builder.method,
         builder.url,
-        new HashMap<>(builder.headers),
+        HeaderSets.intern(builder.headers),
         builder.body,
         builder.scheduler,
         builder.proxy
@@ -139,7 +139,7 @@ public class VRequest implements Request {
 
   @Override
   public final Map<String, String> getHeaders() {
-    return Collections.unmodifiableMap(headers);
+    return headers;
   }
 
   @Override
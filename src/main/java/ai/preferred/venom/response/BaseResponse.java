@@ -21,6 +21,7 @@ import org.apache.http.HttpHost;
 import org.apache.http.entity.ContentType;
 
 import javax.validation.constraints.NotNull;
+import java.nio.ByteBuffer;
 
 /**
  * @author Maksim Tkachenko
@@ -37,7 +38,15 @@ public class BaseResponse implements Response {
   /**
    * The content of this response.
    */
-  private final byte[] content;
+  private final ByteBuffer contentBuffer;
+
+  /**
+   * The content of this response as a byte array.
+   * <p>
+   * Use getContent() to retrieve.
+   * </p>
+   */
+  private volatile byte[] content;
 
   /**
    * The content type of this response.
@@ -71,14 +80,53 @@ public class BaseResponse implements Response {
    */
   public BaseResponse(final int statusCode, final String url, final byte[] content, final ContentType contentType,
                       final Header[] headers, final HttpHost proxy) {
+    this(statusCode, url, content, content == null ? null : ByteBuffer.wrap(content), contentType, headers, proxy);
+  }
+
+  /**
+   * Constructs a base response.
+   *
+   * @param statusCode    Status code of the response
+   * @param url           Base url of the response
+   * @param content       Content from the response as a byte array, if available
+   * @param contentBuffer Content from the response
+   * @param contentType   Content type of the response
+   * @param headers       Headers from the response
+   * @param proxy         Proxy used to obtain the response
+   */
+  private BaseResponse(final int statusCode, final String url, final byte[] content, final ByteBuffer contentBuffer,
+                       final ContentType contentType, final Header[] headers, final HttpHost proxy) {
     this.statusCode = statusCode;
     this.url = url;
     this.content = content;
+    this.contentBuffer = contentBuffer;
     this.contentType = contentType;
     this.headers = headers;
     this.proxy = proxy;
   }
 
+  /**
+   * Creates a base response with content in a byte buffer.
+   * <p>
+   * The remaining bytes of the buffer are the content, the buffer
+   * should not be modified after this. The content is only copied to a
+   * byte array if {@link #getContent()} is called and the buffer does
+   * not span a whole array.
+   * </p>
+   *
+   * @param statusCode  Status code of the response
+   * @param url         Base url of the response
+   * @param content     Content from the response
+   * @param contentType Content type of the response
+   * @param headers     Headers from the response
+   * @param proxy       Proxy used to obtain the response
+   * @return A new instance of base response
+   */
+  public static BaseResponse wrap(final int statusCode, final String url, final ByteBuffer content,
+                                  final ContentType contentType, final Header[] headers, final HttpHost proxy) {
+    return new BaseResponse(statusCode, url, null, content.slice(), contentType, headers, proxy);
+  }
+
   @Override
   public final int getStatusCode() {
     return statusCode;
@@ -86,7 +134,23 @@ public class BaseResponse implements Response {
 
   @Override
   public final byte[] getContent() {
-    return content;
+    byte[] result = content;
+    if (result == null && contentBuffer != null) {
+      if (contentBuffer.hasArray() && contentBuffer.arrayOffset() == 0
+          && contentBuffer.remaining() == contentBuffer.array().length) {
+        result = contentBuffer.array();
+      } else {
+        result = new byte[contentBuffer.remaining()];
+        contentBuffer.duplicate().get(result);
+      }
+      content = result;
+    }
+    return result;
+  }
+
+  @Override
+  public final ByteBuffer getContentBuffer() {
+    return contentBuffer == null ? null : contentBuffer.asReadOnlyBuffer();
   }
 
   @Override
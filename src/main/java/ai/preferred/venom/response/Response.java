@@ -22,6 +22,7 @@ import org.apache.http.entity.ContentType;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
+import java.nio.ByteBuffer;
 
 /**
  * @author Maksim Tkachenko
@@ -44,6 +45,21 @@ public interface Response {
    */
   byte[] getContent();
 
+  /**
+   * Returns a read-only view of the raw content of the response.
+   * <p>
+   * Unlike {@link #getContent()}, this does not require the content
+   * to be held in a byte array of its own. Each call returns a new
+   * view positioned at the start of the content.
+   * </p>
+   *
+   * @return a read-only byte buffer of the content
+   */
+  default ByteBuffer getContentBuffer() {
+    final byte[] content = getContent();
+    return content == null ? null : ByteBuffer.wrap(content).asReadOnlyBuffer();
+  }
+
   /**
    * Returns the content type of the content fetched.
    * <p>
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.response;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHost;
+import org.apache.http.entity.ContentType;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.NotNull;
+
+/**
+ * This class holds the status line and headers of a response, as
+ * received before its content.
+ *
+ * @author Ween Jiann Lee
+ */
+public final class ResponseHead {
+
+  /**
+   * The status code of the response.
+   */
+  private final int statusCode;
+
+  /**
+   * The url of the request leading to the response.
+   */
+  private final String url;
+
+  /**
+   * The headers of the response.
+   */
+  private final Header[] headers;
+
+  /**
+   * The declared length of the content.
+   */
+  private final long contentLength;
+
+  /**
+   * The declared content type.
+   */
+  private final ContentType contentType;
+
+  /**
+   * The proxy used to obtain the response.
+   */
+  private final HttpHost proxy;
+
+  /**
+   * Constructs a response head.
+   *
+   * @param statusCode    Status code of the response
+   * @param url           Url of the request leading to the response
+   * @param headers       Headers of the response
+   * @param contentLength Declared length of the content, or negative if unknown
+   * @param contentType   Declared content type, or null if none
+   * @param proxy         Proxy used to obtain the response
+   */
+  public ResponseHead(final int statusCode, final String url, final Header[] headers, final long contentLength,
+                      final ContentType contentType, final HttpHost proxy) {
+    this.statusCode = statusCode;
+    this.url = url;
+    this.headers = headers;
+    this.contentLength = contentLength;
+    this.contentType = contentType;
+    this.proxy = proxy;
+  }
+
+  /**
+   * Returns status code of the response.
+   *
+   * @return int code
+   */
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  /**
+   * Returns the url of the request leading to the response, before any
+   * redirection.
+   *
+   * @return url of the request
+   */
+  @NotNull
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Returns the headers of the response.
+   *
+   * @return an array of headers
+   */
+  @NotNull
+  public Header[] getHeaders() {
+    return headers;
+  }
+
+  /**
+   * Returns the length of the content declared by the server. If the
+   * content is compressed, this is the compressed length.
+   *
+   * @return length of the content, or negative if unknown
+   */
+  public long getContentLength() {
+    return contentLength;
+  }
+
+  /**
+   * Returns the content type declared by the server.
+   *
+   * @return an instance of ContentType, or null if none is declared
+   */
+  @Nullable
+  public ContentType getContentType() {
+    return contentType;
+  }
+
+  /**
+   * Returns the proxy that was used to obtain the response.
+   *
+   * @return proxy used
+   */
+  @Nullable
+  public HttpHost getProxy() {
+    return proxy;
+  }
+
+}
@@ -23,6 +23,7 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 
 import javax.validation.constraints.NotNull;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
@@ -62,6 +63,11 @@ public class VResponse implements Response, Unwrappable {
     return getInner().getContent();
   }
 
+  @Override
+  public final ByteBuffer getContentBuffer() {
+    return getInner().getContentBuffer();
+  }
+
   @Override
   public final @NotNull ContentType getContentType() {
     return getInner().getContentType();
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.seed;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * This class streams seed requests from the rows of a query, reading
+ * rows from a cursor in batches of the fetch size.
+ * <p>
+ * Whether rows are streamed depends on the driver: MariaDB streams with
+ * a positive fetch size, MySQL Connector/J streams with a fetch size of
+ * {@link Integer#MIN_VALUE}, and PostgreSQL streams only if auto-commit
+ * is disabled on the connection. The connection is not closed with
+ * this source.
+ * </p>
+ * <p>
+ * The offset of this source is the number of rows read. The rows skipped
+ * to resume are still read from the cursor, so a query that starts from
+ * a saved key, such as {@code WHERE id > ? ORDER BY id}, resumes faster.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class JdbcSeedSource extends SeedSource {
+
+  /**
+   * The default number of rows to fetch in a batch.
+   */
+  public static final int DEFAULT_FETCH_SIZE = 1000;
+
+  /**
+   * The statement of the query.
+   */
+  private final PreparedStatement statement;
+
+  /**
+   * The cursor of the query.
+   */
+  private final ResultSet resultSet;
+
+  /**
+   * The function to map a row to a request.
+   */
+  private final RowMapper mapper;
+
+  /**
+   * The number of rows read.
+   */
+  private long rows;
+
+  /**
+   * Constructs an instance of JdbcSeedSource.
+   *
+   * @param connection The connection to query.
+   * @param sql        The query of seeds.
+   * @param fetchSize  The number of rows to fetch in a batch.
+   * @param offset     The number of rows to skip.
+   * @param mapper     The function to map a row to a request, returning null to skip the row.
+   * @throws IOException if the query fails.
+   */
+  public JdbcSeedSource(final @NotNull Connection connection, final @NotNull String sql, final int fetchSize,
+                        final long offset, final @NotNull RowMapper mapper) throws IOException {
+    super(offset);
+    this.mapper = mapper;
+    PreparedStatement preparedStatement = null;
+    try {
+      preparedStatement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      preparedStatement.setFetchSize(fetchSize);
+      this.statement = preparedStatement;
+      this.resultSet = preparedStatement.executeQuery();
+      while (rows < offset && resultSet.next()) {
+        rows++;
+      }
+    } catch (final SQLException e) {
+      if (preparedStatement != null) {
+        try {
+          preparedStatement.close();
+        } catch (final SQLException suppressed) {
+          e.addSuppressed(suppressed);
+        }
+      }
+      throw new IOException("Unable to query seeds.", e);
+    }
+  }
+
+  /**
+   * Constructs an instance of JdbcSeedSource, of urls in the first column.
+   *
+   * @param connection The connection to query.
+   * @param sql        The query of seeds.
+   * @param offset     The number of rows to skip.
+   * @throws IOException if the query fails.
+   */
+  public JdbcSeedSource(final @NotNull Connection connection, final @NotNull String sql, final long offset)
+      throws IOException {
+    this(connection, sql, DEFAULT_FETCH_SIZE, offset, resultSet -> new VRequest(resultSet.getString(1)));
+  }
+
+  @Override
+  protected Request read() throws IOException {
+    try {
+      while (resultSet.next()) {
+        rows++;
+        final Request request = mapper.map(resultSet);
+        if (request != null) {
+          return request;
+        }
+      }
+      return null;
+    } catch (final SQLException e) {
+      throw new IOException("Unable to read seeds.", e);
+    }
+  }
+
+  @Override
+  protected long position() {
+    return rows;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      statement.close();
+    } catch (final SQLException e) {
+      throw new IOException("Unable to close query.", e);
+    }
+  }
+
+  /**
+   * An interface to map a row to a request.
+   */
+  @FunctionalInterface
+  public interface RowMapper {
+
+    /**
+     * Maps the current row of a result set to a request.
+     *
+     * @param resultSet The result set.
+     * @return a request, or null to skip the row.
+     * @throws SQLException if a column cannot be read.
+     */
+    Request map(ResultSet resultSet) throws SQLException;
+
+  }
+
+}
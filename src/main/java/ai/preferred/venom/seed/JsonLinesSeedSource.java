@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.seed;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * This class streams seed requests from a file of JSON objects, one per
+ * line, which may be gzip compressed.
+ * <p>
+ * Each object has a {@code url}, and may have a {@code method}, which
+ * defaults to GET, an object of {@code headers} and a {@code body}, for
+ * example {@code {"url": "https://preferred.ai", "method": "POST",
+ * "headers": {"Content-Type": "text/plain"}, "body": "text"}}. Blank
+ * and malformed lines are skipped.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class JsonLinesSeedSource extends LineSeedSource {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(JsonLinesSeedSource.class);
+
+  /**
+   * Constructs an instance of JsonLinesSeedSource.
+   *
+   * @param file   The file to read, plain or gzip compressed.
+   * @param offset The number of lines to skip.
+   * @throws IOException if the file cannot be opened.
+   */
+  public JsonLinesSeedSource(final @NotNull Path file, final long offset) throws IOException {
+    super(file, offset, JsonLinesSeedSource::toRequest);
+  }
+
+  /**
+   * Constructs an instance of JsonLinesSeedSource.
+   *
+   * @param file The file to read, plain or gzip compressed.
+   * @throws IOException if the file cannot be opened.
+   */
+  public JsonLinesSeedSource(final @NotNull Path file) throws IOException {
+    this(file, 0);
+  }
+
+  /**
+   * Maps a line of JSON to a request.
+   *
+   * @param line The line.
+   * @return a request, or null if the line is blank or malformed.
+   */
+  private static Request toRequest(final String line) {
+    if (line.trim().isEmpty()) {
+      return null;
+    }
+    try {
+      final JSONObject object = new JSONObject(line);
+      final Request.Method method = Request.Method.valueOf(object.optString("method", "GET").toUpperCase(Locale.ROOT));
+      final VRequest.Builder<?> builder = VRequest.build(method, object.getString("url"));
+      final JSONObject headers = object.optJSONObject("headers");
+      if (headers != null) {
+        for (final String name : headers.keySet()) {
+          builder.addHeader(name, headers.getString(name));
+        }
+      }
+      if (object.has("body")) {
+        builder.setBody(object.getString("body"));
+      }
+      return builder.build();
+    } catch (final JSONException | IllegalArgumentException e) {
+      LOGGER.warn("Skipping malformed seed: {}", line, e);
+      return null;
+    }
+  }
+
+}
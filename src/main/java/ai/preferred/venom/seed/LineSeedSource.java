@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.seed;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+
+import javax.validation.constraints.NotNull;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * This class streams seed requests from the lines of a text file, which
+ * may be gzip compressed.
+ * <p>
+ * By default, each line is the url of a GET request, and blank lines
+ * and lines starting with {@code #} are skipped. The offset of this
+ * source is the number of lines read.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public class LineSeedSource extends SeedSource {
+
+  /**
+   * The size of the read buffer.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The reader of the file.
+   */
+  private final BufferedReader reader;
+
+  /**
+   * The function to map a line to a request, or null to skip the line.
+   */
+  private final Function<String, Request> mapper;
+
+  /**
+   * The number of lines read.
+   */
+  private long lines;
+
+  /**
+   * Constructs an instance of LineSeedSource.
+   *
+   * @param file   The file to read, plain or gzip compressed.
+   * @param offset The number of lines to skip.
+   * @param mapper The function to map a line to a request, returning null to skip the line.
+   * @throws IOException if the file cannot be opened.
+   */
+  public LineSeedSource(final @NotNull Path file, final long offset,
+                        final @NotNull Function<String, Request> mapper) throws IOException {
+    super(offset);
+    this.reader = open(file);
+    this.mapper = mapper;
+    try {
+      while (lines < offset && reader.readLine() != null) {
+        lines++;
+      }
+    } catch (final IOException e) {
+      reader.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Constructs an instance of LineSeedSource of urls.
+   *
+   * @param file   The file to read, plain or gzip compressed.
+   * @param offset The number of lines to skip.
+   * @throws IOException if the file cannot be opened.
+   */
+  public LineSeedSource(final @NotNull Path file, final long offset) throws IOException {
+    this(file, offset, LineSeedSource::toRequest);
+  }
+
+  /**
+   * Constructs an instance of LineSeedSource of urls.
+   *
+   * @param file The file to read, plain or gzip compressed.
+   * @throws IOException if the file cannot be opened.
+   */
+  public LineSeedSource(final @NotNull Path file) throws IOException {
+    this(file, 0);
+  }
+
+  /**
+   * Opens a file for reading, decompressing it if it starts with the
+   * gzip magic number.
+   *
+   * @param file The file to open.
+   * @return a reader of the file.
+   * @throws IOException if the file cannot be opened.
+   */
+  private static BufferedReader open(final Path file) throws IOException {
+    InputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+    try {
+      in.mark(2);
+      final int first = in.read();
+      final int second = in.read();
+      in.reset();
+      if (first == (GZIPInputStream.GZIP_MAGIC & 0xFF) && second == (GZIPInputStream.GZIP_MAGIC >>> 8)) {
+        in = new GZIPInputStream(in, BUFFER_SIZE);
+      }
+    } catch (final IOException e) {
+      in.close();
+      throw e;
+    }
+    return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+
+  /**
+   * Maps a line to a GET request of its url.
+   *
+   * @param line The line.
+   * @return a request, or null if the line is blank or a comment.
+   */
+  private static Request toRequest(final String line) {
+    final String url = line.trim();
+    if (url.isEmpty() || url.startsWith("#")) {
+      return null;
+    }
+    return new VRequest(url);
+  }
+
+  @Override
+  protected final Request read() throws IOException {
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lines++;
+      final Request request = mapper.apply(line);
+      if (request != null) {
+        return request;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  protected final long position() {
+    return lines;
+  }
+
+  @Override
+  public final void close() throws IOException {
+    reader.close();
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.seed;
+
+import ai.preferred.venom.request.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class provides the skeleton of an iterator that streams seed
+ * requests from a source, without holding the source in memory.
+ * <p>
+ * The offset of a source is its position after the last request
+ * returned, such as the number of lines or rows read. A source
+ * constructed with an offset skips to that position, so that a crawl
+ * may be resumed from an offset saved earlier. The source is closed
+ * when it is read to the end.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public abstract class SeedSource implements Iterator<Request>, Closeable {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(SeedSource.class);
+
+  /**
+   * The next request to return.
+   */
+  private Request next;
+
+  /**
+   * The position after the next request.
+   */
+  private long nextOffset;
+
+  /**
+   * The position after the last request returned.
+   */
+  private volatile long offset;
+
+  /**
+   * Whether the source has been read to the end.
+   */
+  private boolean done;
+
+  /**
+   * Constructs an instance of SeedSource.
+   *
+   * @param offset The position the source starts from.
+   */
+  protected SeedSource(final long offset) {
+    if (offset < 0) {
+      throw new IllegalArgumentException("Offset must be more or equal to 0.");
+    }
+    this.offset = offset;
+  }
+
+  /**
+   * Reads the next request from the source.
+   *
+   * @return the next request, or null if the source is read to the end.
+   * @throws IOException if the source cannot be read.
+   */
+  protected abstract Request read() throws IOException;
+
+  /**
+   * Get the position of the source after the last request read.
+   *
+   * @return the position of the source.
+   */
+  protected abstract long position();
+
+  /**
+   * Close the source, logging any error.
+   */
+  private void closeQuietly() {
+    try {
+      close();
+    } catch (final IOException e) {
+      LOGGER.warn("Unable to close seed source.", e);
+    }
+  }
+
+  @Override
+  public final boolean hasNext() {
+    if (next != null) {
+      return true;
+    }
+    if (done) {
+      return false;
+    }
+    try {
+      next = read();
+    } catch (final IOException e) {
+      done = true;
+      closeQuietly();
+      throw new UncheckedIOException(e);
+    }
+    if (next == null) {
+      done = true;
+      closeQuietly();
+      return false;
+    }
+    nextOffset = position();
+    return true;
+  }
+
+  @Override
+  public final Request next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final Request request = next;
+    next = null;
+    offset = nextOffset;
+    return request;
+  }
+
+  /**
+   * Get the position after the last request returned, to resume from.
+   *
+   * @return the offset of this source.
+   */
+  public final long getOffset() {
+    return offset;
+  }
+
+}
@@ -0,0 +1,497 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.storage;
+
+import ai.preferred.venom.fetcher.Callback;
+import ai.preferred.venom.limiter.ConcurrencyLimiter;
+import ai.preferred.venom.metrics.Counter;
+import ai.preferred.venom.metrics.Histogram;
+import ai.preferred.venom.metrics.MetricsRegistry;
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.response.Response;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.validation.constraints.NotNull;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class implements a FileManager that stores the responses given to
+ * its callback in the background, using another file manager.
+ * <p>
+ * Responses are queued up to capacity and written by a fixed number of
+ * worker threads. The limiter returned by {@link #limit(ConcurrencyLimiter)}
+ * waits before a request is sent while the queue is at capacity, slowing
+ * the crawler down to the rate responses can be stored. The crawler uses
+ * it by default when its fetcher stores responses with this file manager.
+ * Should a response arrive while the queue is full nonetheless, it is
+ * written on the calling thread. Queued responses are written before the
+ * file manager closes.
+ * </p>
+ * <p>
+ * Calls to put and get go directly to the underlying file manager, and
+ * responses still queued cannot be retrieved.
+ * </p>
+ *
+ * @param <T> type of id
+ * @author Ween Jiann Lee
+ */
+public class AsyncFileManager<T> implements FileManager<T> {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(AsyncFileManager.class);
+
+  /**
+   * The default number of worker threads.
+   */
+  private static final int DEFAULT_WORKERS = 4;
+
+  /**
+   * The default number of responses queued per worker thread.
+   */
+  private static final int DEFAULT_QUEUE_FACTOR = 64;
+
+  /**
+   * The write telling a worker thread to stop.
+   */
+  private static final Write STOP = new Write(null, null);
+
+  /**
+   * The file manager to store responses with.
+   */
+  private final FileManager<T> fileManager;
+
+  /**
+   * The responses waiting to be written.
+   */
+  private final BlockingQueue<Write> queue;
+
+  /**
+   * The worker threads writing responses.
+   */
+  private final Thread[] workers;
+
+  /**
+   * The number of responses queued before requests are held back, and
+   * before responses are written on the calling thread.
+   */
+  private final int capacity;
+
+  /**
+   * The lock held to wait for the queue to drop below capacity.
+   */
+  private final Lock spaceLock = new ReentrantLock();
+
+  /**
+   * The condition signalled when the queue drops below capacity, or on close.
+   */
+  private final Condition space = spaceLock.newCondition();
+
+  /**
+   * The lock held to queue writes, and to close.
+   */
+  private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+  /**
+   * The callback to trigger upon response.
+   */
+  private final Callback callback;
+
+  /**
+   * The time responses spent queued, or null if not recorded.
+   */
+  private final Histogram queueWait;
+
+  /**
+   * The responses that could not be written, or null if not counted.
+   */
+  private final Counter failures;
+
+  /**
+   * Whether this file manager is closed.
+   */
+  private volatile boolean closed;
+
+  /**
+   * Constructs an instance of AsyncFileManager.
+   *
+   * @param fileManager the file manager to store responses with
+   * @param workers     the number of worker threads
+   * @param capacity    the maximum number of responses queued
+   * @param metrics     the metrics registry to record the queue to, or null if none
+   */
+  public AsyncFileManager(final FileManager<T> fileManager, final int workers, final int capacity,
+                          final MetricsRegistry metrics) {
+    if (fileManager == null) {
+      throw new IllegalArgumentException("File manager cannot be null.");
+    }
+    if (workers < 1) {
+      throw new IllegalArgumentException("Workers must be more or equal to 1.");
+    }
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be more or equal to 1.");
+    }
+    this.fileManager = fileManager;
+    this.queue = new LinkedBlockingQueue<>(capacity);
+    this.capacity = capacity;
+    this.callback = new WriteBehindCallback();
+
+    if (metrics != null) {
+      queueWait = metrics.histogram("venom_storage_queue_wait_seconds", "Time responses spent queued for storage.");
+      failures = metrics.counter("venom_storage_write_failures_total", "Responses that could not be stored.");
+      metrics.gauge("venom_storage_queued", "Responses queued for storage.", queue::size);
+      metrics.gauge("venom_storage_queue_lag_seconds", "Time the oldest queued response has waited for storage.",
+          this::getLag);
+    } else {
+      queueWait = null;
+      failures = null;
+    }
+
+    final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+        .setNameFormat("FileManager Writer %d")
+        .setDaemon(true)
+        .build();
+    this.workers = new Thread[workers];
+    for (int i = 0; i < workers; i++) {
+      this.workers[i] = threadFactory.newThread(this::work);
+      this.workers[i].start();
+    }
+  }
+
+  /**
+   * Constructs an instance of AsyncFileManager.
+   *
+   * @param fileManager the file manager to store responses with
+   * @param workers     the number of worker threads
+   * @param capacity    the maximum number of responses queued
+   */
+  public AsyncFileManager(final FileManager<T> fileManager, final int workers, final int capacity) {
+    this(fileManager, workers, capacity, null);
+  }
+
+  /**
+   * Constructs an instance of AsyncFileManager with 4 worker threads,
+   * holding requests back when 256 responses are queued.
+   *
+   * @param fileManager the file manager to store responses with
+   */
+  public AsyncFileManager(final FileManager<T> fileManager) {
+    this(fileManager, DEFAULT_WORKERS, DEFAULT_WORKERS * DEFAULT_QUEUE_FACTOR);
+  }
+
+  /**
+   * Get the number of responses queued.
+   *
+   * @return the number of responses queued
+   */
+  public final int getQueued() {
+    return queue.size();
+  }
+
+  /**
+   * Wraps a concurrency limiter so that it also waits while the queue of
+   * responses is at capacity, applying backpressure from storage.
+   *
+   * @param limiter the concurrency limiter to wrap
+   * @return the concurrency limiter
+   */
+  @Override
+  public final ConcurrencyLimiter limit(final @NotNull ConcurrencyLimiter limiter) {
+    return new BackpressureLimiter(limiter);
+  }
+
+  /**
+   * Check if the queue of responses is at capacity.
+   *
+   * @return true if requests should be held back
+   */
+  private boolean isFull() {
+    return !closed && queue.size() >= capacity;
+  }
+
+  /**
+   * Wakes the threads waiting for the queue to drop below capacity.
+   */
+  private void signalSpace() {
+    spaceLock.lock();
+    try {
+      space.signalAll();
+    } finally {
+      spaceLock.unlock();
+    }
+  }
+
+  /**
+   * Get the time in seconds the oldest queued response has waited.
+   *
+   * @return the time in seconds, or 0 if none is queued
+   */
+  public final double getLag() {
+    final Write oldest = queue.peek();
+    if (oldest == null || oldest == STOP) {
+      return 0;
+    }
+    return Math.max(0, System.nanoTime() - oldest.queuedAt) / 1e9;
+  }
+
+  /**
+   * Stores a response with the underlying file manager, logging any
+   * failure.
+   *
+   * @param write the response to store
+   */
+  private void write(final Write write) {
+    if (queueWait != null) {
+      queueWait.observeNanos(System.nanoTime() - write.queuedAt);
+    }
+    try {
+      fileManager.put(write.request, write.response);
+    } catch (StorageException | RuntimeException e) {
+      if (failures != null) {
+        failures.inc();
+      }
+      LOGGER.error("Unable to store response for {}", write.request.getUrl(), e);
+    }
+  }
+
+  /**
+   * Writes queued responses until told to stop.
+   */
+  private void work() {
+    while (true) {
+      final Write write;
+      try {
+        write = queue.take();
+      } catch (InterruptedException e) {
+        LOGGER.warn("Writer interrupted, queued responses are written on close.");
+        return;
+      }
+      if (write == STOP) {
+        return;
+      }
+      if (queue.size() < capacity) {
+        signalSpace();
+      }
+      write(write);
+    }
+  }
+
+  /**
+   * Queues a response to be stored without waiting. The response is
+   * stored on the calling thread if the queue is full, or if this file
+   * manager is closed.
+   *
+   * @param request  the request of the response
+   * @param response the response to store
+   */
+  private void enqueue(final Request request, final Response response) {
+    final Write write = new Write(request, response);
+    closeLock.readLock().lock();
+    try {
+      if (!closed && queue.offer(write)) {
+        return;
+      }
+    } finally {
+      closeLock.readLock().unlock();
+    }
+    if (!closed) {
+      LOGGER.debug("Queue is full, storing response for {} on the calling thread.", request.getUrl());
+    }
+    write(write);
+  }
+
+  @Override
+  public final Callback getCallback() {
+    return callback;
+  }
+
+  @Override
+  public final String put(final Request request, final Response response) throws StorageException {
+    return fileManager.put(request, response);
+  }
+
+  @Override
+  public final Record<T> get(final T id) throws StorageException {
+    return fileManager.get(id);
+  }
+
+  @Override
+  public final Record<T> get(final Request request) throws StorageException {
+    return fileManager.get(request);
+  }
+
+  @Override
+  public final void close() throws Exception {
+    closeLock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+    signalSpace();
+
+    LOGGER.debug("Writing {} queued responses before closing...", queue.size());
+    try {
+      for (int i = 0; i < workers.length; i++) {
+        queue.put(STOP);
+      }
+      for (final Thread worker : workers) {
+        worker.join();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      for (final Thread worker : workers) {
+        worker.interrupt();
+      }
+    }
+    Write write;
+    while ((write = queue.poll()) != null) {
+      if (write != STOP) {
+        write(write);
+      }
+    }
+    fileManager.close();
+  }
+
+  /**
+   * A response queued to be stored.
+   */
+  private static final class Write {
+
+    /**
+     * The request of the response.
+     */
+    private final Request request;
+
+    /**
+     * The response to store.
+     */
+    private final Response response;
+
+    /**
+     * The time the response was queued in nanoseconds.
+     */
+    private final long queuedAt;
+
+    /**
+     * Constructs an instance of Write.
+     *
+     * @param request  the request of the response
+     * @param response the response to store
+     */
+    private Write(final Request request, final Response response) {
+      this.request = request;
+      this.response = response;
+      this.queuedAt = System.nanoTime();
+    }
+
+  }
+
+  /**
+   * A concurrency limiter that also waits while the queue is at capacity.
+   */
+  private final class BackpressureLimiter implements ConcurrencyLimiter {
+
+    /**
+     * The concurrency limiter to delegate to.
+     */
+    private final ConcurrencyLimiter delegate;
+
+    /**
+     * Constructs an instance of BackpressureLimiter.
+     *
+     * @param delegate the concurrency limiter to delegate to
+     */
+    private BackpressureLimiter(final ConcurrencyLimiter delegate) {
+      if (delegate == null) {
+        throw new IllegalArgumentException("Limiter cannot be null.");
+      }
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void acquire() throws InterruptedException {
+      spaceLock.lockInterruptibly();
+      try {
+        while (isFull()) {
+          space.await();
+        }
+      } finally {
+        spaceLock.unlock();
+      }
+      delegate.acquire();
+    }
+
+    @Override
+    public boolean tryAcquire() {
+      return !isFull() && delegate.tryAcquire();
+    }
+
+    @Override
+    public void release(final Outcome outcome, final long latency) {
+      delegate.release(outcome, latency);
+    }
+
+    @Override
+    public int getLimit() {
+      return delegate.getLimit();
+    }
+
+    @Override
+    public int getInFlight() {
+      return delegate.getInFlight();
+    }
+
+  }
+
+  /**
+   * A callback queuing completed responses to be stored.
+   */
+  private final class WriteBehindCallback implements Callback {
+
+    @Override
+    public void completed(final @NotNull Request request, final @NotNull Response response) {
+      enqueue(request, response);
+    }
+
+    @Override
+    public void failed(final @NotNull Request request, final @NotNull Exception ex) {
+      // do nothing
+    }
+
+    @Override
+    public void cancelled(final @NotNull Request request) {
+      // do nothing
+    }
+
+  }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.storage;
+
+import com.google.common.io.BaseEncoding;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class stores contents on the file system as gzip files named by
+ * the SHA-256 digest of their content, so identical contents are stored
+ * once.
+ * <p>
+ * Blobs are written to a temporary file and moved in place, so a blob
+ * either exists completely or not at all. Reference counting is left to
+ * the user of the store.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+final class BlobStore {
+
+  /**
+   * The encoding of digests in file names.
+   */
+  private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
+
+  /**
+   * The directory of the blobs.
+   */
+  private final File root;
+
+  /**
+   * Constructs an instance of BlobStore.
+   *
+   * @param root the directory of the blobs
+   */
+  BlobStore(final File root) {
+    this.root = root;
+  }
+
+  /**
+   * Computes the digest addressing a content.
+   *
+   * @param content the content
+   * @return the SHA-256 digest of the content
+   */
+  static byte[] digest(final byte[] content) {
+    return DigestUtils.sha256(content);
+  }
+
+  /**
+   * Encode a digest as it is named on the file system.
+   *
+   * @param digest the digest of a blob
+   * @return the digest in lower-case hex
+   */
+  static String encode(final byte[] digest) {
+    return HEX.encode(digest);
+  }
+
+  /**
+   * Get the file of a blob.
+   *
+   * @param digest the digest of the blob
+   * @return the file of the blob
+   */
+  File getFile(final byte[] digest) {
+    final String name = encode(digest);
+    return new File(new File(root, name.substring(0, 2)), name + ".gz");
+  }
+
+  /**
+   * Check whether a blob is stored.
+   *
+   * @param digest the digest of the blob
+   * @return true if the blob is stored
+   */
+  boolean exists(final byte[] digest) {
+    return getFile(digest).isFile();
+  }
+
+  /**
+   * Write a blob, replacing the blob with the same digest if stored.
+   *
+   * @param digest  the digest of the content
+   * @param content the content
+   * @return the file written
+   * @throws IOException if an I/O error occurs
+   */
+  File write(final byte[] digest, final byte[] content) throws IOException {
+    final File file = getFile(digest);
+    final File dir = file.getParentFile();
+    if (!dir.exists() && !dir.mkdirs() && !dir.isDirectory()) {
+      throw new IOException("Cannot create the blob dir: " + dir);
+    }
+    final File temp = File.createTempFile(file.getName(), ".tmp", dir);
+    try {
+      try (OutputStream out = new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(temp)))) {
+        out.write(content);
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temp.toPath());
+    }
+    return file;
+  }
+
+  /**
+   * Read the content of a blob.
+   *
+   * @param digest the digest of the blob
+   * @return the content
+   * @throws IOException if the blob is not stored or an I/O error occurs
+   */
+  byte[] read(final byte[] digest) throws IOException {
+    try (InputStream in = new BufferedInputStream(new GZIPInputStream(new FileInputStream(getFile(digest))))) {
+      return IOUtils.toByteArray(in);
+    }
+  }
+
+}
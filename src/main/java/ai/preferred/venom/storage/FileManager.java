@@ -17,6 +17,7 @@
 package ai.preferred.venom.storage;
 
 import ai.preferred.venom.fetcher.Callback;
+import ai.preferred.venom.limiter.ConcurrencyLimiter;
 import ai.preferred.venom.request.Request;
 import ai.preferred.venom.response.Response;
 
@@ -37,7 +38,8 @@ public interface FileManager<T> extends AutoCloseable {
    * <p>
    * Please note that blocking callbacks will significantly reduce the rate
    * at which request are processed. Please implement your own executors on
-   * I/O blocking callbacks.
+   * I/O blocking callbacks, or wrap the file manager in
+   * {@link AsyncFileManager}.
    * </p>
    *
    * @return Callback for FileManager
@@ -76,4 +78,16 @@ public interface FileManager<T> extends AutoCloseable {
   @NotNull
   Record<T> get(@NotNull Request request) throws StorageException;
 
+  /**
+   * Wraps a concurrency limiter so that requests are held back while
+   * this file manager cannot keep up with the responses to store.
+   *
+   * @param limiter the concurrency limiter to wrap
+   * @return the concurrency limiter, which is the limiter given by default
+   */
+  @NotNull
+  default ConcurrencyLimiter limit(@NotNull ConcurrencyLimiter limiter) {
+    return limiter;
+  }
+
 }
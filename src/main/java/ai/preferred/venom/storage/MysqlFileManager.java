@@ -28,6 +28,7 @@ import org.apache.http.ParseException;
 import org.apache.http.entity.ContentType;
 import org.apache.http.message.BasicHeader;
 import org.apache.tika.mime.MimeTypeException;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,15 +40,42 @@ import java.nio.charset.Charset;
 import java.nio.charset.UnsupportedCharsetException;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * This class implements a FileManager that writes response content to a
  * file on the file system and a record in MySQL database pointing to the
  * record and allows retrieving the file using an id or request.
+ * <p>
+ * With a batch size above 1, responses given to the callback are group
+ * committed: they are queued, inserted together with a single multi-row
+ * statement, their files written in parallel, and committed once per
+ * batch. A batch is committed when it is full, or when its first response
+ * has waited for the maximum batch delay.
+ * </p>
+ * <p>
+ * Records are looked up by request using a fingerprint of the method,
+ * url, headers and body of the request. Tables created before the
+ * fingerprint was introduced are migrated on construction, but their
+ * existing records are only found by request after
+ * {@link #backfillFingerprints(int)} has completed.
+ * </p>
+ * <p>
+ * Contents are stored once per SHA-256 digest, in a blob shared by every
+ * record with the same content, such as re-crawled or mirrored pages. A
+ * second table, named after the table with a {@code _blob} suffix, counts
+ * the references to each blob, see {@link #getDedupRatio()}. Records
+ * stored before blobs were introduced keep their own file.
+ * </p>
  *
  * @author Maksim Tkachenko
  * @author Truong Quoc Tuan
@@ -65,6 +93,16 @@ public class MysqlFileManager implements FileManager<Integer> {
    */
   private static final ContentType DEFAULT_CONTENT_TYPE = ContentType.APPLICATION_OCTET_STREAM;
 
+  /**
+   * The number of columns inserted per record.
+   */
+  private static final int INSERT_COLUMNS = 12;
+
+  /**
+   * The number of batches that may be queued for group commit.
+   */
+  private static final int QUEUED_BATCHES = 4;
+
   /**
    * The DataSource to use for connecting to database.
    */
@@ -75,16 +113,41 @@ public class MysqlFileManager implements FileManager<Integer> {
    */
   private final String table;
 
+  /**
+   * The name of the table in the database to use for blob reference counts.
+   */
+  private final String blobTable;
+
   /**
    * The storage path on the file system to use for content storage.
    */
   private final File storagePath;
 
+  /**
+   * The store of the contents of records.
+   */
+  private final BlobStore blobStore;
+
   /**
    * The callback to trigger upon response.
    */
   private final Callback callback;
 
+  /**
+   * Whether all records in the table have a fingerprint.
+   */
+  private volatile boolean fingerprinted;
+
+  /**
+   * The callback group committing responses, or null if not batched.
+   */
+  private final GroupCommitCallback groupCommitCallback;
+
+  /**
+   * The executor writing the files of a batch, or null if not batched.
+   */
+  private final ExecutorService fileExecutor;
+
   /**
    * Constructs an instance of MysqlFileManager.
    *
@@ -125,11 +188,48 @@ public class MysqlFileManager implements FileManager<Integer> {
    */
   public MysqlFileManager(final String url, final String table, final String username, final String password,
                           final File storagePath, final int maxPoolSize) {
+    this(url, table, username, password, storagePath, maxPoolSize, 1, 0);
+  }
+
+  /**
+   * Constructs an instance of MysqlFileManager.
+   *
+   * @param url           a JDBC URL to the database
+   * @param table         name of table in the database to use for record storage
+   * @param username      username for the database
+   * @param password      password for the database
+   * @param storagePath   storage path to use for content storage
+   * @param maxPoolSize   maximum connection pool size
+   * @param maxBatchSize  maximum number of records committed together, or 1 to commit each record
+   * @param maxBatchDelay maximum time in milliseconds a record waits for its batch to fill
+   */
+  public MysqlFileManager(final String url, final String table, final String username, final String password,
+                          final File storagePath, final int maxPoolSize, final int maxBatchSize,
+                          final long maxBatchDelay) {
+    if (maxBatchSize < 1) {
+      throw new IllegalArgumentException("Max batch size must be more or equal to 1.");
+    }
+    if (maxBatchDelay < 0) {
+      throw new IllegalArgumentException("Max batch delay must be more or equal to 0.");
+    }
     this.dataSource = setupDataSource(url, username, password, maxPoolSize);
     ensureTable(table);
+    this.fingerprinted = ensureFingerprint(table);
+    ensureBlobs(table);
     this.table = table;
+    this.blobTable = table + "_blob";
     this.storagePath = storagePath;
-    this.callback = new CompletedThreadedCallback(this);
+    this.blobStore = new BlobStore(new File(storagePath, "blobs"));
+    if (maxBatchSize > 1) {
+      this.fileExecutor = Executors.newFixedThreadPool(maxPoolSize,
+          new ThreadFactoryBuilder().setNameFormat("FileManager I/O %d").setDaemon(true).build());
+      this.groupCommitCallback = new GroupCommitCallback(maxBatchSize, maxBatchDelay);
+      this.callback = groupCommitCallback;
+    } else {
+      this.fileExecutor = null;
+      this.groupCommitCallback = null;
+      this.callback = new CompletedThreadedCallback(this);
+    }
   }
 
   /**
@@ -161,6 +261,7 @@ public class MysqlFileManager implements FileManager<Integer> {
          Statement statement = conn.createStatement()) {
       final String sql = "CREATE TABLE IF NOT EXISTS `" + table + "` ("
           + "`id` int(11) NOT NULL AUTO_INCREMENT,\n"
+          + "`fingerprint` binary(16) NULL DEFAULT NULL,\n"
           + "`url` varchar(1024) NOT NULL,\n"
           + "`method` ENUM('GET', 'POST', 'HEAD', 'PUT', 'DELETE', 'OPTIONS') NOT NULL,\n"
           + "`request_headers` JSON DEFAULT NULL,\n"
@@ -170,10 +271,12 @@ public class MysqlFileManager implements FileManager<Integer> {
           + "`mime_type` varchar(255) NOT NULL,\n"
           + "`encoding` varchar(255) NULL DEFAULT NULL,\n"
           + "`md5` varchar(32) NOT NULL,\n"
+          + "`digest` binary(32) NULL DEFAULT NULL,\n"
           + "`location` varchar(3) NOT NULL,\n"
           + "`date_created` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,\n"
           + "PRIMARY KEY (`id`),\n"
-          + "INDEX `url_idx` (`url` ASC)\n"
+          + "INDEX `url_idx` (`url` ASC),\n"
+          + "INDEX `fingerprint_idx` (`fingerprint`, `date_created`)\n"
           + ") CHARACTER SET latin1 COLLATE latin1_swedish_ci;";
       statement.execute(sql);
       conn.commit();
@@ -183,27 +286,77 @@ public class MysqlFileManager implements FileManager<Integer> {
   }
 
   /**
-   * Write stream to file.
+   * Check if table has the fingerprint column, if not add it, and whether
+   * any record has no fingerprint.
    *
-   * @param in         an instance of InputStream
-   * @param recordDir  the directory to save the file
-   * @param recordName the filename to write the file
-   * @throws IOException if an I/O error occurs
+   * @param table name of table in the database to use for record storage
+   * @return true if all records have a fingerprint
    */
-  private void createFile(final InputStream in, final File recordDir, final String recordName) throws IOException {
-    if (!recordDir.exists() && !recordDir.mkdirs()) {
-      throw new IOException("Cannot create the record dir: " + recordDir);
-    }
-    if (recordDir.exists() && !recordDir.isDirectory()) {
-      throw new IOException("The record path is not a dir: " + recordDir);
+  private boolean ensureFingerprint(final String table) {
+    try (Connection conn = dataSource.getConnection();
+         Statement statement = conn.createStatement()) {
+      try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, "fingerprint")) {
+        if (!rs.next()) {
+          LOGGER.info("Adding fingerprint column to table: {}", table);
+          statement.execute("ALTER TABLE `" + table + "` "
+              + "ADD COLUMN `fingerprint` binary(16) NULL DEFAULT NULL AFTER `id`, "
+              + "ADD INDEX `fingerprint_idx` (`fingerprint`, `date_created`)");
+          conn.commit();
+        }
+      }
+      try (ResultSet rs = statement.executeQuery("SELECT 1 FROM `" + table + "` WHERE fingerprint IS NULL LIMIT 1")) {
+        if (rs.next()) {
+          LOGGER.warn("Records in table {} have no fingerprint, call backfillFingerprints to index them", table);
+          return false;
+        }
+      }
+      return true;
+    } catch (SQLException e) {
+      LOGGER.error("Unable to execute ensure fingerprint query", e);
+      return false;
     }
-    final File recordFile = new File(recordDir, recordName);
-    try (BufferedOutputStream out = new BufferedOutputStream(
-        new GZIPOutputStream(new FileOutputStream(recordFile)))) {
-      IOUtils.copy(in, out);
+  }
+
+  /**
+   * Check if table has the digest column, if not add it, and if the blob
+   * table exists, if not create it.
+   *
+   * @param table name of table in the database to use for record storage
+   */
+  private void ensureBlobs(final String table) {
+    try (Connection conn = dataSource.getConnection();
+         Statement statement = conn.createStatement()) {
+      try (ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, table, "digest")) {
+        if (!rs.next()) {
+          LOGGER.info("Adding digest column to table: {}", table);
+          statement.execute("ALTER TABLE `" + table + "` "
+              + "ADD COLUMN `digest` binary(32) NULL DEFAULT NULL AFTER `md5`");
+        }
+      }
+      statement.execute("CREATE TABLE IF NOT EXISTS `" + table + "_blob` ("
+          + "`digest` binary(32) NOT NULL,\n"
+          + "`size` bigint(20) NOT NULL,\n"
+          + "`ref_count` int(11) NOT NULL,\n"
+          + "`date_created` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,\n"
+          + "PRIMARY KEY (`digest`)\n"
+          + ") CHARACTER SET latin1 COLLATE latin1_swedish_ci;");
+      conn.commit();
+    } catch (SQLException e) {
+      LOGGER.error("Unable to execute ensure blobs query", e);
     }
   }
 
+  /**
+   * Computes the fingerprint of a request.
+   *
+   * @param request the request
+   * @return the fingerprint of the request
+   */
+  private byte[] fingerprint(final Request request) {
+    return StorageUtil.getFingerprint(request.getMethod(), request.getUrl(), request.getHeaders(),
+        prepareRequestBody(request));
+  }
+
   /**
    * Convert request headers from JSON to map.
    *
@@ -246,16 +399,7 @@ public class MysqlFileManager implements FileManager<Integer> {
    * @return a map of request body
    */
   private Map<String, String> prepareRequestBody(final Request request) {
-    Map<String, String> requestBody = new HashMap<>();
-    if (request.getBody() != null) {
-      for (String pair : request.getBody().split("&")) {
-        String[] nvp = pair.split("=");
-        String value = nvp.length > 1 ? nvp[1] : "";
-        requestBody.put(nvp[0], value);
-      }
-    }
-
-    return requestBody;
+    return StorageUtil.parseRequestBody(request.getBody());
   }
 
   /**
@@ -295,29 +439,33 @@ public class MysqlFileManager implements FileManager<Integer> {
   private StorageRecord<Integer> createRecord(final ResultSet rs) throws SQLException, StorageException {
     final Map<String, String> requestHeaders = parseRequestHeaders(new JSONObject(rs.getString("request_headers")));
     final Header[] responseHeaders = parseResponseHeaders(new JSONObject(rs.getString("response_headers")));
-    final String location = rs.getString("location");
-    String tryFileExtension;
-    try {
-      tryFileExtension = StorageUtil.getFileExtension(rs.getString("mime_type"));
-    } catch (MimeTypeException e) {
-      LOGGER.warn("Cannot find mime type defaulting to no extension");
-      tryFileExtension = "";
-    }
-    final String fileExtension = tryFileExtension;
-    final File file = new File(new File(storagePath, location), rs.getString("id") + fileExtension + ".gz");
+    final byte[] digest = rs.getBytes("digest");
 
     final ContentType contentType = getContentType(
         rs.getString("mime_type"), rs.getString("encoding"));
 
     final byte[] responseContent;
     try {
-      responseContent = IOUtils.toByteArray(
-          new BufferedInputStream(
-              new GZIPInputStream(
-                  new FileInputStream(file)
-              )
-          )
-      );
+      if (digest != null) {
+        responseContent = blobStore.read(digest);
+      } else {
+        final String location = rs.getString("location");
+        String tryFileExtension;
+        try {
+          tryFileExtension = StorageUtil.getFileExtension(rs.getString("mime_type"));
+        } catch (MimeTypeException e) {
+          LOGGER.warn("Cannot find mime type defaulting to no extension");
+          tryFileExtension = "";
+        }
+        final File file = new File(new File(storagePath, location), rs.getString("id") + tryFileExtension + ".gz");
+        responseContent = IOUtils.toByteArray(
+            new BufferedInputStream(
+                new GZIPInputStream(
+                    new FileInputStream(file)
+                )
+            )
+        );
+      }
     } catch (FileNotFoundException e) {
       throw new StorageException("Record found but file not found for " + rs.getString("url") + ".", e);
     } catch (IOException e) {
@@ -343,69 +491,122 @@ public class MysqlFileManager implements FileManager<Integer> {
     return callback;
   }
 
-  @Override
-  public final String put(final Request request, final Response response) throws StorageException {
-    Connection conn = null;
-    try {
-      conn = dataSource.getConnection();
-
-      final ByteArrayInputStream content = new ByteArrayInputStream(response.getContent());
-      final String md5 = DigestUtils.md5Hex(content);
-      content.reset();
+  /**
+   * Get the statement inserting a number of records.
+   *
+   * @param records the number of records
+   * @return the insert statement
+   */
+  private String getInsertSql(final int records) {
+    final StringBuilder sql = new StringBuilder("INSERT INTO `").append(table).append("` (url, method, "
+        + "request_headers, request_body, status_code, response_headers, mime_type, encoding, md5, location, "
+        + "fingerprint, digest) VALUES");
+    for (int i = 0; i < records; i++) {
+      sql.append(i == 0 ? "(" : ", (").append("?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+    }
+    return sql.toString();
+  }
 
-      final Map<String, String> responseHeaders = new HashMap<>();
+  /**
+   * Binds the columns of a record to an insert statement.
+   *
+   * @param pstmt  the insert statement
+   * @param offset the number of parameters before the record
+   * @param record the record to bind
+   * @throws SQLException if a database access error occurs
+   */
+  private void bindRecord(final PreparedStatement pstmt, final int offset, final PendingRecord record)
+      throws SQLException {
+    pstmt.setString(offset + 1, record.request.getUrl());
+    pstmt.setString(offset + 2, record.request.getMethod().name());
+    pstmt.setString(offset + 3, new JSONObject(record.request.getHeaders()).toString());
+    pstmt.setString(offset + 4, new JSONObject(prepareRequestBody(record.request)).toString());
+    pstmt.setInt(offset + 5, record.response.getStatusCode());
+    pstmt.setString(offset + 6, new JSONObject(record.responseHeaders).toString());
+    pstmt.setString(offset + 7, record.response.getContentType().getMimeType());
+    if (record.response.getContentType().getCharset() != null) {
+      pstmt.setString(offset + 8, record.response.getContentType().getCharset().name());
+    } else {
+      pstmt.setString(offset + 8, null);
+    }
+    pstmt.setString(offset + 9, record.md5);
+    pstmt.setString(offset + 10, record.location);
+    pstmt.setBytes(offset + 11, fingerprint(record.request));
+    pstmt.setBytes(offset + 12, record.digest);
+  }
 
-      for (final Header header : response.getHeaders()) {
-        responseHeaders.put(header.getName(), header.getValue());
+  /**
+   * Adds the references of records to their blobs, and returns the
+   * records whose blob is not stored yet.
+   * <p>
+   * Blobs are referenced in the order of their digest, so concurrent
+   * transactions lock them in the same order. A blob referenced for the
+   * first time stays locked until the transaction ends, so it is written
+   * by this transaction only.
+   * </p>
+   *
+   * @param conn     the connection of the transaction
+   * @param records  the records to reference blobs for
+   * @param inserted the records whose blob row was inserted by this transaction, added to
+   * @return the records whose blob must be written, one per blob
+   * @throws SQLException if a database access error occurs
+   */
+  private List<PendingRecord> referenceBlobs(final Connection conn, final List<PendingRecord> records,
+                                             final Collection<PendingRecord> inserted) throws SQLException {
+    final SortedMap<String, List<PendingRecord>> blobs = new TreeMap<>();
+    for (final PendingRecord record : records) {
+      blobs.computeIfAbsent(record.digestHex, k -> new ArrayList<>()).add(record);
+    }
+    final List<PendingRecord> missing = new ArrayList<>();
+    try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO `" + blobTable + "` "
+        + "(digest, size, ref_count) VALUES (?, ?, ?) "
+        + "ON DUPLICATE KEY UPDATE ref_count = ref_count + VALUES(ref_count)")) {
+      for (final List<PendingRecord> references : blobs.values()) {
+        final PendingRecord record = references.get(0);
+        pstmt.setBytes(1, record.digest);
+        pstmt.setLong(2, record.content.length);
+        pstmt.setInt(3, references.size());
+        if (pstmt.executeUpdate() == 1) {
+          inserted.add(record);
+          missing.add(record);
+        } else if (!blobStore.exists(record.digest)) {
+          missing.add(record);
+        } else {
+          LOGGER.debug("Blob already stored for: {}", record.request.getUrl());
+        }
       }
+    }
+    return missing;
+  }
 
-      final Map<String, String> requestBody = prepareRequestBody(request);
-
-      final PreparedStatement pstmt = conn.prepareStatement(
-          "INSERT INTO `" + table + "` (url, method, request_headers, request_body, "
-              + "status_code, response_headers, mime_type, encoding, md5, location) "
-              + "VALUES(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
-          Statement.RETURN_GENERATED_KEYS
-      );
-      final String subDirName = md5.substring(0, 3);
-      pstmt.setString(1, request.getUrl());
-      pstmt.setString(2, request.getMethod().name());
-      pstmt.setString(3, new JSONObject(request.getHeaders()).toString());
-      pstmt.setString(4, new JSONObject(requestBody).toString());
-      pstmt.setInt(5, response.getStatusCode());
-      pstmt.setString(6, new JSONObject(responseHeaders).toString());
-      pstmt.setString(7, response.getContentType().getMimeType());
-      if (response.getContentType().getCharset() != null) {
-        pstmt.setString(8, response.getContentType().getCharset().name());
-      } else {
-        pstmt.setString(8, null);
-      }
-      pstmt.setString(9, md5);
-      pstmt.setString(10, subDirName);
-      LOGGER.debug("Executing for: {}", request.getUrl());
+  /**
+   * Puts a record into database, and commits it.
+   *
+   * @param record the record to put
+   * @return id of record
+   * @throws StorageException if the record cannot be stored
+   */
+  private String put(final PendingRecord record) throws StorageException {
+    Connection conn = null;
+    try {
+      conn = dataSource.getConnection();
+      try (PreparedStatement pstmt = conn.prepareStatement(getInsertSql(1), Statement.RETURN_GENERATED_KEYS)) {
+        bindRecord(pstmt, 0, record);
+        LOGGER.debug("Executing for: {}", record.request.getUrl());
 
-      if (pstmt.executeUpdate() == 1) {
-        final ResultSet rs = pstmt.getGeneratedKeys();
-        if (rs.next()) {
-          LOGGER.debug("MySQL insert successfully for: {}", request.getUrl());
-          final int id = rs.getInt(1);
-          final String sId = String.valueOf(id);
-
-          String tryFileExtension;
-          try {
-            tryFileExtension = StorageUtil.getFileExtension(response);
-          } catch (MimeTypeException e) {
-            LOGGER.warn("Cannot find mime type defaulting to no extension");
-            tryFileExtension = "";
+        if (pstmt.executeUpdate() == 1) {
+          final ResultSet rs = pstmt.getGeneratedKeys();
+          if (rs.next()) {
+            LOGGER.debug("MySQL insert successfully for: {}", record.request.getUrl());
+            final String sId = String.valueOf(rs.getInt(1));
+            for (final PendingRecord missing : referenceBlobs(conn, Collections.singletonList(record),
+                new ArrayList<>())) {
+              blobStore.write(missing.digest, missing.content);
+            }
+            conn.commit();
+            LOGGER.debug("Record stored successfully for: {}", record.request.getUrl());
+            return sId;
           }
-          final String fileExtension = tryFileExtension;
-
-          LOGGER.debug("Using extension ({}) for: {}", fileExtension, request.getUrl());
-          createFile(content, new File(storagePath, subDirName), sId + fileExtension + ".gz");
-          conn.commit();
-          pstmt.close();
-          LOGGER.debug("Record stored successfully for: {}", request.getUrl());
-          return sId;
         }
       }
 
@@ -432,6 +633,103 @@ public class MysqlFileManager implements FileManager<Integer> {
     }
   }
 
+  /**
+   * Puts records into database with a single statement, writes their
+   * blobs in parallel, and commits them together.
+   * <p>
+   * If any record cannot be stored, none are committed, and the blobs
+   * written for blob rows inserted by this transaction are deleted before
+   * the blobs are unlocked. A blob rewritten because its file was missing
+   * is kept, as its row is still referenced.
+   * </p>
+   *
+   * @param records the records to put
+   * @return ids of the records, in order
+   * @throws StorageException if the records cannot be stored
+   */
+  private List<String> putBatch(final List<PendingRecord> records) throws StorageException {
+    final List<File> written = Collections.synchronizedList(new ArrayList<>(records.size()));
+    Connection conn = null;
+    try {
+      conn = dataSource.getConnection();
+      final List<String> ids = new ArrayList<>(records.size());
+      try (PreparedStatement pstmt = conn.prepareStatement(getInsertSql(records.size()),
+          Statement.RETURN_GENERATED_KEYS)) {
+        for (int i = 0; i < records.size(); i++) {
+          bindRecord(pstmt, i * INSERT_COLUMNS, records.get(i));
+        }
+        LOGGER.debug("Executing for batch of {} records", records.size());
+        pstmt.executeUpdate();
+        try (ResultSet rs = pstmt.getGeneratedKeys()) {
+          while (rs.next()) {
+            ids.add(String.valueOf(rs.getInt(1)));
+          }
+        }
+      }
+      if (ids.size() != records.size()) {
+        throw new SQLException("Generated " + ids.size() + " keys for " + records.size() + " records.");
+      }
+
+      final Set<PendingRecord> inserted = Collections.newSetFromMap(new IdentityHashMap<>());
+      final List<Future<File>> files = new ArrayList<>(records.size());
+      for (final PendingRecord record : referenceBlobs(conn, records, inserted)) {
+        files.add(fileExecutor.submit(() -> {
+          final File file = blobStore.write(record.digest, record.content);
+          if (inserted.contains(record)) {
+            written.add(file);
+          }
+          return file;
+        }));
+      }
+      ExecutionException fileException = null;
+      for (final Future<File> file : files) {
+        try {
+          file.get();
+        } catch (ExecutionException e) {
+          fileException = e;
+        }
+      }
+      if (fileException != null) {
+        throw fileException;
+      }
+
+      conn.commit();
+      LOGGER.debug("Batch of {} records stored successfully", records.size());
+      return ids;
+    } catch (SQLException | ExecutionException | InterruptedException e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      for (final File file : written) {
+        if (!file.delete()) {
+          LOGGER.warn("Unable to delete blob of record not stored: {}", file);
+        }
+      }
+      final StorageException exception = new StorageException("Cannot store the batch of records", e);
+      if (conn != null) {
+        try {
+          conn.rollback();
+        } catch (SQLException e2) {
+          exception.addSuppressed(e2);
+        }
+      }
+      throw exception;
+    } finally {
+      if (conn != null) {
+        try {
+          conn.close();
+        } catch (SQLException e) {
+          LOGGER.warn("Unable to close the connection", e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public final String put(final Request request, final Response response) throws StorageException {
+    return put(new PendingRecord(request, response));
+  }
+
   @Override
   public final Record<Integer> get(final Integer id) throws StorageException {
     try (Connection conn = dataSource.getConnection();
@@ -452,18 +750,41 @@ public class MysqlFileManager implements FileManager<Integer> {
 
   @Override
   public final Record<Integer> get(final Request request) throws StorageException {
+    final Record<Integer> record = get(request, "fingerprint = ?");
+    if (record != null || fingerprinted) {
+      return record;
+    }
+    return get(request, "fingerprint IS NULL");
+  }
+
+  /**
+   * Returns latest record matching request, among the records matching
+   * a condition on their fingerprint.
+   *
+   * @param request   request
+   * @param condition the condition on the fingerprint, with at most one parameter
+   * @return stored record
+   * @throws StorageException throws StorageException
+   */
+  private Record<Integer> get(final Request request, final String condition) throws StorageException {
     try (Connection conn = dataSource.getConnection();
          PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM `" + table + "` "
-             + "WHERE url = ? "
+             + "WHERE " + condition + " "
+             + "AND url = ? "
              + "AND method = ? "
              + "AND request_headers = CAST(? AS JSON) "
              + "AND request_body = CAST(? AS JSON) "
-             + "ORDER BY `date_created` DESC "
+             + "ORDER BY `date_created` DESC, `id` DESC "
+             + "LIMIT 1"
          )) {
-      pstmt.setString(1, request.getUrl());
-      pstmt.setString(2, request.getMethod().name());
-      pstmt.setString(3, new JSONObject(request.getHeaders()).toString());
-      pstmt.setString(4, new JSONObject(prepareRequestBody(request)).toString());
+      int index = 1;
+      if (condition.indexOf('?') >= 0) {
+        pstmt.setBytes(index++, fingerprint(request));
+      }
+      pstmt.setString(index++, request.getUrl());
+      pstmt.setString(index++, request.getMethod().name());
+      pstmt.setString(index++, new JSONObject(request.getHeaders()).toString());
+      pstmt.setString(index, new JSONObject(prepareRequestBody(request)).toString());
       final ResultSet rs = pstmt.executeQuery();
       if (rs.next()) {
         return createRecord(rs);
@@ -477,8 +798,102 @@ public class MysqlFileManager implements FileManager<Integer> {
     return null;
   }
 
+  /**
+   * Computes the fingerprints of records stored without one, such as
+   * those stored before the fingerprint column was added.
+   * <p>
+   * Records are updated and committed in batches, so this may be stopped
+   * and called again, while the file manager is in use. Records whose
+   * request cannot be parsed are logged and skipped.
+   * </p>
+   *
+   * @param batchSize the number of records updated per commit
+   * @return the number of records updated
+   * @throws StorageException if the records cannot be updated
+   */
+  public final int backfillFingerprints(final int batchSize) throws StorageException {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be more or equal to 1.");
+    }
+    int updated = 0;
+    try (Connection conn = dataSource.getConnection();
+         PreparedStatement select = conn.prepareStatement("SELECT id, url, method, request_headers, request_body "
+             + "FROM `" + table + "` WHERE fingerprint IS NULL AND id > ? ORDER BY id LIMIT ?");
+         PreparedStatement update = conn.prepareStatement("UPDATE `" + table + "` SET fingerprint = ? WHERE id = ?")) {
+      select.setInt(2, batchSize);
+      int lastId = 0;
+      while (true) {
+        int selected = 0;
+        int batched = 0;
+        select.setInt(1, lastId);
+        try (ResultSet rs = select.executeQuery()) {
+          while (rs.next()) {
+            lastId = rs.getInt("id");
+            selected++;
+            final byte[] fingerprint;
+            try {
+              final String requestBody = rs.getString("request_body");
+              fingerprint = StorageUtil.getFingerprint(
+                  Request.Method.valueOf(rs.getString("method")),
+                  rs.getString("url"),
+                  parseRequestHeaders(new JSONObject(rs.getString("request_headers"))),
+                  requestBody == null ? Collections.emptyMap() : parseRequestHeaders(new JSONObject(requestBody)));
+            } catch (JSONException | IllegalArgumentException | NullPointerException e) {
+              LOGGER.warn("Unable to fingerprint record {} in table {}, skipping", lastId, table, e);
+              continue;
+            }
+            update.setBytes(1, fingerprint);
+            update.setInt(2, lastId);
+            update.addBatch();
+            batched++;
+          }
+        }
+        if (batched > 0) {
+          update.executeBatch();
+          conn.commit();
+          updated += batched;
+          LOGGER.debug("Fingerprinted {} records in table {}", updated, table);
+        }
+        if (selected < batchSize) {
+          break;
+        }
+      }
+    } catch (SQLException e) {
+      throw new StorageException("Cannot backfill fingerprints, " + updated + " records updated", e);
+    }
+    fingerprinted = true;
+    LOGGER.info("Fingerprinted {} records in table {}", updated, table);
+    return updated;
+  }
+
+  /**
+   * Get the proportion of the content of records not stored, because it
+   * is identical to the content of another record.
+   *
+   * @return the dedup ratio, between 0 and 1
+   * @throws StorageException if the blob table cannot be queried
+   */
+  public final double getDedupRatio() throws StorageException {
+    try (Connection conn = dataSource.getConnection();
+         Statement statement = conn.createStatement();
+         ResultSet rs = statement.executeQuery("SELECT SUM(size * ref_count), SUM(size) FROM `" + blobTable + "`")) {
+      if (!rs.next()) {
+        return 0;
+      }
+      final double referenced = rs.getDouble(1);
+      final double stored = rs.getDouble(2);
+      return referenced > 0 ? 1 - stored / referenced : 0;
+    } catch (SQLException e) {
+      throw new StorageException("Cannot compute the dedup ratio", e);
+    }
+  }
+
   @Override
   public final void close() throws SQLException {
+    if (groupCommitCallback != null) {
+      groupCommitCallback.close();
+      fileExecutor.shutdown();
+    }
     if (dataSource instanceof AutoCloseable) {
       try {
         ((AutoCloseable) dataSource).close();
@@ -532,4 +947,246 @@ public class MysqlFileManager implements FileManager<Integer> {
     }
   }
 
+  /**
+   * A record to be stored, with its content hashed and columns prepared.
+   */
+  private static final class PendingRecord {
+
+    /**
+     * The request of the response.
+     */
+    private final Request request;
+
+    /**
+     * The response to store.
+     */
+    private final Response response;
+
+    /**
+     * The content of the response.
+     */
+    private final byte[] content;
+
+    /**
+     * The md5 of the content.
+     */
+    private final String md5;
+
+    /**
+     * The digest addressing the blob of the content.
+     */
+    private final byte[] digest;
+
+    /**
+     * The digest addressing the blob of the content, in hex.
+     */
+    private final String digestHex;
+
+    /**
+     * The subdirectory of the file of the record.
+     */
+    private final String location;
+
+    /**
+     * The headers of the response.
+     */
+    private final Map<String, String> responseHeaders;
+
+
+    /**
+     * Constructs an instance of PendingRecord.
+     *
+     * @param request  the request of the response
+     * @param response the response to store
+     */
+    private PendingRecord(final Request request, final Response response) {
+      this.request = request;
+      this.response = response;
+      this.content = response.getContent();
+      this.md5 = DigestUtils.md5Hex(content);
+      this.digest = BlobStore.digest(content);
+      this.digestHex = BlobStore.encode(digest);
+      this.location = md5.substring(0, 3);
+      this.responseHeaders = new HashMap<>();
+      for (final Header header : response.getHeaders()) {
+        responseHeaders.put(header.getName(), header.getValue());
+      }
+    }
+
+  }
+
+  /**
+   * A callback queuing responses, and committing them in batches on a
+   * separate thread.
+   * <p>
+   * The callback never waits for the queue. When the queue is full, or the
+   * callback is closed, the response is stored on the calling thread.
+   * </p>
+   */
+  private final class GroupCommitCallback implements Callback {
+
+    /**
+     * The responses waiting to be committed.
+     */
+    private final BlockingQueue<Map.Entry<Request, Response>> queue;
+
+    /**
+     * The maximum number of records committed together.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * The maximum time in nanoseconds a record waits for its batch to fill.
+     */
+    private final long maxBatchDelay;
+
+    /**
+     * The thread committing batches.
+     */
+    private final Thread committer;
+
+    /**
+     * The lock held to queue responses, and to close.
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    /**
+     * Whether the callback is closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructs an instance of GroupCommitCallback.
+     *
+     * @param maxBatchSize  the maximum number of records committed together
+     * @param maxBatchDelay the maximum time in milliseconds a record waits for its batch to fill
+     */
+    private GroupCommitCallback(final int maxBatchSize, final long maxBatchDelay) {
+      this.queue = new ArrayBlockingQueue<>(maxBatchSize * QUEUED_BATCHES);
+      this.maxBatchSize = maxBatchSize;
+      this.maxBatchDelay = TimeUnit.MILLISECONDS.toNanos(maxBatchDelay);
+      this.committer = new ThreadFactoryBuilder()
+          .setNameFormat("FileManager Committer")
+          .setDaemon(true)
+          .build()
+          .newThread(this::commitLoop);
+      this.committer.start();
+    }
+
+    /**
+     * Stores responses one by one, logging any failure.
+     *
+     * @param responses the responses to store
+     */
+    private void putEach(final List<Map.Entry<Request, Response>> responses) {
+      for (final Map.Entry<Request, Response> response : responses) {
+        try {
+          put(response.getKey(), response.getValue());
+        } catch (StorageException | RuntimeException e) {
+          LOGGER.error("Unable to store response for {}", response.getKey().getUrl(), e);
+        }
+      }
+    }
+
+    /**
+     * Commits a batch of responses, or stores them one by one if the
+     * batch cannot be stored.
+     *
+     * @param batch the responses to commit
+     */
+    private void commit(final List<Map.Entry<Request, Response>> batch) {
+      final List<PendingRecord> records = new ArrayList<>(batch.size());
+      try {
+        for (final Map.Entry<Request, Response> response : batch) {
+          records.add(new PendingRecord(response.getKey(), response.getValue()));
+        }
+        putBatch(records);
+      } catch (StorageException | RuntimeException e) {
+        LOGGER.warn("Unable to store batch of {} records, storing them one by one", batch.size(), e);
+        putEach(batch);
+      }
+    }
+
+    /**
+     * Commits batches of queued responses until closed.
+     */
+    private void commitLoop() {
+      final List<Map.Entry<Request, Response>> batch = new ArrayList<>(maxBatchSize);
+      try {
+        while (!closed || !queue.isEmpty()) {
+          final Map.Entry<Request, Response> first = queue.poll(100, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+          batch.add(first);
+          final long deadline = System.nanoTime() + maxBatchDelay;
+          while (batch.size() < maxBatchSize) {
+            final long remaining = deadline - System.nanoTime();
+            final Map.Entry<Request, Response> next = remaining > 0
+                ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                : queue.poll();
+            if (next == null) {
+              break;
+            }
+            batch.add(next);
+          }
+          commit(batch);
+          batch.clear();
+        }
+      } catch (InterruptedException e) {
+        LOGGER.warn("Committer interrupted, queued responses are stored on close.");
+        putEach(batch);
+      }
+    }
+
+    /**
+     * Commits the responses queued, and stops the committer.
+     */
+    private void close() {
+      closeLock.writeLock().lock();
+      try {
+        closed = true;
+      } finally {
+        closeLock.writeLock().unlock();
+      }
+      try {
+        committer.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        committer.interrupt();
+      }
+      final List<Map.Entry<Request, Response>> remaining = new ArrayList<>();
+      queue.drainTo(remaining);
+      putEach(remaining);
+    }
+
+    @Override
+    public void completed(final @NotNull Request request, final @NotNull Response response) {
+      final Map.Entry<Request, Response> entry = new AbstractMap.SimpleImmutableEntry<>(request, response);
+      closeLock.readLock().lock();
+      try {
+        if (!closed && queue.offer(entry)) {
+          return;
+        }
+      } finally {
+        closeLock.readLock().unlock();
+      }
+      if (!closed) {
+        LOGGER.debug("Queue is full, storing response for {} on the calling thread.", request.getUrl());
+      }
+      putEach(Collections.singletonList(entry));
+    }
+
+    @Override
+    public void failed(final @NotNull Request request, final @NotNull Exception ex) {
+      // do nothing
+    }
+
+    @Override
+    public void cancelled(final @NotNull Request request) {
+      // do nothing
+    }
+
+  }
+
 }
@@ -0,0 +1,920 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.storage;
+
+import ai.preferred.venom.fetcher.Callback;
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.response.Response;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.Header;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * This class implements a FileManager that appends records to segment
+ * files on the file system, and allows retrieving them using an id or
+ * request, without an external database.
+ * <p>
+ * Records are appended to the active segment, which is rotated once it
+ * reaches the maximum segment size. An in-memory index maps request
+ * fingerprints and ids to the position of their latest record, so a
+ * record is retrieved with a single positioned read. The index is rebuilt
+ * by scanning the segments on construction, and a record left incomplete
+ * by a crash is truncated from the last segment. Segments are forced to
+ * the storage device when they are rotated and closed, and before
+ * compacted segments are deleted.
+ * </p>
+ * <p>
+ * Records superseded by a later record of the same request still take
+ * space until {@link #compact()} rewrites the live records of mostly
+ * superseded segments, and deletes those segments. Superseded records
+ * cannot be retrieved by id after compaction.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public class SegmentFileManager implements FileManager<Long> {
+
+  /**
+   * The default size in bytes at which segments are rotated.
+   */
+  public static final long DEFAULT_MAX_SEGMENT_SIZE = 256L << 20;
+
+  /**
+   * The default proportion of live records below which a segment is
+   * compacted.
+   */
+  public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentFileManager.class);
+
+  /**
+   * The prefix of the names of segments.
+   */
+  private static final String SEGMENT_PREFIX = "segment-";
+
+  /**
+   * The extension of segments.
+   */
+  private static final String SEGMENT_EXTENSION = ".log";
+
+  /**
+   * The magic number starting each record.
+   */
+  private static final int MAGIC = 0x56454e4d;
+
+  /**
+   * The size of the header of a record: magic number, length and checksum.
+   */
+  private static final int HEADER_SIZE = 12;
+
+  /**
+   * The size of the id, date and fingerprint starting each record.
+   */
+  private static final int KEY_SIZE = 32;
+
+  /**
+   * The storage path on the file system to use for segments.
+   */
+  private final File storagePath;
+
+  /**
+   * The size in bytes at which segments are rotated.
+   */
+  private final long maxSegmentSize;
+
+  /**
+   * The proportion of live records below which a segment is compacted.
+   */
+  private final double compactionThreshold;
+
+  /**
+   * The callback to trigger upon response.
+   */
+  private final Callback callback;
+
+  /**
+   * The segments, keyed by number.
+   */
+  private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+
+  /**
+   * The locations of the latest records, keyed by request fingerprint.
+   */
+  private final ConcurrentMap<ByteBuffer, Location> requestIndex = new ConcurrentHashMap<>();
+
+  /**
+   * The locations of records, keyed by id.
+   */
+  private final ConcurrentMap<Long, Location> idIndex = new ConcurrentHashMap<>();
+
+  /**
+   * The lock held to read segments, and to delete them.
+   */
+  private final ReadWriteLock segmentLock = new ReentrantReadWriteLock();
+
+  /**
+   * The lock held to append to segments and update the index.
+   */
+  private final Object writeLock = new Object();
+
+  /**
+   * The lock held to compact.
+   */
+  private final Object compactLock = new Object();
+
+  /**
+   * The id of the next record.
+   */
+  private final AtomicLong nextId = new AtomicLong();
+
+  /**
+   * The segment appended to, or null if none is open.
+   */
+  private Segment active;
+
+  /**
+   * Whether this file manager is closed.
+   */
+  private boolean closed;
+
+  /**
+   * Constructs an instance of SegmentFileManager.
+   *
+   * @param storageDir storage directory to use for segments
+   */
+  public SegmentFileManager(final String storageDir) {
+    this(new File(storageDir));
+  }
+
+  /**
+   * Constructs an instance of SegmentFileManager, rotating segments at
+   * 256 MiB and compacting segments less than half live.
+   *
+   * @param storagePath storage path to use for segments
+   */
+  public SegmentFileManager(final File storagePath) {
+    this(storagePath, DEFAULT_MAX_SEGMENT_SIZE, DEFAULT_COMPACTION_THRESHOLD);
+  }
+
+  /**
+   * Constructs an instance of SegmentFileManager.
+   *
+   * @param storagePath         storage path to use for segments
+   * @param maxSegmentSize      size in bytes at which segments are rotated
+   * @param compactionThreshold proportion of live records below which a segment is compacted, between 0 and 1
+   */
+  public SegmentFileManager(final File storagePath, final long maxSegmentSize, final double compactionThreshold) {
+    if (maxSegmentSize < 1) {
+      throw new IllegalArgumentException("Max segment size must be more or equal to 1.");
+    }
+    if (compactionThreshold < 0 || compactionThreshold > 1) {
+      throw new IllegalArgumentException("Compaction threshold not within range, must be [0,1].");
+    }
+    this.storagePath = storagePath;
+    this.maxSegmentSize = maxSegmentSize;
+    this.compactionThreshold = compactionThreshold;
+    this.callback = new FileManagerCallback(this);
+    try {
+      recover();
+    } catch (IOException e) {
+      for (final Segment segment : segments.values()) {
+        segment.closeQuietly();
+      }
+      throw new UncheckedIOException("Cannot recover the segments in " + storagePath + ".", e);
+    }
+  }
+
+  /**
+   * Get the number of a segment.
+   *
+   * @param name the name of the segment file
+   * @return the number, or -1 if the file is not a segment
+   */
+  private static int getSegmentNumber(final String name) {
+    if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_EXTENSION)) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_EXTENSION.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Rebuild the index by scanning the segments in the order they were
+   * written, truncating an incomplete record at the end of the last.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  private void recover() throws IOException {
+    final File[] files = storagePath.listFiles((dir, name) -> getSegmentNumber(name) >= 0);
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files, (a, b) -> Integer.compare(getSegmentNumber(a.getName()), getSegmentNumber(b.getName())));
+    for (int i = 0; i < files.length; i++) {
+      final Segment segment = new Segment(getSegmentNumber(files[i].getName()), files[i]);
+      segments.put(segment.number, segment);
+      final long valid = scan(segment, (position, record) -> index(segment, position, record));
+      if (valid < segment.size) {
+        if (i == files.length - 1) {
+          LOGGER.warn("Truncating {} incomplete bytes at the end of {}", segment.size - valid, files[i]);
+          segment.channel.truncate(valid);
+        } else {
+          LOGGER.error("Ignoring {} corrupt bytes at the end of {}", segment.size - valid, files[i]);
+        }
+        segment.size = valid;
+      }
+    }
+    if (!segments.isEmpty() && segments.lastEntry().getValue().size < maxSegmentSize) {
+      active = segments.lastEntry().getValue();
+    }
+    LOGGER.debug("Recovered {} records from {} segments in {}", idIndex.size(), segments.size(), storagePath);
+  }
+
+  /**
+   * Add a record found by scanning to the index.
+   *
+   * @param segment  the segment of the record
+   * @param position the position of the record in the segment
+   * @param record   the record
+   */
+  private void index(final Segment segment, final long position, final ByteBuffer record) {
+    final long id = record.getLong(HEADER_SIZE);
+    final Location location = new Location(segment.number, position, record.remaining());
+    segment.liveBytes += location.length;
+    supersede(requestIndex.put(getFingerprint(record), location));
+    idIndex.put(id, location);
+    nextId.accumulateAndGet(id + 1, Math::max);
+  }
+
+  /**
+   * Mark a record as superseded by a later record of the same request.
+   *
+   * @param location the location of the superseded record, or null if none
+   */
+  private void supersede(final Location location) {
+    if (location != null) {
+      final Segment segment = segments.get(location.segment);
+      if (segment != null) {
+        segment.liveBytes -= location.length;
+      }
+    }
+  }
+
+  /**
+   * Get the request fingerprint of a record.
+   *
+   * @param record the record
+   * @return the fingerprint
+   */
+  private static ByteBuffer getFingerprint(final ByteBuffer record) {
+    final byte[] fingerprint = new byte[KEY_SIZE - 16];
+    final ByteBuffer view = record.duplicate();
+    view.position(view.position() + HEADER_SIZE + 16);
+    view.get(fingerprint);
+    return ByteBuffer.wrap(fingerprint);
+  }
+
+  /**
+   * Read bytes from a channel at a position, until the buffer is full.
+   *
+   * @param channel  the channel to read from
+   * @param buffer   the buffer to read into
+   * @param position the position to read from
+   * @throws IOException if an I/O error occurs, or the end of the channel is reached
+   */
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+      throws IOException {
+    long offset = position;
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, offset);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of segment.");
+      }
+      offset += read;
+    }
+    buffer.flip();
+  }
+
+  /**
+   * Scan the complete records of a segment.
+   *
+   * @param segment the segment to scan
+   * @param visitor the visitor of each record
+   * @return the length of the segment up to the last complete record
+   * @throws IOException if an I/O error occurs
+   */
+  private static long scan(final Segment segment, final RecordVisitor visitor) throws IOException {
+    final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    long position = 0;
+    while (position + HEADER_SIZE <= segment.size) {
+      header.clear();
+      readFully(segment.channel, header, position);
+      final int magic = header.getInt();
+      final int length = header.getInt();
+      final int checksum = header.getInt();
+      if (magic != MAGIC || length < KEY_SIZE || position + HEADER_SIZE + length > segment.size) {
+        break;
+      }
+      final ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length);
+      readFully(segment.channel, record, position);
+      final CRC32 crc = new CRC32();
+      crc.update(record.array(), HEADER_SIZE, length);
+      if ((int) crc.getValue() != checksum) {
+        break;
+      }
+      visitor.visit(position, record);
+      position += record.remaining();
+    }
+    return position;
+  }
+
+  /**
+   * Write a string, or null, with its length.
+   *
+   * @param out    the stream to write to
+   * @param string the string
+   * @throws IOException if an I/O error occurs
+   */
+  private static void writeString(final DataOutputStream out, final String string) throws IOException {
+    if (string == null) {
+      out.writeInt(-1);
+      return;
+    }
+    final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Read a string, or null, written with its length.
+   *
+   * @param in the stream to read from
+   * @return the string
+   * @throws IOException if an I/O error occurs
+   */
+  private static String readString(final DataInputStream in) throws IOException {
+    final int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Write a map of strings, leaving out entries with null.
+   *
+   * @param out the stream to write to
+   * @param map the map
+   * @throws IOException if an I/O error occurs
+   */
+  private static void writeMap(final DataOutputStream out, final Map<String, String> map) throws IOException {
+    final Map<String, String> entries = new LinkedHashMap<>();
+    for (final Map.Entry<String, String> entry : map.entrySet()) {
+      if (entry.getKey() != null && entry.getValue() != null) {
+        entries.put(entry.getKey(), entry.getValue());
+      }
+    }
+    out.writeInt(entries.size());
+    for (final Map.Entry<String, String> entry : entries.entrySet()) {
+      writeString(out, entry.getKey());
+      writeString(out, entry.getValue());
+    }
+  }
+
+  /**
+   * Read a map of strings.
+   *
+   * @param in the stream to read from
+   * @return the map
+   * @throws IOException if an I/O error occurs
+   */
+  private static Map<String, String> readMap(final DataInputStream in) throws IOException {
+    final int size = in.readInt();
+    final Map<String, String> map = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      map.put(readString(in), readString(in));
+    }
+    return map;
+  }
+
+  /**
+   * Encode a record of a response.
+   *
+   * @param id          the id of the record
+   * @param date        the time the record is created in milliseconds
+   * @param fingerprint the fingerprint of the request
+   * @param request     the request
+   * @param response    the response
+   * @return the record, with its header
+   * @throws IOException if an I/O error occurs
+   */
+  private static ByteBuffer encode(final long id, final long date, final byte[] fingerprint, final Request request,
+                                   final Response response) throws IOException {
+    final byte[] content = response.getContent();
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length + 1024);
+    final DataOutputStream out = new DataOutputStream(bytes);
+    out.write(new byte[HEADER_SIZE]);
+    out.writeLong(id);
+    out.writeLong(date);
+    out.write(fingerprint);
+    writeString(out, request.getUrl());
+    writeString(out, request.getMethod().name());
+    writeMap(out, request.getHeaders());
+    writeMap(out, StorageUtil.parseRequestBody(request.getBody()));
+    out.writeInt(response.getStatusCode());
+    out.writeInt(response.getHeaders().length);
+    for (final Header header : response.getHeaders()) {
+      writeString(out, header.getName());
+      writeString(out, header.getValue());
+    }
+    writeString(out, response.getContentType().toString());
+    writeString(out, DigestUtils.md5Hex(content));
+    out.writeInt(content.length);
+    out.write(content);
+    out.flush();
+
+    final ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+    final int length = record.remaining() - HEADER_SIZE;
+    final CRC32 crc = new CRC32();
+    crc.update(record.array(), HEADER_SIZE, length);
+    record.putInt(0, MAGIC);
+    record.putInt(4, length);
+    record.putInt(8, (int) crc.getValue());
+    return record;
+  }
+
+  /**
+   * Decode a record.
+   *
+   * @param record the record, with its header
+   * @return an instance of Record
+   * @throws IOException if the record is malformed
+   */
+  private StorageRecord<Long> decode(final ByteBuffer record) throws IOException {
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array(),
+        record.arrayOffset() + record.position() + HEADER_SIZE, record.remaining() - HEADER_SIZE));
+    final long id = in.readLong();
+    final long date = in.readLong();
+    in.readFully(new byte[KEY_SIZE - 16]);
+    final String url = readString(in);
+    final Request.Method method = Request.Method.valueOf(readString(in));
+    final Map<String, String> requestHeaders = readMap(in);
+    final Map<String, String> requestBody = readMap(in);
+    final int statusCode = in.readInt();
+    final Header[] responseHeaders = new Header[in.readInt()];
+    for (int i = 0; i < responseHeaders.length; i++) {
+      responseHeaders[i] = new BasicHeader(readString(in), readString(in));
+    }
+    final ContentType contentType = StorageUtil.getContentType(readString(in));
+    final String md5 = readString(in);
+    final byte[] content = new byte[in.readInt()];
+    in.readFully(content);
+
+    return StorageRecord.builder(id)
+        .setUrl(url)
+        .setRequestMethod(method)
+        .setRequestHeaders(requestHeaders)
+        .setRequestBody(requestBody)
+        .setStatusCode(statusCode)
+        .setResponseHeaders(responseHeaders)
+        .setContentType(contentType)
+        .setMD5(md5)
+        .setDateCreated(date)
+        .setResponseContent(content)
+        .build();
+  }
+
+  /**
+   * Append a record to the active segment, rotating it if full. Must be
+   * called holding the write lock.
+   *
+   * @param record the record, with its header
+   * @return the location of the record
+   * @throws IOException if an I/O error occurs
+   */
+  private Location append(final ByteBuffer record) throws IOException {
+    if (active == null || active.size >= maxSegmentSize) {
+      if (active != null) {
+        active.channel.force(false);
+      }
+      if (!storagePath.exists() && !storagePath.mkdirs()) {
+        throw new IOException("Cannot create the storage dir: " + storagePath);
+      }
+      final int number = segments.isEmpty() ? 0 : segments.lastKey() + 1;
+      final Segment segment = new Segment(number, new File(storagePath,
+          String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_EXTENSION)));
+      segments.put(number, segment);
+      active = segment;
+      LOGGER.debug("Appending to segment: {}", segment.file);
+    }
+    final ByteBuffer buffer = record.duplicate();
+    final long position = active.size;
+    long offset = position;
+    while (buffer.hasRemaining()) {
+      offset += active.channel.write(buffer, offset);
+    }
+    active.size = offset;
+    active.liveBytes += record.remaining();
+    return new Location(active.number, position, record.remaining());
+  }
+
+  @Override
+  public final Callback getCallback() {
+    return callback;
+  }
+
+  @Override
+  public final String put(final Request request, final Response response) throws StorageException {
+    final long id = nextId.getAndIncrement();
+    final byte[] fingerprint = StorageUtil.getFingerprint(request);
+    final ByteBuffer record;
+    try {
+      record = encode(id, System.currentTimeMillis(), fingerprint, request, response);
+    } catch (IOException e) {
+      throw new StorageException("Cannot create the record for " + request.getUrl() + ".", e);
+    }
+    synchronized (writeLock) {
+      if (closed) {
+        throw new StorageException("File manager is closed.");
+      }
+      try {
+        final Location location = append(record);
+        supersede(requestIndex.put(ByteBuffer.wrap(fingerprint), location));
+        idIndex.put(id, location);
+      } catch (IOException e) {
+        throw new StorageException("Cannot store the record for " + request.getUrl() + ".", e);
+      }
+    }
+    LOGGER.debug("Record stored successfully for: {}", request.getUrl());
+    return String.valueOf(id);
+  }
+
+  /**
+   * Read and decode the record at a location. Must be called holding the
+   * segment read lock.
+   *
+   * @param location the location of the record
+   * @return an instance of Record
+   * @throws StorageException if the record cannot be read
+   */
+  private StorageRecord<Long> read(final Location location) throws StorageException {
+    final Segment segment = segments.get(location.segment);
+    if (segment == null) {
+      throw new StorageException("Segment " + location.segment + " not found.");
+    }
+    try {
+      final ByteBuffer record = ByteBuffer.allocate(location.length);
+      readFully(segment.channel, record, location.offset);
+      return decode(record);
+    } catch (IOException | RuntimeException e) {
+      throw new StorageException("Cannot read the record at " + location.offset + " in " + segment.file + ".", e);
+    }
+  }
+
+  @Override
+  public final Record<Long> get(final Long id) throws StorageException {
+    segmentLock.readLock().lock();
+    try {
+      final Location location = idIndex.get(id);
+      if (location == null) {
+        LOGGER.debug("No record found for id: {}", id);
+        return null;
+      }
+      return read(location);
+    } finally {
+      segmentLock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public final Record<Long> get(final Request request) throws StorageException {
+    final ByteBuffer fingerprint = ByteBuffer.wrap(StorageUtil.getFingerprint(request));
+    final StorageRecord<Long> record;
+    segmentLock.readLock().lock();
+    try {
+      final Location location = requestIndex.get(fingerprint);
+      record = location == null ? null : read(location);
+    } finally {
+      segmentLock.readLock().unlock();
+    }
+    if (record == null || !request.getUrl().equals(record.getURL())
+        || request.getMethod() != record.getRequestMethod()) {
+      LOGGER.debug("No record found for request: {}", request.getUrl());
+      return null;
+    }
+    return record;
+  }
+
+  /**
+   * Get the number of records that can be retrieved by id.
+   *
+   * @return the number of records
+   */
+  public final int getRecordCount() {
+    return idIndex.size();
+  }
+
+  /**
+   * Get the number of segments.
+   *
+   * @return the number of segments
+   */
+  public final int getSegmentCount() {
+    return segments.size();
+  }
+
+  /**
+   * Rewrites the live records of segments other than the active one, whose
+   * proportion of live records is below the compaction threshold, to the
+   * active segment, and deletes those segments.
+   * <p>
+   * Records may be stored and retrieved while compacting.
+   * </p>
+   *
+   * @return the number of segments deleted
+   * @throws StorageException if a segment cannot be compacted
+   */
+  public final int compact() throws StorageException {
+    synchronized (compactLock) {
+      final List<Segment> candidates = new ArrayList<>();
+      synchronized (writeLock) {
+        for (final Segment segment : segments.values()) {
+          if (segment != active && segment.liveBytes < segment.size * compactionThreshold) {
+            candidates.add(segment);
+          }
+        }
+      }
+
+      int compacted = 0;
+      for (final Segment segment : candidates) {
+        final Set<Integer> written = new HashSet<>();
+        try {
+          scan(segment, (position, record) -> {
+            final long id = record.getLong(HEADER_SIZE);
+            synchronized (writeLock) {
+              if (closed) {
+                throw new IOException("File manager is closed.");
+              }
+              final Location location = idIndex.get(id);
+              if (location == null || location.segment != segment.number || location.offset != position) {
+                return;
+              }
+              final ByteBuffer fingerprint = getFingerprint(record);
+              if (!location.equals(requestIndex.get(fingerprint))) {
+                idIndex.remove(id);
+                return;
+              }
+              final Location moved = append(record);
+              written.add(moved.segment);
+              requestIndex.put(fingerprint, moved);
+              idIndex.put(id, moved);
+              segment.liveBytes -= location.length;
+            }
+          });
+          // The moved records must be durable before their old copies are deleted
+          for (final int number : written) {
+            final Segment target = segments.get(number);
+            if (target != null) {
+              target.channel.force(false);
+            }
+          }
+        } catch (IOException e) {
+          throw new StorageException("Cannot compact " + segment.file + ".", e);
+        }
+
+        segmentLock.writeLock().lock();
+        try {
+          segments.remove(segment.number);
+          segment.closeQuietly();
+          if (!segment.file.delete()) {
+            LOGGER.warn("Unable to delete compacted segment: {}", segment.file);
+          }
+        } finally {
+          segmentLock.writeLock().unlock();
+        }
+        compacted++;
+        LOGGER.debug("Compacted segment: {}", segment.file);
+      }
+      return compacted;
+    }
+  }
+
+  @Override
+  public final void close() throws IOException {
+    synchronized (writeLock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    segmentLock.writeLock().lock();
+    try {
+      IOException exception = null;
+      for (final Segment segment : segments.values()) {
+        try {
+          if (segment == active) {
+            try {
+              segment.channel.force(false);
+            } finally {
+              segment.channel.close();
+            }
+          } else {
+            segment.channel.close();
+          }
+        } catch (IOException e) {
+          if (exception == null) {
+            exception = e;
+          } else {
+            exception.addSuppressed(e);
+          }
+        }
+      }
+      if (exception != null) {
+        throw exception;
+      }
+    } finally {
+      segmentLock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * A visitor of the records of a segment.
+   */
+  @FunctionalInterface
+  private interface RecordVisitor {
+
+    /**
+     * Visit a record.
+     *
+     * @param position the position of the record in the segment
+     * @param record   the record, with its header
+     * @throws IOException if an I/O error occurs
+     */
+    void visit(long position, ByteBuffer record) throws IOException;
+
+  }
+
+  /**
+   * The location of a record.
+   */
+  private static final class Location {
+
+    /**
+     * The number of the segment of the record.
+     */
+    private final int segment;
+
+    /**
+     * The position of the record in the segment.
+     */
+    private final long offset;
+
+    /**
+     * The length of the record, with its header.
+     */
+    private final int length;
+
+    /**
+     * Constructs an instance of Location.
+     *
+     * @param segment the number of the segment of the record
+     * @param offset  the position of the record in the segment
+     * @param length  the length of the record, with its header
+     */
+    private Location(final int segment, final long offset, final int length) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Location)) {
+        return false;
+      }
+      final Location other = (Location) o;
+      return segment == other.segment && offset == other.offset;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * segment + Long.hashCode(offset);
+    }
+
+  }
+
+  /**
+   * A segment file.
+   */
+  private static final class Segment {
+
+    /**
+     * The number of the segment.
+     */
+    private final int number;
+
+    /**
+     * The file of the segment.
+     */
+    private final File file;
+
+    /**
+     * The channel to read and append with.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The length of the segment.
+     */
+    private long size;
+
+    /**
+     * The length of the records not superseded.
+     */
+    private long liveBytes;
+
+    /**
+     * Constructs an instance of Segment, opening its file.
+     *
+     * @param number the number of the segment
+     * @param file   the file of the segment
+     * @throws IOException if an I/O error occurs
+     */
+    private Segment(final int number, final File file) throws IOException {
+      this.number = number;
+      this.file = file;
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+      this.size = channel.size();
+    }
+
+    /**
+     * Close the channel of the segment, logging any failure.
+     */
+    private void closeQuietly() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOGGER.warn("Unable to close segment: {}", file, e);
+      }
+    }
+
+  }
+
+}
@@ -16,10 +16,21 @@
 
 package ai.preferred.venom.storage;
 
+import ai.preferred.venom.dedup.RequestFingerprint;
+import ai.preferred.venom.request.Request;
 import ai.preferred.venom.response.Response;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.http.ParseException;
+import org.apache.http.entity.ContentType;
 import org.apache.tika.mime.MimeType;
 import org.apache.tika.mime.MimeTypeException;
 import org.apache.tika.mime.MimeTypes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Map;
 
 /**
  * A utility for storage needs.
@@ -28,6 +39,33 @@ import org.apache.tika.mime.MimeTypes;
  */
 public final class StorageUtil {
 
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(StorageUtil.class);
+
+  /**
+   * Default content type of response if not given.
+   */
+  private static final ContentType DEFAULT_CONTENT_TYPE = ContentType.APPLICATION_OCTET_STREAM;
+
+  /**
+   * The maximum number of file extensions to remember.
+   */
+  private static final int MAX_CACHED_EXTENSIONS = 1000;
+
+  /**
+   * The registry of mime types.
+   */
+  private static final MimeTypes MIME_TYPES = MimeTypes.getDefaultMimeTypes();
+
+  /**
+   * The file extensions of mime type names looked up.
+   */
+  private static final Cache<String, String> EXTENSIONS = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_EXTENSIONS)
+      .build();
+
   /**
    * Prevent construction of StorageUtil.
    */
@@ -54,9 +92,72 @@ public final class StorageUtil {
    * @throws MimeTypeException if the given media type name is invalid
    */
   public static String getFileExtension(final String mimeTypeStr) throws MimeTypeException {
-    final MimeTypes defaultMimeTypes = MimeTypes.getDefaultMimeTypes();
-    final MimeType mimeType = defaultMimeTypes.forName(mimeTypeStr);
-    return mimeType.getExtension();
+    final String cached = EXTENSIONS.getIfPresent(mimeTypeStr);
+    if (cached != null) {
+      return cached;
+    }
+    final MimeType mimeType = MIME_TYPES.forName(mimeTypeStr);
+    final String extension = mimeType.getExtension();
+    EXTENSIONS.put(mimeTypeStr, extension);
+    return extension;
+  }
+
+  /**
+   * Get content type from a stored record, if not found return default.
+   *
+   * @param contentType the content type of the record, or null
+   * @return an instance of content type
+   */
+  static ContentType getContentType(final String contentType) {
+    if (contentType == null) {
+      return DEFAULT_CONTENT_TYPE;
+    }
+    try {
+      return ContentType.parse(contentType);
+    } catch (ParseException e) {
+      LOGGER.warn("Could not parse content type", e);
+    } catch (UnsupportedCharsetException e) {
+      LOGGER.warn("Charset is not available in this instance of the Java virtual machine", e);
+    }
+    return DEFAULT_CONTENT_TYPE;
+  }
+
+  /**
+   * Convert a request body into a map, as stored by file managers.
+   *
+   * @param body the body of a request, or null
+   * @return a map of request body
+   * @see RequestFingerprint#parseBody(String)
+   */
+  static Map<String, String> parseRequestBody(final String body) {
+    return RequestFingerprint.parseBody(body);
+  }
+
+  /**
+   * Computes the 128-bit fingerprint of a request, from its method, url,
+   * headers and body, as stored by file managers.
+   *
+   * @param method      the method of the request
+   * @param url         the url of the request
+   * @param headers     the headers of the request
+   * @param requestBody the body of the request, as parsed by {@link #parseRequestBody(String)}
+   * @return the fingerprint of the request
+   * @see RequestFingerprint#bytesOf(Request.Method, String, Map, Map)
+   */
+  static byte[] getFingerprint(final Request.Method method, final String url, final Map<String, String> headers,
+                               final Map<String, String> requestBody) {
+    return RequestFingerprint.bytesOf(method, url, headers, requestBody);
+  }
+
+  /**
+   * Computes the 128-bit fingerprint of a request, from its method, url,
+   * headers and body.
+   *
+   * @param request the request
+   * @return the fingerprint of the request
+   */
+  static byte[] getFingerprint(final Request request) {
+    return RequestFingerprint.bytesOf(request);
   }
 
 }
@@ -0,0 +1,785 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.storage;
+
+import ai.preferred.venom.fetcher.Callback;
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.response.Response;
+import com.google.common.io.BaseEncoding;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHeader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class implements a FileManager that appends requests and responses
+ * to WARC files on the file system, and allows retrieving them using an
+ * id or request.
+ * <p>
+ * Each response is written as a response record followed by a request
+ * record, each compressed as its own gzip member, so the files can be read
+ * by standard WARC tools. As the content stored is decoded, the
+ * {@code Content-Encoding}, {@code Transfer-Encoding} and
+ * {@code Content-Length} headers of the response are replaced by the
+ * length of the content stored. Files are rotated once they reach the
+ * maximum file size. Next to each WARC file, a CDX-style index holds the
+ * request fingerprint, and the offset and length of the gzip member of
+ * each response record. The indexes are loaded into memory on
+ * construction.
+ * </p>
+ * <p>
+ * The id of a record is the name of its WARC file, and the offset and
+ * length of its response record, separated by colons.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public class WarcFileManager implements FileManager<String> {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(WarcFileManager.class);
+
+  /**
+   * The default size in bytes at which WARC files are rotated.
+   */
+  public static final long DEFAULT_MAX_FILE_SIZE = 1L << 30;
+
+  /**
+   * The prefix of the names of WARC files.
+   */
+  private static final String FILE_PREFIX = "venom-";
+
+  /**
+   * The extension of WARC files.
+   */
+  private static final String WARC_EXTENSION = ".warc.gz";
+
+  /**
+   * The extension of index files.
+   */
+  private static final String INDEX_EXTENSION = ".cdx";
+
+  /**
+   * The version line of WARC records.
+   */
+  private static final String WARC_VERSION = "WARC/1.1";
+
+  /**
+   * The line separator of WARC records and HTTP messages.
+   */
+  private static final String CRLF = "\r\n";
+
+  /**
+   * The encoding of fingerprints in the index.
+   */
+  private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
+
+  /**
+   * The storage path on the file system to use for WARC files.
+   */
+  private final File storagePath;
+
+  /**
+   * The size in bytes at which WARC files are rotated.
+   */
+  private final long maxFileSize;
+
+  /**
+   * The callback to trigger upon response.
+   */
+  private final Callback callback;
+
+  /**
+   * The ids of the latest records, keyed by request fingerprint.
+   */
+  private final ConcurrentMap<ByteBuffer, String> index = new ConcurrentHashMap<>();
+
+  /**
+   * The lock held to append to files.
+   */
+  private final Object writeLock = new Object();
+
+  /**
+   * The sequence number of the next WARC file.
+   */
+  private int nextSequence;
+
+  /**
+   * The name of the WARC file appended to, or null if none is open.
+   */
+  private String currentName;
+
+  /**
+   * The WARC file appended to.
+   */
+  private OutputStream currentWarc;
+
+  /**
+   * The index of the WARC file appended to.
+   */
+  private OutputStream currentIndex;
+
+  /**
+   * The size in bytes of the WARC file appended to.
+   */
+  private long currentSize;
+
+  /**
+   * Whether this file manager is closed.
+   */
+  private boolean closed;
+
+  /**
+   * Constructs an instance of WarcFileManager.
+   *
+   * @param storageDir storage directory to use for WARC files
+   */
+  public WarcFileManager(final String storageDir) {
+    this(new File(storageDir));
+  }
+
+  /**
+   * Constructs an instance of WarcFileManager, rotating files at 1 GiB.
+   *
+   * @param storagePath storage path to use for WARC files
+   */
+  public WarcFileManager(final File storagePath) {
+    this(storagePath, DEFAULT_MAX_FILE_SIZE);
+  }
+
+  /**
+   * Constructs an instance of WarcFileManager.
+   *
+   * @param storagePath storage path to use for WARC files
+   * @param maxFileSize size in bytes at which WARC files are rotated
+   */
+  public WarcFileManager(final File storagePath, final long maxFileSize) {
+    if (maxFileSize < 1) {
+      throw new IllegalArgumentException("Max file size must be more or equal to 1.");
+    }
+    this.storagePath = storagePath;
+    this.maxFileSize = maxFileSize;
+    this.callback = new FileManagerCallback(this);
+    loadIndex();
+  }
+
+  /**
+   * Get the sequence number of a WARC or index file.
+   *
+   * @param name the name of the file
+   * @return the sequence number, or -1 if the file is not one of ours
+   */
+  private static int getSequence(final String name) {
+    final int end = name.indexOf('-', FILE_PREFIX.length());
+    if (!name.startsWith(FILE_PREFIX) || end < 0) {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(name.substring(FILE_PREFIX.length(), end));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * Load the indexes of existing WARC files, in the order they were
+   * written, so that the latest record of a request is kept.
+   */
+  private void loadIndex() {
+    final File[] files = storagePath.listFiles((dir, name) -> getSequence(name) >= 0);
+    if (files == null) {
+      return;
+    }
+    Arrays.sort(files, (a, b) -> Integer.compare(getSequence(a.getName()), getSequence(b.getName())));
+    for (final File file : files) {
+      final String name = file.getName();
+      nextSequence = Math.max(nextSequence, getSequence(name) + 1);
+      if (!name.endsWith(INDEX_EXTENSION)) {
+        continue;
+      }
+      final String warcName = name.substring(0, name.length() - INDEX_EXTENSION.length()) + WARC_EXTENSION;
+      try (BufferedReader reader = new BufferedReader(
+          new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          final String[] fields = line.split(" ", 4);
+          if (fields.length < 4) {
+            LOGGER.warn("Skipping incomplete index line in {}", name);
+            continue;
+          }
+          index.put(ByteBuffer.wrap(HEX.decode(fields[0])), warcName + ":" + fields[1] + ":" + fields[2]);
+        }
+      } catch (IOException | IllegalArgumentException e) {
+        LOGGER.error("Unable to load index {}", name, e);
+      }
+    }
+    LOGGER.debug("Loaded {} records from the indexes in {}", index.size(), storagePath);
+  }
+
+  /**
+   * Get the date of a WARC record.
+   *
+   * @param millis the time in milliseconds
+   * @return the date in the WARC format
+   */
+  private static String formatDate(final long millis) {
+    return Instant.ofEpochMilli(millis).toString();
+  }
+
+  /**
+   * Get a new WARC record id.
+   *
+   * @return a record id
+   */
+  private static String newRecordId() {
+    return "<urn:uuid:" + UUID.randomUUID() + ">";
+  }
+
+  /**
+   * Write a WARC record as a gzip member.
+   *
+   * @param out     the stream to write to
+   * @param headers the WARC headers of the record, except the content length
+   * @param block   the content block of the record
+   * @throws IOException if an I/O error occurs
+   */
+  private static void writeRecord(final OutputStream out, final Map<String, String> headers, final byte[] block)
+      throws IOException {
+    final StringBuilder head = new StringBuilder(WARC_VERSION).append(CRLF);
+    for (final Map.Entry<String, String> header : headers.entrySet()) {
+      head.append(header.getKey()).append(": ").append(header.getValue()).append(CRLF);
+    }
+    head.append("Content-Length: ").append(block.length).append(CRLF).append(CRLF);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(new NonClosingOutputStream(out))) {
+      gzip.write(head.toString().getBytes(StandardCharsets.UTF_8));
+      gzip.write(block);
+      gzip.write((CRLF + CRLF).getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /**
+   * Write the head and body of an HTTP message.
+   *
+   * @param startLine the start line of the message
+   * @param headers   the headers of the message
+   * @param body      the body of the message
+   * @return the message
+   * @throws IOException if an I/O error occurs
+   */
+  private static byte[] createHttpBlock(final String startLine, final List<Header> headers, final byte[] body)
+      throws IOException {
+    final StringBuilder head = new StringBuilder(startLine).append(CRLF);
+    for (final Header header : headers) {
+      head.append(header.getName()).append(": ").append(header.getValue()).append(CRLF);
+    }
+    head.append(CRLF);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(head.length() + body.length);
+    out.write(head.toString().getBytes(StandardCharsets.UTF_8));
+    out.write(body);
+    return out.toByteArray();
+  }
+
+  /**
+   * Get the headers of a response as stored with its decoded content,
+   * replacing the headers describing the encoding of the content received
+   * with the length of the content stored.
+   *
+   * @param headers the headers of the response
+   * @param length  the length of the content stored
+   * @return the headers to store
+   */
+  private static List<Header> getStoredHeaders(final Header[] headers, final int length) {
+    final List<Header> stored = new ArrayList<>(headers.length);
+    boolean replaced = false;
+    for (final Header header : headers) {
+      if (HttpHeaders.CONTENT_ENCODING.equalsIgnoreCase(header.getName())
+          || HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(header.getName())
+          || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getName())) {
+        replaced = true;
+      } else {
+        stored.add(header);
+      }
+    }
+    if (replaced) {
+      stored.add(new BasicHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(length)));
+    }
+    return stored;
+  }
+
+  /**
+   * Write a response as a WARC record in its own gzip member.
+   *
+   * @param request  the request
+   * @param response the response
+   * @param date     the date of the record
+   * @param recordId the id of the record
+   * @return the record
+   * @throws IOException if an I/O error occurs
+   */
+  private static byte[] createResponseRecord(final Request request, final Response response, final String date,
+                                             final String recordId) throws IOException {
+    final byte[] content = response.getContent();
+    final int statusCode = response.getStatusCode();
+    final String reason = EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode, Locale.ENGLISH);
+    final byte[] responseBlock = createHttpBlock("HTTP/1.1 " + statusCode + (reason == null ? "" : " " + reason),
+        getStoredHeaders(response.getHeaders(), content.length), content);
+
+    final Map<String, String> responseHeaders = new LinkedHashMap<>();
+    responseHeaders.put("WARC-Type", "response");
+    responseHeaders.put("WARC-Record-ID", recordId);
+    responseHeaders.put("WARC-Date", date);
+    responseHeaders.put("WARC-Target-URI", request.getUrl());
+    responseHeaders.put("WARC-Payload-Digest", "md5:" + DigestUtils.md5Hex(content));
+    responseHeaders.put("WARC-Identified-Payload-Type", response.getContentType().toString());
+    responseHeaders.put("Content-Type", "application/http;msgtype=response");
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 512);
+    writeRecord(out, responseHeaders, responseBlock);
+    return out.toByteArray();
+  }
+
+  /**
+   * Write a request as a WARC record in its own gzip member.
+   *
+   * @param request    the request
+   * @param date       the date of the record
+   * @param responseId the id of the record of its response
+   * @return the record
+   * @throws IOException if an I/O error occurs
+   */
+  private static byte[] createRequestRecord(final Request request, final String date, final String responseId)
+      throws IOException {
+    final List<Header> requestHeaders = new ArrayList<>();
+    for (final Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+      if (header.getKey() != null && header.getValue() != null) {
+        requestHeaders.add(new BasicHeader(header.getKey(), header.getValue()));
+      }
+    }
+    final byte[] requestBody = request.getBody() == null
+        ? new byte[0]
+        : request.getBody().getBytes(StandardCharsets.UTF_8);
+    final byte[] requestBlock = createHttpBlock(request.getMethod().name() + " " + request.getUrl() + " HTTP/1.1",
+        requestHeaders, requestBody);
+
+    final Map<String, String> requestRecordHeaders = new LinkedHashMap<>();
+    requestRecordHeaders.put("WARC-Type", "request");
+    requestRecordHeaders.put("WARC-Record-ID", newRecordId());
+    requestRecordHeaders.put("WARC-Date", date);
+    requestRecordHeaders.put("WARC-Target-URI", request.getUrl());
+    requestRecordHeaders.put("WARC-Concurrent-To", responseId);
+    requestRecordHeaders.put("Content-Type", "application/http;msgtype=request");
+
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(requestBlock.length / 2 + 512);
+    writeRecord(out, requestRecordHeaders, requestBlock);
+    return out.toByteArray();
+  }
+
+  /**
+   * Close the WARC file appended to, and open the next.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  private void rotate() throws IOException {
+    closeCurrent();
+    if (!storagePath.exists() && !storagePath.mkdirs()) {
+      throw new IOException("Cannot create the storage dir: " + storagePath);
+    }
+    final SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss", Locale.ROOT);
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    final String baseName = String.format(Locale.ROOT, "%s%05d-%s", FILE_PREFIX, nextSequence++,
+        format.format(new Date()));
+    final String name = baseName + WARC_EXTENSION;
+    currentName = name;
+    currentWarc = openFile(new File(storagePath, name), false);
+    currentIndex = openFile(new File(storagePath, baseName + INDEX_EXTENSION), true);
+
+    final Map<String, String> headers = new LinkedHashMap<>();
+    headers.put("WARC-Type", "warcinfo");
+    headers.put("WARC-Record-ID", newRecordId());
+    headers.put("WARC-Date", formatDate(System.currentTimeMillis()));
+    headers.put("WARC-Filename", name);
+    headers.put("Content-Type", "application/warc-fields");
+    final ByteArrayOutputStream info = new ByteArrayOutputStream();
+    writeRecord(info, headers, ("software: Venom" + CRLF + "format: WARC File Format 1.1" + CRLF)
+        .getBytes(StandardCharsets.UTF_8));
+    info.writeTo(currentWarc);
+    currentSize = info.size();
+    LOGGER.debug("Writing to WARC file: {}", name);
+  }
+
+  /**
+   * Open a file to append to.
+   *
+   * @param file   the file
+   * @param append whether to append to the file if it exists
+   * @return the stream writing to the file
+   * @throws IOException if the file cannot be opened
+   */
+  OutputStream openFile(final File file, final boolean append) throws IOException {
+    return new FileOutputStream(file, append);
+  }
+
+  /**
+   * Close the WARC file appended to and its index, if open, so the next
+   * record is appended to a new file.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  private void closeCurrent() throws IOException {
+    final OutputStream warc = currentWarc;
+    final OutputStream warcIndex = currentIndex;
+    currentName = null;
+    currentWarc = null;
+    currentIndex = null;
+    try {
+      if (warc != null) {
+        warc.close();
+      }
+    } finally {
+      if (warcIndex != null) {
+        warcIndex.close();
+      }
+    }
+  }
+
+  @Override
+  public final Callback getCallback() {
+    return callback;
+  }
+
+  @Override
+  public final String put(final Request request, final Response response) throws StorageException {
+    final String date = formatDate(System.currentTimeMillis());
+    final byte[] fingerprint = StorageUtil.getFingerprint(request);
+    final byte[] responseRecord;
+    final byte[] requestRecord;
+    try {
+      final String responseId = newRecordId();
+      responseRecord = createResponseRecord(request, response, date, responseId);
+      requestRecord = createRequestRecord(request, date, responseId);
+    } catch (IOException e) {
+      throw new StorageException("Cannot create the records for " + request.getUrl() + ".", e);
+    }
+
+    synchronized (writeLock) {
+      if (closed) {
+        throw new StorageException("File manager is closed.");
+      }
+      try {
+        if (currentName == null || currentSize >= maxFileSize) {
+          rotate();
+        }
+        final long offset = currentSize;
+        currentWarc.write(responseRecord);
+        currentSize += responseRecord.length;
+        currentWarc.write(requestRecord);
+        currentSize += requestRecord.length;
+        final String indexLine = HEX.encode(fingerprint) + " " + offset + " " + responseRecord.length + " " + date + " "
+            + request.getUrl().replace(" ", "%20").replace("\n", "%0A") + "\n";
+        currentIndex.write(indexLine.getBytes(StandardCharsets.UTF_8));
+
+        final String id = currentName + ":" + offset + ":" + responseRecord.length;
+        index.put(ByteBuffer.wrap(fingerprint), id);
+        LOGGER.debug("Record stored successfully for: {}", request.getUrl());
+        return id;
+      } catch (IOException e) {
+        // The file may hold part of the record, so append to a new file
+        try {
+          closeCurrent();
+        } catch (IOException e2) {
+          e.addSuppressed(e2);
+        }
+        throw new StorageException("Cannot store the record for " + request.getUrl() + ".", e);
+      }
+    }
+  }
+
+  /**
+   * Read a line of a WARC record or HTTP message, without the line
+   * separator.
+   *
+   * @param in the stream to read from
+   * @return the line, or null at the end of the stream
+   * @throws IOException if an I/O error occurs
+   */
+  private static String readLine(final InputStream in) throws IOException {
+    final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ((b = in.read()) != '\n') {
+      if (b < 0) {
+        return line.size() == 0 ? null : line.toString(StandardCharsets.UTF_8.name());
+      }
+      line.write(b);
+    }
+    final byte[] bytes = line.toByteArray();
+    final int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+    return new String(bytes, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Read the headers of a WARC record or HTTP message, up to the empty
+   * line.
+   *
+   * @param in the stream to read from
+   * @return the headers, in order
+   * @throws IOException if an I/O error occurs
+   */
+  private static List<Header> readHeaders(final InputStream in) throws IOException {
+    final List<Header> headers = new ArrayList<>();
+    String line;
+    while ((line = readLine(in)) != null && !line.isEmpty()) {
+      final int colon = line.indexOf(':');
+      if (colon > 0) {
+        headers.add(new BasicHeader(line.substring(0, colon).trim(), line.substring(colon + 1).trim()));
+      }
+    }
+    return headers;
+  }
+
+  /**
+   * Read a WARC record.
+   *
+   * @param in the stream to read from
+   * @return the record
+   * @throws IOException if an I/O error occurs, or the record is malformed
+   */
+  private static WarcRecord readRecord(final InputStream in) throws IOException {
+    final String version = readLine(in);
+    if (version == null || !version.startsWith("WARC/")) {
+      throw new IOException("Not a WARC record.");
+    }
+    final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    for (final Header header : readHeaders(in)) {
+      headers.put(header.getName(), header.getValue());
+    }
+    final int length;
+    try {
+      length = Integer.parseInt(headers.get("Content-Length"));
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid content length of WARC record.", e);
+    }
+    final byte[] block = new byte[length];
+    IOUtils.readFully(in, block);
+    readLine(in);
+    readLine(in);
+    return new WarcRecord(headers, block);
+  }
+
+  @Override
+  public final Record<String> get(final String id) throws StorageException {
+    final int lengthSeparator = id.lastIndexOf(':');
+    final int offsetSeparator = id.lastIndexOf(':', lengthSeparator - 1);
+    if (offsetSeparator <= 0) {
+      throw new StorageException("Invalid id: " + id);
+    }
+    final String name = id.substring(0, offsetSeparator);
+    if (getSequence(name) < 0 || !name.endsWith(WARC_EXTENSION) || name.indexOf('/') >= 0
+        || name.indexOf('\\') >= 0) {
+      throw new StorageException("Invalid id: " + id);
+    }
+    final long offset;
+    final int length;
+    try {
+      offset = Long.parseLong(id.substring(offsetSeparator + 1, lengthSeparator));
+      length = Integer.parseInt(id.substring(lengthSeparator + 1));
+    } catch (NumberFormatException e) {
+      throw new StorageException("Invalid id: " + id, e);
+    }
+
+    final WarcRecord responseRecord;
+    final WarcRecord requestRecord;
+    try (RandomAccessFile file = new RandomAccessFile(new File(storagePath, name), "r")) {
+      final byte[] member = new byte[length];
+      file.seek(offset);
+      file.readFully(member);
+      try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(member))) {
+        responseRecord = readRecord(in);
+      }
+      // The request record is the gzip member following the response record
+      try (InputStream in = new GZIPInputStream(new BufferedInputStream(Channels.newInputStream(file.getChannel())))) {
+        requestRecord = readRecord(in);
+      }
+    } catch (IOException e) {
+      throw new StorageException("Cannot read the record " + id + ".", e);
+    }
+    return createRecord(id, responseRecord, requestRecord);
+  }
+
+  /**
+   * Create an instance of Record from a pair of WARC records.
+   *
+   * @param id             the id of the record
+   * @param responseRecord the response record
+   * @param requestRecord  the request record
+   * @return an instance of Record
+   * @throws StorageException if the records are malformed
+   */
+  private StorageRecord<String> createRecord(final String id, final WarcRecord responseRecord,
+                                             final WarcRecord requestRecord) throws StorageException {
+    try {
+      final InputStream responseBlock = new ByteArrayInputStream(responseRecord.block);
+      final String[] statusLine = readLine(responseBlock).split(" ", 3);
+      final List<Header> responseHeaders = readHeaders(responseBlock);
+      final byte[] responseContent = IOUtils.toByteArray(responseBlock);
+
+      final InputStream requestBlock = new ByteArrayInputStream(requestRecord.block);
+      final String[] requestLine = readLine(requestBlock).split(" ", 3);
+      final Map<String, String> requestHeaders = new LinkedHashMap<>();
+      for (final Header header : readHeaders(requestBlock)) {
+        requestHeaders.put(header.getName(), header.getValue());
+      }
+      final byte[] requestBody = IOUtils.toByteArray(requestBlock);
+
+      final String digest = responseRecord.headers.get("WARC-Payload-Digest");
+      return StorageRecord.builder(id)
+          .setUrl(responseRecord.headers.get("WARC-Target-URI"))
+          .setRequestMethod(Request.Method.valueOf(requestLine[0]))
+          .setRequestHeaders(requestHeaders)
+          .setRequestBody(StorageUtil.parseRequestBody(requestBody.length == 0
+              ? null
+              : new String(requestBody, StandardCharsets.UTF_8)))
+          .setStatusCode(Integer.parseInt(statusLine[1]))
+          .setResponseHeaders(responseHeaders.toArray(new Header[0]))
+          .setContentType(StorageUtil.getContentType(responseRecord.headers.get("WARC-Identified-Payload-Type")))
+          .setMD5(digest != null && digest.startsWith("md5:") ? digest.substring(4) : null)
+          .setDateCreated(Instant.parse(responseRecord.headers.get("WARC-Date")).toEpochMilli())
+          .setResponseContent(responseContent)
+          .build();
+    } catch (IOException | RuntimeException e) {
+      throw new StorageException("Cannot parse the record " + id + ".", e);
+    }
+  }
+
+  @Override
+  public final Record<String> get(final Request request) throws StorageException {
+    final String id = index.get(ByteBuffer.wrap(StorageUtil.getFingerprint(request)));
+    if (id == null) {
+      LOGGER.debug("No record found for request: {}", request.getUrl());
+      return null;
+    }
+    final Record<String> record = get(id);
+    if (!request.getUrl().equals(record.getURL()) || request.getMethod() != record.getRequestMethod()) {
+      LOGGER.debug("No record found for request: {}", request.getUrl());
+      return null;
+    }
+    return record;
+  }
+
+  @Override
+  public final void close() throws IOException {
+    synchronized (writeLock) {
+      closed = true;
+      closeCurrent();
+    }
+  }
+
+  /**
+   * The headers and content block of a WARC record.
+   */
+  private static final class WarcRecord {
+
+    /**
+     * The WARC headers of the record.
+     */
+    private final Map<String, String> headers;
+
+    /**
+     * The content block of the record.
+     */
+    private final byte[] block;
+
+    /**
+     * Constructs an instance of WarcRecord.
+     *
+     * @param headers the WARC headers of the record
+     * @param block   the content block of the record
+     */
+    private WarcRecord(final Map<String, String> headers, final byte[] block) {
+      this.headers = headers;
+      this.block = block;
+    }
+
+  }
+
+  /**
+   * An output stream that does not close the stream it writes to, so that
+   * gzip members can be appended one after another.
+   */
+  private static final class NonClosingOutputStream extends FilterOutputStream {
+
+    /**
+     * Constructs an instance of NonClosingOutputStream.
+     *
+     * @param out the stream to write to
+     */
+    private NonClosingOutputStream(final OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+
+  }
+
+}
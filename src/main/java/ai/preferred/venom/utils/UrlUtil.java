@@ -20,6 +20,7 @@ import ai.preferred.venom.request.Request;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Locale;
 
 /**
  * A utility for managing URLs.
@@ -49,4 +50,45 @@ public final class UrlUtil {
     return baseUri.toString();
   }
 
+  /**
+   * Get the host of a url in lower case, without parsing the whole url.
+   * <p>
+   * Returns an empty string if the url does not contain a host.
+   * </p>
+   *
+   * @param url url string
+   * @return host of the url
+   */
+  public static String getHost(final String url) {
+    if (url == null) {
+      return "";
+    }
+    int start = url.indexOf("://");
+    start = start < 0 ? 0 : start + 3;
+    int end = url.length();
+    for (int i = start; i < end; i++) {
+      final char c = url.charAt(i);
+      if (c == '/' || c == '?' || c == '#') {
+        end = i;
+        break;
+      }
+    }
+    final int userInfo = url.lastIndexOf('@', end - 1);
+    if (userInfo >= start) {
+      start = userInfo + 1;
+    }
+    if (start < end && url.charAt(start) == '[') {
+      final int closing = url.indexOf(']', start);
+      if (closing > 0 && closing < end) {
+        end = closing + 1;
+      }
+    } else {
+      final int port = url.indexOf(':', start);
+      if (port >= 0 && port < end) {
+        end = port;
+      }
+    }
+    return url.substring(start, end).toLowerCase(Locale.ROOT);
+  }
+
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A utility for creating executors backed by virtual threads.
+ * <p>
+ * Virtual threads require Java 21 or above. As this library targets Java
+ * 8, {@code Thread.ofVirtual()} and {@code Executors.newThreadPerTaskExecutor}
+ * are resolved when this class is loaded, so virtual threads are supported
+ * whenever the running JVM supports them, whichever JDK built the jar.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public final class VirtualThreads {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+  /**
+   * {@code Thread.ofVirtual()}, or null if virtual threads are not supported.
+   */
+  private static final MethodHandle OF_VIRTUAL;
+
+  /**
+   * {@code Thread.Builder.OfVirtual.name(String, long)}.
+   */
+  private static final MethodHandle NAME;
+
+  /**
+   * {@code Thread.Builder.factory()}.
+   */
+  private static final MethodHandle FACTORY;
+
+  /**
+   * {@code Executors.newThreadPerTaskExecutor(ThreadFactory)}.
+   */
+  private static final MethodHandle NEW_THREAD_PER_TASK_EXECUTOR;
+
+  static {
+    MethodHandle ofVirtual = null;
+    MethodHandle name = null;
+    MethodHandle factory = null;
+    MethodHandle newThreadPerTaskExecutor = null;
+    try {
+      final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      final Class<?> ofVirtualClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      name = lookup.findVirtual(ofVirtualClass, "name", MethodType.methodType(ofVirtualClass, String.class,
+          long.class));
+      factory = lookup.findVirtual(builderClass, "factory", MethodType.methodType(ThreadFactory.class));
+      newThreadPerTaskExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor",
+          MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+      final MethodHandle handle = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualClass));
+      // Throws where virtual threads are a preview feature that is not enabled
+      handle.invoke();
+      ofVirtual = handle;
+    } catch (final Throwable e) {
+      LOGGER.debug("Virtual threads are not supported by this JVM.", e);
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    FACTORY = factory;
+    NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+  }
+
+  /**
+   * Prevent construction of VirtualThreads.
+   */
+  private VirtualThreads() {
+
+  }
+
+  /**
+   * Check if virtual threads are supported by the running JVM.
+   *
+   * @return true if virtual threads are supported
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for each task.
+   *
+   * @param name the prefix of the thread names
+   * @return an executor backed by virtual threads
+   * @throws UnsupportedOperationException if virtual threads are not supported
+   */
+  public static ExecutorService newExecutor(final String name) {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or above.");
+    }
+    try {
+      final Object builder = NAME.invoke(OF_VIRTUAL.invoke(), name + " ", 0L);
+      final ThreadFactory threadFactory = (ThreadFactory) FACTORY.invoke(builder);
+      return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(threadFactory);
+    } catch (final RuntimeException | Error e) {
+      throw e;
+    } catch (final Throwable e) {
+      throw new IllegalStateException("Unable to create a virtual thread executor.", e);
+    }
+  }
+
+}
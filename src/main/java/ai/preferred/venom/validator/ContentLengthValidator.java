@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.validator;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.response.ResponseHead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class determines the validity of a response by the length of
+ * content declared in its headers.
+ * <p>
+ * A declared length above the maximum should return
+ * {@code Status.INVALID_CONTENT}, or {@code Status.VALID} otherwise.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public class ContentLengthValidator implements HeaderValidator {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOGGER = LoggerFactory.getLogger(ContentLengthValidator.class);
+
+  /**
+   * The maximum length of content in bytes.
+   */
+  private final long maxContentLength;
+
+  /**
+   * Constructs content length validator.
+   *
+   * @param maxContentLength The maximum length of content in bytes
+   */
+  public ContentLengthValidator(final long maxContentLength) {
+    if (maxContentLength < 0) {
+      throw new IllegalArgumentException("Maximum content length must be more or equal to 0.");
+    }
+    this.maxContentLength = maxContentLength;
+  }
+
+  @Override
+  public final Validator.Status isValid(final Request request, final ResponseHead head) {
+    if (head.getContentLength() > maxContentLength) {
+      LOGGER.warn("Content length {} exceeds {} for {}", head.getContentLength(), maxContentLength, request.getUrl());
+      return Validator.Status.INVALID_CONTENT;
+    }
+    return Validator.Status.VALID;
+  }
+
+}
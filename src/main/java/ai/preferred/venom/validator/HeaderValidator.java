@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.validator;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.response.ResponseHead;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * A validator of the status line and headers of a response, called
+ * before its content is received.
+ * <p>
+ * If the status is not {@code Status.VALID}, the exchange is aborted
+ * without receiving the content, and the request fails as it would
+ * have if a {@link Validator} returned the same status.
+ * </p>
+ *
+ * @author Ween Jiann Lee
+ */
+public interface HeaderValidator {
+
+  /**
+   * A header validator that always return valid.
+   */
+  HeaderValidator ALWAYS_VALID = (request, head) -> Validator.Status.VALID;
+
+  /**
+   * Method will be called when the headers of a response are received.
+   *
+   * @param request request sent to fetch a response
+   * @param head    status line and headers of the response
+   * @return the status of validation
+   */
+  Validator.Status isValid(@NotNull Request request, @NotNull ResponseHead head);
+
+}
@@ -18,6 +18,7 @@ package ai.preferred.venom.validator;
 
 import ai.preferred.venom.request.Request;
 import ai.preferred.venom.response.Response;
+import ai.preferred.venom.response.ResponseHead;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,11 +30,16 @@ import java.util.regex.Pattern;
  * A mime type that matches the pattern should return {@code Status.INVALID_CONTENT},
  * or {@code Status.VALID} otherwise.
  * </p>
+ * <p>
+ * As a header validator, the declared mime type is matched before the
+ * content is received, responses without one are left to be matched
+ * once received.
+ * </p>
  *
  * @author Maksim Tkachenko
  * @author Ween Jiann Lee
  */
-public class MimeTypeValidator implements Validator {
+public class MimeTypeValidator implements Validator, HeaderValidator {
 
   /**
    * Logger.
@@ -72,4 +78,13 @@ public class MimeTypeValidator implements Validator {
     return Status.INVALID_CONTENT;
   }
 
+  @Override
+  public final Status isValid(final Request request, final ResponseHead head) {
+    if (head.getContentType() == null || regex.matcher(head.getContentType().getMimeType()).matches()) {
+      return Status.VALID;
+    }
+    LOGGER.warn("Invalid ({}) Mime type declared for {}", head.getContentType().getMimeType(), request.getUrl());
+    return Status.INVALID_CONTENT;
+  }
+
 }
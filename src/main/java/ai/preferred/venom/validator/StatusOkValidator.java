@@ -18,6 +18,7 @@ package ai.preferred.venom.validator;
 
 import ai.preferred.venom.request.Request;
 import ai.preferred.venom.response.Response;
+import ai.preferred.venom.response.ResponseHead;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,11 +28,15 @@ import org.slf4j.LoggerFactory;
  * A code 200 should return {@code Status.VALID}, or {@code Status.INVALID_CONTENT}
  * otherwise.
  * </p>
+ * <p>
+ * As a header validator, responses with other codes are rejected before
+ * their content is received.
+ * </p>
  *
  * @author Maksim Tkachenko
  * @author Ween Jiann Lee
  */
-public class StatusOkValidator implements Validator {
+public class StatusOkValidator implements Validator, HeaderValidator {
 
   /**
    * An instance of this validator.
@@ -50,4 +55,13 @@ public class StatusOkValidator implements Validator {
     }
     return Status.VALID;
   }
+
+  @Override
+  public final Status isValid(final Request request, final ResponseHead head) {
+    if (head.getStatusCode() != 200) {
+      LOGGER.warn("Status code {} received for {}", head.getStatusCode(), request.getUrl());
+      return Status.INVALID_STATUS_CODE;
+    }
+    return Status.VALID;
+  }
 }
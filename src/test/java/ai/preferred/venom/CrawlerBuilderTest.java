@@ -18,6 +18,7 @@ package ai.preferred.venom;
 
 import ai.preferred.venom.fetcher.AsyncFetcher;
 import ai.preferred.venom.job.FIFOJobQueue;
+import ai.preferred.venom.limiter.AimdConcurrencyLimiter;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -36,6 +37,12 @@ public class CrawlerBuilderTest {
     Crawler.builder().setMaxConnections(1);
   }
 
+  @Test
+  void testSetConcurrencyLimiter() {
+    Assertions.assertThrows(IllegalStateException.class, () -> Crawler.builder().setConcurrencyLimiter(null));
+    Crawler.builder().setConcurrencyLimiter(AimdConcurrencyLimiter.buildDefault());
+  }
+
   @Test
   void testSetHandlerRouter() {
     Crawler.builder().setHandlerRouter(null);
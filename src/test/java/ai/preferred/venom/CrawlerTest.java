@@ -16,20 +16,36 @@
 
 package ai.preferred.venom;
 
+import ai.preferred.venom.dedup.FingerprintSeenFilter;
 import ai.preferred.venom.fetcher.FakeFetcher;
 import ai.preferred.venom.fetcher.Fetcher;
+import ai.preferred.venom.job.BackoffJobAttribute;
 import ai.preferred.venom.job.FIFOJobQueue;
+import ai.preferred.venom.job.HostPartitionedJobQueue;
+import ai.preferred.venom.job.Job;
+import ai.preferred.venom.job.JobCheckpoint;
 import ai.preferred.venom.job.LazyPriorityJobQueue;
+import ai.preferred.venom.job.PrefetchingJobQueue;
+import ai.preferred.venom.job.Scheduler;
+import ai.preferred.venom.limiter.HostConcurrencyLimiter;
 import ai.preferred.venom.request.Request;
 import ai.preferred.venom.request.VRequest;
+import ai.preferred.venom.response.VResponse;
+import ai.preferred.venom.utils.VirtualThreads;
 import org.apache.http.HttpHost;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.opentest4j.AssertionFailedError;
 
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 public class CrawlerTest {
 
@@ -72,6 +88,130 @@ public class CrawlerTest {
     Assertions.assertEquals(3, fetcher.getCounter());
   }
 
+  @Test
+  public void testCrawlerChainedScheduling() throws Exception {
+    final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    statuses.add(FakeFetcher.Status.COMPLETE);
+
+    final FakeFetcher fetcher = new FakeFetcher(statuses);
+    final AtomicInteger depth = new AtomicInteger();
+    final Handler chainHandler = new Handler() {
+      @Override
+      public void handle(final Request request, final VResponse response, final Scheduler scheduler,
+                         final Session session, final Worker worker) {
+        if (depth.incrementAndGet() < 4) {
+          scheduler.add(vRequest, this);
+        }
+      }
+    };
+
+    try (final Crawler crawler = Crawler.builder()
+        .setFetcher(fetcher)
+        .setMaxConnections(1)
+        .setMaxTries(2)
+        .setJobQueue(new HostPartitionedJobQueue(new SleepScheduler(0)))
+        .build()
+        .start()) {
+
+      crawler.getScheduler().add(vRequest, chainHandler);
+    }
+
+    Assertions.assertEquals(4, fetcher.getCounter());
+    Assertions.assertEquals(4, depth.get());
+  }
+
+  @Test
+  public void testCrawlerVirtualThreads() throws Exception {
+    Assumptions.assumeTrue(VirtualThreads.isSupported());
+    final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    statuses.add(FakeFetcher.Status.COMPLETE);
+
+    final FakeFetcher fetcher = new FakeFetcher(statuses);
+    final AtomicInteger blocked = new AtomicInteger();
+    final Handler blockingHandler = (request, response, schedulerH, session, worker) ->
+        worker.executeBlockingIO(blocked::incrementAndGet);
+
+    try (final Crawler crawler = Crawler.builder()
+        .setFetcher(fetcher)
+        .setVirtualThreads(true)
+        .setJobQueue(new FIFOJobQueue())
+        .setSleepScheduler(new SleepScheduler(0))
+        .build()
+        .start()) {
+
+      crawler.getScheduler().add(vRequest, blockingHandler);
+      crawler.getScheduler().add(vRequest, blockingHandler);
+    }
+
+    Assertions.assertEquals(2, fetcher.getCounter());
+    Assertions.assertEquals(2, blocked.get());
+  }
+
+  @Test
+  public void testCrawlerVirtualThreadsUnsupported() {
+    Assumptions.assumeFalse(VirtualThreads.isSupported());
+    Assertions.assertThrows(IllegalStateException.class, () -> Crawler.builder().setVirtualThreads(true));
+  }
+
+  @Test
+  public void testCrawlerHostConcurrencyLimiter() throws Exception {
+    final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
+    for (int i = 0; i < 5; i++) {
+      statuses.add(FakeFetcher.Status.COMPLETE);
+    }
+
+    final FakeFetcher fetcher = new FakeFetcher(statuses);
+    final AtomicInteger handled = new AtomicInteger();
+    final Handler countHandler = (request, response, schedulerH, session, worker) -> handled.incrementAndGet();
+
+    try (final Crawler crawler = Crawler.builder()
+        .setFetcher(fetcher)
+        .setMaxConnections(4)
+        .setHostConcurrencyLimiter(HostConcurrencyLimiter.fixed(1))
+        .setJobQueue(new FIFOJobQueue())
+        .setSleepScheduler(new SleepScheduler(0))
+        .build()
+        .start()) {
+
+      for (int i = 0; i < 5; i++) {
+        crawler.getScheduler().add(vRequest, countHandler);
+      }
+    }
+
+    Assertions.assertEquals(5, fetcher.getCounter());
+    Assertions.assertEquals(5, handled.get());
+  }
+
+  @Test
+  public void testCrawlerRetryBackoff() throws Exception {
+    final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
+    statuses.add(FakeFetcher.Status.FAILED);
+    statuses.add(FakeFetcher.Status.FAILED);
+    statuses.add(FakeFetcher.Status.COMPLETE);
+
+    final FakeFetcher fetcher = new FakeFetcher(statuses);
+    final long start = System.nanoTime();
+    try (final Crawler crawler = Crawler.builder()
+        .setFetcher(fetcher)
+        .setMaxConnections(1)
+        .setMaxTries(3)
+        .setRetryBackoff(() -> new BackoffJobAttribute(100, 2, 1000, 0))
+        .setJobQueue(new FIFOJobQueue())
+        .setSleepScheduler(new SleepScheduler(0))
+        .build()
+        .start()) {
+
+      crawler.getScheduler().add(vRequest, handler);
+    }
+
+    Assertions.assertEquals(3, fetcher.getCounter());
+    Assertions.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+  }
+
   @Test
   public void testCrawlerStartAndClose() throws Exception {
     final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
@@ -250,6 +390,30 @@ public class CrawlerTest {
     Assertions.assertEquals(4, fetcher.getCounter());
   }
 
+  @Test
+  public void testPrefetchingJobQueueIntegration() throws Exception {
+    final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
+    for (int i = 0; i < 4; i++) {
+      statuses.add(FakeFetcher.Status.COMPLETE);
+    }
+    final FakeFetcher fetcher = new FakeFetcher(statuses);
+
+    try (final PrefetchingJobQueue jobQueue = new PrefetchingJobQueue(
+        Stream.<Request>of(vRequest, vRequest, vRequest), handler);
+         final Crawler crawler = Crawler.builder()
+             .setFetcher(fetcher)
+             .setMaxConnections(1)
+             .setJobQueue(jobQueue)
+             .setSleepScheduler(new SleepScheduler(0))
+             .build()
+             .start()) {
+
+      crawler.getScheduler().add(vRequest, handler);
+    }
+
+    Assertions.assertEquals(4, fetcher.getCounter());
+  }
+
   @Test
   public void testUrlRouterIntegration() throws Exception {
     final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
@@ -366,6 +530,146 @@ public class CrawlerTest {
     Assertions.assertEquals(0, fetcher.getCounter());
   }
 
+  @Test
+  public void testCheckpointAndResume(@TempDir final Path tempDir) throws Exception {
+    final JobCheckpoint checkpoint = new JobCheckpoint(tempDir.resolve("frontier.ckpt"));
+    final Crawler interrupted = Crawler.builder()
+        .setFetcher(new FakeFetcher(new LinkedList<>()))
+        .setJobQueue(new FIFOJobQueue())
+        .setCheckpoint(checkpoint)
+        .build();
+    interrupted.getScheduler().add(vRequest, handler);
+    interrupted.getScheduler().add(new VRequest(url + "/2"), handler);
+    interrupted.interruptAndClose();
+    Assertions.assertEquals(2, checkpoint.read().size());
+
+    final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    final FakeFetcher fetcher = new FakeFetcher(statuses);
+    try (final Crawler crawler = Crawler.builder()
+        .setFetcher(fetcher)
+        .setJobQueue(new FIFOJobQueue())
+        .setSleepScheduler(new SleepScheduler(0))
+        .setCheckpoint(checkpoint)
+        .build()
+        .start()) {
+      Assertions.assertNotNull(crawler);
+    }
+
+    Assertions.assertEquals(2, fetcher.getCounter());
+    Assertions.assertTrue(checkpoint.read().isEmpty());
+  }
+
+  @Test
+  public void testResumeMarksRestoredRequestsSeen(@TempDir final Path tempDir) throws Exception {
+    final JobCheckpoint checkpoint = new JobCheckpoint(tempDir.resolve("frontier.ckpt"));
+    final Crawler interrupted = Crawler.builder()
+        .setFetcher(new FakeFetcher(new LinkedList<>()))
+        .setJobQueue(new FIFOJobQueue())
+        .setCheckpoint(checkpoint)
+        .build();
+    interrupted.getScheduler().add(vRequest, handler);
+    interrupted.interruptAndClose();
+
+    final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    final FakeFetcher fetcher = new FakeFetcher(statuses);
+    try (final Crawler crawler = Crawler.builder()
+        .setFetcher(fetcher)
+        .setJobQueue(new FIFOJobQueue())
+        .setSleepScheduler(new SleepScheduler(0))
+        .setSeenFilter(new FingerprintSeenFilter())
+        .setCheckpoint(checkpoint)
+        .build()) {
+      crawler.getScheduler().add(vRequest, handler);
+      crawler.getScheduler().add(new VRequest(url + "/2"), handler);
+      crawler.start();
+    }
+
+    Assertions.assertEquals(2, fetcher.getCounter());
+  }
+
+  @Test
+  public void testCheckpointOnInterruptWhileRunning(@TempDir final Path tempDir) throws Exception {
+    final JobCheckpoint checkpoint = new JobCheckpoint(tempDir.resolve("frontier.ckpt"));
+    final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    final FakeFetcher fetcher = new FakeFetcher(statuses);
+    final Crawler crawler = Crawler.builder()
+        .setFetcher(fetcher)
+        .setJobQueue(new FIFOJobQueue())
+        .setSleepScheduler(new SleepScheduler(60000))
+        .setCheckpoint(checkpoint)
+        .build()
+        .start();
+    crawler.getScheduler().add(vRequest, handler);
+    crawler.getScheduler().add(new VRequest(url + "/2"), handler);
+    crawler.interruptAndClose();
+
+    // The first job may be fetched before the crawler sleeps, the second may not.
+    Assertions.assertTrue(fetcher.getCounter() <= 1);
+    Assertions.assertTrue(checkpoint.read().stream()
+        .anyMatch(job -> job.getRequest().getUrl().equals(url + "/2")));
+  }
+
+  @Test
+  public void testJobAddedToQueueDirectly() throws Exception {
+    final FIFOJobQueue jobQueue = new FIFOJobQueue();
+    final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    final FakeFetcher fetcher = new FakeFetcher(statuses);
+    try (final Crawler crawler = Crawler.builder()
+        .setFetcher(fetcher)
+        .setJobQueue(jobQueue)
+        .setSleepScheduler(new SleepScheduler(0))
+        .build()
+        .start()) {
+      Assertions.assertNotNull(crawler);
+      Thread.sleep(200);
+      final long start = System.nanoTime();
+      jobQueue.add(new Job(vRequest, handler));
+      while (fetcher.getCounter() == 0 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+        Thread.sleep(5);
+      }
+      Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+  }
+
+  @Test
+  public void testSleepScheduledJobQueue() throws Exception {
+    final LinkedList<FakeFetcher.Status> statuses = new LinkedList<>();
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    statuses.add(FakeFetcher.Status.COMPLETE);
+    final FakeFetcher fetcher = new FakeFetcher(statuses);
+    final FIFOJobQueue jobQueue = new FIFOJobQueue() {
+      @Override
+      public boolean isSleepScheduled() {
+        return true;
+      }
+    };
+    Assertions.assertFalse(new FIFOJobQueue().isSleepScheduled());
+
+    final long start = System.nanoTime();
+    try (final Crawler crawler = Crawler.builder()
+        .setFetcher(fetcher)
+        .setMaxConnections(1)
+        .setJobQueue(jobQueue)
+        .setSleepScheduler(new SleepScheduler(5000))
+        .build()
+        .start()) {
+      for (int i = 0; i < 3; i++) {
+        crawler.getScheduler().add(vRequest, handler);
+      }
+    }
+
+    Assertions.assertEquals(3, fetcher.getCounter());
+    Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+  }
+
   @Test
   public void testStopCodeException() throws Exception {
     final List<FakeFetcher.Status> statuses = Arrays.asList(
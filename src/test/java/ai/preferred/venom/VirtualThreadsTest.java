@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom;
+
+import ai.preferred.venom.utils.VirtualThreads;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+
+public class VirtualThreadsTest {
+
+  private static int getJavaVersion() {
+    final String version = System.getProperty("java.specification.version");
+    return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+  }
+
+  @Test
+  public void testIsSupported() {
+    Assertions.assertEquals(getJavaVersion() >= 21, VirtualThreads.isSupported());
+  }
+
+  @Test
+  public void testNewExecutor() throws Exception {
+    if (!VirtualThreads.isSupported()) {
+      Assertions.assertThrows(UnsupportedOperationException.class, () -> VirtualThreads.newExecutor("Test"));
+      return;
+    }
+    final ExecutorService executor = VirtualThreads.newExecutor("Test");
+    try {
+      Assertions.assertEquals("Test 0", executor.submit(() -> Thread.currentThread().getName()).get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
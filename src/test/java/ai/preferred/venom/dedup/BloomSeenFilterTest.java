@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.dedup;
+
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BloomSeenFilterTest {
+
+  @Test
+  void testPut() {
+    final BloomSeenFilter filter = new BloomSeenFilter();
+    final VRequest request = new VRequest("https://venom.preferred.ai");
+    Assertions.assertFalse(filter.contains(request));
+    Assertions.assertTrue(filter.put(request));
+    Assertions.assertFalse(filter.put(request));
+    Assertions.assertTrue(filter.contains(request));
+    Assertions.assertEquals(1, filter.size());
+  }
+
+  @Test
+  void testScaling() {
+    final BloomSeenFilter filter = new BloomSeenFilter(100, 0.01);
+    int falsePositives = 0;
+    for (long i = 0; i < 10000; i++) {
+      if (!filter.put(i * 0x9E3779B97F4A7C15L)) {
+        falsePositives++;
+      }
+    }
+    Assertions.assertTrue(filter.getStages() > 1);
+    Assertions.assertTrue(falsePositives < 200);
+    for (long i = 0; i < 10000; i++) {
+      Assertions.assertTrue(filter.contains(i * 0x9E3779B97F4A7C15L));
+    }
+  }
+
+  @Test
+  void testInvalidArguments() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new BloomSeenFilter(0, 0.01));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new BloomSeenFilter(100, 1));
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.dedup;
+
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class FingerprintSeenFilterTest {
+
+  @Test
+  void testPut() {
+    final FingerprintSeenFilter filter = new FingerprintSeenFilter();
+    final VRequest request = new VRequest("https://venom.preferred.ai");
+    Assertions.assertFalse(filter.contains(request));
+    Assertions.assertTrue(filter.put(request));
+    Assertions.assertFalse(filter.put(request));
+    Assertions.assertTrue(filter.contains(request));
+    Assertions.assertEquals(1, filter.size());
+  }
+
+  @Test
+  void testZeroFingerprint() {
+    final FingerprintSeenFilter filter = new FingerprintSeenFilter(0);
+    Assertions.assertFalse(filter.contains(0));
+    Assertions.assertTrue(filter.put(0));
+    Assertions.assertTrue(filter.contains(0));
+    Assertions.assertFalse(filter.put(0));
+  }
+
+  @Test
+  void testGrowth() {
+    final FingerprintSeenFilter filter = new FingerprintSeenFilter(0);
+    final long initialBytes = filter.getAllocatedBytes();
+    final Random random = new Random(42);
+    final long[] fingerprints = new long[100000];
+    for (int i = 0; i < fingerprints.length; i++) {
+      fingerprints[i] = random.nextLong();
+      Assertions.assertTrue(filter.put(fingerprints[i]));
+    }
+    Assertions.assertEquals(fingerprints.length, filter.size());
+    Assertions.assertTrue(filter.getAllocatedBytes() > initialBytes);
+    for (final long fingerprint : fingerprints) {
+      Assertions.assertTrue(filter.contains(fingerprint));
+      Assertions.assertFalse(filter.put(fingerprint));
+    }
+    Assertions.assertFalse(filter.contains(random.nextLong()));
+  }
+
+  @Test
+  void testSlotsAtCap() {
+    Assertions.assertEquals(16, FingerprintSeenFilter.slotsFor(0));
+    Assertions.assertEquals(FingerprintSeenFilter.MAX_SLOTS, FingerprintSeenFilter.slotsFor(1L << 40));
+    Assertions.assertEquals(FingerprintSeenFilter.MAX_SLOTS, FingerprintSeenFilter.slotsFor(Long.MAX_VALUE));
+    Assertions.assertEquals(1 << 30, FingerprintSeenFilter.bytesFor(FingerprintSeenFilter.MAX_SLOTS));
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> FingerprintSeenFilter.bytesFor(FingerprintSeenFilter.MAX_SLOTS * 2));
+  }
+
+}
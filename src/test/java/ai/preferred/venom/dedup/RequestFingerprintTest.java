@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.dedup;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+class RequestFingerprintTest {
+
+  private final String url = "https://venom.preferred.ai";
+
+  @Test
+  void testFingerprint() {
+    final long fingerprint = RequestFingerprint.of(new VRequest(url));
+    Assertions.assertEquals(fingerprint, RequestFingerprint.of(new VRequest(url, Collections.singletonMap("a", "b"))));
+    Assertions.assertEquals(fingerprint, RequestFingerprint.of(Request.Method.GET, url, null));
+    Assertions.assertNotEquals(fingerprint, RequestFingerprint.of(VRequest.Builder.head(url).build()));
+    Assertions.assertNotEquals(fingerprint, RequestFingerprint.of(new VRequest(url + "/")));
+    Assertions.assertNotEquals(fingerprint, RequestFingerprint.of(Request.Method.GET, url, ""));
+    Assertions.assertNotEquals(RequestFingerprint.of(Request.Method.POST, url, "a"),
+        RequestFingerprint.of(Request.Method.POST, url, "b"));
+    Assertions.assertNotEquals(RequestFingerprint.of(Request.Method.POST, url, "a=1&a=2"),
+        RequestFingerprint.of(Request.Method.POST, url, "a=2"));
+    Assertions.assertNotEquals(RequestFingerprint.of(Request.Method.POST, url, "a=b=c"),
+        RequestFingerprint.of(Request.Method.POST, url, "a=b"));
+  }
+
+  @Test
+  void testStorageFingerprint() {
+    final byte[] fingerprint = RequestFingerprint.bytesOf(new VRequest(url));
+    Assertions.assertEquals(16, fingerprint.length);
+    Assertions.assertFalse(Arrays.equals(fingerprint,
+        RequestFingerprint.bytesOf(new VRequest(url, Collections.singletonMap("a", "b")))));
+    Assertions.assertArrayEquals(bytesOf("a=1&b=2"), bytesOf("b=2&a=1"));
+    Assertions.assertFalse(Arrays.equals(bytesOf("a=1&a=2"), bytesOf("a=2")));
+    Assertions.assertFalse(Arrays.equals(bytesOf("a=1&a=2"), bytesOf("a=2&a=1")));
+    Assertions.assertFalse(Arrays.equals(bytesOf("a=b=c"), bytesOf("a=b")));
+    Assertions.assertArrayEquals(bytesOf("a=b=c&d=1"), RequestFingerprint.bytesOf(Request.Method.POST, url, null,
+        RequestFingerprint.parseBody("a=b=c&d=1")));
+  }
+
+  @Test
+  void testHeaderNamesIgnoreCase() {
+    Assertions.assertArrayEquals(
+        RequestFingerprint.bytesOf(new VRequest(url, Collections.singletonMap("Accept", "text/html"))),
+        RequestFingerprint.bytesOf(new VRequest(url, Collections.singletonMap("accept", "text/html"))));
+    Assertions.assertFalse(Arrays.equals(
+        RequestFingerprint.bytesOf(new VRequest(url, Collections.singletonMap("Accept", "text/html"))),
+        RequestFingerprint.bytesOf(new VRequest(url, Collections.singletonMap("Accept", "TEXT/HTML")))));
+  }
+
+  @Test
+  void testParseBody() {
+    final Map<String, String> body = RequestFingerprint.parseBody("a=b=c&d&a=1");
+    Assertions.assertEquals(2, body.size());
+    Assertions.assertEquals("1", body.get("a"));
+    Assertions.assertEquals("", body.get("d"));
+    Assertions.assertEquals("b=c", RequestFingerprint.parseBody("a=b=c").get("a"));
+  }
+
+  private byte[] bytesOf(final String body) {
+    return RequestFingerprint.bytesOf(VRequest.Builder.post(url).setBody(body).build());
+  }
+
+}
@@ -131,6 +131,26 @@ public class AsyncFetcherBuilderTest {
     AsyncFetcher.builder().setMaxConnections(1);
   }
 
+  @Test
+  void testSetMaxContentLength() {
+    Assertions.assertThrows(IllegalStateException.class, () -> AsyncFetcher.builder().setMaxContentLength(-2));
+    AsyncFetcher.builder().setMaxContentLength(-1);
+    AsyncFetcher.builder().setMaxContentLength(0);
+  }
+
+  @Test
+  void testSetProcessingThreads() {
+    Assertions.assertThrows(IllegalStateException.class, () -> AsyncFetcher.builder().setProcessingThreads(-1));
+    AsyncFetcher.builder().setProcessingThreads(0);
+    AsyncFetcher.builder().setProcessingThreads(4);
+  }
+
+  @Test
+  void testSetSniffWindow() {
+    Assertions.assertThrows(IllegalStateException.class, () -> AsyncFetcher.builder().setSniffWindow(0));
+    AsyncFetcher.builder().setSniffWindow(1);
+  }
+
   @Test
   void testSetMaxRouteConnections() {
     Assertions.assertThrows(IllegalStateException.class, () -> AsyncFetcher.builder().setMaxRouteConnections(-1));
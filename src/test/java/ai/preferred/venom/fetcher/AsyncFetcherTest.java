@@ -16,6 +16,7 @@
 
 package ai.preferred.venom.fetcher;
 
+import ai.preferred.venom.metrics.MetricsRegistry;
 import ai.preferred.venom.request.Request;
 import ai.preferred.venom.request.VRequest;
 import ai.preferred.venom.response.Response;
@@ -23,6 +24,8 @@ import ai.preferred.venom.response.VResponse;
 import ai.preferred.venom.storage.FakeFileManager;
 import ai.preferred.venom.storage.FileManager;
 import ai.preferred.venom.storage.Record;
+import ai.preferred.venom.validator.StatusOkValidator;
+import ai.preferred.venom.validator.Validator;
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.google.common.collect.ImmutableList;
 import org.apache.commons.io.IOUtils;
@@ -35,13 +38,18 @@ import javax.validation.constraints.NotNull;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.GZIPInputStream;
 
@@ -101,6 +109,77 @@ public class AsyncFetcherTest {
     Assertions.assertTrue(vResponse.getHtml().contains("Venom is an open source focused crawler for the deep web."));
   }
 
+  @Test
+  public void testLargeContent() throws ExecutionException, InterruptedException {
+    final int port = wireMockServer.port();
+    configureFor("localhost", port);
+    final String path = "/test-large";
+    final byte[] largeContent = new byte[3 * 1024 * 1024 + 17];
+    new Random(42).nextBytes(largeContent);
+    stubFor(get(urlEqualTo(path))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "application/octet-stream")
+            .withBody(largeContent)));
+
+    final Response response = fetcher.fetch(new VRequest("http://127.0.0.1:" + port + path)).get();
+    Assertions.assertEquals(200, response.getStatusCode());
+    Assertions.assertArrayEquals(largeContent, response.getContent());
+    Assertions.assertEquals(ByteBuffer.wrap(largeContent), response.getContentBuffer());
+    Assertions.assertTrue(response.getContentBuffer().isReadOnly());
+  }
+
+  @Test
+  public void testChunkedContentPooled() throws Exception {
+    final int port = wireMockServer.port();
+    configureFor("localhost", port);
+    final String path = "/test-chunked";
+    stubFor(get(urlEqualTo(path))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "text/html; charset=utf-8")
+            .withBody(content)
+            .withChunkedDribbleDelay(4, 40)));
+
+    final ReceiveBufferPool pool = new ReceiveBufferPool();
+    try (final AsyncFetcher pooledFetcher = AsyncFetcher.builder()
+        .setReceiveBufferPool(pool)
+        .disableCompression()
+        .build()) {
+      pooledFetcher.start();
+      for (int i = 0; i < 2; i++) {
+        final Response response = pooledFetcher.fetch(new VRequest("http://127.0.0.1:" + port + path)).get();
+        Assertions.assertArrayEquals(content, response.getContent());
+      }
+    }
+    Assertions.assertTrue(pool.getPooledBytes() > 0);
+    Assertions.assertTrue(pool.estimateSize("127.0.0.1") >= content.length);
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    final int port = wireMockServer.port();
+    configureFor("localhost", port);
+    final String path = "/test-metrics";
+    stubFor(get(urlEqualTo(path))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "text/html; charset=utf-8")
+            .withBody(content)));
+
+    final MetricsRegistry metricsRegistry = new MetricsRegistry();
+    try (final AsyncFetcher metricsFetcher = AsyncFetcher.builder().setMetricsRegistry(metricsRegistry).build()) {
+      metricsFetcher.start();
+      final Response response = metricsFetcher.fetch(new VRequest("http://127.0.0.1:" + port + path)).get();
+      Assertions.assertEquals(200, response.getStatusCode());
+    }
+
+    final Map<String, Double> samples = metricsRegistry.collect();
+    Assertions.assertEquals(1, samples.get("venom_fetcher_requests_total"));
+    Assertions.assertEquals(16, samples.get("venom_fetcher_pool_max"));
+    Assertions.assertTrue(metricsRegistry.toPrometheus().contains("# TYPE venom_fetcher_first_byte_seconds histogram"));
+  }
+
   @Test
   public void testPost() throws ExecutionException, InterruptedException {
     final int port = wireMockServer.port();
@@ -517,6 +596,151 @@ public class AsyncFetcherTest {
     Assertions.assertTrue(completed.get(), "Callback complete function not called");
   }
 
+  @Test
+  public void testHeaderValidatorAborts() throws Exception {
+    final int port = wireMockServer.port();
+    configureFor("localhost", port);
+    final String path = "/test-not-found";
+    stubFor(get(urlEqualTo(path))
+        .willReturn(aResponse()
+            .withStatus(404)
+            .withHeader("Content-Type", "text/html; charset=utf-8")
+            .withBody(content)
+            .withChunkedDribbleDelay(10, 10000)));
+
+    try (final AsyncFetcher headerFetcher = AsyncFetcher.builder()
+        .setHeaderValidator(StatusOkValidator.INSTANCE)
+        .build()) {
+      headerFetcher.start();
+      final long start = System.nanoTime();
+      final ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+          () -> headerFetcher.fetch(new VRequest("http://127.0.0.1:" + port + path)).get());
+      Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+      Assertions.assertTrue(e.getCause() instanceof ValidationException);
+      final ValidationException cause = (ValidationException) e.getCause();
+      Assertions.assertEquals(Validator.Status.INVALID_STATUS_CODE, cause.getStatus());
+      Assertions.assertEquals(404, cause.getResponse().getStatusCode());
+      Assertions.assertEquals(0, cause.getResponse().getContent().length);
+    }
+  }
+
+  @Test
+  public void testCorruptCompressedContent() {
+    final int port = wireMockServer.port();
+    configureFor("localhost", port);
+    final String path = "/test-corrupt-gzip";
+    stubFor(get(urlEqualTo(path))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "text/html; charset=utf-8")
+            .withHeader("Content-Encoding", "gzip")
+            .withBody("not gzip")));
+
+    final ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+        () -> fetcher.fetch(new VRequest("http://127.0.0.1:" + port + path)).get());
+    Assertions.assertTrue(e.getCause() instanceof IOException);
+  }
+
+  @Test
+  public void testMaxContentLength() throws Exception {
+    final int port = wireMockServer.port();
+    configureFor("localhost", port);
+    stubFor(get(urlEqualTo("/test-declared"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "text/html; charset=utf-8")
+            .withBody(content)));
+    stubFor(get(urlEqualTo("/test-chunked"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "text/html; charset=utf-8")
+            .withBody(content)
+            .withChunkedDribbleDelay(4, 40)));
+
+    final BlockingQueue<Exception> callbackExceptions = new LinkedBlockingQueue<>();
+    try (final AsyncFetcher cappedFetcher = AsyncFetcher.builder()
+        .setMaxContentLength(content.length / 2)
+        .disableCompression()
+        .register(new Callback() {
+          @Override
+          public void completed(final @NotNull Request request, final @NotNull Response response) {
+          }
+
+          @Override
+          public void failed(final @NotNull Request request, final @NotNull Exception ex) {
+            callbackExceptions.add(ex);
+          }
+
+          @Override
+          public void cancelled(final @NotNull Request request) {
+          }
+        })
+        .build()) {
+      cappedFetcher.start();
+      for (final String path : new String[]{"/test-declared", "/test-chunked"}) {
+        final ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+            () -> cappedFetcher.fetch(new VRequest("http://127.0.0.1:" + port + path)).get());
+        Assertions.assertTrue(e.getCause() instanceof ValidationException);
+        Assertions.assertEquals(Validator.Status.INVALID_CONTENT, ((ValidationException) e.getCause()).getStatus());
+        Assertions.assertTrue(callbackExceptions.poll(5, TimeUnit.SECONDS) instanceof ValidationException);
+      }
+    }
+  }
+
+  @Test
+  public void testProcessingThreads() throws Exception {
+    final int port = wireMockServer.port();
+    configureFor("localhost", port);
+    stubFor(get(urlEqualTo("/test-valid"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-Type", "text/html; charset=utf-8")
+            .withBody(content)));
+    stubFor(get(urlEqualTo("/test-invalid"))
+        .willReturn(aResponse()
+            .withStatus(200)
+            .withBody(new byte[0])));
+
+    final BlockingQueue<String> validatorThreads = new LinkedBlockingQueue<>();
+    final BlockingQueue<String> callbackThreads = new LinkedBlockingQueue<>();
+    final BlockingQueue<Exception> callbackExceptions = new LinkedBlockingQueue<>();
+    try (final AsyncFetcher processingFetcher = AsyncFetcher.builder()
+        .setProcessingThreads(2)
+        .setValidator((request, response) -> {
+          validatorThreads.add(Thread.currentThread().getName());
+          return response.getContent().length > 0 ? Validator.Status.VALID : Validator.Status.INVALID_CONTENT;
+        })
+        .register(new Callback() {
+          @Override
+          public void completed(final @NotNull Request request, final @NotNull Response response) {
+            callbackThreads.add(Thread.currentThread().getName());
+          }
+
+          @Override
+          public void failed(final @NotNull Request request, final @NotNull Exception ex) {
+            callbackExceptions.add(ex);
+          }
+
+          @Override
+          public void cancelled(final @NotNull Request request) {
+          }
+        })
+        .build()) {
+      processingFetcher.start();
+      final Response response = processingFetcher.fetch(new VRequest("http://127.0.0.1:" + port + "/test-valid"))
+          .get();
+      Assertions.assertEquals("text/html", response.getContentType().getMimeType());
+      Assertions.assertArrayEquals(content, response.getContent());
+      Assertions.assertTrue(validatorThreads.poll(5, TimeUnit.SECONDS).startsWith("Venom Processor"));
+      Assertions.assertTrue(callbackThreads.poll(5, TimeUnit.SECONDS).startsWith("Venom Processor"));
+
+      final ExecutionException e = Assertions.assertThrows(ExecutionException.class,
+          () -> processingFetcher.fetch(new VRequest("http://127.0.0.1:" + port + "/test-invalid")).get());
+      Assertions.assertTrue(e.getCause() instanceof ValidationException);
+      Assertions.assertTrue(callbackExceptions.poll(5, TimeUnit.SECONDS) instanceof ValidationException);
+    }
+  }
+
   @Test
   public void testStopCode() throws Exception {
     fetcher.close();
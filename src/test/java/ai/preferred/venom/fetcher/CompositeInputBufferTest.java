@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.fetcher;
+
+import org.apache.http.nio.ContentDecoder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+class CompositeInputBufferTest {
+
+  private static byte[] randomBytes(final int length) {
+    final byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+
+  private static void consumeAll(final CompositeInputBuffer buffer, final byte[] bytes, final int step)
+      throws IOException {
+    final FakeContentDecoder decoder = new FakeContentDecoder(bytes, step);
+    while (!buffer.isEndOfStream()) {
+      buffer.consumeContent(decoder);
+    }
+  }
+
+  @Test
+  void testKnownLengthIsNotCopied() throws IOException {
+    final byte[] bytes = randomBytes(10000);
+    final CompositeInputBuffer buffer = new CompositeInputBuffer(bytes.length);
+    consumeAll(buffer, bytes, 3000);
+
+    final ByteBuffer first = buffer.toByteBuffer();
+    Assertions.assertEquals(ByteBuffer.wrap(bytes), first);
+    Assertions.assertEquals(bytes.length, first.array().length);
+    Assertions.assertSame(first.array(), buffer.toByteBuffer().array());
+  }
+
+  @Test
+  void testUnknownLengthIsJoined() throws IOException {
+    final byte[] bytes = randomBytes(ReceiveBufferPool.MAX_SIZE * 3 + 5);
+    final CompositeInputBuffer buffer = new CompositeInputBuffer(-1);
+    consumeAll(buffer, bytes, 70000);
+
+    Assertions.assertEquals(bytes.length, buffer.size());
+    Assertions.assertEquals(ByteBuffer.wrap(bytes), buffer.toByteBuffer());
+  }
+
+  @Test
+  void testPooledChunksAreReturned() throws IOException {
+    final ReceiveBufferPool pool = new ReceiveBufferPool(true, ReceiveBufferPool.DEFAULT_MAX_POOLED_BYTES);
+    final byte[] bytes = randomBytes(ReceiveBufferPool.MAX_SIZE + 100);
+    final CompositeInputBuffer buffer = new CompositeInputBuffer(-1, pool, 64 * 1024);
+    consumeAll(buffer, bytes, 50000);
+    Assertions.assertEquals(0, pool.getPooledBytes());
+
+    final ByteBuffer content = buffer.toByteBuffer();
+    Assertions.assertFalse(content.isDirect());
+    Assertions.assertEquals(ByteBuffer.wrap(bytes), content);
+    Assertions.assertTrue(pool.getPooledBytes() > 0);
+
+    final long pooledBytes = pool.getPooledBytes();
+    buffer.release();
+    Assertions.assertEquals(pooledBytes, pool.getPooledBytes());
+    Assertions.assertEquals(ByteBuffer.wrap(bytes), content);
+  }
+
+  @Test
+  void testReleaseWithoutJoin() throws IOException {
+    final ReceiveBufferPool pool = new ReceiveBufferPool();
+    final CompositeInputBuffer buffer = new CompositeInputBuffer(-1, pool, 4096);
+    consumeAll(buffer, randomBytes(10000), 3000);
+    buffer.release();
+    buffer.release();
+    Assertions.assertEquals(4096 + 4096 + 8192, pool.getPooledBytes());
+    Assertions.assertThrows(IOException.class,
+        () -> buffer.consumeContent(new FakeContentDecoder(randomBytes(10), 10)));
+    Assertions.assertThrows(IllegalStateException.class, buffer::toByteBuffer);
+  }
+
+  @Test
+  void testRead() throws IOException {
+    final byte[] bytes = randomBytes(20000);
+    final CompositeInputBuffer buffer = new CompositeInputBuffer(-1);
+    consumeAll(buffer, bytes, 1000);
+
+    final byte[] read = new byte[bytes.length];
+    int offset = 0;
+    int n;
+    while ((n = buffer.read(read, offset, Math.min(777, read.length - offset))) > 0) {
+      offset += n;
+    }
+    Assertions.assertEquals(bytes.length, offset);
+    Assertions.assertArrayEquals(bytes, read);
+    Assertions.assertEquals(-1, buffer.read());
+  }
+
+  @Test
+  void testReadFully() throws IOException {
+    final byte[] bytes = randomBytes(100000);
+    final CompositeInputBuffer buffer = CompositeInputBuffer.readFully(new ByteArrayInputStream(bytes));
+    Assertions.assertTrue(buffer.isEndOfStream());
+    Assertions.assertEquals(ByteBuffer.wrap(bytes), buffer.toByteBuffer());
+  }
+
+  @Test
+  void testReset() throws IOException {
+    final CompositeInputBuffer buffer = new CompositeInputBuffer(-1);
+    consumeAll(buffer, randomBytes(10000), 4000);
+    buffer.reset();
+    Assertions.assertEquals(0, buffer.size());
+    Assertions.assertFalse(buffer.isEndOfStream());
+
+    final byte[] bytes = randomBytes(10);
+    consumeAll(buffer, bytes, 4);
+    Assertions.assertEquals(ByteBuffer.wrap(bytes), buffer.toByteBuffer());
+  }
+
+  private static final class FakeContentDecoder implements ContentDecoder {
+
+    private final byte[] bytes;
+    private final int step;
+    private int position;
+    private boolean paused;
+
+    private FakeContentDecoder(final byte[] bytes, final int step) {
+      this.bytes = bytes;
+      this.step = step;
+    }
+
+    @Override
+    public int read(final ByteBuffer dst) {
+      if (position == bytes.length) {
+        return -1;
+      }
+      if (paused) {
+        paused = false;
+        return 0;
+      }
+      final int length = Math.min(Math.min(step, dst.remaining()), bytes.length - position);
+      dst.put(bytes, position, length);
+      position += length;
+      paused = true;
+      return length;
+    }
+
+    @Override
+    public boolean isCompleted() {
+      return position == bytes.length;
+    }
+
+  }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.fetcher;
+
+import org.apache.http.entity.ContentType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+class ContentTypeDetectorTest {
+
+  private static ByteBuffer wrap(final String content, final Charset charset) {
+    return ByteBuffer.wrap(content.getBytes(charset));
+  }
+
+  @Test
+  void testDeclaredCharset() {
+    final ContentTypeDetector detector = new ContentTypeDetector();
+    final ContentType declared = ContentType.create("text/html", StandardCharsets.ISO_8859_1);
+    Assertions.assertSame(declared, detector.detect("venom.preferred.ai", declared,
+        wrap("<meta charset=\"utf-8\">", StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  void testByteOrderMark() {
+    final ContentTypeDetector detector = new ContentTypeDetector();
+    final byte[] content = new byte[]{(byte) 0xef, (byte) 0xbb, (byte) 0xbf, 'a', 'b', 'c'};
+    final ContentType contentType = detector.detect("venom.preferred.ai", ContentType.create("text/plain"),
+        ByteBuffer.wrap(content));
+    Assertions.assertEquals(StandardCharsets.UTF_8, contentType.getCharset());
+    Assertions.assertEquals("text/plain", contentType.getMimeType());
+
+    final byte[] utf16 = "﻿abc".getBytes(StandardCharsets.UTF_16BE);
+    Assertions.assertEquals(StandardCharsets.UTF_16BE, detector.detect("venom.preferred.ai",
+        ContentType.create("text/plain"), ByteBuffer.wrap(utf16)).getCharset());
+  }
+
+  @Test
+  void testMarkupCharset() {
+    final ContentTypeDetector detector = new ContentTypeDetector();
+    final ContentType html = detector.detect("venom.preferred.ai", ContentType.create("text/html"),
+        wrap("<html><head><META http-equiv=\"Content-Type\" content=\"text/html; charset=Shift_JIS\">",
+            StandardCharsets.US_ASCII));
+    Assertions.assertEquals(Charset.forName("Shift_JIS"), html.getCharset());
+
+    final ContentType xml = detector.detect("venom.preferred.ai", null,
+        wrap("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><rss></rss>", StandardCharsets.US_ASCII));
+    Assertions.assertEquals(StandardCharsets.ISO_8859_1, xml.getCharset());
+    Assertions.assertNotNull(xml.getMimeType());
+
+    final ContentType unsupported = detector.detect("venom.preferred.ai", ContentType.create("text/html"),
+        wrap("<meta charset=\"not-a-charset\">", StandardCharsets.US_ASCII));
+    Assertions.assertEquals("text/html", unsupported.getMimeType());
+  }
+
+  @Test
+  void testMimeType() {
+    final ContentTypeDetector detector = new ContentTypeDetector();
+    final byte[] png = new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 0};
+    Assertions.assertEquals("image/png", detector.detect("venom.preferred.ai", null,
+        ByteBuffer.wrap(png)).getMimeType());
+  }
+
+  @Test
+  void testSniffWindow() {
+    final ContentTypeDetector detector = new ContentTypeDetector(64);
+    final char[] padding = new char[128];
+    Arrays.fill(padding, ' ');
+    final ContentType contentType = detector.detect("venom.preferred.ai", ContentType.create("text/html"),
+        wrap(new String(padding) + "<meta charset=\"Shift_JIS\">", StandardCharsets.US_ASCII));
+    Assertions.assertNotEquals(Charset.forName("Shift_JIS"), contentType.getCharset());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new ContentTypeDetector(0));
+  }
+
+  @Test
+  void testCachedCharset() {
+    final ContentTypeDetector detector = new ContentTypeDetector();
+    final String text = "Ceci est un texte français assez long pour la détection, écrit à la main. "
+        + "Les élèves étudient à l'école où ils apprennent à écrire des lettres accentuées.";
+    final ContentType declared = ContentType.create("text/plain");
+    final ContentType first = detector.detect("venom.preferred.ai", declared, wrap(text, StandardCharsets.UTF_8));
+    Assertions.assertEquals(StandardCharsets.UTF_8, first.getCharset());
+    detector.detect("venom.preferred.ai", declared, wrap(text, StandardCharsets.UTF_8));
+    detector.detect("venom.preferred.ai", declared, wrap(text, StandardCharsets.UTF_8));
+
+    // Settled for this host and declared type, so undetectable content reuses the charset.
+    Assertions.assertEquals(StandardCharsets.UTF_8, detector.detect("venom.preferred.ai", declared,
+        wrap("abc", StandardCharsets.US_ASCII)).getCharset());
+
+    // Markup still takes precedence.
+    Assertions.assertEquals(StandardCharsets.ISO_8859_1, detector.detect("venom.preferred.ai", declared,
+        wrap("<meta charset=\"ISO-8859-1\">", StandardCharsets.US_ASCII)).getCharset());
+
+    // Other hosts are not affected.
+    Assertions.assertNotEquals(StandardCharsets.UTF_8, detector.detect("preferred.ai", declared,
+        wrap("abc", StandardCharsets.US_ASCII)).getCharset());
+  }
+
+}
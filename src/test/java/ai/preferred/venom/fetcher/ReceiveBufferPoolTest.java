@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.fetcher;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+class ReceiveBufferPoolTest {
+
+  @Test
+  void testSizeClasses() {
+    final ReceiveBufferPool pool = new ReceiveBufferPool();
+    Assertions.assertEquals(4096, pool.acquire(0).capacity());
+    Assertions.assertEquals(4096, pool.acquire(4096).capacity());
+    Assertions.assertEquals(8192, pool.acquire(4097).capacity());
+    Assertions.assertEquals(ReceiveBufferPool.MAX_SIZE, pool.acquire(Integer.MAX_VALUE).capacity());
+    Assertions.assertFalse(pool.acquire(1).isDirect());
+    Assertions.assertTrue(new ReceiveBufferPool(true, 0).acquire(1).isDirect());
+  }
+
+  @Test
+  void testReuse() {
+    final ReceiveBufferPool pool = new ReceiveBufferPool();
+    final ByteBuffer buffer = pool.acquire(10000);
+    buffer.put((byte) 1);
+    pool.release(buffer);
+    Assertions.assertEquals(16384, pool.getPooledBytes());
+
+    final ByteBuffer reused = pool.acquire(16000);
+    Assertions.assertSame(buffer, reused);
+    Assertions.assertEquals(0, reused.position());
+    Assertions.assertEquals(0, pool.getPooledBytes());
+  }
+
+  @Test
+  void testReleaseRejected() {
+    final ReceiveBufferPool pool = new ReceiveBufferPool(false, 8192);
+    pool.release(ByteBuffer.allocate(5000));
+    pool.release(ByteBuffer.allocateDirect(4096));
+    pool.release(ByteBuffer.allocate(1024));
+    Assertions.assertEquals(0, pool.getPooledBytes());
+
+    pool.release(pool.acquire(4096));
+    pool.release(ByteBuffer.allocate(4096));
+    pool.release(ByteBuffer.allocate(4096));
+    Assertions.assertEquals(8192, pool.getPooledBytes());
+  }
+
+  @Test
+  void testEstimateSize() {
+    final ReceiveBufferPool pool = new ReceiveBufferPool();
+    Assertions.assertEquals(ReceiveBufferPool.MIN_SIZE, pool.estimateSize("venom.preferred.ai"));
+
+    for (int i = 0; i < 95; i++) {
+      pool.recordSize("venom.preferred.ai", 50000);
+    }
+    for (int i = 0; i < 5; i++) {
+      pool.recordSize("venom.preferred.ai", 5000000);
+    }
+    Assertions.assertEquals(65536, pool.estimateSize("venom.preferred.ai"));
+    Assertions.assertEquals(ReceiveBufferPool.MIN_SIZE, pool.estimateSize("other.preferred.ai"));
+
+    for (int i = 0; i < 1000; i++) {
+      pool.recordSize("venom.preferred.ai", 100);
+    }
+    Assertions.assertEquals(ReceiveBufferPool.MIN_SIZE, pool.estimateSize("venom.preferred.ai"));
+  }
+
+}
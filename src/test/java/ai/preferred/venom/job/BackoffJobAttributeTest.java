@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BackoffJobAttributeTest {
+
+  @Test
+  void testExponentialDelay() {
+    final BackoffJobAttribute backoffJobAttribute = new BackoffJobAttribute(100, 2, 500, 0);
+    Assertions.assertEquals(0, backoffJobAttribute.getDelay());
+    backoffJobAttribute.prepareRetry();
+    Assertions.assertEquals(100, backoffJobAttribute.getDelay());
+    backoffJobAttribute.prepareRetry();
+    Assertions.assertEquals(200, backoffJobAttribute.getDelay());
+    backoffJobAttribute.prepareRetry();
+    Assertions.assertEquals(400, backoffJobAttribute.getDelay());
+    backoffJobAttribute.prepareRetry();
+    Assertions.assertEquals(500, backoffJobAttribute.getDelay());
+    Assertions.assertEquals(4, backoffJobAttribute.getRetries());
+  }
+
+  @Test
+  void testJitter() {
+    final BackoffJobAttribute backoffJobAttribute = new BackoffJobAttribute(1000, 2, 1000, 0.5);
+    backoffJobAttribute.prepareRetry();
+    for (int i = 0; i < 100; i++) {
+      final long delay = backoffJobAttribute.getDelay();
+      Assertions.assertTrue(delay >= 500 && delay <= 1000);
+    }
+  }
+
+  @Test
+  void testJobRetry() {
+    final Job job = new Job(new VRequest("https://venom.preferred.ai"), null,
+        new BackoffJobAttribute(100, 2, 1000, 0));
+    job.prepareRetry();
+    job.prepareRetry();
+    Assertions.assertEquals(200, job.getJobAttribute(BackoffJobAttribute.class).getDelay());
+  }
+
+  @Test
+  void testInvalidArguments() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new BackoffJobAttribute(-1, 100));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new BackoffJobAttribute(100, 10));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new BackoffJobAttribute(100, 0.5, 1000, 0));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new BackoffJobAttribute(100, 2, 1000, 2));
+  }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.SleepScheduler;
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+class HostPartitionedJobQueueTest {
+
+  private final Job jobA1 = new Job(new VRequest("https://a.preferred.ai/1"));
+  private final Job jobA2 = new Job(new VRequest("https://A.preferred.ai:443/2"));
+  private final Job jobB1 = new Job(new VRequest("https://b.preferred.ai/1"));
+
+  private HostPartitionedJobQueue jobQueue;
+
+  @BeforeEach
+  void initEach() {
+    jobQueue = new HostPartitionedJobQueue(new SleepScheduler(1000));
+  }
+
+  @Test
+  void testAddRequest() {
+    jobQueue.add(jobA1);
+    final Job pollJob = jobQueue.poll();
+    Assertions.assertNotNull(pollJob);
+    Assertions.assertEquals(jobA1, pollJob);
+    Assertions.assertNotNull(pollJob.getJobAttribute(PriorityJobAttribute.class));
+    Assertions.assertTrue(jobQueue.isEmpty());
+  }
+
+  @Test
+  void testPutRequest() throws InterruptedException {
+    jobQueue.put(jobA1);
+    Assertions.assertEquals(1, jobQueue.size());
+    Assertions.assertEquals(jobA1, jobQueue.take());
+  }
+
+  @Test
+  void testHostsAreIndependent() {
+    jobQueue.add(jobA1);
+    jobQueue.add(jobA2);
+    jobQueue.add(jobB1);
+    Assertions.assertEquals(3, jobQueue.size());
+
+    Assertions.assertEquals(jobA1, jobQueue.poll());
+    Assertions.assertEquals(jobB1, jobQueue.poll());
+    Assertions.assertNull(jobQueue.poll());
+
+    Assertions.assertEquals(jobA2, jobQueue.peek());
+    Assertions.assertEquals(1, jobQueue.size());
+    Assertions.assertFalse(jobQueue.isEmpty());
+  }
+
+  @Test
+  void testRequestSleepScheduler() {
+    final Job jobA3 = new Job(VRequest.Builder.get("https://a.preferred.ai/3")
+        .setSleepScheduler(new SleepScheduler(0)).build());
+    jobQueue.add(jobA1);
+    jobQueue.add(jobA3);
+
+    Assertions.assertEquals(jobA1, jobQueue.poll());
+    Assertions.assertEquals(jobA3, jobQueue.poll());
+  }
+
+  @Test
+  void testPollWaitsForHost() throws InterruptedException {
+    jobQueue = new HostPartitionedJobQueue(new SleepScheduler(200));
+    jobQueue.add(jobA1);
+    jobQueue.add(jobA2);
+
+    Assertions.assertEquals(jobA1, jobQueue.poll());
+    Assertions.assertNull(jobQueue.poll(50, TimeUnit.MILLISECONDS));
+
+    final long start = System.nanoTime();
+    Assertions.assertEquals(jobA2, jobQueue.poll(1, TimeUnit.SECONDS));
+    Assertions.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+  }
+
+  @Test
+  void testPriorityWithinHost() {
+    final Job highJob = new Job(new VRequest("https://a.preferred.ai/high"), null,
+        new PriorityJobAttribute(Priority.HIGH));
+    jobQueue = new HostPartitionedJobQueue(null);
+    jobQueue.add(jobA1);
+    jobQueue.add(highJob);
+
+    Assertions.assertEquals(highJob, jobQueue.poll());
+    Assertions.assertEquals(jobA1, jobQueue.poll());
+  }
+
+  @Test
+  void testRemoveAndClear() {
+    jobQueue.add(jobA1);
+    jobQueue.add(jobA2);
+    jobQueue.add(jobB1);
+
+    Assertions.assertTrue(jobQueue.remove(jobA1));
+    Assertions.assertFalse(jobQueue.remove(jobA1));
+    Assertions.assertEquals(jobA2, jobQueue.peek());
+    Assertions.assertEquals(2, jobQueue.size());
+
+    jobQueue.clear();
+    Assertions.assertTrue(jobQueue.isEmpty());
+    Assertions.assertNull(jobQueue.poll());
+  }
+
+}
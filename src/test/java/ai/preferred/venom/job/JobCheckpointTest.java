@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+class JobCheckpointTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testWriteAndRead() throws IOException {
+    final JobCheckpoint checkpoint = new JobCheckpoint(tempDir.resolve("frontier.ckpt"));
+    Assertions.assertFalse(checkpoint.exists());
+    Assertions.assertTrue(checkpoint.read().isEmpty());
+
+    final Job job = new Job(new VRequest("https://venom.preferred.ai/1"), null,
+        new PriorityJobAttribute(Priority.HIGH));
+    job.prepareRetry();
+    checkpoint.write(Arrays.asList(job, new Job(new VRequest("https://venom.preferred.ai/2"))));
+    Assertions.assertTrue(checkpoint.exists());
+    Assertions.assertFalse(Files.exists(tempDir.resolve("frontier.ckpt.tmp")));
+
+    final List<Job> jobs = checkpoint.read();
+    Assertions.assertEquals(2, jobs.size());
+    Assertions.assertEquals("https://venom.preferred.ai/1", jobs.get(0).getRequest().getUrl());
+    Assertions.assertEquals(2, jobs.get(0).getTryCount());
+    Assertions.assertEquals(Priority.NORMAL, jobs.get(0).getJobAttribute(PriorityJobAttribute.class).getPriority());
+    Assertions.assertEquals("https://venom.preferred.ai/2", jobs.get(1).getRequest().getUrl());
+  }
+
+  @Test
+  void testWriteReplaces() throws IOException {
+    final JobCheckpoint checkpoint = new JobCheckpoint(tempDir.resolve("frontier.ckpt"));
+    checkpoint.write(Collections.singletonList(new Job(new VRequest("https://venom.preferred.ai"))));
+    checkpoint.write(Collections.emptyList());
+    Assertions.assertTrue(checkpoint.read().isEmpty());
+  }
+
+  @Test
+  void testMalformedFile() throws IOException {
+    final Path file = tempDir.resolve("frontier.ckpt");
+    Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+    Assertions.assertThrows(IOException.class, () -> new JobCheckpoint(file).read());
+  }
+
+}
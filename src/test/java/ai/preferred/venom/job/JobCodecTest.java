@@ -0,0 +1,161 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.Handler;
+import ai.preferred.venom.Session;
+import ai.preferred.venom.SleepScheduler;
+import ai.preferred.venom.Worker;
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import ai.preferred.venom.response.VResponse;
+import org.apache.http.HttpHost;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class JobCodecTest {
+
+  private static final AtomicBoolean NOT_A_HANDLER_INITIALIZED = new AtomicBoolean();
+
+  private final JobCodec codec = new JobCodec();
+
+  @Test
+  void testRequestRoundTrip() throws IOException {
+    final VRequest request = VRequest.Builder.post("https://venom.preferred.ai/ü")
+        .setBody("body")
+        .addHeader("User-Agent", "venom")
+        .setProxy(new HttpHost("127.0.0.1", 8080, "http"))
+        .setSleepScheduler(new SleepScheduler(100, 200))
+        .build();
+    final Job job = new Job(request);
+    job.prepareRetry();
+
+    final Job decoded = codec.decode(codec.encode(job));
+    final Request decodedRequest = decoded.getRequest();
+    Assertions.assertEquals(Request.Method.POST, decodedRequest.getMethod());
+    Assertions.assertEquals(request.getUrl(), decodedRequest.getUrl());
+    Assertions.assertEquals("body", decodedRequest.getBody());
+    Assertions.assertEquals(request.getHeaders(), decodedRequest.getHeaders());
+    Assertions.assertEquals(request.getProxy(), decodedRequest.getProxy());
+    Assertions.assertEquals(100, decodedRequest.getSleepScheduler().getMin());
+    Assertions.assertEquals(200, decodedRequest.getSleepScheduler().getMax());
+    Assertions.assertEquals(2, decoded.getTryCount());
+    Assertions.assertNull(decoded.getHandler());
+  }
+
+  @Test
+  void testAttributesRoundTrip() throws IOException {
+    final Job job = new Job(new VRequest("https://venom.preferred.ai"), null,
+        new PriorityJobAttribute(Priority.HIGHEST, Priority.HIGH),
+        new BackoffJobAttribute(100, 3, 1000, 0),
+        new FakeJobAttribute());
+    job.prepareRetry();
+    job.prepareRetry();
+
+    final Job decoded = codec.decode(codec.encode(job));
+    final PriorityJobAttribute priority = decoded.getJobAttribute(PriorityJobAttribute.class);
+    Assertions.assertEquals(Priority.HIGH, priority.getPriority());
+    priority.prepareRetry();
+    Assertions.assertEquals(Priority.HIGH, priority.getPriority());
+
+    final BackoffJobAttribute backoff = decoded.getJobAttribute(BackoffJobAttribute.class);
+    Assertions.assertEquals(2, backoff.getRetries());
+    Assertions.assertEquals(300, backoff.getDelay());
+    Assertions.assertNull(decoded.getJobAttribute(FakeJobAttribute.class));
+  }
+
+  @Test
+  void testRegisterAttributeCodec() throws IOException {
+    codec.register(FakeJobAttribute.class, new JobCodec.AttributeCodec<FakeJobAttribute>() {
+      @Override
+      public void write(final FakeJobAttribute attribute, final DataOutput out) {
+      }
+
+      @Override
+      public FakeJobAttribute read(final DataInput in) {
+        return new FakeJobAttribute();
+      }
+    });
+    final Job job = new Job(new VRequest("https://venom.preferred.ai"), null, new FakeJobAttribute());
+    Assertions.assertNotNull(codec.decode(codec.encode(job)).getJobAttribute(FakeJobAttribute.class));
+  }
+
+  @Test
+  void testHandlerResolution() throws IOException {
+    final Job namedJob = new Job(new VRequest("https://venom.preferred.ai"), new NamedHandler());
+    Assertions.assertTrue(codec.decode(codec.encode(namedJob)).getHandler() instanceof NamedHandler);
+
+    final Job lambdaJob = new Job(new VRequest("https://venom.preferred.ai"),
+        (request, response, scheduler, session, worker) -> {
+        });
+    Assertions.assertNull(codec.decode(codec.encode(lambdaJob)).getHandler());
+
+    final Handler resolved = new NamedHandler();
+    final JobCodec resolvingCodec = new JobCodec(name -> resolved);
+    Assertions.assertSame(resolved, resolvingCodec.decode(resolvingCodec.encode(lambdaJob)).getHandler());
+  }
+
+  @Test
+  void testRejectNonHandlerClass() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    codec.encodeRequest(new VRequest("https://venom.preferred.ai"), out);
+    final byte[] className = NotAHandler.class.getName().getBytes(StandardCharsets.UTF_8);
+    out.writeInt(className.length);
+    out.write(className);
+    out.writeInt(1);
+    out.writeInt(0);
+
+    Assertions.assertNull(codec.decode(bytes.toByteArray()).getHandler());
+    Assertions.assertFalse(NOT_A_HANDLER_INITIALIZED.get());
+  }
+
+  @Test
+  void testMalformedInput() {
+    Assertions.assertThrows(IOException.class, () -> codec.decode(new byte[]{0, 3, 'F', 'O', 'O'}));
+    final byte[] bytes = codec.encode(new Job(new VRequest("https://venom.preferred.ai")));
+    Assertions.assertThrows(IOException.class, () -> codec.decode(Arrays.copyOf(bytes, bytes.length - 2)));
+  }
+
+  public static class NotAHandler {
+
+    static {
+      NOT_A_HANDLER_INITIALIZED.set(true);
+    }
+
+  }
+
+  public static class NamedHandler implements Handler {
+
+    @Override
+    public void handle(final Request request, final VResponse response, final Scheduler scheduler,
+                       final Session session, final Worker worker) {
+    }
+
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class JobFootprintTest {
+
+  private static final int JOBS = 200_000;
+
+  // The jobs, requests and header sets retained, excluding the urls, took 400 bytes per job before
+  // attributes were compacted and header sets interned, and take about 100 bytes after.
+  private static final long MAX_BYTES_PER_JOB = 160;
+
+  private static long usedMemory() throws InterruptedException {
+    final Runtime runtime = Runtime.getRuntime();
+    long used = Long.MAX_VALUE;
+    for (int i = 0; i < 5; i++) {
+      System.gc();
+      Thread.sleep(50);
+      used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+    }
+    return used;
+  }
+
+  @Test
+  void testBytesPerQueuedJob() throws InterruptedException {
+    final List<String> urls = new ArrayList<>(JOBS);
+    for (int i = 0; i < JOBS; i++) {
+      urls.add("https://venom.preferred.ai/catalogue/item-" + i + "?page=" + (i % 100));
+    }
+
+    final long before = usedMemory();
+    final PriorityJobQueue jobQueue = new PriorityJobQueue();
+    for (final String url : urls) {
+      jobQueue.add(new Job(VRequest.Builder.get(url)
+          .addHeader("Accept", "text/html")
+          .addHeader("Accept-Language", "en")
+          .build(), null, new PriorityJobAttribute()));
+    }
+    final long bytesPerJob = (usedMemory() - before) / JOBS;
+
+    Assertions.assertEquals(JOBS, jobQueue.size());
+    Assertions.assertTrue(bytesPerJob < MAX_BYTES_PER_JOB, "Retained " + bytesPerJob + " bytes per queued job.");
+  }
+
+}
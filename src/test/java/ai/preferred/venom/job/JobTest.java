@@ -82,4 +82,39 @@ class JobTest {
     Assertions.assertEquals(fakeJobAttribute, jobAttribute);
   }
 
+  @Test
+  void testJobAttributeSlots() {
+    final PriorityJobAttribute priority = new PriorityJobAttribute(Priority.HIGH);
+    final BackoffJobAttribute backoff = new BackoffJobAttribute(10, 2, 100, 0);
+    final FakeJobAttribute fakeJobAttribute = new FakeJobAttribute();
+    final Job job = new Job(new VRequest("https://venom.preferred.ai"), null, priority, backoff, fakeJobAttribute);
+
+    Assertions.assertSame(priority, job.getJobAttribute(PriorityJobAttribute.class));
+    Assertions.assertSame(backoff, job.getJobAttribute(BackoffJobAttribute.class));
+    Assertions.assertSame(fakeJobAttribute, job.getJobAttribute(FakeJobAttribute.class));
+    Assertions.assertEquals(3, job.getJobAttributes().size());
+
+    final PriorityJobAttribute replacement = new PriorityJobAttribute(Priority.HIGHEST);
+    final FakeJobAttribute fakeReplacement = new FakeJobAttribute();
+    job.setJobAttribute(replacement).setJobAttribute(fakeReplacement);
+    Assertions.assertSame(replacement, job.getJobAttribute(PriorityJobAttribute.class));
+    Assertions.assertSame(fakeReplacement, job.getJobAttribute(FakeJobAttribute.class));
+    Assertions.assertEquals(3, job.getJobAttributes().size());
+
+    job.prepareRetry();
+    Assertions.assertEquals(Priority.HIGH, replacement.getPriority());
+    Assertions.assertEquals(1, backoff.getRetries());
+    Assertions.assertEquals(1, fakeReplacement.getCount());
+    Assertions.assertEquals(0, fakeJobAttribute.getCount());
+  }
+
+  @Test
+  void testMissingJobAttribute() {
+    final Job job = new Job(new VRequest("https://venom.preferred.ai"), null);
+    Assertions.assertNull(job.getJobAttribute(PriorityJobAttribute.class));
+    Assertions.assertNull(job.getJobAttribute(BackoffJobAttribute.class));
+    Assertions.assertNull(job.getJobAttribute(FakeJobAttribute.class));
+    Assertions.assertTrue(job.getJobAttributes().isEmpty());
+  }
+
 }
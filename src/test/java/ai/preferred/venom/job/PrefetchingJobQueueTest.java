@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+class PrefetchingJobQueueTest {
+
+  private static Request request(final int i) {
+    return new VRequest("https://venom.preferred.ai/" + i);
+  }
+
+  private static List<String> drain(final PrefetchingJobQueue jobQueue) throws InterruptedException {
+    final List<String> urls = new ArrayList<>();
+    Job job;
+    while ((job = jobQueue.poll(1, TimeUnit.SECONDS)) != null) {
+      urls.add(job.getRequest().getUrl());
+    }
+    return urls;
+  }
+
+  @Test
+  void testQueuedJobsFirst() throws InterruptedException {
+    final List<Request> requests = IntStream.range(0, 10).mapToObj(PrefetchingJobQueueTest::request)
+        .collect(Collectors.toList());
+    try (PrefetchingJobQueue jobQueue = new PrefetchingJobQueue(requests.iterator(), null)) {
+      final Job job = new Job(request(100));
+      jobQueue.add(job);
+      Assertions.assertEquals(job, jobQueue.poll());
+      Assertions.assertNotNull(job.getJobAttribute(PriorityJobAttribute.class));
+
+      final List<String> urls = drain(jobQueue);
+      Assertions.assertEquals(requests.stream().map(Request::getUrl).collect(Collectors.toList()), urls);
+      Assertions.assertTrue(jobQueue.isEmpty());
+    }
+  }
+
+  @Test
+  void testBoundedBatches() throws InterruptedException {
+    final Spliterator<Request> source = IntStream.range(0, 100).mapToObj(PrefetchingJobQueueTest::request)
+        .spliterator();
+    try (PrefetchingJobQueue jobQueue = new PrefetchingJobQueue(source, null, 8, 3)) {
+      Assertions.assertFalse(jobQueue.isEmpty());
+      Assertions.assertEquals(100, drain(jobQueue).size());
+      Assertions.assertTrue(jobQueue.isEmpty());
+    }
+  }
+
+  @Test
+  void testSlowSourceDoesNotBlockPoll() throws InterruptedException {
+    final CountDownLatch release = new CountDownLatch(1);
+    final Iterator<Request> slow = new Iterator<Request>() {
+      private boolean done;
+
+      @Override
+      public boolean hasNext() {
+        try {
+          release.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return !done;
+      }
+
+      @Override
+      public Request next() {
+        done = true;
+        return request(0);
+      }
+    };
+
+    try (PrefetchingJobQueue jobQueue = new PrefetchingJobQueue(slow, null)) {
+      final long start = System.nanoTime();
+      Assertions.assertNull(jobQueue.poll());
+      Assertions.assertFalse(jobQueue.isEmpty());
+      final Job job = new Job(request(1));
+      jobQueue.add(job);
+      Assertions.assertEquals(job, jobQueue.poll(1, TimeUnit.SECONDS));
+      Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+      release.countDown();
+      Assertions.assertEquals(request(0).getUrl(), jobQueue.poll(1, TimeUnit.SECONDS).getRequest().getUrl());
+    }
+  }
+
+  @Test
+  void testStreamClosed() throws InterruptedException {
+    final AtomicBoolean closed = new AtomicBoolean();
+    final Stream<Request> stream = Stream.of(request(0), request(1)).onClose(() -> closed.set(true));
+    try (PrefetchingJobQueue jobQueue = new PrefetchingJobQueue(stream, null)) {
+      Assertions.assertEquals(2, drain(jobQueue).size());
+      Assertions.assertTrue(closed.get());
+    }
+
+    final AtomicBoolean unread = new AtomicBoolean();
+    final PrefetchingJobQueue jobQueue = new PrefetchingJobQueue(
+        Stream.of(request(0)).onClose(() -> unread.set(true)), null);
+    jobQueue.close();
+    Assertions.assertTrue(unread.get());
+    Assertions.assertTrue(jobQueue.isEmpty());
+  }
+
+  @Test
+  void testInvalidArguments() {
+    final Spliterator<Request> source = Spliterators.spliterator(Arrays.asList(request(0)), 0);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new PrefetchingJobQueue(source, null, 0, 1));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new PrefetchingJobQueue(source, null, 1, 0));
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class PriorityLaneJobQueueTest {
+
+  private final String url = "https://venom.preferred.ai";
+  private final Job job = new Job(new VRequest(url));
+
+  private PriorityLaneJobQueue jobQueue;
+
+  private static Job job(final String path, final Priority priority) {
+    return new Job(new VRequest("https://venom.preferred.ai/" + path), null, new PriorityJobAttribute(priority));
+  }
+
+  @BeforeEach
+  void initEach() {
+    jobQueue = new PriorityLaneJobQueue();
+  }
+
+  @Test
+  void testAddRequest() {
+    jobQueue.add(job);
+    final Job pollJob = jobQueue.poll();
+    Assertions.assertEquals(job, pollJob);
+    Assertions.assertNotNull(pollJob.getJobAttribute(PriorityJobAttribute.class));
+    Assertions.assertNull(jobQueue.poll());
+  }
+
+  @Test
+  void testPriorityAndFifoOrder() {
+    final Job low1 = job("low1", Priority.LOW);
+    final Job normal1 = job("normal1", Priority.NORMAL);
+    final Job low2 = job("low2", Priority.LOW);
+    final Job highest = job("highest", Priority.HIGHEST);
+    final Job normal2 = job("normal2", Priority.NORMAL);
+    jobQueue.add(low1);
+    jobQueue.add(normal1);
+    jobQueue.add(low2);
+    jobQueue.add(highest);
+    jobQueue.add(normal2);
+
+    Assertions.assertEquals(5, jobQueue.size());
+    Assertions.assertEquals(highest, jobQueue.peek());
+    Assertions.assertEquals(highest, jobQueue.poll());
+    Assertions.assertEquals(normal1, jobQueue.poll());
+    Assertions.assertEquals(normal2, jobQueue.poll());
+    Assertions.assertEquals(low1, jobQueue.poll());
+    Assertions.assertEquals(low2, jobQueue.poll());
+    Assertions.assertTrue(jobQueue.isEmpty());
+  }
+
+  @Test
+  void testAging() throws InterruptedException {
+    jobQueue = new PriorityLaneJobQueue(10);
+    final Job lowest = job("lowest", Priority.LOWEST);
+    jobQueue.add(lowest);
+    Thread.sleep(100);
+    final Job high = job("high", Priority.HIGH);
+    jobQueue.add(high);
+
+    Assertions.assertEquals(lowest, jobQueue.poll());
+    Assertions.assertEquals(high, jobQueue.poll());
+  }
+
+  @Test
+  void testIteratorAndRemove() {
+    final Job low = job("low", Priority.LOW);
+    final Job high = job("high", Priority.HIGH);
+    jobQueue.add(low);
+    jobQueue.add(high);
+
+    final List<Job> jobs = new ArrayList<>(jobQueue);
+    Assertions.assertEquals(high, jobs.get(0));
+    Assertions.assertEquals(low, jobs.get(1));
+
+    Assertions.assertTrue(jobQueue.remove(high));
+    Assertions.assertFalse(jobQueue.remove(high));
+    Assertions.assertEquals(1, jobQueue.size());
+    Assertions.assertEquals(low, jobQueue.poll());
+  }
+
+  @Test
+  void testPollTimeout() throws InterruptedException {
+    Assertions.assertNull(jobQueue.poll(10, TimeUnit.MILLISECONDS));
+    new Thread(() -> jobQueue.add(job)).start();
+    Assertions.assertEquals(job, jobQueue.poll(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testConcurrentProducers() throws InterruptedException {
+    final int producers = 4;
+    final int perProducer = 1000;
+    final List<Thread> threads = new ArrayList<>();
+    for (int p = 0; p < producers; p++) {
+      final Thread thread = new Thread(() -> {
+        for (int i = 0; i < perProducer; i++) {
+          jobQueue.add(job(String.valueOf(i), Priority.values()[i % Priority.values().length]));
+        }
+      });
+      threads.add(thread);
+      thread.start();
+    }
+
+    final Set<Job> taken = ConcurrentHashMap.newKeySet();
+    while (taken.size() < producers * perProducer) {
+      taken.add(jobQueue.take());
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    Assertions.assertTrue(jobQueue.isEmpty());
+  }
+
+  @Test
+  void testConcurrentRemove() throws InterruptedException {
+    final int jobs = 4000;
+    final AtomicBoolean produced = new AtomicBoolean();
+    final Thread producer = new Thread(() -> {
+      for (int i = 0; i < jobs; i++) {
+        jobQueue.add(job(String.valueOf(i), Priority.values()[i % Priority.values().length]));
+      }
+      produced.set(true);
+    });
+    final Thread remover = new Thread(() -> {
+      while (!produced.get()) {
+        jobQueue.removeIf(job -> job.getRequest().getUrl().hashCode() % 2 == 0);
+      }
+    });
+    producer.start();
+    remover.start();
+
+    final Set<Job> taken = ConcurrentHashMap.newKeySet();
+    Job taking;
+    while ((taking = jobQueue.poll(100, TimeUnit.MILLISECONDS)) != null || remover.isAlive()) {
+      if (taking != null) {
+        taken.add(taking);
+      }
+    }
+    producer.join();
+    remover.join();
+    Assertions.assertEquals(0, jobQueue.size());
+    Assertions.assertNull(jobQueue.poll());
+    Assertions.assertTrue(taken.size() <= jobs);
+  }
+
+  @Test
+  void testInvalidAgingInterval() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new PriorityLaneJobQueue(-1));
+  }
+
+}
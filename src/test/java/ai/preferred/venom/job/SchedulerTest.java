@@ -17,6 +17,7 @@
 package ai.preferred.venom.job;
 
 import ai.preferred.venom.Handler;
+import ai.preferred.venom.dedup.FingerprintSeenFilter;
 import ai.preferred.venom.request.VRequest;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -77,4 +78,18 @@ class SchedulerTest {
     Assertions.assertEquals(priorityJobAttribute, job.getJobAttribute(priorityJobAttribute.getClass()));
   }
 
+  @Test
+  void testAddRequestSeenFilter() {
+    final FIFOJobQueue jobQueue = new FIFOJobQueue();
+    final Scheduler scheduler = new Scheduler(jobQueue, new FingerprintSeenFilter());
+    scheduler.add(vRequest, handler);
+    scheduler.add(new VRequest(url), handler);
+    scheduler.add(VRequest.Builder.post(url).setBody("a").build());
+    scheduler.add(VRequest.Builder.post(url).setBody("b").build());
+    scheduler.add(VRequest.Builder.post(url).setBody("b").addHeader("User-Agent", "venom").build());
+    scheduler.add(VRequest.Builder.post(url).setBody("b=1&b=2").build());
+    scheduler.add(VRequest.Builder.post(url).setBody("b=2").build());
+    Assertions.assertEquals(5, jobQueue.size());
+  }
+
 }
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.job;
+
+import ai.preferred.venom.Handler;
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+class SpillingJobQueueTest {
+
+  @TempDir
+  Path tempDir;
+
+  private SpillingJobQueue jobQueue;
+
+  private static Job job(final String path, final Priority priority) {
+    return new Job(new VRequest("https://venom.preferred.ai/" + path), null, new PriorityJobAttribute(priority));
+  }
+
+  private long countFiles() throws IOException {
+    try (Stream<Path> files = Files.walk(tempDir)) {
+      return files.filter(Files::isRegularFile).count();
+    }
+  }
+
+  @BeforeEach
+  void initEach() throws IOException {
+    jobQueue = new SpillingJobQueue(tempDir, 2, 256, new JobCodec());
+  }
+
+  @AfterEach
+  void closeEach() throws IOException {
+    jobQueue.close();
+  }
+
+  @Test
+  void testAddRequest() {
+    final Job job = new Job(new VRequest("https://venom.preferred.ai"));
+    jobQueue.add(job);
+    Assertions.assertSame(job, jobQueue.poll());
+    Assertions.assertNotNull(job.getJobAttribute(PriorityJobAttribute.class));
+    Assertions.assertTrue(jobQueue.isEmpty());
+    Assertions.assertNull(jobQueue.poll());
+  }
+
+  @Test
+  void testSpillPreservesPriorityOrder() throws IOException {
+    jobQueue.add(job("low-1", Priority.LOW));
+    jobQueue.add(job("normal-1", Priority.NORMAL));
+    for (int i = 2; i <= 10; i++) {
+      jobQueue.add(job("low-" + i, Priority.LOW));
+    }
+    jobQueue.add(job("high-1", Priority.HIGH));
+    jobQueue.add(job("normal-2", Priority.NORMAL));
+
+    Assertions.assertEquals(13, jobQueue.size());
+    Assertions.assertEquals(11, jobQueue.getSpilledSize());
+    Assertions.assertTrue(countFiles() > 1);
+    Assertions.assertEquals("https://venom.preferred.ai/high-1", jobQueue.peek().getRequest().getUrl());
+
+    final List<String> urls = new ArrayList<>();
+    Job job;
+    while ((job = jobQueue.poll()) != null) {
+      urls.add(job.getRequest().getUrl().substring("https://venom.preferred.ai/".length()));
+    }
+    final List<String> expected = new ArrayList<>();
+    expected.add("high-1");
+    expected.add("normal-1");
+    expected.add("normal-2");
+    for (int i = 1; i <= 10; i++) {
+      expected.add("low-" + i);
+    }
+    Assertions.assertEquals(expected, urls);
+    Assertions.assertEquals(0, jobQueue.getSpilledSize());
+    Assertions.assertEquals(0, countFiles());
+  }
+
+  @Test
+  void testSpilledJobKeepsState() {
+    final Job retried = job("retried", Priority.HIGH);
+    retried.prepareRetry();
+    jobQueue.add(job("a", Priority.HIGHEST));
+    jobQueue.add(job("b", Priority.HIGHEST));
+    jobQueue.add(retried);
+
+    jobQueue.poll();
+    jobQueue.poll();
+    final Job job = jobQueue.poll();
+    Assertions.assertNotSame(retried, job);
+    Assertions.assertEquals(retried.getRequest().getUrl(), job.getRequest().getUrl());
+    Assertions.assertEquals(2, job.getTryCount());
+    Assertions.assertEquals(Priority.NORMAL, job.getJobAttribute(PriorityJobAttribute.class).getPriority());
+  }
+
+  @Test
+  void testIterator() {
+    for (int i = 0; i < 5; i++) {
+      jobQueue.add(job(String.valueOf(i), Priority.NORMAL));
+    }
+    final List<String> urls = new ArrayList<>();
+    jobQueue.forEach(job -> urls.add(job.getRequest().getUrl()));
+    Assertions.assertEquals(5, urls.size());
+    Assertions.assertEquals("https://venom.preferred.ai/4", urls.get(4));
+    Assertions.assertEquals(5, jobQueue.size());
+  }
+
+  @Test
+  void testSpilledJobKeepsHandlerAndAttributes() {
+    final Handler handler = (request, response, scheduler, session, worker) -> {
+    };
+    final FakeJobAttribute attribute = new FakeJobAttribute();
+    jobQueue.add(job("a", Priority.NORMAL));
+    jobQueue.add(job("b", Priority.NORMAL));
+    jobQueue.add(new Job(new VRequest("https://venom.preferred.ai/c"), handler, attribute));
+    Assertions.assertEquals(1, jobQueue.getSpilledSize());
+
+    jobQueue.poll();
+    jobQueue.poll();
+    final Job job = jobQueue.poll();
+    Assertions.assertSame(handler, job.getHandler());
+    Assertions.assertSame(attribute, job.getJobAttribute(FakeJobAttribute.class));
+  }
+
+  @Test
+  void testSpilledJobsShareInternedHandler() {
+    final Handler handler = (request, response, scheduler, session, worker) -> {
+    };
+    final SpillingBlockingQueue queue = (SpillingBlockingQueue) jobQueue.getQueue();
+    for (int i = 0; i < 10; i++) {
+      jobQueue.add(new Job(new VRequest("https://venom.preferred.ai/" + i), handler,
+          new PriorityJobAttribute(Priority.NORMAL), new BackoffJobAttribute(100, 1000)));
+    }
+    Assertions.assertEquals(8, jobQueue.getSpilledSize());
+    Assertions.assertEquals(1, queue.internedSize());
+
+    final Iterator<Job> iterator = jobQueue.iterator();
+    for (int i = 0; i < 4; i++) {
+      iterator.next();
+    }
+    iterator.remove();
+    Assertions.assertEquals(1, queue.internedSize());
+
+    Job job;
+    while ((job = jobQueue.poll()) != null) {
+      Assertions.assertSame(handler, job.getHandler());
+      Assertions.assertNotNull(job.getJobAttribute(BackoffJobAttribute.class));
+    }
+    Assertions.assertEquals(0, queue.internedSize());
+  }
+
+  @Test
+  void testIteratorRemoveSpilled() {
+    for (int i = 0; i < 5; i++) {
+      jobQueue.add(job(String.valueOf(i), Priority.NORMAL));
+    }
+    final Iterator<Job> iterator = jobQueue.iterator();
+    while (iterator.hasNext()) {
+      final String url = iterator.next().getRequest().getUrl();
+      if (url.endsWith("/1") || url.endsWith("/2") || url.endsWith("/4")) {
+        iterator.remove();
+      }
+    }
+    Assertions.assertEquals(2, jobQueue.size());
+    Assertions.assertEquals(1, jobQueue.getSpilledSize());
+
+    final List<String> urls = new ArrayList<>();
+    jobQueue.forEach(job -> urls.add(job.getRequest().getUrl()));
+    Assertions.assertEquals(2, urls.size());
+    Assertions.assertEquals("https://venom.preferred.ai/3", urls.get(1));
+    Assertions.assertEquals("https://venom.preferred.ai/0", jobQueue.poll().getRequest().getUrl());
+    Assertions.assertEquals("https://venom.preferred.ai/3", jobQueue.poll().getRequest().getUrl());
+    Assertions.assertNull(jobQueue.poll());
+  }
+
+  @Test
+  void testPollTimeout() throws InterruptedException {
+    Assertions.assertNull(jobQueue.poll(10, TimeUnit.MILLISECONDS));
+    final Job job = job("a", Priority.NORMAL);
+    new Thread(() -> jobQueue.add(job)).start();
+    Assertions.assertSame(job, jobQueue.poll(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testClose() throws IOException {
+    for (int i = 0; i < 5; i++) {
+      jobQueue.add(job(String.valueOf(i), Priority.NORMAL));
+    }
+    jobQueue.close();
+    Assertions.assertEquals(0, jobQueue.size());
+    try (Stream<Path> files = Files.list(tempDir)) {
+      Assertions.assertEquals(0, files.count());
+    }
+    Assertions.assertThrows(IllegalStateException.class, () -> jobQueue.add(job("a", Priority.NORMAL)));
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.limiter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class AimdConcurrencyLimiterTest {
+
+  private final long latency = TimeUnit.MILLISECONDS.toNanos(100);
+
+  @Test
+  void testIncreaseOnSuccess() throws InterruptedException {
+    final AimdConcurrencyLimiter limiter = AimdConcurrencyLimiter.builder().setInitialLimit(4).build();
+    for (int i = 0; i < 100; i++) {
+      for (int j = 0; j < limiter.getLimit(); j++) {
+        limiter.acquire();
+      }
+      while (limiter.getInFlight() > 0) {
+        limiter.release(ConcurrencyLimiter.Outcome.SUCCESS, latency);
+      }
+    }
+    Assertions.assertTrue(limiter.getLimit() > 4);
+    Assertions.assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  void testDecreaseOnDrop() throws InterruptedException {
+    final AimdConcurrencyLimiter limiter = AimdConcurrencyLimiter.builder()
+        .setInitialLimit(10)
+        .setBackoffRatio(0.5)
+        .build();
+    for (int i = 0; i < 10; i++) {
+      limiter.acquire();
+    }
+    for (int i = 0; i < 10; i++) {
+      limiter.release(ConcurrencyLimiter.Outcome.DROPPED, latency);
+    }
+    Assertions.assertEquals(5, limiter.getLimit());
+  }
+
+  @Test
+  void testDecreaseOnLatency() throws InterruptedException {
+    final AimdConcurrencyLimiter limiter = AimdConcurrencyLimiter.builder()
+        .setInitialLimit(2)
+        .setBackoffRatio(0.5)
+        .build();
+    limiter.acquire();
+    limiter.release(ConcurrencyLimiter.Outcome.SUCCESS, latency);
+    for (int i = 0; i < 10; i++) {
+      limiter.acquire();
+      limiter.release(ConcurrencyLimiter.Outcome.SUCCESS, latency * 10);
+    }
+    Assertions.assertEquals(1, limiter.getLimit());
+  }
+
+  @Test
+  void testIgnoredDoesNotChangeLimit() throws InterruptedException {
+    final AimdConcurrencyLimiter limiter = AimdConcurrencyLimiter.builder().setInitialLimit(3).build();
+    limiter.acquire();
+    limiter.release(ConcurrencyLimiter.Outcome.IGNORED, -1);
+    Assertions.assertEquals(3, limiter.getLimit());
+    Assertions.assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  void testAcquireBlocksAtLimit() throws InterruptedException {
+    final AimdConcurrencyLimiter limiter = AimdConcurrencyLimiter.builder().setInitialLimit(1).build();
+    limiter.acquire();
+
+    final CountDownLatch acquired = new CountDownLatch(1);
+    final Thread thread = new Thread(() -> {
+      try {
+        limiter.acquire();
+        acquired.countDown();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    thread.start();
+
+    Assertions.assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+    limiter.release(ConcurrencyLimiter.Outcome.IGNORED, -1);
+    Assertions.assertTrue(acquired.await(1, TimeUnit.SECONDS));
+    thread.join();
+  }
+
+  @Test
+  void testBuilderLimits() {
+    Assertions.assertThrows(IllegalStateException.class, () -> AimdConcurrencyLimiter.builder().setInitialLimit(0));
+    Assertions.assertThrows(IllegalStateException.class, () -> AimdConcurrencyLimiter.builder().setBackoffRatio(1));
+    Assertions.assertThrows(IllegalStateException.class, () -> AimdConcurrencyLimiter.builder().setTolerance(1));
+    Assertions.assertThrows(IllegalStateException.class,
+        () -> AimdConcurrencyLimiter.builder().setMinLimit(10).setMaxLimit(5).build());
+  }
+
+}
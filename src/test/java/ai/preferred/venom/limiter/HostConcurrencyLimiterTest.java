@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.limiter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HostConcurrencyLimiterTest {
+
+  @Test
+  void testHostsAreIndependent() {
+    final HostConcurrencyLimiter limiter = HostConcurrencyLimiter.fixed(1);
+    Assertions.assertTrue(limiter.tryAcquire("a.preferred.ai"));
+    Assertions.assertFalse(limiter.tryAcquire("a.preferred.ai"));
+    Assertions.assertTrue(limiter.tryAcquire("b.preferred.ai"));
+    Assertions.assertEquals(1, limiter.getInFlight("a.preferred.ai"));
+
+    limiter.release("a.preferred.ai", ConcurrencyLimiter.Outcome.SUCCESS, -1);
+    Assertions.assertEquals(0, limiter.getInFlight("a.preferred.ai"));
+    Assertions.assertTrue(limiter.tryAcquire("a.preferred.ai"));
+  }
+
+  @Test
+  void testAdaptiveLimit() {
+    final HostConcurrencyLimiter limiter = HostConcurrencyLimiter.adaptive(4, 8);
+    Assertions.assertEquals(4, limiter.getLimit("a.preferred.ai"));
+    for (int i = 0; i < 4; i++) {
+      Assertions.assertTrue(limiter.tryAcquire("a.preferred.ai"));
+    }
+    for (int i = 0; i < 4; i++) {
+      limiter.release("a.preferred.ai", ConcurrencyLimiter.Outcome.DROPPED, -1);
+    }
+    Assertions.assertTrue(limiter.getLimit("a.preferred.ai") < 4);
+    Assertions.assertEquals(4, limiter.getLimit("b.preferred.ai"));
+  }
+
+  @Test
+  void testGettersDoNotCreateLimiters() {
+    final HostConcurrencyLimiter limiter = HostConcurrencyLimiter.adaptive(4, 8);
+    Assertions.assertEquals(4, limiter.getLimit("a.preferred.ai"));
+    Assertions.assertEquals(0, limiter.getInFlight("a.preferred.ai"));
+    Assertions.assertEquals(0, limiter.getHostCount());
+  }
+
+  @Test
+  void testEvictIdleHosts() {
+    final HostConcurrencyLimiter limiter = new HostConcurrencyLimiter(() -> new FixedConcurrencyLimiter(1), 0);
+    Assertions.assertTrue(limiter.tryAcquire("a.preferred.ai"));
+    Assertions.assertTrue(limiter.tryAcquire("b.preferred.ai"));
+    limiter.release("a.preferred.ai", ConcurrencyLimiter.Outcome.SUCCESS, -1);
+    Assertions.assertEquals(2, limiter.getHostCount());
+
+    Assertions.assertTrue(limiter.tryAcquire("c.preferred.ai"));
+    Assertions.assertEquals(2, limiter.getHostCount());
+    Assertions.assertEquals(1, limiter.getInFlight("b.preferred.ai"));
+    Assertions.assertFalse(limiter.tryAcquire("b.preferred.ai"));
+    limiter.release("b.preferred.ai", ConcurrencyLimiter.Outcome.SUCCESS, -1);
+    Assertions.assertEquals(0, limiter.getInFlight("b.preferred.ai"));
+  }
+
+}
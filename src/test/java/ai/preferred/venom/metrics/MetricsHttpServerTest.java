@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+class MetricsHttpServerTest {
+
+  @Test
+  void testMetricsEndpoint() throws Exception {
+    final MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("venom_test_total", "Test counter.").inc(7);
+
+    try (final MetricsHttpServer server = new MetricsHttpServer(registry,
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+      final URL url = new URL("http://127.0.0.1:" + server.getPort() + "/metrics");
+      final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      Assertions.assertEquals(200, connection.getResponseCode());
+      Assertions.assertTrue(connection.getContentType().startsWith("text/plain"));
+      try (final InputStream stream = connection.getInputStream()) {
+        final String body = IOUtils.toString(stream, StandardCharsets.UTF_8);
+        Assertions.assertTrue(body.contains("venom_test_total 7\n"));
+      }
+    }
+  }
+
+}
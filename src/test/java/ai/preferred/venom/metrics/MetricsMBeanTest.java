@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+class MetricsMBeanTest {
+
+  @Test
+  void testRegister() throws Exception {
+    final MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("venom_test_total", "Test counter.").inc(3);
+
+    final ObjectName objectName = MetricsMBean.register(registry, "MetricsMBeanTest");
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      Assertions.assertEquals(3.0, server.getAttribute(objectName, "venom_test_total"));
+      Assertions.assertEquals(1, server.getMBeanInfo(objectName).getAttributes().length);
+    } finally {
+      MetricsMBean.unregister(objectName);
+    }
+  }
+
+  @Test
+  void testMissingAttribute() {
+    final MetricsMBean mBean = new MetricsMBean(new MetricsRegistry());
+    Assertions.assertThrows(AttributeNotFoundException.class, () -> mBean.getAttribute("venom_missing"));
+  }
+
+}
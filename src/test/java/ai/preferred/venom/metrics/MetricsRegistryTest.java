@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+class MetricsRegistryTest {
+
+  @Test
+  void testCounter() {
+    final MetricsRegistry registry = new MetricsRegistry();
+    final Counter counter = registry.counter("venom_test_total", "Test counter.");
+    counter.inc();
+    counter.inc(2);
+    Assertions.assertSame(counter, registry.counter("venom_test_total", "Test counter."));
+    Assertions.assertEquals(3, counter.get());
+    Assertions.assertEquals(3, registry.collect().get("venom_test_total"));
+  }
+
+  @Test
+  void testGauge() {
+    final MetricsRegistry registry = new MetricsRegistry();
+    registry.gauge("venom_test_gauge", "Test gauge.", () -> 1.5);
+    registry.labeledGauge("venom_test_route", "Test labeled gauge.", "route",
+        () -> ImmutableMap.of("http://a\"b", 2));
+
+    final Map<String, Double> samples = registry.collect();
+    Assertions.assertEquals(1.5, samples.get("venom_test_gauge"));
+    Assertions.assertEquals(2, samples.get("venom_test_route{route=\"http://a\\\"b\"}"));
+  }
+
+  @Test
+  void testHistogram() {
+    final MetricsRegistry registry = new MetricsRegistry();
+    final Histogram histogram = registry.histogram("venom_test_seconds", "Test histogram.", 0.1, 1);
+    histogram.observe(0.05);
+    histogram.observe(0.1);
+    histogram.observeNanos(TimeUnit.MILLISECONDS.toNanos(500));
+    histogram.observe(5);
+
+    final Map<String, Double> samples = registry.collect();
+    Assertions.assertEquals(2, samples.get("venom_test_seconds_bucket{le=\"0.1\"}"));
+    Assertions.assertEquals(3, samples.get("venom_test_seconds_bucket{le=\"1.0\"}"));
+    Assertions.assertEquals(4, samples.get("venom_test_seconds_bucket{le=\"+Inf\"}"));
+    Assertions.assertEquals(4, samples.get("venom_test_seconds_count"));
+    Assertions.assertEquals(5.65, samples.get("venom_test_seconds_sum"), 1e-9);
+  }
+
+  @Test
+  void testPrometheus() {
+    final MetricsRegistry registry = new MetricsRegistry();
+    registry.counter("venom_test_total", "Test counter.").inc();
+    registry.gauge("venom_test_gauge", "Test gauge.", () -> 0.25);
+
+    final String expected = "# HELP venom_test_gauge Test gauge.\n"
+        + "# TYPE venom_test_gauge gauge\n"
+        + "venom_test_gauge 0.25\n"
+        + "# HELP venom_test_total Test counter.\n"
+        + "# TYPE venom_test_total counter\n"
+        + "venom_test_total 1\n";
+    Assertions.assertEquals(expected, registry.toPrometheus());
+  }
+
+  @Test
+  void testInvalid() {
+    final MetricsRegistry registry = new MetricsRegistry();
+    Assertions.assertThrows(IllegalArgumentException.class, () -> registry.counter("venom test", "Invalid."));
+    registry.counter("venom_test_total", "Test counter.");
+    Assertions.assertThrows(IllegalArgumentException.class, () -> registry.histogram("venom_test_total", "Clash."));
+  }
+
+}
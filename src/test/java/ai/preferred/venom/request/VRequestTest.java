@@ -22,6 +22,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 public class VRequestTest {
@@ -220,4 +221,25 @@ public class VRequestTest {
     Assertions.assertNull(vRequest.getSleepScheduler());
   }
 
+  @Test
+  public void testHeadersInterned() {
+    final Map<String, String> headers = new HashMap<>();
+    headers.put("User-Agent", "venom");
+    headers.put("Accept", "text/html");
+
+    final VRequest vRequest1 = new VRequest("https://venom.preferred.ai/1", headers);
+    final VRequest vRequest2 = VRequest.Builder.get("https://venom.preferred.ai/2")
+        .addHeader("Accept", "text/html")
+        .addHeader("User-Agent", "venom")
+        .build();
+    Assertions.assertEquals(headers, vRequest1.getHeaders());
+    Assertions.assertSame(vRequest1.getHeaders(), vRequest2.getHeaders());
+    Assertions.assertSame(new VRequest("https://venom.preferred.ai/3").getHeaders(),
+        new VRequest("https://venom.preferred.ai/4").getHeaders());
+
+    headers.put("Accept", "*/*");
+    Assertions.assertEquals("text/html", vRequest1.getHeaders().get("Accept"));
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> vRequest1.getHeaders().clear());
+  }
+
 }
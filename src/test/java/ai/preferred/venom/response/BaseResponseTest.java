@@ -7,6 +7,8 @@ import org.apache.http.message.BasicHeader;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+
 public class BaseResponseTest {
 
   @Test
@@ -34,4 +36,26 @@ public class BaseResponseTest {
 
   }
 
+  @Test
+  public void testBaseResponseContentBuffer() {
+    final byte[] array = "__This is a test__".getBytes();
+    final ByteBuffer content = ByteBuffer.wrap(array, 2, array.length - 4);
+    final BaseResponse baseResponse = BaseResponse.wrap(200, "http://127.0.0.1", content,
+        ContentType.TEXT_PLAIN, new Header[0], null);
+
+    final ByteBuffer view = baseResponse.getContentBuffer();
+    Assertions.assertTrue(view.isReadOnly());
+    Assertions.assertEquals(ByteBuffer.wrap("This is a test".getBytes()), view);
+    view.get();
+    Assertions.assertEquals(0, baseResponse.getContentBuffer().position());
+
+    Assertions.assertArrayEquals("This is a test".getBytes(), baseResponse.getContent());
+    Assertions.assertSame(baseResponse.getContent(), baseResponse.getContent());
+
+    final byte[] exact = "exact".getBytes();
+    final BaseResponse exactResponse = BaseResponse.wrap(200, "http://127.0.0.1", ByteBuffer.wrap(exact),
+        ContentType.TEXT_PLAIN, new Header[0], null);
+    Assertions.assertSame(exact, exactResponse.getContent());
+  }
+
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.seed;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class JdbcSeedSourceTest {
+
+  private final List<String> urls = Arrays.asList(
+      "https://venom.preferred.ai/1", "https://venom.preferred.ai/2", "https://venom.preferred.ai/3");
+  private final AtomicInteger fetchSize = new AtomicInteger();
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  private Connection connection() {
+    final AtomicInteger row = new AtomicInteger();
+    final ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "next":
+              return row.incrementAndGet() <= urls.size();
+            case "getString":
+              return urls.get(row.get() - 1);
+            default:
+              return null;
+          }
+        });
+    final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "setFetchSize":
+              fetchSize.set((Integer) args[0]);
+              return null;
+            case "executeQuery":
+              return resultSet;
+            case "close":
+              closed.set(true);
+              return null;
+            default:
+              return null;
+          }
+        });
+    return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+        (proxy, method, args) -> "prepareStatement".equals(method.getName()) ? statement : null);
+  }
+
+  @Test
+  void testRead() throws IOException {
+    final List<String> read = new ArrayList<>();
+    try (JdbcSeedSource source = new JdbcSeedSource(connection(), "SELECT url FROM seeds", 0)) {
+      source.forEachRemaining(request -> read.add(request.getUrl()));
+      Assertions.assertEquals(3, source.getOffset());
+    }
+    Assertions.assertEquals(urls, read);
+    Assertions.assertEquals(JdbcSeedSource.DEFAULT_FETCH_SIZE, fetchSize.get());
+    Assertions.assertTrue(closed.get());
+  }
+
+  @Test
+  void testResumeFromOffset() throws IOException {
+    try (JdbcSeedSource source = new JdbcSeedSource(connection(), "SELECT url FROM seeds", 2)) {
+      Assertions.assertEquals("https://venom.preferred.ai/3", source.next().getUrl());
+      Assertions.assertEquals(3, source.getOffset());
+    }
+  }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.seed;
+
+import ai.preferred.venom.request.Request;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+class JsonLinesSeedSourceTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testRead() throws IOException {
+    final Path file = Files.write(tempDir.resolve("seeds.ndjson"), Arrays.asList(
+        "{\"url\": \"https://venom.preferred.ai/1\"}",
+        "",
+        "not json",
+        "{\"url\": \"https://venom.preferred.ai/2\", \"method\": \"post\", "
+            + "\"headers\": {\"Content-Type\": \"text/plain\"}, \"body\": \"text\"}"));
+
+    try (JsonLinesSeedSource source = new JsonLinesSeedSource(file)) {
+      final Request get = source.next();
+      Assertions.assertEquals(Request.Method.GET, get.getMethod());
+      Assertions.assertEquals("https://venom.preferred.ai/1", get.getUrl());
+      Assertions.assertNull(get.getBody());
+
+      final Request post = source.next();
+      Assertions.assertEquals(Request.Method.POST, post.getMethod());
+      Assertions.assertEquals("text/plain", post.getHeaders().get("Content-Type"));
+      Assertions.assertEquals("text", post.getBody());
+      Assertions.assertEquals(4, source.getOffset());
+      Assertions.assertFalse(source.hasNext());
+    }
+
+    try (JsonLinesSeedSource source = new JsonLinesSeedSource(file, 1)) {
+      Assertions.assertEquals("https://venom.preferred.ai/2", source.next().getUrl());
+    }
+  }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.seed;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+class LineSeedSourceTest {
+
+  private final List<String> lines = Arrays.asList(
+      "https://venom.preferred.ai/1", "", "# comment", "  https://venom.preferred.ai/2  ",
+      "https://venom.preferred.ai/3");
+
+  @TempDir
+  Path tempDir;
+
+  private static List<String> urls(final SeedSource source) {
+    final List<String> urls = new ArrayList<>();
+    source.forEachRemaining(request -> urls.add(request.getUrl()));
+    return urls;
+  }
+
+  @Test
+  void testPlainFile() throws IOException {
+    final Path file = Files.write(tempDir.resolve("seeds.txt"), lines);
+    try (LineSeedSource source = new LineSeedSource(file)) {
+      Assertions.assertEquals(0, source.getOffset());
+      Assertions.assertEquals("https://venom.preferred.ai/1", source.next().getUrl());
+      Assertions.assertEquals(1, source.getOffset());
+      Assertions.assertEquals("https://venom.preferred.ai/2", source.next().getUrl());
+      Assertions.assertEquals(4, source.getOffset());
+      Assertions.assertTrue(source.hasNext());
+      Assertions.assertEquals(4, source.getOffset());
+      Assertions.assertEquals("https://venom.preferred.ai/3", source.next().getUrl());
+      Assertions.assertFalse(source.hasNext());
+      Assertions.assertEquals(5, source.getOffset());
+    }
+  }
+
+  @Test
+  void testGzipFile() throws IOException {
+    final Path file = tempDir.resolve("seeds.txt.gz");
+    try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file));
+         Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+      for (final String line : lines) {
+        writer.write(line);
+        writer.write('\n');
+      }
+    }
+    try (LineSeedSource source = new LineSeedSource(file)) {
+      Assertions.assertEquals(3, urls(source).size());
+    }
+  }
+
+  @Test
+  void testResumeFromOffset() throws IOException {
+    final Path file = Files.write(tempDir.resolve("seeds.txt"), lines);
+    final long offset;
+    try (LineSeedSource source = new LineSeedSource(file)) {
+      source.next();
+      offset = source.getOffset();
+    }
+    try (LineSeedSource source = new LineSeedSource(file, offset)) {
+      Assertions.assertEquals(Arrays.asList("https://venom.preferred.ai/2", "https://venom.preferred.ai/3"),
+          urls(source));
+    }
+  }
+
+  @Test
+  void testMapper() throws IOException {
+    final Path file = Files.write(tempDir.resolve("seeds.txt"), lines);
+    try (LineSeedSource source = new LineSeedSource(file, 0,
+        line -> line.isEmpty() ? null : VRequest.Builder.head(line.trim()).build())) {
+      final List<Request> requests = new ArrayList<>();
+      source.forEachRemaining(requests::add);
+      Assertions.assertEquals(4, requests.size());
+      Assertions.assertEquals(Request.Method.HEAD, requests.get(0).getMethod());
+    }
+  }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package ai.preferred.venom.storage;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import ai.preferred.venom.response.BaseResponse;
+import ai.preferred.venom.response.Response;
+import org.apache.http.Header;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHeader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+abstract class AbstractFileManagerTest<T> {
+
+  @TempDir
+  Path tempDir;
+
+  static Response response(final String url, final String content) {
+    return new BaseResponse(200, url, content.getBytes(StandardCharsets.UTF_8),
+        ContentType.create("text/html", StandardCharsets.UTF_8),
+        new Header[]{new BasicHeader("Server", "venom")}, null);
+  }
+
+  abstract FileManager<T> open(File storagePath);
+
+  abstract T parseId(String id);
+
+  @Test
+  void testPutGet() throws Exception {
+    final Request request = VRequest.Builder.post("https://preferred.ai/search")
+        .setBody("q=venom&page=2")
+        .addHeader("Accept", "text/html")
+        .build();
+    try (FileManager<T> fileManager = open(tempDir.toFile())) {
+      final T id = parseId(fileManager.put(request, response(request.getUrl(), "<html>Venom</html>")));
+
+      final Record<T> record = fileManager.get(id);
+      Assertions.assertEquals(id, record.getId());
+      Assertions.assertEquals("https://preferred.ai/search", record.getURL());
+      Assertions.assertEquals(Request.Method.POST, record.getRequestMethod());
+      Assertions.assertEquals("text/html", record.getRequestHeaders().get("Accept"));
+      Assertions.assertEquals("venom", record.getRequestBody().get("q"));
+      Assertions.assertEquals(200, record.getStatusCode());
+      Assertions.assertEquals("venom", record.getResponseHeaders()[0].getValue());
+      Assertions.assertEquals(StandardCharsets.UTF_8, record.getContentType().getCharset());
+      Assertions.assertArrayEquals("<html>Venom</html>".getBytes(StandardCharsets.UTF_8),
+          record.getResponseContent());
+
+      Assertions.assertEquals(id, fileManager.get(request).getId());
+      Assertions.assertNull(fileManager.get(new VRequest("https://preferred.ai/search")));
+    }
+  }
+
+}
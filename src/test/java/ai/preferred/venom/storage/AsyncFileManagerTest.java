@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.storage;
+
+import ai.preferred.venom.fetcher.AsyncFetcher;
+import ai.preferred.venom.fetcher.Fetcher;
+import ai.preferred.venom.limiter.ConcurrencyLimiter;
+import ai.preferred.venom.limiter.FixedConcurrencyLimiter;
+import ai.preferred.venom.metrics.MetricsRegistry;
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import ai.preferred.venom.response.BaseResponse;
+import ai.preferred.venom.response.Response;
+import org.apache.http.Header;
+import org.apache.http.entity.ContentType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class AsyncFileManagerTest {
+
+  private static Response response(final Request request) {
+    return new BaseResponse(200, request.getUrl(), "IPSUM".getBytes(), ContentType.TEXT_HTML, new Header[0], null);
+  }
+
+  @Test
+  void testWriteBehind() throws Exception {
+    final Map<Request, Record<?>> records = new ConcurrentHashMap<>();
+    final FakeFileManager fakeFileManager = new FakeFileManager(records);
+    final AsyncFileManager<Object> fileManager = new AsyncFileManager<>(fakeFileManager);
+    for (int i = 0; i < 100; i++) {
+      final Request request = new VRequest("https://preferred.ai/" + i);
+      fileManager.getCallback().completed(request, response(request));
+    }
+    fileManager.close();
+    Assertions.assertEquals(100, records.size());
+    Assertions.assertTrue(fakeFileManager.getClosed());
+
+    final Request request = new VRequest("https://preferred.ai/closed");
+    fileManager.getCallback().completed(request, response(request));
+    Assertions.assertNotNull(fileManager.get(request));
+  }
+
+  @Test
+  void testBackpressure() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final Map<Request, Record<?>> records = new ConcurrentHashMap<>();
+    final FakeFileManager blockingFileManager = new FakeFileManager(records) {
+      @Override
+      public String put(final Request request, final Response response) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return super.put(request, response);
+      }
+    };
+    final MetricsRegistry metrics = new MetricsRegistry();
+    final AsyncFileManager<Object> fileManager = new AsyncFileManager<>(blockingFileManager, 1, 1, metrics);
+    final ConcurrencyLimiter limiter = fileManager.limit(new FixedConcurrencyLimiter(8));
+
+    final Request first = new VRequest("https://preferred.ai/0");
+    fileManager.getCallback().completed(first, response(first));
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (fileManager.getQueued() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    final Request second = new VRequest("https://preferred.ai/1");
+    fileManager.getCallback().completed(second, response(second));
+
+    final Thread producer = new Thread(() -> {
+      try {
+        limiter.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    producer.start();
+    producer.join(500);
+    Assertions.assertTrue(producer.isAlive());
+    Assertions.assertFalse(limiter.tryAcquire());
+    Assertions.assertEquals(1, fileManager.getQueued());
+    Assertions.assertEquals(1.0, metrics.collect().get("venom_storage_queued"));
+    Assertions.assertTrue(fileManager.getLag() > 0);
+
+    final Request third = new VRequest("https://preferred.ai/2");
+    final Thread caller = new Thread(() -> fileManager.getCallback().completed(third, response(third)));
+    caller.start();
+    caller.join(500);
+    Assertions.assertTrue(caller.isAlive());
+    Assertions.assertEquals(1, fileManager.getQueued());
+
+    release.countDown();
+    producer.join(TimeUnit.SECONDS.toMillis(5));
+    caller.join(TimeUnit.SECONDS.toMillis(5));
+    Assertions.assertFalse(producer.isAlive());
+    Assertions.assertFalse(caller.isAlive());
+    Assertions.assertEquals(1, limiter.getInFlight());
+    fileManager.close();
+    Assertions.assertEquals(3, records.size());
+    Assertions.assertEquals(0, fileManager.getQueued());
+    Assertions.assertEquals(0.0, fileManager.getLag());
+  }
+
+  @Test
+  void testFetcherLimit() throws Exception {
+    final ConcurrencyLimiter limiter = new FixedConcurrencyLimiter(8);
+    final AsyncFileManager<Object> fileManager = new AsyncFileManager<>(new FakeFileManager());
+    try (final Fetcher fetcher = AsyncFetcher.builder().setFileManager(fileManager).build()) {
+      Assertions.assertNotSame(limiter, fetcher.limit(limiter));
+    }
+    try (final Fetcher fetcher = AsyncFetcher.builder().setFileManager(new FakeFileManager()).build()) {
+      Assertions.assertSame(limiter, fetcher.limit(limiter));
+    }
+    fileManager.close();
+  }
+
+  @Test
+  void testFailedWriteCounted() throws Exception {
+    final MetricsRegistry metrics = new MetricsRegistry();
+    final AsyncFileManager<Object> fileManager = new AsyncFileManager<>(new FakeFileManager() {
+      @Override
+      public String put(final Request request, final Response response) {
+        throw new IllegalStateException("Cannot store.");
+      }
+    }, 2, 8, metrics);
+    final Request request = new VRequest("https://preferred.ai/");
+    fileManager.getCallback().completed(request, response(request));
+    fileManager.close();
+    Assertions.assertEquals(1.0, metrics.collect().get("venom_storage_write_failures_total"));
+  }
+
+  @Test
+  void testInvalidArguments() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new AsyncFileManager<>(null));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new AsyncFileManager<>(new FakeFileManager(), 0, 1));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new AsyncFileManager<>(new FakeFileManager(), 1, 0));
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.storage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+class BlobStoreTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testWriteRead() throws IOException {
+    final BlobStore blobStore = new BlobStore(tempDir.toFile());
+    final byte[] content = "<html>Venom</html>".getBytes(StandardCharsets.UTF_8);
+    final byte[] digest = BlobStore.digest(content);
+    Assertions.assertFalse(blobStore.exists(digest));
+
+    final File file = blobStore.write(digest, content);
+    Assertions.assertEquals(blobStore.getFile(digest), file);
+    Assertions.assertEquals(BlobStore.encode(digest) + ".gz", file.getName());
+    Assertions.assertTrue(blobStore.exists(digest));
+    Assertions.assertArrayEquals(content, blobStore.read(digest));
+  }
+
+  @Test
+  void testContentAddressed() throws IOException {
+    final BlobStore blobStore = new BlobStore(tempDir.toFile());
+    final byte[] content = "<html>Venom</html>".getBytes(StandardCharsets.UTF_8);
+    final byte[] other = "<html>Other</html>".getBytes(StandardCharsets.UTF_8);
+    Assertions.assertArrayEquals(BlobStore.digest(content), BlobStore.digest(content.clone()));
+    Assertions.assertNotEquals(blobStore.getFile(BlobStore.digest(content)),
+        blobStore.getFile(BlobStore.digest(other)));
+
+    blobStore.write(BlobStore.digest(content), content);
+    blobStore.write(BlobStore.digest(content), content);
+    blobStore.write(BlobStore.digest(other), other);
+    try (Stream<Path> files = Files.walk(tempDir)) {
+      Assertions.assertEquals(2, files.filter(Files::isRegularFile).count());
+    }
+  }
+
+  @Test
+  void testReadMissing() {
+    final BlobStore blobStore = new BlobStore(tempDir.toFile());
+    Assertions.assertThrows(IOException.class, () -> blobStore.read(BlobStore.digest(new byte[0])));
+  }
+
+}
@@ -25,6 +25,7 @@ import ch.vorburger.mariadb4j.DB;
 import org.apache.http.Header;
 import org.apache.http.entity.ContentType;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
@@ -35,6 +36,9 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
 import java.util.Comparator;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -43,10 +47,12 @@ public class MysqlFileManagerTest {
   private DB db;
   private MysqlFileManager fileManager;
   private Path storage;
+  private int port;
 
   @BeforeAll
   void setUp() throws ManagedProcessException, IOException {
     final int randomPort = SocketUtils.findAvailableTcpPort();
+    port = randomPort;
     db = DB.newEmbeddedDB(randomPort);
     db.start();
     storage = Files.createTempDirectory("test_storage_directory");
@@ -120,6 +126,95 @@ public class MysqlFileManagerTest {
     // TODO: Check DB
   }
 
+  @Test
+  void testBatchedCallback() throws Exception {
+    final int statusCode = 200;
+    final ContentType contentType = ContentType.create("text/html", StandardCharsets.UTF_8);
+    final Header[] headers = {};
+
+    final MysqlFileManager batchedFileManager = new MysqlFileManager("jdbc:mysql://localhost:" + port
+        + "/test?&serverTimezone=UTC", "test", "root", "", storage.toFile(), 4, 10, 50);
+    for (int i = 0; i < 25; i++) {
+      final String url = "https://preferred.ai/batch/" + i;
+      final byte[] content = ("This is batched callback test data " + i + ".").getBytes();
+      batchedFileManager.getCallback().completed(new VRequest(url),
+          new BaseResponse(statusCode, url, content, contentType, headers, null));
+    }
+    batchedFileManager.close();
+
+    final Record<Integer> record = fileManager.get(new VRequest("https://preferred.ai/batch/24"));
+    Assertions.assertNotNull(record);
+    Assertions.assertArrayEquals("This is batched callback test data 24.".getBytes(), record.getResponseContent());
+  }
+
+  @Test
+  void testDeduplicate() throws Exception {
+    final ContentType contentType = ContentType.create("text/html", StandardCharsets.UTF_8);
+    final byte[] content = "This is deduplicate test data.".getBytes();
+    final double ratio = fileManager.getDedupRatio();
+
+    final String first = fileManager.put(new VRequest("https://preferred.ai/dedup/1"),
+        new BaseResponse(200, "https://preferred.ai/dedup/1", content, contentType, new Header[]{}, null));
+    final String second = fileManager.put(new VRequest("https://preferred.ai/dedup/2"),
+        new BaseResponse(200, "https://preferred.ai/dedup/2", content, contentType, new Header[]{}, null));
+
+    Assertions.assertNotEquals(first, second);
+    Assertions.assertArrayEquals(content, fileManager.get(Integer.valueOf(first)).getResponseContent());
+    Assertions.assertArrayEquals(content, fileManager.get(Integer.valueOf(second)).getResponseContent());
+    Assertions.assertTrue(fileManager.getDedupRatio() > ratio);
+  }
+
+  @Test
+  void testGetBackfilled() throws Exception {
+    final String url = "https://preferred.ai/backfill";
+    final byte[] content = "This is backfill test data.".getBytes();
+    final Request request = new VRequest(url);
+    fileManager.put(request, new BaseResponse(200, url, content, ContentType.TEXT_HTML, new Header[0], null));
+    Assertions.assertArrayEquals(content, fileManager.get(request).getResponseContent());
+
+    final String jdbcUrl = "jdbc:mysql://localhost:" + port + "/test?&serverTimezone=UTC";
+    try (Connection conn = DriverManager.getConnection(jdbcUrl, "root", "");
+         Statement statement = conn.createStatement()) {
+      statement.executeUpdate("UPDATE `test` SET fingerprint = NULL");
+    }
+
+    final MysqlFileManager migrated = new MysqlFileManager(jdbcUrl, "test", "root", "", storage.toFile());
+    try {
+      Assertions.assertArrayEquals(content, migrated.get(request).getResponseContent());
+      Assertions.assertTrue(migrated.backfillFingerprints(1) >= 1);
+      Assertions.assertEquals(0, migrated.backfillFingerprints(1));
+      Assertions.assertArrayEquals(content, migrated.get(request).getResponseContent());
+    } finally {
+      migrated.close();
+    }
+  }
+
+  @Test
+  void testBackfillSkipsMalformedRecords() throws Exception {
+    final String url = "https://preferred.ai/malformed";
+    final Request malformed = new VRequest(url);
+    final Request request = new VRequest(url + "/2");
+    final byte[] content = "This is malformed test data.".getBytes();
+    fileManager.put(malformed, new BaseResponse(200, url, content, ContentType.TEXT_HTML, new Header[0], null));
+    fileManager.put(request, new BaseResponse(200, url, content, ContentType.TEXT_HTML, new Header[0], null));
+
+    final String jdbcUrl = "jdbc:mysql://localhost:" + port + "/test?&serverTimezone=UTC";
+    try (Connection conn = DriverManager.getConnection(jdbcUrl, "root", "");
+         Statement statement = conn.createStatement()) {
+      statement.executeUpdate("UPDATE `test` SET fingerprint = NULL");
+      statement.executeUpdate("UPDATE `test` SET request_headers = 'not json' WHERE url = '" + url + "'");
+    }
+
+    final MysqlFileManager migrated = new MysqlFileManager(jdbcUrl, "test", "root", "", storage.toFile());
+    try {
+      Assertions.assertTrue(migrated.backfillFingerprints(1) >= 1);
+      Assertions.assertEquals(0, migrated.backfillFingerprints(1));
+      Assertions.assertArrayEquals(content, migrated.get(request).getResponseContent());
+    } finally {
+      migrated.close();
+    }
+  }
+
   @Test
   void testFailedCallback() {
     final String url = "https://preferred.ai/";
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.storage;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class SegmentFileManagerTest extends AbstractFileManagerTest<Long> {
+
+  @Override
+  SegmentFileManager open(final File storagePath) {
+    return new SegmentFileManager(storagePath);
+  }
+
+  @Override
+  Long parseId(final String id) {
+    return Long.parseLong(id);
+  }
+
+  private List<Path> listSegments() throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.filter(file -> file.toString().endsWith(".log")).sorted().collect(Collectors.toList());
+    }
+  }
+
+  @Test
+  void testGetUnknownId() throws Exception {
+    final Request request = new VRequest("https://preferred.ai/");
+    try (SegmentFileManager fileManager = open(tempDir.toFile())) {
+      final long id = parseId(fileManager.put(request, response(request.getUrl(), "first")));
+      Assertions.assertNull(fileManager.get(id + 1));
+    }
+  }
+
+  @Test
+  void testGetLatest() throws Exception {
+    final Request request = new VRequest("https://preferred.ai/");
+    try (SegmentFileManager fileManager = new SegmentFileManager(tempDir.toFile())) {
+      final long first = Long.parseLong(fileManager.put(request, response(request.getUrl(), "first")));
+      final long second = Long.parseLong(fileManager.put(request, response(request.getUrl(), "second")));
+
+      Assertions.assertEquals(second, (long) fileManager.get(request).getId());
+      Assertions.assertArrayEquals("first".getBytes(StandardCharsets.UTF_8),
+          fileManager.get(first).getResponseContent());
+    }
+  }
+
+  @Test
+  void testRecover() throws Exception {
+    final Request first = new VRequest("https://preferred.ai/1");
+    final Request second = new VRequest("https://preferred.ai/2");
+    final long id;
+    try (SegmentFileManager fileManager = new SegmentFileManager(tempDir.toFile(), 64, 0.5)) {
+      id = Long.parseLong(fileManager.put(first, response(first.getUrl(), "first")));
+      fileManager.put(second, response(second.getUrl(), "second"));
+    }
+    Assertions.assertEquals(2, listSegments().size());
+
+    try (SegmentFileManager fileManager = new SegmentFileManager(tempDir.toFile(), 64, 0.5)) {
+      Assertions.assertEquals(2, fileManager.getRecordCount());
+      Assertions.assertEquals("https://preferred.ai/1", fileManager.get(id).getURL());
+      Assertions.assertArrayEquals("second".getBytes(StandardCharsets.UTF_8),
+          fileManager.get(second).getResponseContent());
+
+      final long next = Long.parseLong(fileManager.put(first, response(first.getUrl(), "third")));
+      Assertions.assertTrue(next > id);
+      Assertions.assertEquals(next, (long) fileManager.get(first).getId());
+    }
+  }
+
+  @Test
+  void testRecoverTruncated() throws Exception {
+    final Request first = new VRequest("https://preferred.ai/1");
+    final Request second = new VRequest("https://preferred.ai/2");
+    try (SegmentFileManager fileManager = new SegmentFileManager(tempDir.toFile())) {
+      fileManager.put(first, response(first.getUrl(), "first"));
+      fileManager.put(second, response(second.getUrl(), "second"));
+    }
+    final Path segment = listSegments().get(0);
+    final long size = Files.size(segment);
+    try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+      file.setLength(size - 3);
+    }
+
+    try (SegmentFileManager fileManager = new SegmentFileManager(tempDir.toFile())) {
+      Assertions.assertEquals(1, fileManager.getRecordCount());
+      Assertions.assertNotNull(fileManager.get(first));
+      Assertions.assertNull(fileManager.get(second));
+
+      fileManager.put(second, response(second.getUrl(), "again"));
+      Assertions.assertArrayEquals("again".getBytes(StandardCharsets.UTF_8),
+          fileManager.get(second).getResponseContent());
+    }
+    try (SegmentFileManager fileManager = new SegmentFileManager(tempDir.toFile())) {
+      Assertions.assertEquals(2, fileManager.getRecordCount());
+    }
+  }
+
+  @Test
+  void testCompact() throws Exception {
+    final Request request = new VRequest("https://preferred.ai/");
+    final Request other = new VRequest("https://preferred.ai/other");
+    try (SegmentFileManager fileManager = new SegmentFileManager(tempDir.toFile(), 64, 0.5)) {
+      final long otherId = Long.parseLong(fileManager.put(other, response(other.getUrl(), "other")));
+      long first = -1;
+      long last = -1;
+      for (int i = 0; i < 5; i++) {
+        last = Long.parseLong(fileManager.put(request, response(request.getUrl(), "content " + i)));
+        if (first < 0) {
+          first = last;
+        }
+      }
+      Assertions.assertEquals(6, fileManager.getSegmentCount());
+
+      Assertions.assertEquals(4, fileManager.compact());
+      Assertions.assertEquals(2, fileManager.getSegmentCount());
+      Assertions.assertEquals(2, fileManager.getRecordCount());
+      Assertions.assertNull(fileManager.get(first));
+      Assertions.assertEquals(last, (long) fileManager.get(request).getId());
+      Assertions.assertArrayEquals("other".getBytes(StandardCharsets.UTF_8),
+          fileManager.get(otherId).getResponseContent());
+      Assertions.assertEquals(0, fileManager.compact());
+    }
+    Assertions.assertEquals(2, listSegments().size());
+
+    try (SegmentFileManager fileManager = new SegmentFileManager(tempDir.toFile(), 64, 0.5)) {
+      Assertions.assertEquals(2, fileManager.getRecordCount());
+      Assertions.assertArrayEquals("content 4".getBytes(StandardCharsets.UTF_8),
+          fileManager.get(request).getResponseContent());
+    }
+  }
+
+  @Test
+  void testCompactLive() throws Exception {
+    final Request request = new VRequest("https://preferred.ai/");
+    final Request other = new VRequest("https://preferred.ai/other");
+    final long recordSize;
+    try (SegmentFileManager fileManager = new SegmentFileManager(tempDir.resolve("size").toFile())) {
+      fileManager.put(request, response(request.getUrl(), "content"));
+      recordSize = Files.size(tempDir.resolve("size").resolve("segment-00000000.log"));
+    }
+
+    try (SegmentFileManager fileManager = new SegmentFileManager(tempDir.toFile(), 2 * recordSize, 0.6)) {
+      final long otherId = Long.parseLong(fileManager.put(other, response(other.getUrl(), "other")));
+      fileManager.put(request, response(request.getUrl(), "content"));
+      fileManager.put(request, response(request.getUrl(), "content"));
+      Assertions.assertEquals(2, fileManager.getSegmentCount());
+
+      Assertions.assertEquals(1, fileManager.compact());
+      Assertions.assertEquals(1, fileManager.getSegmentCount());
+      Assertions.assertEquals(2, fileManager.getRecordCount());
+      Assertions.assertEquals(otherId, (long) fileManager.get(other).getId());
+      Assertions.assertArrayEquals("other".getBytes(StandardCharsets.UTF_8),
+          fileManager.get(otherId).getResponseContent());
+    }
+    Assertions.assertEquals(1, listSegments().size());
+  }
+
+  @Test
+  void testPutClosed() throws Exception {
+    final SegmentFileManager fileManager = new SegmentFileManager(tempDir.toFile());
+    fileManager.close();
+    final Request request = new VRequest("https://preferred.ai/");
+    Assertions.assertThrows(StorageException.class,
+        () -> fileManager.put(request, response(request.getUrl(), "content")));
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.storage;
+
+import ai.preferred.venom.request.Request;
+import org.apache.http.entity.ContentType;
+import org.apache.tika.mime.MimeTypeException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class StorageUtilTest {
+
+  @Test
+  void testGetFileExtension() throws MimeTypeException {
+    Assertions.assertEquals(".html", StorageUtil.getFileExtension("text/html"));
+    Assertions.assertEquals(".html", StorageUtil.getFileExtension("text/html"));
+    Assertions.assertEquals(".png", StorageUtil.getFileExtension("image/png"));
+    Assertions.assertThrows(MimeTypeException.class, () -> StorageUtil.getFileExtension("not a mime type"));
+    Assertions.assertThrows(MimeTypeException.class, () -> StorageUtil.getFileExtension("not a mime type"));
+  }
+
+  @Test
+  void testFingerprint() {
+    final Map<String, String> headers = new LinkedHashMap<>();
+    headers.put("Accept", "text/html");
+    headers.put("Accept-Language", "en");
+    final Map<String, String> reordered = new LinkedHashMap<>();
+    reordered.put("accept-language", "en");
+    reordered.put("ACCEPT", "text/html");
+    reordered.put("Cookie", null);
+
+    final byte[] fingerprint = StorageUtil.getFingerprint(Request.Method.GET, "https://preferred.ai/", headers,
+        Collections.emptyMap());
+    Assertions.assertEquals(16, fingerprint.length);
+    Assertions.assertArrayEquals(fingerprint, StorageUtil.getFingerprint(Request.Method.GET,
+        "https://preferred.ai/", reordered, Collections.emptyMap()));
+    Assertions.assertFalse(Arrays.equals(fingerprint, StorageUtil.getFingerprint(Request.Method.POST,
+        "https://preferred.ai/", headers, Collections.emptyMap())));
+    Assertions.assertFalse(Arrays.equals(fingerprint, StorageUtil.getFingerprint(Request.Method.GET,
+        "https://preferred.ai/", Collections.emptyMap(), headers)));
+  }
+
+  @Test
+  void testGetContentType() {
+    Assertions.assertEquals(StandardCharsets.UTF_8,
+        StorageUtil.getContentType("text/html; charset=UTF-8").getCharset());
+    Assertions.assertEquals(ContentType.APPLICATION_OCTET_STREAM.getMimeType(),
+        StorageUtil.getContentType(null).getMimeType());
+    Assertions.assertEquals(ContentType.APPLICATION_OCTET_STREAM.getMimeType(),
+        StorageUtil.getContentType("text/html; charset=NOT-A-CHARSET").getMimeType());
+  }
+
+  @Test
+  void testParseRequestBody() {
+    final Map<String, String> requestBody = StorageUtil.parseRequestBody("a=1&b");
+    Assertions.assertEquals("1", requestBody.get("a"));
+    Assertions.assertEquals("", requestBody.get("b"));
+    Assertions.assertTrue(StorageUtil.parseRequestBody(null).isEmpty());
+  }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.storage;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import ai.preferred.venom.response.BaseResponse;
+import ai.preferred.venom.response.Response;
+import org.apache.http.Header;
+import org.apache.http.entity.ContentType;
+import org.apache.http.message.BasicHeader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+class WarcFileManagerTest extends AbstractFileManagerTest<String> {
+
+  @Override
+  WarcFileManager open(final File storagePath) {
+    return new WarcFileManager(storagePath);
+  }
+
+  @Override
+  String parseId(final String id) {
+    return id;
+  }
+
+  private long countFiles(final String extension) throws IOException {
+    try (Stream<Path> files = Files.list(tempDir)) {
+      return files.filter(file -> file.toString().endsWith(extension)).count();
+    }
+  }
+
+  @Test
+  void testLatestRecordAfterReopen() throws Exception {
+    final Request request = new VRequest("https://preferred.ai/");
+    try (WarcFileManager fileManager = new WarcFileManager(tempDir.toFile())) {
+      fileManager.put(request, response(request.getUrl(), "first"));
+      fileManager.put(request, response(request.getUrl(), "second"));
+    }
+    try (WarcFileManager fileManager = new WarcFileManager(tempDir.toFile())) {
+      Assertions.assertArrayEquals("second".getBytes(StandardCharsets.UTF_8),
+          fileManager.get(request).getResponseContent());
+      fileManager.put(request, response(request.getUrl(), "third"));
+      Assertions.assertArrayEquals("third".getBytes(StandardCharsets.UTF_8),
+          fileManager.get(request).getResponseContent());
+    }
+    Assertions.assertEquals(2, countFiles(".warc.gz"));
+    Assertions.assertEquals(2, countFiles(".cdx"));
+  }
+
+  @Test
+  void testRotation() throws Exception {
+    try (WarcFileManager fileManager = new WarcFileManager(tempDir.toFile(), 1)) {
+      for (int i = 0; i < 3; i++) {
+        final Request request = new VRequest("https://preferred.ai/" + i);
+        fileManager.put(request, response(request.getUrl(), "page " + i));
+      }
+      Assertions.assertEquals(3, countFiles(".warc.gz"));
+      for (int i = 0; i < 3; i++) {
+        Assertions.assertArrayEquals(("page " + i).getBytes(StandardCharsets.UTF_8),
+            fileManager.get(new VRequest("https://preferred.ai/" + i)).getResponseContent());
+      }
+    }
+  }
+
+  @Test
+  void testWriteFailure() throws Exception {
+    final AtomicBoolean failing = new AtomicBoolean();
+    final Request first = new VRequest("https://preferred.ai/1");
+    final Request second = new VRequest("https://preferred.ai/2");
+    final Request third = new VRequest("https://preferred.ai/3");
+    try (WarcFileManager fileManager = new WarcFileManager(tempDir.toFile()) {
+      @Override
+      OutputStream openFile(final File file, final boolean append) throws IOException {
+        return new FilterOutputStream(super.openFile(file, append)) {
+          @Override
+          public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (failing.get()) {
+              out.write(b, off, len / 2);
+              throw new IOException("No space left on device");
+            }
+            out.write(b, off, len);
+          }
+        };
+      }
+    }) {
+      final String id = fileManager.put(first, response(first.getUrl(), "first"));
+      failing.set(true);
+      Assertions.assertThrows(StorageException.class, () -> fileManager.put(second, response(second.getUrl(), "")));
+      failing.set(false);
+      fileManager.put(third, response(third.getUrl(), "third"));
+
+      Assertions.assertEquals(2, countFiles(".warc.gz"));
+      Assertions.assertArrayEquals("first".getBytes(StandardCharsets.UTF_8),
+          fileManager.get(id).getResponseContent());
+      Assertions.assertNull(fileManager.get(second));
+      Assertions.assertArrayEquals("third".getBytes(StandardCharsets.UTF_8),
+          fileManager.get(third).getResponseContent());
+    }
+  }
+
+  private static String gunzip(final InputStream compressed) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(compressed)) {
+      final byte[] buffer = new byte[4096];
+      int n;
+      while ((n = in.read(buffer)) >= 0) {
+        out.write(buffer, 0, n);
+      }
+    }
+    return out.toString(StandardCharsets.UTF_8.name());
+  }
+
+  @Test
+  void testStandardWarc() throws Exception {
+    final Request request = new VRequest("https://preferred.ai/");
+    try (WarcFileManager fileManager = new WarcFileManager(tempDir.toFile())) {
+      fileManager.put(request, response(request.getUrl(), "content"));
+    }
+    final Path warc;
+    try (Stream<Path> files = Files.list(tempDir)) {
+      warc = files.filter(file -> file.toString().endsWith(".warc.gz")).findFirst().orElseThrow(AssertionError::new);
+    }
+    final String text = gunzip(Files.newInputStream(warc));
+    Assertions.assertTrue(text.startsWith("WARC/1.1\r\nWARC-Type: warcinfo\r\n"));
+    Assertions.assertTrue(text.contains("WARC-Type: response\r\n"));
+    Assertions.assertTrue(text.contains("WARC-Type: request\r\n"));
+    Assertions.assertTrue(text.contains("HTTP/1.1 200 OK\r\nServer: venom\r\n\r\ncontent\r\n\r\n"));
+  }
+
+  @Test
+  void testGzipMemberPerRecord() throws Exception {
+    final Request request = new VRequest("https://preferred.ai/");
+    final String id;
+    try (WarcFileManager fileManager = new WarcFileManager(tempDir.toFile())) {
+      id = fileManager.put(request, response(request.getUrl(), "content"));
+    }
+    final String[] fields = id.split(":");
+    final int offset = Integer.parseInt(fields[1]);
+    final int length = Integer.parseInt(fields[2]);
+    final byte[] warc = Files.readAllBytes(tempDir.resolve(fields[0]));
+    Assertions.assertEquals(0x1f, warc[offset] & 0xff);
+    Assertions.assertEquals(0x8b, warc[offset + 1] & 0xff);
+    Assertions.assertEquals(0x1f, warc[offset + length] & 0xff);
+    Assertions.assertEquals(0x8b, warc[offset + length + 1] & 0xff);
+
+    final String member = gunzip(new ByteArrayInputStream(warc, offset, length));
+    Assertions.assertTrue(member.startsWith("WARC/1.1\r\nWARC-Type: response\r\n"));
+    Assertions.assertTrue(member.endsWith("content\r\n\r\n"));
+    Assertions.assertFalse(member.contains("WARC-Type: request"));
+
+    try (Stream<Path> files = Files.list(tempDir)) {
+      final Path index = files.filter(file -> file.toString().endsWith(".cdx")).findFirst()
+          .orElseThrow(AssertionError::new);
+      final String[] line = new String(Files.readAllBytes(index), StandardCharsets.UTF_8).split(" ");
+      Assertions.assertEquals(fields[1], line[1]);
+      Assertions.assertEquals(fields[2], line[2]);
+    }
+  }
+
+  @Test
+  void testDecodedContentHeaders() throws Exception {
+    final Request request = new VRequest("https://preferred.ai/");
+    final Response response = new BaseResponse(200, request.getUrl(), "content".getBytes(StandardCharsets.UTF_8),
+        ContentType.TEXT_HTML, new Header[]{
+        new BasicHeader("Server", "venom"),
+        new BasicHeader("Content-Encoding", "gzip"),
+        new BasicHeader("Transfer-Encoding", "chunked"),
+        new BasicHeader("Content-Length", "99")}, null);
+    try (WarcFileManager fileManager = new WarcFileManager(tempDir.toFile())) {
+      final Header[] headers = fileManager.get(fileManager.put(request, response)).getResponseHeaders();
+      Assertions.assertEquals(2, headers.length);
+      Assertions.assertEquals("Server", headers[0].getName());
+      Assertions.assertEquals("Content-Length", headers[1].getName());
+      Assertions.assertEquals("7", headers[1].getValue());
+    }
+  }
+
+  @Test
+  void testClosedAndInvalid() throws Exception {
+    final WarcFileManager fileManager = new WarcFileManager(tempDir.toFile());
+    Assertions.assertThrows(StorageException.class, () -> fileManager.get("../secret.warc.gz:0:10"));
+    Assertions.assertThrows(StorageException.class, () -> fileManager.get("venom-00000-x.warc.gz:zero:10"));
+    Assertions.assertNull(fileManager.get(new VRequest("https://preferred.ai/")));
+    fileManager.close();
+    final Request request = new VRequest("https://preferred.ai/");
+    Assertions.assertThrows(StorageException.class, () -> fileManager.put(request, response(request.getUrl(), "")));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new WarcFileManager(tempDir.toFile(), 0));
+  }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 Preferred.AI
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package ai.preferred.venom.validator;
+
+import ai.preferred.venom.request.Request;
+import ai.preferred.venom.request.VRequest;
+import ai.preferred.venom.response.ResponseHead;
+import org.apache.http.Header;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ContentLengthValidatorTest {
+
+  private final Request request = new VRequest("https://venom.preferred.ai");
+  private final Header[] headers = {};
+
+  private ResponseHead head(final long contentLength) {
+    return new ResponseHead(200, request.getUrl(), headers, contentLength, null, null);
+  }
+
+  @Test
+  public void testContentLength() {
+    final ContentLengthValidator validator = new ContentLengthValidator(1024);
+    Assertions.assertEquals(Validator.Status.VALID, validator.isValid(request, head(1024)));
+    Assertions.assertEquals(Validator.Status.VALID, validator.isValid(request, head(-1)));
+    Assertions.assertEquals(Validator.Status.INVALID_CONTENT, validator.isValid(request, head(1025)));
+  }
+
+  @Test
+  public void testNegativeMaximum() {
+    Assertions.assertThrows(IllegalArgumentException.class, () -> new ContentLengthValidator(-1));
+  }
+
+}
@@ -20,6 +20,7 @@ import ai.preferred.venom.request.Request;
 import ai.preferred.venom.request.VRequest;
 import ai.preferred.venom.response.BaseResponse;
 import ai.preferred.venom.response.Response;
+import ai.preferred.venom.response.ResponseHead;
 import org.apache.http.Header;
 import org.apache.http.entity.ContentType;
 import org.junit.jupiter.api.Assertions;
@@ -67,4 +68,17 @@ public class MimeTypeValidatorTest {
         new MimeTypeValidator("^image.*").isValid(request, response));
   }
 
+  @Test
+  public void testHeadMimeType() {
+    final MimeTypeValidator validator = new MimeTypeValidator("^text.*");
+    final ResponseHead html = new ResponseHead(statusCode, request.getUrl(), headers, 100,
+        ContentType.TEXT_HTML, null);
+    final ResponseHead pdf = new ResponseHead(statusCode, request.getUrl(), headers, 100,
+        ContentType.create("application/pdf"), null);
+    final ResponseHead undeclared = new ResponseHead(statusCode, request.getUrl(), headers, 100, null, null);
+    Assertions.assertEquals(Validator.Status.VALID, validator.isValid(request, html));
+    Assertions.assertEquals(Validator.Status.INVALID_CONTENT, validator.isValid(request, pdf));
+    Assertions.assertEquals(Validator.Status.VALID, validator.isValid(request, undeclared));
+  }
+
 }
@@ -20,6 +20,7 @@ import ai.preferred.venom.request.Request;
 import ai.preferred.venom.request.VRequest;
 import ai.preferred.venom.response.BaseResponse;
 import ai.preferred.venom.response.Response;
+import ai.preferred.venom.response.ResponseHead;
 import org.apache.http.Header;
 import org.apache.http.entity.ContentType;
 import org.junit.jupiter.api.Assertions;
@@ -52,4 +53,12 @@ public class StatusOkValidatorTest {
     Assertions.assertEquals(Validator.Status.VALID, StatusOkValidator.INSTANCE.isValid(request, response));
   }
 
+  @Test
+  public void testHeadStatusCode() {
+    final ResponseHead valid = new ResponseHead(200, request.getUrl(), headers, -1, contentType, null);
+    final ResponseHead invalid = new ResponseHead(404, request.getUrl(), headers, -1, contentType, null);
+    Assertions.assertEquals(Validator.Status.VALID, StatusOkValidator.INSTANCE.isValid(request, valid));
+    Assertions.assertEquals(Validator.Status.INVALID_STATUS_CODE, StatusOkValidator.INSTANCE.isValid(request, invalid));
+  }
+
 }